@@ -22,6 +22,7 @@ import java.util.Map.Entry;
 
 import org.apache.log4j.Logger;
 
+import voldemort.VoldemortException;
 import voldemort.client.StoreClient;
 import voldemort.client.UpdateAction;
 import voldemort.cluster.Node;
@@ -136,6 +137,11 @@ public class RESTClient<K, V> implements StoreClient<K, V> {
         return versioned.getVersion();
     }
 
+    @Override
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries) {
+        return clientStore.putAll(entries, null);
+    }
+
     @Override
     public boolean putIfNotObsolete(K key, Versioned<V> versioned) {
         try {
@@ -19,6 +19,7 @@ package voldemort.client;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -58,6 +59,7 @@ import voldemort.store.routed.RoutedStoreConfig;
 import voldemort.store.routed.RoutedStoreFactory;
 import voldemort.store.serialized.SerializingStore;
 import voldemort.store.slop.Slop;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.store.stats.StatTrackingStore;
 import voldemort.store.stats.StoreClientFactoryStats;
 import voldemort.store.stats.StoreClientFactoryStatsJmx;
@@ -173,6 +175,7 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
         this.storeClientCache = new ConcurrentHashMap<Pair<String, Object>, DefaultStoreClient<?, ?>>();
 
         if(this.isJmxEnabled) {
+            RequestPhaseStats.getInstance().registerJmxIfRequired();
             JmxUtils.registerMbean(threadPool,
                                    JmxUtils.createObjectName(JmxUtils.getPackageName(threadPool.getClass()),
                                                              JmxUtils.getClassName(threadPool.getClass())
@@ -575,6 +578,17 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
                                                                 url.getHost(),
                                                                 url.getPort(),
                                                                 this.requestFormatType);
+        if(config.isCompressBootstrapMetadata()) {
+            StringSerializer serializer = new StringSerializer("UTF-8");
+            List<Versioned<byte[]>> found = remoteStore.get(new ByteArray(serializer.toBytes(key)),
+                                                            serializer.toBytes(MetadataStore.GZIP_TRANSFORM));
+            List<Versioned<String>> values = new ArrayList<Versioned<String>>(found.size());
+            for(Versioned<byte[]> value: found) {
+                values.add(new Versioned<String>(serializer.toObject(MetadataStore.decodeMetadataValue(value.getValue())),
+                                                 value.getVersion()));
+            }
+            return values;
+        }
         Store<String, String, byte[]> store = SerializingStore.wrap(remoteStore,
                                                                     new StringSerializer("UTF-8"),
                                                                     new StringSerializer("UTF-8"),
@@ -661,6 +675,11 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
             }
         }
 
+        if(isJmxEnabled)
+            RequestPhaseStats.getInstance().unregisterJmxIfRequired();
+
+        routedStoreFactory.close();
+
         releaseZenStoreResources();
     }
 
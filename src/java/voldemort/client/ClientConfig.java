@@ -49,6 +49,8 @@ import voldemort.utils.Utils;
 public class ClientConfig {
 
     private volatile int maxConnectionsPerNode = 50;
+    private volatile int minConnectionsPerNode = 1;
+    private volatile long connectionPoolResizeIntervalMs = -1;
     private volatile long connectionTimeoutMs = 500;
     private volatile long socketTimeoutMs = 5000;
     private volatile long idleConnectionTimeoutMs = -1;
@@ -101,6 +103,7 @@ public class ClientConfig {
 
     private volatile int maxBootstrapRetries = 2;
     private volatile boolean fetchAllStoresXmlInBootstrap = true;
+    private volatile boolean compressBootstrapMetadata = false;
     private volatile int bootstrapRetryWaitTimeSeconds = 5;
     private volatile String clientContextName = "";
 
@@ -123,12 +126,16 @@ public class ClientConfig {
     private volatile boolean enableSerializationLayer = true;
     private volatile boolean enableInconsistencyResolvingLayer = true;
     private volatile ZoneAffinity zoneAffinity = new ZoneAffinity();
+    private volatile int readRepairQueueSize = 0;
+    private volatile long readRepairMaxRatePerNode = 0;
 
     public ClientConfig() {}
 
     /* Propery names for propery-based configuration */
 
     public static final String MAX_CONNECTIONS_PER_NODE_PROPERTY = "max_connections";
+    public static final String MIN_CONNECTIONS_PER_NODE_PROPERTY = "min_connections";
+    public static final String CONNECTION_POOL_RESIZE_INTERVAL_MS_PROPERTY = "connection_pool_resize_interval_ms";
     public static final String MAX_TOTAL_CONNECTIONS_PROPERTY = "max_total_connections";
     public static final String MAX_THREADS_PROPERTY = "max_threads";
     public static final String MAX_QUEUED_REQUESTS_PROPERTY = "max_queued_requests";
@@ -186,7 +193,10 @@ public class ClientConfig {
     public static final String GETALL_OP_ZONE_AFFINITY = "getall_op_zone_affinity";
     public static final String GETVERSIONS_OP_ZONE_AFFINITY = "getversions_op_zone_affinity";
     public static final String IDENTIFIER_STRING_KEY = "identifier_string";
+    public static final String READ_REPAIR_QUEUE_SIZE_PROPERTY = "read_repair_queue_size";
+    public static final String READ_REPAIR_MAX_RATE_PER_NODE_PROPERTY = "read_repair_max_rate_per_node";
     public static final String FETCH_ALL_STORES_XML_IN_BOOTSTRAP = "fetch_all_stores_xml_in_bootstrap";
+    public static final String COMPRESS_BOOTSTRAP_METADATA = "compress_bootstrap_metadata";
     public static final String BOOTSTRAP_RETRY_WAIT_TIME_SECONDS = "bootstrap_retry_wait_time_seconds";
 
     /**
@@ -224,6 +234,13 @@ public class ClientConfig {
         if(props.containsKey(MAX_CONNECTIONS_PER_NODE_PROPERTY))
             this.setMaxConnectionsPerNode(props.getInt(MAX_CONNECTIONS_PER_NODE_PROPERTY));
 
+        if(props.containsKey(MIN_CONNECTIONS_PER_NODE_PROPERTY))
+            this.setMinConnectionsPerNode(props.getInt(MIN_CONNECTIONS_PER_NODE_PROPERTY));
+
+        if(props.containsKey(CONNECTION_POOL_RESIZE_INTERVAL_MS_PROPERTY))
+            this.setConnectionPoolResizeInterval(props.getLong(CONNECTION_POOL_RESIZE_INTERVAL_MS_PROPERTY),
+                                                 TimeUnit.MILLISECONDS);
+
         if(props.containsKey(MAX_TOTAL_CONNECTIONS_PROPERTY))
             this.setMaxTotalConnections(props.getInt(MAX_TOTAL_CONNECTIONS_PROPERTY));
 
@@ -365,6 +382,10 @@ public class ClientConfig {
         if(props.containsKey(FETCH_ALL_STORES_XML_IN_BOOTSTRAP)) {
             this.setFetchAllStoresXmlInBootstrap(props.getBoolean(FETCH_ALL_STORES_XML_IN_BOOTSTRAP));
         }
+
+        if(props.containsKey(COMPRESS_BOOTSTRAP_METADATA)) {
+            this.setCompressBootstrapMetadata(props.getBoolean(COMPRESS_BOOTSTRAP_METADATA));
+        }
         
         if (props.containsKey(BOOTSTRAP_RETRY_WAIT_TIME_SECONDS)) {
             this.setBootstrapRetryWaitTimeSeconds(props.getInt(BOOTSTRAP_RETRY_WAIT_TIME_SECONDS));
@@ -453,6 +474,12 @@ public class ClientConfig {
             this.setIdentifierString(props.getString(IDENTIFIER_STRING_KEY));
         }
 
+        if(props.containsKey(READ_REPAIR_QUEUE_SIZE_PROPERTY))
+            this.setReadRepairQueueSize(props.getInt(READ_REPAIR_QUEUE_SIZE_PROPERTY));
+
+        if(props.containsKey(READ_REPAIR_MAX_RATE_PER_NODE_PROPERTY))
+            this.setReadRepairMaxRatePerNode(props.getLong(READ_REPAIR_MAX_RATE_PER_NODE_PROPERTY));
+
     }
 
     /**
@@ -560,6 +587,55 @@ public class ClientConfig {
         return this;
     }
 
+    public int getMinConnectionsPerNode() {
+        return minConnectionsPerNode;
+    }
+
+    /**
+     * Set the number of connections to each voldemort node below which the
+     * connection pool is never shrunk, when the pools are resized (see
+     * {@link #setConnectionPoolResizeInterval(long, TimeUnit)}). Values above
+     * the maximum number of connections are capped to it.
+     * 
+     * @param minConnectionsPerNode The minimum number of connections
+     */
+    public ClientConfig setMinConnectionsPerNode(int minConnectionsPerNode) {
+        if(minConnectionsPerNode <= 0)
+            throw new IllegalArgumentException("Value must be greater than zero.");
+        this.minConnectionsPerNode = minConnectionsPerNode;
+        return this;
+    }
+
+    public long getConnectionPoolResizeInterval(TimeUnit unit) {
+        if(connectionPoolResizeIntervalMs <= 0) {
+            return connectionPoolResizeIntervalMs;
+        }
+        return unit.convert(connectionPoolResizeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the interval at which the connection pool of each voldemort node is
+     * resized to the load seen in the interval. A pool whose checkouts had to
+     * queue is grown towards the maximum number of connections, while a pool
+     * with idle connections closes half of them, down to the minimum number
+     * of connections. Without resizing every pool may grow up to the maximum
+     * number of connections and keeps them open.
+     * 
+     * @param connectionPoolResizeInterval zero or negative number to disable
+     *        the feature (default -1)
+     * @param unit {@link TimeUnit}
+     * @return ClientConfig object for chained set
+     */
+    public ClientConfig setConnectionPoolResizeInterval(long connectionPoolResizeInterval,
+                                                        TimeUnit unit) {
+        if(connectionPoolResizeInterval <= 0) {
+            this.connectionPoolResizeIntervalMs = -1;
+        } else {
+            this.connectionPoolResizeIntervalMs = unit.toMillis(connectionPoolResizeInterval);
+        }
+        return this;
+    }
+
     public int getSocketTimeout(TimeUnit unit) {
         return toInt(unit.convert(socketTimeoutMs, TimeUnit.MILLISECONDS));
     }
@@ -926,6 +1002,42 @@ public class ClientConfig {
         return this;
     }
 
+    public int getReadRepairQueueSize() {
+        return readRepairQueueSize;
+    }
+
+    /**
+     * Send read repairs in the background instead of from the request which
+     * found them. Repairs of the same key and version coalesce while they
+     * wait, and are dropped once this many are waiting.
+     * 
+     * @param readRepairQueueSize The number of repairs which may wait to be
+     *        sent, 0 to send them from the request (default)
+     */
+    public ClientConfig setReadRepairQueueSize(int readRepairQueueSize) {
+        if(readRepairQueueSize < 0)
+            throw new IllegalArgumentException("Value must be non-negative.");
+        this.readRepairQueueSize = readRepairQueueSize;
+        return this;
+    }
+
+    public long getReadRepairMaxRatePerNode() {
+        return readRepairMaxRatePerNode;
+    }
+
+    /**
+     * Limit the rate of the read repairs sent in the background to each node
+     * 
+     * @param readRepairMaxRatePerNode The maximum number of repairs per
+     *        second, 0 for unlimited (default)
+     */
+    public ClientConfig setReadRepairMaxRatePerNode(long readRepairMaxRatePerNode) {
+        if(readRepairMaxRatePerNode < 0)
+            throw new IllegalArgumentException("Value must be non-negative.");
+        this.readRepairMaxRatePerNode = readRepairMaxRatePerNode;
+        return this;
+    }
+
     /**
      * Sets the zone the client belongs to. This is very important in zoned
      * configurations since the client always has an "affinity" towards the
@@ -1206,6 +1318,23 @@ public class ClientConfig {
         return this;
     }
 
+    public boolean isCompressBootstrapMetadata() {
+        return compressBootstrapMetadata;
+    }
+
+    /**
+     * If enabled, the client asks the bootstrap servers for gzipped metadata,
+     * which the servers compress once per metadata version. Servers which do
+     * not support it answer with uncompressed metadata, which the client
+     * still accepts.
+     * 
+     * @param value true, to request compressed metadata
+     */
+    public ClientConfig setCompressBootstrapMetadata(boolean value) {
+        this.compressBootstrapMetadata = value;
+        return this;
+    }
+
     public String getClientContextName() {
         return clientContextName;
     }
@@ -1350,6 +1479,9 @@ public class ClientConfig {
     public String toString() {
         StringBuilder clientConfigInfo = new StringBuilder();
         clientConfigInfo.append("Max connections per node: " + this.maxConnectionsPerNode + "\n");
+        clientConfigInfo.append("Min connections per node: " + this.minConnectionsPerNode + "\n");
+        clientConfigInfo.append("Connection pool resize interval : "
+                                + this.connectionPoolResizeIntervalMs + "\n");
         clientConfigInfo.append("Connection timeout : " + this.connectionTimeoutMs + "\n");
         clientConfigInfo.append("Socket timeout : " + this.socketTimeoutMs + "\n");
         clientConfigInfo.append("Routing timeout : " + this.routingTimeoutMs + "\n");
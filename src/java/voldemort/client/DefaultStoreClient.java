@@ -265,6 +265,20 @@ public class DefaultStoreClient<K, V> implements StoreClient<K, V> {
                                      + " metadata refresh attempts failed.");
     }
 
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries) {
+        for(int attempts = 0; attempts < this.metadataRefreshAttempts; attempts++) {
+            try {
+                return store.putAll(entries, null);
+            } catch(InvalidMetadataException e) {
+                logger.info("Received invalid metadata exception during putAll [  "
+                            + e.getMessage() + " ] on store '" + storeName + "'. Rebootstrapping");
+                bootStrap();
+            }
+        }
+        throw new VoldemortException(this.metadataRefreshAttempts
+                                     + " metadata refresh attempts failed.");
+    }
+
     public boolean applyUpdate(UpdateAction<K, V> action) {
         return applyUpdate(action, 3);
     }
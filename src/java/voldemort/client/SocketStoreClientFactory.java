@@ -63,7 +63,10 @@ public class SocketStoreClientFactory extends AbstractStoreClientFactory {
         this.requestRoutingType = RequestRoutingType.getRequestRoutingType(RoutingTier.SERVER.equals(config.getRoutingTier()),
                                                                            false);
         this.storeFactory = new ClientRequestExecutorPool(config.getSelectors(),
+                                                          Math.min(config.getMinConnectionsPerNode(),
+                                                                   config.getMaxConnectionsPerNode()),
                                                           config.getMaxConnectionsPerNode(),
+                                                          config.getConnectionPoolResizeInterval(TimeUnit.MILLISECONDS),
                                                           config.getConnectionTimeout(TimeUnit.MILLISECONDS),
                                                           config.getSocketTimeout(TimeUnit.MILLISECONDS),
                                                           config.getIdleConnectionTimeout(TimeUnit.MILLISECONDS),
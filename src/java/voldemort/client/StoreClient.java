@@ -19,6 +19,7 @@ package voldemort.client;
 import java.util.List;
 import java.util.Map;
 
+import voldemort.VoldemortException;
 import voldemort.annotations.concurrency.Threadsafe;
 import voldemort.cluster.Node;
 import voldemort.versioning.ObsoleteVersionException;
@@ -147,6 +148,19 @@ public interface StoreClient<K, V> {
      */
     public Version put(K key, Versioned<V> versioned) throws ObsoleteVersionException;
 
+    /**
+     * Put each of the given Versioned values into the store for its key, as
+     * {@link #put(Object, Versioned)} does, batching the puts that go to the
+     * same nodes. The version of each value that was put is updated to the
+     * version it was stored with.
+     * 
+     * @param entries The versioned values to put, keyed by key
+     * @return The exception each failed put threw, for instance an
+     *         ObsoleteVersionException, keyed by key. Empty if all the puts
+     *         succeeded.
+     */
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries);
+
     /**
      * Put the versioned value to the key, ignoring any ObsoleteVersionException
      * that may be thrown
@@ -20,11 +20,14 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import voldemort.VoldemortException;
 import voldemort.server.RequestRoutingType;
 import voldemort.utils.ByteArray;
+import voldemort.utils.MerkleTree;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
@@ -93,6 +96,56 @@ public interface RequestFormat {
 
     public void readPutResponse(DataInputStream stream) throws IOException;
 
+    /**
+     * @return true if this format can send a batch of puts as one request
+     */
+    public boolean supportsPutAll();
+
+    public void writePutAllRequest(DataOutputStream output,
+                                   String storeName,
+                                   Map<ByteArray, Versioned<byte[]>> entries,
+                                   Map<ByteArray, byte[]> transforms,
+                                   RequestRoutingType routingType) throws IOException;
+
+    public boolean isCompletePutAllResponse(ByteBuffer buffer);
+
+    /**
+     * @return The exception each failed put threw, keyed by key
+     */
+    public Map<ByteArray, VoldemortException> readPutAllResponse(DataInputStream stream)
+            throws IOException;
+
+    /**
+     * @return true if this format can fetch the Merkle trees of partitions
+     */
+    public boolean supportsMerkleTrees();
+
+    public void writeGetMerkleTreeRequest(DataOutputStream output,
+                                          String storeName,
+                                          int partition,
+                                          int depth,
+                                          RequestRoutingType routingType) throws IOException;
+
+    public boolean isCompleteGetMerkleTreeResponse(ByteBuffer buffer);
+
+    public MerkleTree readGetMerkleTreeResponse(DataInputStream stream) throws IOException;
+
+    public void writeGetMerkleLeafVersionsRequest(DataOutputStream output,
+                                                  String storeName,
+                                                  int partition,
+                                                  int depth,
+                                                  Collection<Integer> leaves,
+                                                  RequestRoutingType routingType)
+            throws IOException;
+
+    public boolean isCompleteGetMerkleLeafVersionsResponse(ByteBuffer buffer);
+
+    /**
+     * @return The versions of each key of the requested leaves
+     */
+    public Map<ByteArray, List<Version>> readGetMerkleLeafVersionsResponse(DataInputStream stream)
+            throws IOException;
+
     public void writeDeleteRequest(DataOutputStream output,
                                    String storeName,
                                    ByteArray key,
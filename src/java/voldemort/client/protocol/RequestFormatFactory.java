@@ -37,6 +37,10 @@ public class RequestFormatFactory {
                 return new VoldemortNativeClientRequestFormat(2);
             case VOLDEMORT_V3:
                 return new VoldemortNativeClientRequestFormat(3);
+            case VOLDEMORT_V4:
+                return new VoldemortNativeClientRequestFormat(4);
+            case VOLDEMORT_V5:
+                return new VoldemortNativeClientRequestFormat(5);
             case PROTOCOL_BUFFERS:
                 return new ProtoBuffClientRequestFormat();
             default:
@@ -27,6 +27,8 @@ public enum RequestFormatType {
     VOLDEMORT_V2("vp2", "voldemort-native-v2"),
     VOLDEMORT_V3("vp3", "voldemort-native-v3"), // has the transforms
     // information
+    VOLDEMORT_V4("vp4", "voldemort-native-v4"), // has put all
+    VOLDEMORT_V5("vp5", "voldemort-native-v5"), // has the request trace ids
     PROTOCOL_BUFFERS("pb0", "protocol-buffers-v0"),
     ADMIN_PROTOCOL_BUFFERS("ad1", "admin-v1");
 
@@ -23,14 +23,21 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 
@@ -45,8 +52,10 @@ import voldemort.store.InsufficientOperationalNodesException;
 import voldemort.store.StoreDefinition;
 import voldemort.store.socket.SocketDestination;
 import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.Pair;
+import voldemort.utils.Time;
 import voldemort.versioning.Versioned;
 
 /**
@@ -65,6 +74,12 @@ import voldemort.versioning.Versioned;
  * 
  * Right now we expect this to used by a single thread per data source
  * 
+ * With {@link StreamingClientConfig#isParallelWriters()} enabled, the calling
+ * thread only routes the entries and hands them to one writer thread per
+ * destination node through a bounded queue. The writers put the entries on the
+ * wire and acknowledge the batches in parallel, while a commit still waits
+ * for every node to acknowledge before the checkpoint callback is invoked.
+ * 
  */
 public class BaseStreamingClient {
 
@@ -111,13 +126,26 @@ public class BaseStreamingClient {
     // Resource
 
     protected HashMap<String, RoutingStrategy> storeToRoutingStrategy;
-    protected HashMap<Pair<String, Integer>, Boolean> nodeIdStoreInitialized;
+    protected Map<Pair<String, Integer>, Boolean> nodeIdStoreInitialized;
+
+    private Map<Pair<String, Integer>, SocketDestination> nodeIdStoreToSocketRequest;
+    protected Map<Pair<String, Integer>, DataOutputStream> nodeIdStoreToOutputStreamRequest;
+    private Map<Pair<String, Integer>, DataInputStream> nodeIdStoreToInputStreamRequest;
+
+    private Map<Pair<String, Integer>, SocketAndStreams> nodeIdStoreToSocketAndStreams;
 
-    private HashMap<Pair<String, Integer>, SocketDestination> nodeIdStoreToSocketRequest;
-    protected HashMap<Pair<String, Integer>, DataOutputStream> nodeIdStoreToOutputStreamRequest;
-    private HashMap<Pair<String, Integer>, DataInputStream> nodeIdStoreToInputStreamRequest;
+    // Per node writers, only used if parallel writers are enabled
+    private final boolean parallelWriters;
+    private final int writerQueueSize;
+    private Map<Integer, NodeWriter> nodeWriters;
+    private ExecutorService writerExecutor;
+    // Set by a writer which failed to send an entry, so that the recovery
+    // callback gets invoked from the streaming thread
+    private final AtomicBoolean writerFailed = new AtomicBoolean(false);
 
-    private HashMap<Pair<String, Integer>, SocketAndStreams> nodeIdStoreToSocketAndStreams;
+    // Time the last commit waited for the destination nodes to write and
+    // acknowledge their streams
+    private volatile long lastCommitLatencyMs = 0;
 
     private List<String> storeNames;
 
@@ -135,9 +163,11 @@ public class BaseStreamingClient {
         CHECKPOINT_COMMIT_SIZE = config.getBatchSize();
         THROTTLE_QPS = config.getThrottleQPS();
         this.overWriteIfLatestTs = config.isOverWriteIfLatestTs();
+        this.parallelWriters = config.isParallelWriters();
+        this.writerQueueSize = config.getWriterQueueSize();
 
         adminClient = new AdminClient(bootstrapURL);
-        faultyNodes = new ArrayList<Integer>();
+        faultyNodes = Collections.synchronizedList(new ArrayList<Integer>());
         storeNames = new ArrayList<String>();
         nodesToStream = new ArrayList<Node>();
     }
@@ -150,6 +180,14 @@ public class BaseStreamingClient {
         return faultyNodes;
     }
 
+    /**
+     * @return the time in ms the last commit took until every destination node
+     *         acknowledged its streams
+     */
+    public long getLastCommitLatencyMs() {
+        return lastCommitLatencyMs;
+    }
+
     public synchronized void updateThrottleLimit(int throttleQPS) {
         THROTTLE_QPS = throttleQPS;
 
@@ -344,17 +382,66 @@ public class BaseStreamingClient {
                                              adminClientConfig.getAdminSocketBufferSize(),
                                              adminClientConfig.getAdminSocketKeepAlive());
 
-        nodeIdStoreToSocketRequest = new HashMap();
-        nodeIdStoreToOutputStreamRequest = new HashMap();
-        nodeIdStoreToInputStreamRequest = new HashMap();
-        nodeIdStoreInitialized = new HashMap();
+        nodeIdStoreToSocketRequest = new ConcurrentHashMap();
+        nodeIdStoreToOutputStreamRequest = new ConcurrentHashMap();
+        nodeIdStoreToInputStreamRequest = new ConcurrentHashMap();
+        nodeIdStoreInitialized = new ConcurrentHashMap();
         storeToRoutingStrategy = new HashMap();
-        nodeIdStoreToSocketAndStreams = new HashMap();
+        nodeIdStoreToSocketAndStreams = new ConcurrentHashMap();
         for(String store: stores) {
 
             addStoreToSession(store);
         }
 
+        if(parallelWriters) {
+            startWriters();
+        }
+
+    }
+
+    private void startWriters() {
+        writerFailed.set(false);
+        nodeWriters = new ConcurrentHashMap<Integer, NodeWriter>();
+        writerExecutor = Executors.newFixedThreadPool(nodesToStream.size(),
+                                                      new DaemonThreadFactory("streaming-writer"));
+        for(Node node: nodesToStream) {
+            NodeWriter writer = new NodeWriter(node.getId());
+            nodeWriters.put(node.getId(), writer);
+            writerExecutor.execute(writer);
+        }
+    }
+
+    private void stopWriters() {
+        if(nodeWriters == null)
+            return;
+        for(NodeWriter writer: nodeWriters.values()) {
+            writer.stop();
+        }
+        nodeWriters = null;
+        writerExecutor.shutdown();
+        try {
+            // the writers must be done with their sockets before they are
+            // closed and checked back in
+            if(!writerExecutor.awaitTermination(getWriterStopTimeoutMs(), TimeUnit.MILLISECONDS))
+                logger.warn("Streaming writers did not stop in time, closing their sockets");
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerExecutor = null;
+    }
+
+    /**
+     * A writer blocked on its socket gets unblocked by the socket timeout
+     */
+    private long getWriterStopTimeoutMs() {
+        return TimeUnit.SECONDS.toMillis(adminClientConfig.getAdminSocketTimeoutSec());
+    }
+
+    private void markFaulty(int nodeId) {
+        synchronized(faultyNodes) {
+            if(!faultyNodes.contains(nodeId))
+                faultyNodes.add(nodeId);
+        }
     }
 
     /**
@@ -500,6 +587,20 @@ public class BaseStreamingClient {
 
         List<Node> nodeList = storeToRoutingStrategy.get(storeName).routeRequest(key.get());
 
+        VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
+                                                                              .setKey(ProtoUtils.encodeBytes(key))
+                                                                              .setVersioned(ProtoUtils.encodeVersioned(value))
+                                                                              .build();
+
+        VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
+                                                                                                                   .setStore(storeName)
+                                                                                                                   .setPartitionEntry(partitionEntry);
+        if(overWriteIfLatestTs) {
+            updateRequest.setOverwriteIfLatestTs(overWriteIfLatestTs);
+        }
+        // the same request goes to every replica
+        VAdminProto.UpdatePartitionEntriesRequest request = updateRequest.build();
+
         int nodesWithException = 0;
         // sent the k/v pair to the nodes
         for(Node node: nodeList) {
@@ -508,51 +609,21 @@ public class BaseStreamingClient {
                 if(blackListedNodes.contains(node.getId()))
                     continue;
             }
-            // if node! in blacklistednodes
-
-            VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
-                                                                                  .setKey(ProtoUtils.encodeBytes(key))
-                                                                                  .setVersioned(ProtoUtils.encodeVersioned(value))
-                                                                                  .build();
-
-            VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = null;
-
-            if(overWriteIfLatestTs) {
-                updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
-                                                                         .setStore(storeName)
-                                                                         .setPartitionEntry(partitionEntry)
-                                                                         .setOverwriteIfLatestTs(overWriteIfLatestTs);
-            } else {
-                updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
-                                                                         .setStore(storeName)
-                                                                         .setPartitionEntry(partitionEntry);
-            }
 
-            DataOutputStream outputStream = nodeIdStoreToOutputStreamRequest.get(new Pair(storeName,
-                                                                                          node.getId()));
             try {
-                if(nodeIdStoreInitialized.get(new Pair(storeName, node.getId()))) {
-                    ProtoUtils.writeMessage(outputStream, updateRequest.build());
-                } else {
-                    ProtoUtils.writeMessage(outputStream,
-                                            VAdminProto.VoldemortAdminRequest.newBuilder()
-                                                                             .setType(VAdminProto.AdminRequestType.UPDATE_PARTITION_ENTRIES)
-                                                                             .setUpdatePartitionEntries(updateRequest)
-                                                                             .build());
-                    outputStream.flush();
-                    nodeIdStoreInitialized.put(new Pair(storeName, node.getId()), true);
-
-                }
-
+                writeEntry(storeName, node.getId(), request);
             } catch(IOException e) {
-                e.printStackTrace();
+                logger.error("Failed to stream entry to node " + node.getId(), e);
                 nodesWithException++;
-                if(!faultyNodes.contains(node.getId()))
-                    faultyNodes.add(node.getId());
+                markFaulty(node.getId());
             }
 
         }
 
+        if(writerFailed.getAndSet(false)) {
+            nodesWithException++;
+        }
+
         if(nodesWithException > 0) {
             logger.warn("Invoking the Recovery Callback");
             Future future = streamingresults.submit(recoveryCallback);
@@ -581,6 +652,53 @@ public class BaseStreamingClient {
 
     }
 
+    /**
+     * Hands an entry to the stream of the given store and node; either
+     * directly, or through the node's writer if parallel writers are enabled.
+     * 
+     * @param storeName The store the entry belongs to
+     * @param nodeId The destination node
+     * @param request The entry to stream
+     * @throws IOException if the entry could not be written to the stream
+     */
+    protected void writeEntry(String storeName,
+                              int nodeId,
+                              VAdminProto.UpdatePartitionEntriesRequest request)
+            throws IOException {
+        if(nodeWriters != null) {
+            NodeWriter writer = nodeWriters.get(nodeId);
+            if(writer == null) {
+                throw new IOException("No streaming writer for node " + nodeId);
+            }
+            writer.enqueue(new StreamingEntry(storeName, request));
+        } else {
+            sendEntry(storeName, nodeId, request);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void sendEntry(String storeName,
+                           int nodeId,
+                           VAdminProto.UpdatePartitionEntriesRequest request)
+            throws IOException {
+        Pair<String, Integer> storeAndNode = new Pair(storeName, nodeId);
+        DataOutputStream outputStream = nodeIdStoreToOutputStreamRequest.get(storeAndNode);
+        if(outputStream == null) {
+            throw new IOException("No stream open to node " + nodeId + " for store " + storeName);
+        }
+        if(nodeIdStoreInitialized.get(storeAndNode)) {
+            ProtoUtils.writeMessage(outputStream, request);
+        } else {
+            ProtoUtils.writeMessage(outputStream,
+                                    VAdminProto.VoldemortAdminRequest.newBuilder()
+                                                                     .setType(VAdminProto.AdminRequestType.UPDATE_PARTITION_ENTRIES)
+                                                                     .setUpdatePartitionEntries(request)
+                                                                     .build());
+            outputStream.flush();
+            nodeIdStoreInitialized.put(storeAndNode, true);
+        }
+    }
+
     /**
      * Flush the network buffer and write all entries to the server Wait for an
      * ack from the server This is a blocking call. It is invoked on every
@@ -623,6 +741,16 @@ public class BaseStreamingClient {
 
         }
 
+        if(nodeWriters != null) {
+            NodeWriter writer = nodeWriters.remove(nodeId);
+            if(writer != null) {
+                writer.stop();
+                if(!writer.awaitExit(getWriterStopTimeoutMs()))
+                    logger.warn("Streaming writer for node " + nodeId
+                                + " did not stop in time, closing its sockets");
+            }
+        }
+
         for(String store: storeNames) {
             try {
                 SocketAndStreams sands = nodeIdStoreToSocketAndStreams.get(new Pair(store, nodeId));
@@ -660,36 +788,18 @@ public class BaseStreamingClient {
             return;
         }
 
-        for(Node node: nodesToStream) {
-
-            for(String store: storeNamesToCommit) {
-                if(!nodeIdStoreInitialized.get(new Pair(store, node.getId())))
-                    continue;
-
-                nodeIdStoreInitialized.put(new Pair(store, node.getId()), false);
-
-                DataOutputStream outputStream = nodeIdStoreToOutputStreamRequest.get(new Pair(store,
-                                                                                              node.getId()));
-
-                try {
-                    ProtoUtils.writeEndOfStream(outputStream);
-                    outputStream.flush();
-                    DataInputStream inputStream = nodeIdStoreToInputStreamRequest.get(new Pair(store,
-                                                                                               node.getId()));
-                    VAdminProto.UpdatePartitionEntriesResponse.Builder updateResponse = ProtoUtils.readToBuilder(inputStream,
-                                                                                                                 VAdminProto.UpdatePartitionEntriesResponse.newBuilder());
-                    if(updateResponse.hasError()) {
-                        hasError = true;
-                    }
-
-                } catch(IOException e) {
-                    logger.error("Exception during commit", e);
+        long startNs = System.nanoTime();
+        if(nodeWriters != null) {
+            hasError = commitWithWriters(storeNamesToCommit);
+        } else {
+            for(Node node: nodesToStream) {
+                if(commitToNode(node.getId(), storeNamesToCommit))
                     hasError = true;
-                    if(!faultyNodes.contains(node.getId()))
-                        faultyNodes.add(node.getId());
-                }
             }
-
+        }
+        lastCommitLatencyMs = (System.nanoTime() - startNs) / Time.NS_PER_MS;
+        if(writerFailed.getAndSet(false)) {
+            hasError = true;
         }
 
         if(streamingresults == null) {
@@ -732,6 +842,69 @@ public class BaseStreamingClient {
 
     }
 
+    /**
+     * Ends the streams of the given stores to one node and waits for the node
+     * to acknowledge them
+     * 
+     * @return true if the node failed to acknowledge any of the streams
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean commitToNode(int nodeId, List<String> storeNamesToCommit) {
+        boolean hasError = false;
+        for(String store: storeNamesToCommit) {
+            Pair<String, Integer> storeAndNode = new Pair(store, nodeId);
+            Boolean initialized = nodeIdStoreInitialized.get(storeAndNode);
+            if(initialized == null || !initialized)
+                continue;
+
+            nodeIdStoreInitialized.put(storeAndNode, false);
+
+            DataOutputStream outputStream = nodeIdStoreToOutputStreamRequest.get(storeAndNode);
+
+            try {
+                ProtoUtils.writeEndOfStream(outputStream);
+                outputStream.flush();
+                DataInputStream inputStream = nodeIdStoreToInputStreamRequest.get(storeAndNode);
+                VAdminProto.UpdatePartitionEntriesResponse.Builder updateResponse = ProtoUtils.readToBuilder(inputStream,
+                                                                                                             VAdminProto.UpdatePartitionEntriesResponse.newBuilder());
+                if(updateResponse.hasError()) {
+                    hasError = true;
+                }
+
+            } catch(IOException e) {
+                logger.error("Exception during commit", e);
+                hasError = true;
+                markFaulty(nodeId);
+            }
+        }
+        return hasError;
+    }
+
+    /**
+     * Has every node writer end its streams once the entries queued before
+     * are written, and waits for all of them to be acknowledged
+     * 
+     * @return true if any node failed to acknowledge its streams
+     */
+    private boolean commitWithWriters(List<String> storeNamesToCommit) {
+        Collection<NodeWriter> writers = nodeWriters.values();
+        CommitRequest commit = new CommitRequest(storeNamesToCommit, writers.size());
+        try {
+            for(NodeWriter writer: writers) {
+                writer.enqueue(commit);
+            }
+            commit.await();
+        } catch(IOException e) {
+            logger.error("Failed to hand the commit to the streaming writers", e);
+            return true;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while waiting for the streaming writers to commit", e);
+            return true;
+        }
+        return commit.hasError();
+    }
+
     /**
      ** 
      * @param resetCheckpointCallback - the callback that allows for the user to
@@ -774,6 +947,7 @@ public class BaseStreamingClient {
      */
     private void cleanupSessions() {
 
+        stopWriters();
         cleanupSessions(storeNames);
     }
 
@@ -809,4 +983,168 @@ public class BaseStreamingClient {
 
     }
 
+    private static class StreamingEntry {
+
+        private final String storeName;
+        private final VAdminProto.UpdatePartitionEntriesRequest request;
+
+        public StreamingEntry(String storeName, VAdminProto.UpdatePartitionEntriesRequest request) {
+            this.storeName = storeName;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Commit shared by all node writers, completed once every writer ended and
+     * acknowledged its streams
+     */
+    private static class CommitRequest {
+
+        private final List<String> storeNames;
+        private final CountDownLatch pendingWriters;
+        private final AtomicBoolean hasError = new AtomicBoolean(false);
+
+        public CommitRequest(List<String> storeNames, int numWriters) {
+            this.storeNames = storeNames;
+            this.pendingWriters = new CountDownLatch(numWriters);
+        }
+
+        public void complete(boolean error) {
+            if(error)
+                hasError.set(true);
+            pendingWriters.countDown();
+        }
+
+        public void await() throws InterruptedException {
+            pendingWriters.await();
+        }
+
+        public boolean hasError() {
+            return hasError.get();
+        }
+    }
+
+    private static final Object STOP_WRITER = new Object();
+
+    /**
+     * Owns all the streams to one node when parallel writers are enabled, so
+     * that the sockets to the different nodes are written concurrently
+     */
+    private class NodeWriter implements Runnable {
+
+        private final int nodeId;
+        private final BlockingQueue<Object> queue;
+        // entries are dropped after a failed write until the next commit,
+        // which reports the failure
+        private boolean failed = false;
+        // set on stop, so that the entries already taken from the queue are
+        // dropped as well
+        private volatile boolean stopping = false;
+        private final CountDownLatch exited = new CountDownLatch(1);
+
+        public NodeWriter(int nodeId) {
+            this.nodeId = nodeId;
+            this.queue = new ArrayBlockingQueue<Object>(writerQueueSize);
+        }
+
+        public void enqueue(Object item) throws IOException {
+            try {
+                queue.put(item);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while queueing entry for node " + nodeId);
+            }
+        }
+
+        public void stop() {
+            stopping = true;
+            if(!queue.offer(STOP_WRITER)) {
+                logger.warn("Streaming writer queue for node " + nodeId
+                            + " is full, dropping the queued entries");
+                queue.clear();
+                queue.offer(STOP_WRITER);
+            }
+        }
+
+        /**
+         * Waits for the writer to stop using its sockets after {@link #stop()}
+         * 
+         * @return true if the writer exited within the timeout
+         */
+        public boolean awaitExit(long timeoutMs) {
+            try {
+                return exited.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        public void run() {
+            List<Object> batch = new ArrayList<Object>();
+            try {
+                while(true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                    for(int i = 0; i < batch.size(); i++) {
+                        Object item = batch.get(i);
+                        if(item == STOP_WRITER || stopping) {
+                            abandon(batch.subList(i, batch.size()));
+                            return;
+                        } else if(item instanceof CommitRequest) {
+                            commit((CommitRequest) item);
+                        } else {
+                            send((StreamingEntry) item);
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch(InterruptedException e) {
+                logger.warn("Streaming writer for node " + nodeId + " interrupted", e);
+            } finally {
+                exited.countDown();
+            }
+        }
+
+        /**
+         * Fails the commits which will not be processed, so that nobody waits
+         * for them
+         */
+        private void abandon(List<Object> unprocessed) {
+            List<Object> items = new ArrayList<Object>(unprocessed);
+            queue.drainTo(items);
+            for(Object item: items) {
+                if(item instanceof CommitRequest)
+                    ((CommitRequest) item).complete(true);
+            }
+        }
+
+        private void send(StreamingEntry entry) {
+            if(failed)
+                return;
+            try {
+                sendEntry(entry.storeName, nodeId, entry.request);
+            } catch(Exception e) {
+                logger.error("Failed to stream entry to node " + nodeId, e);
+                failed = true;
+                markFaulty(nodeId);
+                writerFailed.set(true);
+            }
+        }
+
+        private void commit(CommitRequest commit) {
+            boolean error = failed;
+            try {
+                if(commitToNode(nodeId, commit.storeNames))
+                    error = true;
+            } catch(Exception e) {
+                logger.error("Failed to commit to node " + nodeId, e);
+                error = true;
+            } finally {
+                failed = false;
+                commit.complete(error);
+            }
+        }
+    }
+
 }
@@ -1,6 +1,5 @@
 package voldemort.client.protocol.admin;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
@@ -22,7 +21,6 @@ import voldemort.store.InsufficientOperationalNodesException;
 import voldemort.store.slop.Slop;
 import voldemort.store.slop.strategy.HandoffToAnyStrategy;
 import voldemort.utils.ByteArray;
-import voldemort.utils.Pair;
 import voldemort.versioning.Versioned;
 
 /**
@@ -171,21 +169,7 @@ public class StreamingClient extends BaseStreamingClient {
                                                                                                                    .setStore(SLOP_STORE)
                                                                                                                    .setPartitionEntry(partitionEntry);
 
-        DataOutputStream outputStream = nodeIdStoreToOutputStreamRequest.get(new Pair<String, Integer>(SLOP_STORE,
-                                                                                                       slopDestination));
-
-        if(nodeIdStoreInitialized.get(new Pair<String, Integer>(SLOP_STORE, slopDestination))) {
-            ProtoUtils.writeMessage(outputStream, updateRequest.build());
-        } else {
-            ProtoUtils.writeMessage(outputStream,
-                                    VAdminProto.VoldemortAdminRequest.newBuilder()
-                                                                     .setType(VAdminProto.AdminRequestType.UPDATE_PARTITION_ENTRIES)
-                                                                     .setUpdatePartitionEntries(updateRequest)
-                                                                     .build());
-            outputStream.flush();
-            nodeIdStoreInitialized.put(new Pair<String, Integer>(SLOP_STORE, slopDestination), true);
-
-        }
+        writeEntry(SLOP_STORE, slopDestination, updateRequest.build());
 
         throttler.maybeThrottle(1);
 
@@ -15,12 +15,16 @@ public class StreamingClientConfig implements Serializable {
     // By default, don't tolerate any faulty hosts.
     private static final int DEFAULT_MAX_FAULTY_NODES = 0;
     private static final boolean DEFAULT_OVERWRITE_IF_LATEST_TS = false; 
+    private static final boolean DEFAULT_PARALLEL_WRITERS = false;
+    private static final int DEFAULT_WRITER_QUEUE_SIZE = 10000;
 
     private int batchSize;
     private int throttleQPS;
     private int failedNodesTolerated;
     private String bootstrapURL;    
     private boolean overWriteIfLatestTs;
+    private boolean parallelWriters = DEFAULT_PARALLEL_WRITERS;
+    private int writerQueueSize = DEFAULT_WRITER_QUEUE_SIZE;
 
     public StreamingClientConfig() {
 
@@ -34,6 +38,10 @@ public class StreamingClientConfig implements Serializable {
                                                     DEFAULT_OVERWRITE_IF_LATEST_TS);
         this.setFailedNodesTolerated(props.getInt("streaming.platform.max.failed.nodes",
                                                   DEFAULT_MAX_FAULTY_NODES));
+        this.parallelWriters = props.getBoolean("streaming.platform.parallel.writers",
+                                                DEFAULT_PARALLEL_WRITERS);
+        this.writerQueueSize = props.getInt("streaming.platform.writer.queue.size",
+                                            DEFAULT_WRITER_QUEUE_SIZE);
 
         try {
             this.bootstrapURL = props.getString("streaming.platform.bootstrapURL");
@@ -76,6 +84,9 @@ public class StreamingClientConfig implements Serializable {
 
         if(throttleQPS < 0)
             throw new IllegalArgumentException("streaming.platform.throttle.qps cannot be less than 1");
+
+        if(writerQueueSize < 1)
+            throw new IllegalArgumentException("streaming.platform.writer.queue.size cannot be less than 1");
         
         // TODO For streaming services that use slop as a mechanism to eventually consolidate data across servers, 
         // they should
@@ -104,4 +115,29 @@ public class StreamingClientConfig implements Serializable {
     public void setOverWriteIfLatestTs(boolean overWriteIfLatestTs) {
         this.overWriteIfLatestTs = overWriteIfLatestTs;
     }
+
+    public boolean isParallelWriters() {
+        return parallelWriters;
+    }
+
+    /**
+     * If true, every destination node gets its own writer thread and bounded
+     * queue, so the socket writes of a streaming session run in parallel
+     * instead of in the thread calling streamingPut
+     */
+    public void setParallelWriters(boolean parallelWriters) {
+        this.parallelWriters = parallelWriters;
+    }
+
+    public int getWriterQueueSize() {
+        return writerQueueSize;
+    }
+
+    /**
+     * Number of entries buffered per destination node when parallel writers
+     * are enabled. streamingPut blocks once a node's queue is full.
+     */
+    public void setWriterQueueSize(int writerQueueSize) {
+        this.writerQueueSize = writerQueueSize;
+    }
 }
@@ -20,10 +20,12 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormat;
 import voldemort.client.protocol.pb.VProto.DeleteResponse;
 import voldemort.client.protocol.pb.VProto.GetAllResponse;
@@ -34,7 +36,9 @@ import voldemort.client.protocol.pb.VProto.RequestType;
 import voldemort.server.RequestRoutingType;
 import voldemort.store.ErrorCodeMapper;
 import voldemort.store.StoreUtils;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
+import voldemort.utils.MerkleTree;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
@@ -62,15 +66,15 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
                                    RequestRoutingType routingType) throws IOException {
         StoreUtils.assertValidKey(key);
         ProtoUtils.writeMessage(output,
-                                VProto.VoldemortRequest.newBuilder()
-                                                       .setType(RequestType.DELETE)
-                                                       .setStore(storeName)
-                                                       .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
-                                                       .setRequestRouteType(routingType.getRoutingTypeCode())
-                                                       .setDelete(VProto.DeleteRequest.newBuilder()
-                                                                                      .setKey(ByteString.copyFrom(key.get()))
-                                                                                      .setVersion(ProtoUtils.encodeClock(version)))
-                                                       .build());
+                                newRequest()
+                                          .setType(RequestType.DELETE)
+                                          .setStore(storeName)
+                                          .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
+                                          .setRequestRouteType(routingType.getRoutingTypeCode())
+                                          .setDelete(VProto.DeleteRequest.newBuilder()
+                                                                         .setKey(ByteString.copyFrom(key.get()))
+                                                                         .setVersion(ProtoUtils.encodeClock(version)))
+                                          .build());
     }
 
     public boolean isCompleteDeleteResponse(ByteBuffer buffer) {
@@ -100,13 +104,13 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
         }
 
         ProtoUtils.writeMessage(output,
-                                VProto.VoldemortRequest.newBuilder()
-                                                       .setType(RequestType.GET)
-                                                       .setStore(storeName)
-                                                       .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
-                                                       .setRequestRouteType(routingType.getRoutingTypeCode())
-                                                       .setGet(get)
-                                                       .build());
+                                newRequest()
+                                          .setType(RequestType.GET)
+                                          .setStore(storeName)
+                                          .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
+                                          .setRequestRouteType(routingType.getRoutingTypeCode())
+                                          .setGet(get)
+                                          .build());
     }
 
     public boolean isCompleteGetResponse(ByteBuffer buffer) {
@@ -140,13 +144,13 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
             }
         }
         ProtoUtils.writeMessage(output,
-                                VProto.VoldemortRequest.newBuilder()
-                                                       .setType(RequestType.GET_ALL)
-                                                       .setStore(storeName)
-                                                       .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
-                                                       .setRequestRouteType(routingType.getRoutingTypeCode())
-                                                       .setGetAll(req)
-                                                       .build());
+                                newRequest()
+                                          .setType(RequestType.GET_ALL)
+                                          .setStore(storeName)
+                                          .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
+                                          .setRequestRouteType(routingType.getRoutingTypeCode())
+                                          .setGetAll(req)
+                                          .build());
     }
 
     public boolean isCompleteGetAllResponse(ByteBuffer buffer) {
@@ -193,13 +197,13 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
             req = req.setTransforms(ByteString.copyFrom(transforms));
 
         ProtoUtils.writeMessage(output,
-                                VProto.VoldemortRequest.newBuilder()
-                                                       .setType(RequestType.PUT)
-                                                       .setStore(storeName)
-                                                       .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
-                                                       .setRequestRouteType(routingType.getRoutingTypeCode())
-                                                       .setPut(req)
-                                                       .build());
+                                newRequest()
+                                          .setType(RequestType.PUT)
+                                          .setStore(storeName)
+                                          .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
+                                          .setRequestRouteType(routingType.getRoutingTypeCode())
+                                          .setPut(req)
+                                          .build());
     }
 
     public boolean isCompletePutResponse(ByteBuffer buffer) {
@@ -212,6 +216,70 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
             throwException(response.getError());
     }
 
+    /**
+     * The protocol buffers format has no batched put, callers are expected to
+     * fall back on individual puts
+     */
+    public boolean supportsPutAll() {
+        return false;
+    }
+
+    public void writePutAllRequest(DataOutputStream output,
+                                   String storeName,
+                                   Map<ByteArray, Versioned<byte[]>> entries,
+                                   Map<ByteArray, byte[]> transforms,
+                                   RequestRoutingType routingType) throws IOException {
+        throw new UnsupportedOperationException("Put all is not supported by protocol buffers");
+    }
+
+    public boolean isCompletePutAllResponse(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Put all is not supported by protocol buffers");
+    }
+
+    public Map<ByteArray, VoldemortException> readPutAllResponse(DataInputStream input)
+            throws IOException {
+        throw new UnsupportedOperationException("Put all is not supported by protocol buffers");
+    }
+
+    public boolean supportsMerkleTrees() {
+        return false;
+    }
+
+    public void writeGetMerkleTreeRequest(DataOutputStream output,
+                                          String storeName,
+                                          int partition,
+                                          int depth,
+                                          RequestRoutingType routingType) throws IOException {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
+    public boolean isCompleteGetMerkleTreeResponse(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
+    public MerkleTree readGetMerkleTreeResponse(DataInputStream input) throws IOException {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
+    public void writeGetMerkleLeafVersionsRequest(DataOutputStream output,
+                                                  String storeName,
+                                                  int partition,
+                                                  int depth,
+                                                  Collection<Integer> leaves,
+                                                  RequestRoutingType routingType)
+            throws IOException {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
+    public boolean isCompleteGetMerkleLeafVersionsResponse(ByteBuffer buffer) {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
+    public Map<ByteArray, List<Version>> readGetMerkleLeafVersionsResponse(DataInputStream input)
+            throws IOException {
+        throw new UnsupportedOperationException("Merkle trees are not supported by protocol buffers");
+    }
+
     public void throwException(VProto.Error error) {
         throw mapper.getError((short) error.getErrorCode(), error.getErrorMessage());
     }
@@ -237,14 +305,25 @@ public class ProtoBuffClientRequestFormat implements RequestFormat {
                                        RequestRoutingType routingType) throws IOException {
         StoreUtils.assertValidKey(key);
         ProtoUtils.writeMessage(output,
-                                VProto.VoldemortRequest.newBuilder()
-                                                       .setType(RequestType.GET_VERSION)
-                                                       .setStore(storeName)
-                                                       .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
-                                                       .setRequestRouteType(routingType.getRoutingTypeCode())
-                                                       .setGet(VProto.GetRequest.newBuilder()
-                                                                                .setKey(ByteString.copyFrom(key.get())))
-                                                       .build());
+                                newRequest()
+                                          .setType(RequestType.GET_VERSION)
+                                          .setStore(storeName)
+                                          .setShouldRoute(routingType.equals(RequestRoutingType.ROUTED))
+                                          .setRequestRouteType(routingType.getRoutingTypeCode())
+                                          .setGet(VProto.GetRequest.newBuilder()
+                                                                   .setKey(ByteString.copyFrom(key.get())))
+                                          .build());
+    }
+
+    /**
+     * @return A request carrying the trace id of the request being formatted,
+     *         if it is traced
+     */
+    private VProto.VoldemortRequest.Builder newRequest() {
+        VProto.VoldemortRequest.Builder request = VProto.VoldemortRequest.newBuilder();
+        if(RequestPhaseStats.isCurrentTraced())
+            request.setTraceId(RequestPhaseStats.getCurrentTraceId());
+        return request;
     }
 
     private boolean isCompleteResponse(ByteBuffer buffer) {
@@ -5610,6 +5610,13 @@ public final class VProto {
     public boolean hasRequestRouteType() { return hasRequestRouteType; }
     public int getRequestRouteType() { return requestRouteType_; }
     
+    // optional int64 trace_id = 9;
+    public static final int TRACE_ID_FIELD_NUMBER = 9;
+    private boolean hasTraceId;
+    private long traceId_ = 0L;
+    public boolean hasTraceId() { return hasTraceId; }
+    public long getTraceId() { return traceId_; }
+    
     private void initFields() {
       type_ = voldemort.client.protocol.pb.VProto.RequestType.GET;
       get_ = voldemort.client.protocol.pb.VProto.GetRequest.getDefaultInstance();
@@ -5660,6 +5667,9 @@ public final class VProto {
       if (hasRequestRouteType()) {
         output.writeInt32(8, getRequestRouteType());
       }
+      if (hasTraceId()) {
+        output.writeInt64(9, getTraceId());
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -5701,6 +5711,10 @@ public final class VProto {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(8, getRequestRouteType());
       }
+      if (hasTraceId()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(9, getTraceId());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -5883,6 +5897,9 @@ public final class VProto {
         if (other.hasRequestRouteType()) {
           setRequestRouteType(other.getRequestRouteType());
         }
+        if (other.hasTraceId()) {
+          setTraceId(other.getTraceId());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -5966,6 +5983,10 @@ public final class VProto {
               setRequestRouteType(input.readInt32());
               break;
             }
+            case 72: {
+              setTraceId(input.readInt64());
+              break;
+            }
           }
         }
       }
@@ -6197,6 +6218,24 @@ public final class VProto {
         return this;
       }
       
+      // optional int64 trace_id = 9;
+      public boolean hasTraceId() {
+        return result.hasTraceId();
+      }
+      public long getTraceId() {
+        return result.getTraceId();
+      }
+      public Builder setTraceId(long value) {
+        result.hasTraceId = true;
+        result.traceId_ = value;
+        return this;
+      }
+      public Builder clearTraceId() {
+        result.hasTraceId = false;
+        result.traceId_ = 0L;
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:voldemort.VoldemortRequest)
     }
     
@@ -6325,17 +6364,17 @@ public final class VProto {
       "eleteRequest\022\013\n\003key\030\001 \002(\014\022\'\n\007version\030\002 \002" +
       "(\0132\026.voldemort.VectorClock\"B\n\016DeleteResp" +
       "onse\022\017\n\007success\030\001 \002(\010\022\037\n\005error\030\002 \001(\0132\020.v" +
-      "oldemort.Error\"\232\002\n\020VoldemortRequest\022$\n\004t" +
+      "oldemort.Error\"\254\002\n\020VoldemortRequest\022$\n\004t" +
       "ype\030\001 \002(\0162\026.voldemort.RequestType\022\033\n\014sho" +
       "uld_route\030\002 \002(\010:\005false\022\r\n\005store\030\003 \002(\t\022\"\n",
       "\003get\030\004 \001(\0132\025.voldemort.GetRequest\022(\n\006get" +
       "All\030\005 \001(\0132\030.voldemort.GetAllRequest\022\"\n\003p" +
       "ut\030\006 \001(\0132\025.voldemort.PutRequest\022(\n\006delet" +
       "e\030\007 \001(\0132\030.voldemort.DeleteRequest\022\030\n\020req" +
-      "uestRouteType\030\010 \001(\005*I\n\013RequestType\022\007\n\003GE" +
-      "T\020\000\022\013\n\007GET_ALL\020\001\022\007\n\003PUT\020\002\022\n\n\006DELETE\020\003\022\017\n" +
-      "\013GET_VERSION\020\004B(\n\034voldemort.client.proto" +
-      "col.pbB\006VProtoH\001"
+      "uestRouteType\030\010 \001(\005\022\020\n\010trace_id\030\t \001(\003*I\n" +
+      "\013RequestType\022\007\n\003GET\020\000\022\013\n\007GET_ALL\020\001\022\007\n\003PU" +
+      "T\020\002\022\n\n\006DELETE\020\003\022\017\n\013GET_VERSION\020\004B(\n\034vold" +
+      "emort.client.protocol.pbB\006VProtoH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -6467,7 +6506,7 @@ public final class VProto {
           internal_static_voldemort_VoldemortRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_voldemort_VoldemortRequest_descriptor,
-              new java.lang.String[] { "Type", "ShouldRoute", "Store", "Get", "GetAll", "Put", "Delete", "RequestRouteType", },
+              new java.lang.String[] { "Type", "ShouldRoute", "Store", "Get", "GetAll", "Put", "Delete", "RequestRouteType", "TraceId", },
               voldemort.client.protocol.pb.VProto.VoldemortRequest.class,
               voldemort.client.protocol.pb.VProto.VoldemortRequest.Builder.class);
           return null;
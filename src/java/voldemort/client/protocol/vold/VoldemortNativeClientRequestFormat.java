@@ -21,6 +21,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,8 +35,10 @@ import voldemort.common.nio.ByteBufferBackedInputStream;
 import voldemort.server.RequestRoutingType;
 import voldemort.store.ErrorCodeMapper;
 import voldemort.store.StoreUtils;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
+import voldemort.utils.MerkleTree;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
@@ -58,6 +61,21 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         this.protocolVersion = protocolVersion;
     }
 
+    /**
+     * From version 5 on, the header of every request tells whether the request
+     * is sampled and if so carries its trace id, see {@link RequestPhaseStats}
+     */
+    private void writeTraceId(DataOutputStream outputStream) throws IOException {
+        if(protocolVersion > 4) {
+            Long traceId = RequestPhaseStats.getCurrentTraceId();
+            if(traceId != null && traceId != RequestPhaseStats.NOT_TRACED) {
+                outputStream.writeBoolean(true);
+                outputStream.writeLong(traceId);
+            } else
+                outputStream.writeBoolean(false);
+        }
+    }
+
     public void writeDeleteRequest(DataOutputStream outputStream,
                                    String storeName,
                                    ByteArray key,
@@ -70,6 +88,7 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             outputStream.writeByte(routingType.getRoutingTypeCode());
         }
+        writeTraceId(outputStream);
         outputStream.writeInt(key.length());
         outputStream.write(key.get());
         VectorClock clock = version;
@@ -98,6 +117,7 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             outputStream.writeByte(routingType.getRoutingTypeCode());
         }
+        writeTraceId(outputStream);
         outputStream.writeInt(key.length());
         outputStream.write(key.get());
         if(protocolVersion > 2) {
@@ -166,6 +186,7 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             output.writeByte(routingType.getRoutingTypeCode());
         }
+        writeTraceId(output);
         // write out keys
         List<ByteArray> l = new ArrayList<ByteArray>();
         for(ByteArray key: keys)
@@ -240,6 +261,10 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             size += 1;
         }
+        if(protocolVersion > 4) {
+            // traced requests also have their trace id
+            size += 1 + 8;
+        }
         size += (4 + key.length());
         size += 4 + (value.length + version.sizeInBytes());
         if(protocolVersion > 2) {
@@ -265,6 +290,7 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             outputStream.writeByte(routingType.getRoutingTypeCode());
         }
+        writeTraceId(outputStream);
         outputStream.writeInt(key.length());
         outputStream.write(key.get());
         outputStream.writeInt(value.length + version.sizeInBytes());
@@ -288,6 +314,166 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         checkException(inputStream);
     }
 
+    public boolean supportsPutAll() {
+        return protocolVersion > 3;
+    }
+
+    public void writePutAllRequest(DataOutputStream output,
+                                   String storeName,
+                                   Map<ByteArray, Versioned<byte[]>> entries,
+                                   Map<ByteArray, byte[]> transforms,
+                                   RequestRoutingType routingType) throws IOException {
+        if(!supportsPutAll())
+            throw new UnsupportedOperationException("Put all is not supported by protocol version "
+                                                    + protocolVersion);
+        StoreUtils.assertValidKeys(entries.keySet());
+        output.writeByte(VoldemortOpCode.PUT_ALL_OP_CODE);
+        output.writeUTF(storeName);
+        output.writeBoolean(routingType.equals(RequestRoutingType.ROUTED));
+        output.writeByte(routingType.getRoutingTypeCode());
+        writeTraceId(output);
+        output.writeInt(entries.size());
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            ByteArray key = entry.getKey();
+            VectorClock version = (VectorClock) entry.getValue().getVersion();
+            byte[] value = entry.getValue().getValue();
+            output.writeInt(key.length());
+            output.write(key.get());
+            output.writeInt(value.length + version.sizeInBytes());
+            output.write(version.toBytes());
+            output.write(value);
+            byte[] transform = transforms != null ? transforms.get(key) : null;
+            if(transform != null) {
+                output.writeBoolean(true);
+                output.writeInt(transform.length);
+                output.write(transform);
+            } else
+                output.writeBoolean(false);
+        }
+    }
+
+    public boolean isCompletePutAllResponse(ByteBuffer buffer) {
+        try {
+            DataInputStream inputStream = new DataInputStream(new ByteBufferBackedInputStream(buffer));
+            readPutAllResponse(inputStream);
+        } catch(VoldemortException e) {
+        } catch(IOException e) {
+            return false;
+        } catch(RuntimeException e) {
+            // a partial key length can point past the end of the buffer
+            return false;
+        }
+        return !buffer.hasRemaining();
+    }
+
+    public Map<ByteArray, VoldemortException> readPutAllResponse(DataInputStream stream)
+            throws IOException {
+        checkException(stream);
+        int numFailures = stream.readInt();
+        Map<ByteArray, VoldemortException> failures = new HashMap<ByteArray, VoldemortException>(numFailures);
+        for(int i = 0; i < numFailures; i++) {
+            int keySize = stream.readInt();
+            byte[] key = new byte[keySize];
+            stream.readFully(key);
+            short errorCode = stream.readShort();
+            failures.put(new ByteArray(key), mapper.getError(errorCode, stream.readUTF()));
+        }
+        return failures;
+    }
+
+    public boolean supportsMerkleTrees() {
+        return protocolVersion > 3;
+    }
+
+    private void writeMerkleRequestHeader(DataOutputStream output,
+                                          byte opCode,
+                                          String storeName,
+                                          int partition,
+                                          int depth,
+                                          RequestRoutingType routingType) throws IOException {
+        if(!supportsMerkleTrees())
+            throw new UnsupportedOperationException("Merkle trees are not supported by protocol version "
+                                                    + protocolVersion);
+        output.writeByte(opCode);
+        output.writeUTF(storeName);
+        output.writeBoolean(routingType.equals(RequestRoutingType.ROUTED));
+        output.writeByte(routingType.getRoutingTypeCode());
+        writeTraceId(output);
+        output.writeInt(partition);
+        output.writeByte(depth);
+    }
+
+    public void writeGetMerkleTreeRequest(DataOutputStream output,
+                                          String storeName,
+                                          int partition,
+                                          int depth,
+                                          RequestRoutingType routingType) throws IOException {
+        writeMerkleRequestHeader(output,
+                                 VoldemortOpCode.GET_MERKLE_TREE_OP_CODE,
+                                 storeName,
+                                 partition,
+                                 depth,
+                                 routingType);
+    }
+
+    public boolean isCompleteGetMerkleTreeResponse(ByteBuffer buffer) {
+        return isCompleteResponse(buffer, VoldemortOpCode.GET_MERKLE_TREE_OP_CODE);
+    }
+
+    public MerkleTree readGetMerkleTreeResponse(DataInputStream stream) throws IOException {
+        checkException(stream);
+        int numLeaves = stream.readInt();
+        long[] leafHashes = new long[numLeaves];
+        int[] leafKeyCounts = new int[numLeaves];
+        for(int leaf = 0; leaf < numLeaves; leaf++) {
+            leafHashes[leaf] = stream.readLong();
+            leafKeyCounts[leaf] = stream.readInt();
+        }
+        return new MerkleTree(leafHashes, leafKeyCounts);
+    }
+
+    public void writeGetMerkleLeafVersionsRequest(DataOutputStream output,
+                                                  String storeName,
+                                                  int partition,
+                                                  int depth,
+                                                  Collection<Integer> leaves,
+                                                  RequestRoutingType routingType)
+            throws IOException {
+        writeMerkleRequestHeader(output,
+                                 VoldemortOpCode.GET_MERKLE_LEAF_VERSIONS_OP_CODE,
+                                 storeName,
+                                 partition,
+                                 depth,
+                                 routingType);
+        output.writeInt(leaves.size());
+        for(int leaf: leaves)
+            output.writeInt(leaf);
+    }
+
+    public boolean isCompleteGetMerkleLeafVersionsResponse(ByteBuffer buffer) {
+        return isCompleteResponse(buffer, VoldemortOpCode.GET_MERKLE_LEAF_VERSIONS_OP_CODE);
+    }
+
+    public Map<ByteArray, List<Version>> readGetMerkleLeafVersionsResponse(DataInputStream stream)
+            throws IOException {
+        checkException(stream);
+        int numKeys = stream.readInt();
+        Map<ByteArray, List<Version>> results = new HashMap<ByteArray, List<Version>>(numKeys);
+        for(int i = 0; i < numKeys; i++) {
+            byte[] key = new byte[stream.readInt()];
+            stream.readFully(key);
+            int numVersions = stream.readInt();
+            List<Version> versions = new ArrayList<Version>(numVersions);
+            for(int j = 0; j < numVersions; j++) {
+                byte[] clock = new byte[stream.readInt()];
+                ByteUtils.read(stream, clock);
+                versions.add(new VectorClock(clock));
+            }
+            results.put(new ByteArray(key), versions);
+        }
+        return results;
+    }
+
     /*
      * If there is an exception, throw it
      */
@@ -328,6 +514,7 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
         if(protocolVersion > 1) {
             output.writeByte(routingType.getRoutingTypeCode());
         }
+        writeTraceId(output);
         output.writeInt(key.length());
         output.write(key.get());
     }
@@ -349,6 +536,14 @@ public class VoldemortNativeClientRequestFormat implements RequestFormat {
                     case VoldemortOpCode.PUT_OP_CODE:
                         readPutResponse(inputStream);
                         break;
+
+                    case VoldemortOpCode.GET_MERKLE_TREE_OP_CODE:
+                        readGetMerkleTreeResponse(inputStream);
+                        break;
+
+                    case VoldemortOpCode.GET_MERKLE_LEAF_VERSIONS_OP_CODE:
+                        readGetMerkleLeafVersionsResponse(inputStream);
+                        break;
                     default:
                         throw new VoldemortException("Unrecognized OpCode is inCompleteResponse "
                                                      + opCode);
@@ -34,6 +34,8 @@ import voldemort.VoldemortException;
 import voldemort.client.rebalance.task.RebalanceTask;
 import voldemort.client.rebalance.task.StealerBasedRebalanceTask;
 import voldemort.server.rebalance.VoldemortRebalancingException;
+import voldemort.utils.Pair;
+import voldemort.utils.Time;
 
 // TODO: This scheduler deprecates the need for donor permits. Consider removing
 // them.
@@ -50,10 +52,15 @@ import voldemort.server.rebalance.VoldemortRebalancingException;
  * nodes / 2) rebalancing tasks can possibly be scheduled to execute while
  * obeying the invariant.
  * 
- * The order of tasks are randomized within this class. The intent is to
- * "spread" rebalancing work smoothly out over the cluster and avoid
- * "long tails" of straggler rebalancing tasks. Only experience will tell us if
- * we need to do anything smarter.
+ * Among the tasks whose nodes are idle, the scheduler picks the one involving
+ * the node with the most estimated work left, and among those the longest
+ * task. The rebalance cannot finish before its busiest node does, so starting
+ * that node's work first keeps the other nodes from waiting on it at the end
+ * ("long tails" of straggler rebalancing tasks). The work of a task is
+ * estimated from the number of partition-stores it moves and the rate at
+ * which each of its nodes moved partition-stores in the tasks completed so
+ * far, so slow nodes, e.g. nodes busy serving traffic, get their work started
+ * earlier.
  */
 public class RebalanceScheduler {
 
@@ -66,12 +73,22 @@ public class RebalanceScheduler {
     private Set<Integer> nodeIdsWithWork;
     private CountDownLatch doneSignal;
 
+    // weight of the latest task in the moving average of a node's rate
+    private static final double RATE_SMOOTHING = 0.5;
+
+    // partition-stores moved per second by each node, over the tasks it took
+    // part in so far
+    private final Map<Integer, Double> nodeRates;
+    private final Map<Pair<Integer, Integer>, Pair<Long, Integer>> startedTasks;
+
     public RebalanceScheduler(ExecutorService service, int maxParallelRebalancing) {
         this.service = service;
         this.maxParallelRebalancing = maxParallelRebalancing;
         this.tasksByStealer = new HashMap<Integer, List<StealerBasedRebalanceTask>>();
         this.numTasksExecuting = 0;
         this.nodeIdsWithWork = new TreeSet<Integer>();
+        this.nodeRates = new HashMap<Integer, Double>();
+        this.startedTasks = new HashMap<Pair<Integer, Integer>, Pair<Long, Integer>>();
     }
 
     /**
@@ -109,7 +126,7 @@ public class RebalanceScheduler {
         }
         // Shuffle order of each stealer's work list. This randomization
         // helps to get rid of any "patterns" in how rebalancing tasks were
-        // added to the task list passed in.
+        // added to the task list passed in, among tasks of equal priority.
         for(List<StealerBasedRebalanceTask> taskList: tasksByStealer.values()) {
             Collections.shuffle(taskList);
         }
@@ -187,49 +204,134 @@ public class RebalanceScheduler {
                         + "] the parallel allowed " + maxParallelRebalancing);
             return null;
         }
-        // Shuffle list of stealer IDs each time a new task to schedule needs to
-        // be found. Randomizing the order should avoid prioritizing one
-        // specific stealer's work ahead of all others.
-        List<Integer> stealerIds = new ArrayList<Integer>(tasksByStealer.keySet());
-        Collections.shuffle(stealerIds);
-        for(int stealerId: stealerIds) {
+        Map<Integer, Double> remainingWork = getRemainingWork();
+        StealerBasedRebalanceTask bestTask = null;
+        double bestPriority = -1;
+        double bestDuration = -1;
+        for(Map.Entry<Integer, List<StealerBasedRebalanceTask>> entry: tasksByStealer.entrySet()) {
+            int stealerId = entry.getKey();
             if(nodeIdsWithWork.contains(stealerId)) {
-                logger.info("Stealer " + stealerId + " is already working... continuing");
+                if(logger.isDebugEnabled())
+                    logger.debug("Stealer " + stealerId + " is already working... continuing");
                 continue;
             }
 
-            for(StealerBasedRebalanceTask sbTask: tasksByStealer.get(stealerId)) {
+            for(StealerBasedRebalanceTask sbTask: entry.getValue()) {
                 int donorId = sbTask.getStealInfos().get(0).getDonorId();
                 if(nodeIdsWithWork.contains(donorId)) {
-                    logger.info("Stealer " + stealerId + " Donor " + donorId
-                                + " is already working... continuing");
+                    if(logger.isDebugEnabled())
+                        logger.debug("Stealer " + stealerId + " Donor " + donorId
+                                     + " is already working... continuing");
                     continue;
                 }
-                // Book keeping
-                addNodesToWorkerList(Arrays.asList(stealerId, donorId));
-                numTasksExecuting++;
-                // Remove this task from list thus destroying list being
-                // iterated over. This is safe because returning directly out of
-                // this branch.
-                tasksByStealer.get(stealerId).remove(sbTask);
-                try {
-                    if(executeService) {
-                        logger.info("Stealer " + stealerId + " Donor " + donorId
-                                    + " going to schedule work");
-                        service.execute(sbTask);
-                    }
-                } catch(RejectedExecutionException ree) {
-                    logger.error("Stealer " + stealerId
-                                 + "Rebalancing task rejected by executor service.", ree);
-                    throw new VoldemortRebalancingException("Stealer "
-                                                            + stealerId
-                                                            + "Rebalancing task rejected by executor service.");
+                double priority = Math.max(remainingWork.get(stealerId),
+                                           remainingWork.get(donorId));
+                double duration = estimateDuration(sbTask);
+                if(priority > bestPriority || (priority == bestPriority && duration > bestDuration)) {
+                    bestTask = sbTask;
+                    bestPriority = priority;
+                    bestDuration = duration;
+                }
+            }
+        }
+
+        if(bestTask == null) {
+            printRemainingTasks(new ArrayList<Integer>(tasksByStealer.keySet()));
+            return null;
+        }
+
+        RebalanceTaskInfo stealInfo = bestTask.getStealInfos().get(0);
+        int stealerId = stealInfo.getStealerId();
+        int donorId = stealInfo.getDonorId();
+        // Book keeping
+        addNodesToWorkerList(Arrays.asList(stealerId, donorId));
+        numTasksExecuting++;
+        tasksByStealer.get(stealerId).remove(bestTask);
+        startedTasks.put(Pair.create(stealerId, donorId),
+                         Pair.create(System.nanoTime(), stealInfo.getPartitionStoreMoves()));
+        try {
+            if(executeService) {
+                logger.info("Stealer " + stealerId + " Donor " + donorId
+                            + " going to schedule work (estimated " + Math.round(bestDuration)
+                            + " s, busiest node has " + Math.round(bestPriority)
+                            + " s of work left)");
+                service.execute(bestTask);
+            }
+        } catch(RejectedExecutionException ree) {
+            logger.error("Stealer " + stealerId
+                         + "Rebalancing task rejected by executor service.", ree);
+            throw new VoldemortRebalancingException("Stealer "
+                                                    + stealerId
+                                                    + "Rebalancing task rejected by executor service.");
+        }
+        return bestTask;
+    }
+
+    /**
+     * Partition-stores moved per second by the node, or the average over the
+     * nodes seen so far if it has not completed a task yet
+     */
+    private double getNodeRate(int nodeId) {
+        Double rate = nodeRates.get(nodeId);
+        if(rate != null)
+            return rate;
+        if(nodeRates.isEmpty())
+            return 1.0;
+        double sum = 0;
+        for(double nodeRate: nodeRates.values())
+            sum += nodeRate;
+        return sum / nodeRates.size();
+    }
+
+    /**
+     * Estimated seconds the task takes, at the rate of its slower node
+     */
+    private double estimateDuration(StealerBasedRebalanceTask sbTask) {
+        RebalanceTaskInfo stealInfo = sbTask.getStealInfos().get(0);
+        double rate = Math.min(getNodeRate(stealInfo.getStealerId()),
+                               getNodeRate(stealInfo.getDonorId()));
+        return stealInfo.getPartitionStoreMoves() / rate;
+    }
+
+    /**
+     * Estimated seconds of work left for each node, as stealer or donor, in
+     * the tasks not scheduled yet
+     */
+    private Map<Integer, Double> getRemainingWork() {
+        Map<Integer, Double> remainingWork = new HashMap<Integer, Double>();
+        for(List<StealerBasedRebalanceTask> taskList: tasksByStealer.values()) {
+            for(StealerBasedRebalanceTask sbTask: taskList) {
+                RebalanceTaskInfo stealInfo = sbTask.getStealInfos().get(0);
+                double duration = estimateDuration(sbTask);
+                for(int nodeId: Arrays.asList(stealInfo.getStealerId(), stealInfo.getDonorId())) {
+                    Double work = remainingWork.get(nodeId);
+                    remainingWork.put(nodeId, work == null ? duration : work + duration);
                 }
-                return sbTask;
             }
         }
-        printRemainingTasks(stealerIds);
-        return null;
+        return remainingWork;
+    }
+
+    /**
+     * Folds the rate of a completed task into the rates of its nodes
+     */
+    private void recordTaskRate(int stealerId, int donorId) {
+        Pair<Long, Integer> started = startedTasks.remove(Pair.create(stealerId, donorId));
+        if(started == null)
+            return;
+        double seconds = (System.nanoTime() - started.getFirst()) / (double) Time.NS_PER_SECOND;
+        if(seconds <= 0 || started.getSecond() == 0)
+            return;
+        double rate = started.getSecond() / seconds;
+        for(int nodeId: Arrays.asList(stealerId, donorId)) {
+            Double nodeRate = nodeRates.get(nodeId);
+            nodeRates.put(nodeId, nodeRate == null ? rate : RATE_SMOOTHING * rate
+                                                            + (1 - RATE_SMOOTHING) * nodeRate);
+        }
+        if(logger.isDebugEnabled())
+            logger.debug("Stealer " + stealerId + " Donor " + donorId + " moved "
+                         + started.getSecond() + " partition-stores in " + seconds
+                         + " s, node rates are now " + nodeRates);
     }
 
     private void printRemainingTasks(List<Integer> stealerIds) {
@@ -272,6 +374,7 @@ public class RebalanceScheduler {
      * @param donorId
      */
     public synchronized void doneTask(int stealerId, int donorId) {
+        recordTaskRate(stealerId, donorId);
         removeNodesFromWorkerList(Arrays.asList(stealerId, donorId));
         numTasksExecuting--;
         doneSignal.countDown();
@@ -203,6 +203,14 @@ public abstract class AbstractSelectorManager implements Runnable {
 
     protected abstract void processEvents();
 
+    /**
+     * Called right before the worker attached to a selected key runs.
+     * 
+     * @param selectionKey The selected key
+     * @param selectedNs Time the select returned at, in ns
+     */
+    protected void beforeWork(SelectionKey selectionKey, long selectedNs) {}
+
     public void run() {
         threadName = Thread.currentThread().getName();
 
@@ -230,6 +238,7 @@ public abstract class AbstractSelectorManager implements Runnable {
                     }
 
                     if(selected > 0) {
+                        long selectedNs = System.nanoTime();
                         processingTimeMs = System.currentTimeMillis();
                         Iterator<SelectionKey> i = selector.selectedKeys().iterator();
 
@@ -240,6 +249,7 @@ public abstract class AbstractSelectorManager implements Runnable {
                             if(selectionKey.isValid()
                                && (selectionKey.isConnectable() || selectionKey.isReadable() || selectionKey.isWritable())) {
                                 Runnable worker = (Runnable) selectionKey.attachment();
+                                beforeWork(selectionKey, selectedNs);
                                 worker.run();
                             }
                         }
@@ -56,6 +56,21 @@ public class DefaultSerializerFactory implements SerializerFactory {
     // this will break existing clients while looking for the version byte
     public static final String AVRO_GENERIC_VERSIONED_TYPE_NAME = "avro-generic-versioned";
 
+    private final boolean compileJsonSerializers;
+
+    public DefaultSerializerFactory() {
+        this(false);
+    }
+
+    /**
+     * @param compileJsonSerializers If true, the json serializers compile their
+     *        type definitions when they are created, see
+     *        {@link JsonTypeSerializer}
+     */
+    public DefaultSerializerFactory(boolean compileJsonSerializers) {
+        this.compileJsonSerializers = compileJsonSerializers;
+    }
+
     public Serializer<?> getSerializer(SerializerDefinition serializerDef) {
         String name = serializerDef.getName();
         if(name.equals(JAVA_SERIALIZER_TYPE_NAME)) {
@@ -71,9 +86,11 @@ public class DefaultSerializerFactory implements SerializerFactory {
                 for(Map.Entry<Integer, String> entry: serializerDef.getAllSchemaInfoVersions()
                                                                    .entrySet())
                     versions.put(entry.getKey(), JsonTypeDefinition.fromJson(entry.getValue()));
-                return new JsonTypeSerializer(versions);
+                return new JsonTypeSerializer(versions, compileJsonSerializers);
             } else {
-                return new JsonTypeSerializer(JsonTypeDefinition.fromJson(serializerDef.getCurrentSchemaInfo()));
+                return new JsonTypeSerializer(JsonTypeDefinition.fromJson(serializerDef.getCurrentSchemaInfo()),
+                                              false,
+                                              compileJsonSerializers);
             }
         } else if(name.equals(PROTO_BUF_TYPE_NAME)) {
             return new ProtoBufSerializer<Message>(serializerDef.getCurrentSchemaInfo());
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.serialization.avro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * Per thread output buffer, binary encoder and binary decoder shared by the
+ * Avro serializers, so that serializing a value does not allocate anything
+ * but the resulting byte array.
+ * 
+ * Datum readers and writers keep no state across calls, so the serializers
+ * create them once and share them between threads.
+ * 
+ */
+public class AvroBinaryCodec {
+
+    /**
+     * Buffers that grew beyond this size while serializing a large value are
+     * dropped, rather than pinned to the thread
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<AvroBinaryCodec> CODECS = new ThreadLocal<AvroBinaryCodec>() {
+
+        @Override
+        protected AvroBinaryCodec initialValue() {
+            return new AvroBinaryCodec();
+        }
+    };
+
+    private ByteArrayOutputStream output;
+    private final BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+
+    private AvroBinaryCodec() {
+        this.output = new ByteArrayOutputStream();
+        this.encoder = new BinaryEncoder(output);
+        this.decoder = null;
+    }
+
+    /**
+     * Serializes the datum with the writer
+     * 
+     * @param writer The datum writer
+     * @param datum The datum to serialize
+     * @param version If not null, the schema version written as first byte
+     * @return The serialized datum
+     * @throws IOException
+     */
+    public static <T> byte[] encode(DatumWriter<T> writer, T datum, Integer version)
+            throws IOException {
+        AvroBinaryCodec codec = CODECS.get();
+        ByteArrayOutputStream output = codec.output;
+        output.reset();
+        if(version != null)
+            output.write(version.byteValue());
+        writer.write(datum, codec.encoder);
+        codec.encoder.flush();
+        byte[] bytes = output.toByteArray();
+        if(bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+            codec.output = new ByteArrayOutputStream();
+            codec.encoder.init(codec.output);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns this thread's binary decoder, positioned on the given bytes
+     * 
+     * @param bytes The serialized data
+     * @param offset Offset of the data in the array
+     * @param length Length of the data
+     * @return A decoder valid until the next call on the same thread
+     */
+    public static BinaryDecoder decoder(byte[] bytes, int offset, int length) {
+        AvroBinaryCodec codec = CODECS.get();
+        codec.decoder = DecoderFactory.defaultFactory().createBinaryDecoder(bytes,
+                                                                           offset,
+                                                                           length,
+                                                                           codec.decoder);
+        return codec.decoder;
+    }
+}
@@ -15,8 +15,9 @@
  */
 package voldemort.serialization.avro.versioned;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
@@ -26,14 +27,10 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericContainer;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.Encoder;
 
 import voldemort.serialization.SerializationException;
-import voldemort.serialization.SerializationUtils;
 import voldemort.serialization.Serializer;
+import voldemort.serialization.avro.AvroBinaryCodec;
 
 /**
  * Avro serializer that uses the generic representation for Avro data. This
@@ -50,37 +47,47 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
     // reader's schema
     private final Schema typeDef;
 
+    // parsed schemas, writers and resolving readers of every version
+    private final SortedMap<Integer, Schema> schemaVersions;
+    private final Map<Integer, GenericDatumWriter<Object>> writerVersions;
+    private final Map<Integer, GenericDatumReader<Object>> readerVersions;
+
     /**
      * Constructor accepting the schema definition as a JSON string.
      * 
      * @param schema a serialized JSON object representing a Avro schema.
      */
     public AvroVersionedGenericSerializer(String schema) {
-
-        this.typeDefVersions = new TreeMap<Integer, String>();
-        this.typeDefVersions.put(0, schema);
-        newestVersion = typeDefVersions.lastKey();
-        typeDef = Schema.parse(typeDefVersions.get(newestVersion));
+        this(Collections.singletonMap(0, schema));
     }
 
     public AvroVersionedGenericSerializer(Map<Integer, String> typeDefVersions) {
 
         this.typeDefVersions = new TreeMap<Integer, String>(typeDefVersions);
         newestVersion = this.typeDefVersions.lastKey();
-        typeDef = Schema.parse(typeDefVersions.get(newestVersion));
 
+        this.schemaVersions = new TreeMap<Integer, Schema>();
+        this.writerVersions = new HashMap<Integer, GenericDatumWriter<Object>>();
+        for(Entry<Integer, String> entry: this.typeDefVersions.entrySet()) {
+            Schema schema = Schema.parse(entry.getValue());
+            schemaVersions.put(entry.getKey(), schema);
+            writerVersions.put(entry.getKey(), new GenericDatumWriter<Object>(schema));
+        }
+        typeDef = schemaVersions.get(newestVersion);
+
+        this.readerVersions = new HashMap<Integer, GenericDatumReader<Object>>();
+        for(Entry<Integer, Schema> entry: schemaVersions.entrySet()) {
+            // writer's schema, then reader's schema
+            readerVersions.put(entry.getKey(),
+                               new GenericDatumReader<Object>(entry.getValue(), typeDef));
+        }
     }
 
     public byte[] toBytes(Object object) {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        Encoder encoder = new BinaryEncoder(output);
-        GenericDatumWriter<Object> datumWriter = null;
-
-        output.write(newestVersion.byteValue());
         try {
-            datumWriter = new GenericDatumWriter<Object>(typeDef);
-            datumWriter.write(object, encoder);
-            encoder.flush();
+            return AvroBinaryCodec.encode(writerVersions.get(newestVersion),
+                                          object,
+                                          newestVersion);
         } catch(SerializationException sE) {
             throw sE;
         } catch(IOException e) {
@@ -96,11 +103,7 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
             Integer writerVersion = getSchemaVersion(writer);
             return toBytes(object, writer, writerVersion);
 
-        } finally {
-            SerializationUtils.close(output);
         }
-
-        return output.toByteArray();
     }
 
     /*
@@ -110,32 +113,18 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
      * serialize those objects without an exception
      */
     private byte[] toBytes(Object object, Schema writer, Integer writerVersion) {
-
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        Encoder encoder = new BinaryEncoder(output);
-        GenericDatumWriter<Object> datumWriter = null;
-
-        output.write(writerVersion.byteValue());
         try {
-            datumWriter = new GenericDatumWriter<Object>(writer);
-            datumWriter.write(object, encoder);
-            encoder.flush();
+            return AvroBinaryCodec.encode(writerVersions.get(writerVersion),
+                                          object,
+                                          writerVersion);
         } catch(IOException e) {
             throw new SerializationException(e);
-        } catch(SerializationException sE) {
-            throw sE;
-        } finally {
-            SerializationUtils.close(output);
         }
-
-        return output.toByteArray();
-
     }
 
     private Integer getSchemaVersion(Schema s) throws SerializationException {
-        for(Entry<Integer, String> entry: typeDefVersions.entrySet()) {
-            Schema version = Schema.parse(entry.getValue());
-            if(s.equals(version))
+        for(Entry<Integer, Schema> entry: schemaVersions.entrySet()) {
+            if(s.equals(entry.getValue()))
                 return entry.getKey();
 
         }
@@ -150,20 +139,12 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
         if(version > newestVersion)
             throw new SerializationException("Client needs to rebootstrap! \n Writer's schema version greater than Reader");
 
-        Schema typeDefWriter = Schema.parse(typeDefVersions.get(version));
+        GenericDatumReader<Object> reader = readerVersions.get(version);
+        if(reader == null)
+            throw new SerializationException("Unknown writer's schema version " + version);
 
-        Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(bytes,
-                                                                              1,
-                                                                              bytes.length - 1,
-                                                                              null);
-        GenericDatumReader<Object> reader = null;
         try {
-            reader = new GenericDatumReader<Object>(typeDefWriter, typeDef);
-            // writer's schema
-            reader.setSchema(typeDefWriter);
-            // Reader's schema
-            reader.setExpected(typeDef);
-            return reader.read(null, decoder);
+            return reader.read(null, AvroBinaryCodec.decoder(bytes, 1, bytes.length - 1));
         } catch(IOException e) {
             throw new SerializationException(e);
         }
@@ -174,8 +155,7 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((newestVersion == null) ? 0 : newestVersion.hashCode());
-        for(Map.Entry<Integer, String> versionedSchema: typeDefVersions.entrySet()) {
-            Schema schema = Schema.parse(versionedSchema.getValue());
+        for(Schema schema: schemaVersions.values()) {
             result = (prime * result) + schema.hashCode();
         }
         return result;
@@ -202,14 +182,13 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
         } else if(typeDefVersions.size() != other.typeDefVersions.size()) {
             return false;
         } else {
-            for(Map.Entry<Integer, String> versionedSchema: typeDefVersions.entrySet()) {
-                Schema schema = Schema.parse(versionedSchema.getValue());
-                String otherTypeDef = other.typeDefVersions.get(versionedSchema.getKey());
-                if(otherTypeDef == null) {
+            for(Map.Entry<Integer, Schema> versionedSchema: schemaVersions.entrySet()) {
+                Schema schema = versionedSchema.getValue();
+                Schema otherSchema = other.schemaVersions.get(versionedSchema.getKey());
+                if(otherSchema == null) {
                     // Other schema is not present
                     return false;
                 }
-                Schema otherSchema = Schema.parse(otherTypeDef);
                 if(!schema.equals(otherSchema)) {
                     return false;
                 }
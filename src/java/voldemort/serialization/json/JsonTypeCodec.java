@@ -0,0 +1,691 @@
+/*
+ * Copyright 2008-2009 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.serialization.json;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.serialization.SerializationException;
+import voldemort.utils.ByteUtils;
+
+/**
+ * A codec for a single {@link JsonTypeDefinition}, compiled once into a tree of
+ * specialized codecs so that encoding and decoding goes straight between byte
+ * arrays and objects, without dispatching on the type of every field.
+ *
+ * The bytes are identical to the ones produced and read by the interpreting
+ * code in {@link JsonTypeSerializer}.
+ *
+ */
+abstract class JsonTypeCodec {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int MAX_SEQ_LENGTH = 0x3FFFFFFF;
+
+    /**
+     * Builds the codec of the given type, as returned by
+     * {@link JsonTypeDefinition#getType()}
+     *
+     * @param type The type to compile
+     * @return The codec of the type
+     */
+    @SuppressWarnings("unchecked")
+    public static JsonTypeCodec compile(Object type) {
+        if(type instanceof Map) {
+            return new MapCodec((Map<String, Object>) type);
+        } else if(type instanceof List) {
+            List<?> list = (List<?>) type;
+            if(list.size() != 1)
+                throw new SerializationException("Invalid type: expected single value type in list: "
+                                                 + type);
+            return new ListCodec(type, compile(list.get(0)));
+        } else if(type instanceof JsonTypes) {
+            switch((JsonTypes) type) {
+                case BOOLEAN:
+                    return new BooleanCodec();
+                case INT8:
+                    return new Int8Codec();
+                case INT16:
+                    return new Int16Codec();
+                case INT32:
+                    return new Int32Codec();
+                case INT64:
+                    return new Int64Codec();
+                case FLOAT32:
+                    return new Float32Codec();
+                case FLOAT64:
+                    return new Float64Codec();
+                case DATE:
+                    return new DateCodec();
+                case BYTES:
+                    return new BytesCodec();
+                case STRING:
+                    return new StringCodec();
+                default:
+                    throw new SerializationException("Unknown type: " + type);
+            }
+        } else {
+            throw new SerializationException("Unknown type of class "
+                                             + (type == null ? null : type.getClass()));
+        }
+    }
+
+    private final Object type;
+
+    protected JsonTypeCodec(Object type) {
+        this.type = type;
+    }
+
+    /**
+     * Writes the object, checking that it matches the type
+     */
+    public void write(Output output, Object object) {
+        try {
+            writeValue(output, object);
+        } catch(ClassCastException e) {
+            throw new SerializationException("Expected type " + type
+                                             + " but got object of incompatible type "
+                                             + object.getClass().getName() + ".", e);
+        }
+    }
+
+    protected abstract void writeValue(Output output, Object object);
+
+    public abstract Object read(Input input);
+
+    /**
+     * A growable byte array
+     */
+    static final class Output {
+
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[capacity];
+            this.size = 0;
+        }
+
+        private void ensure(int needed) {
+            if(size + needed > bytes.length) {
+                byte[] expanded = new byte[Math.max(bytes.length * 2, size + needed)];
+                System.arraycopy(bytes, 0, expanded, 0, size);
+                bytes = expanded;
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeShort(int s) {
+            ensure(ByteUtils.SIZE_OF_SHORT);
+            ByteUtils.writeShort(bytes, (short) s, size);
+            size += ByteUtils.SIZE_OF_SHORT;
+        }
+
+        void writeInt(int i) {
+            ensure(ByteUtils.SIZE_OF_INT);
+            ByteUtils.writeInt(bytes, i, size);
+            size += ByteUtils.SIZE_OF_INT;
+        }
+
+        void writeLong(long l) {
+            ensure(ByteUtils.SIZE_OF_LONG);
+            ByteUtils.writeLong(bytes, l, size);
+            size += ByteUtils.SIZE_OF_LONG;
+        }
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        byte[] toByteArray() {
+            byte[] copy = new byte[size];
+            System.arraycopy(bytes, 0, copy, 0, size);
+            return copy;
+        }
+    }
+
+    /**
+     * A cursor over a byte array
+     */
+    static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private int advance(int length) {
+            if(position + length > bytes.length)
+                throw new SerializationException("Unexpected end of input, needed " + length
+                                                 + " bytes at offset " + position + " of "
+                                                 + bytes.length + ".");
+            int offset = position;
+            position += length;
+            return offset;
+        }
+
+        byte readByte() {
+            return bytes[advance(1)];
+        }
+
+        short readShort() {
+            return ByteUtils.readShort(bytes, advance(ByteUtils.SIZE_OF_SHORT));
+        }
+
+        int readInt() {
+            return ByteUtils.readInt(bytes, advance(ByteUtils.SIZE_OF_INT));
+        }
+
+        long readLong() {
+            return ByteUtils.readLong(bytes, advance(ByteUtils.SIZE_OF_LONG));
+        }
+
+        byte[] read(int length) {
+            byte[] b = new byte[length];
+            System.arraycopy(bytes, advance(length), b, 0, length);
+            return b;
+        }
+    }
+
+    static void writeLength(Output output, int size) {
+        if(size < Short.MAX_VALUE) {
+            output.writeShort(size);
+        } else if(size <= MAX_SEQ_LENGTH) {
+            output.writeInt(size | 0xC0000000);
+        } else {
+            throw new SerializationException("Invalid length: maximum is " + MAX_SEQ_LENGTH);
+        }
+    }
+
+    static int readLength(Input input) {
+        short size = input.readShort();
+        if(size == -1) {
+            return -1;
+        } else if(size < -1) {
+            // mask off first two bits, remainder is the size
+            int fixedSize = size & 0x3FFF;
+            fixedSize <<= 16;
+            fixedSize += input.readShort() & 0xFFFF;
+            return fixedSize;
+        } else {
+            return size;
+        }
+    }
+
+    private static final class MapCodec extends JsonTypeCodec {
+
+        private final Map<String, Object> type;
+        private final String[] names;
+        private final JsonTypeCodec[] fields;
+        private final int mapCapacity;
+
+        MapCodec(Map<String, Object> type) {
+            super(type);
+            this.type = type;
+            this.names = new String[type.size()];
+            this.fields = new JsonTypeCodec[type.size()];
+            int i = 0;
+            for(Map.Entry<String, Object> entry: type.entrySet()) {
+                names[i] = entry.getKey();
+                fields[i] = compile(entry.getValue());
+                i++;
+            }
+            // big enough not to be resized when filled
+            this.mapCapacity = (int) (names.length / 0.75f) + 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeByte(-1);
+                return;
+            }
+            if(!(object instanceof Map))
+                throw new SerializationException("Expected Map, but got " + object.getClass()
+                                                 + ": " + object);
+            Map<String, Object> map = (Map<String, Object>) object;
+            output.writeByte(1);
+            if(map.size() != names.length)
+                throw new SerializationException("Invalid map for serialization, expected: " + type
+                                                 + " but got " + object);
+            for(int i = 0; i < names.length; i++) {
+                Object value = map.get(names[i]);
+                if(value == null && !map.containsKey(names[i]))
+                    throw new SerializationException("Missing property: " + names[i]
+                                                     + " that is required by the type (" + type
+                                                     + ")");
+                try {
+                    fields[i].write(output, value);
+                } catch(SerializationException e) {
+                    throw new SerializationException("Fail to write property: " + names[i], e);
+                }
+            }
+        }
+
+        @Override
+        public Object read(Input input) {
+            if(input.readByte() == -1)
+                return null;
+            Map<String, Object> map = new HashMap<String, Object>(mapCapacity);
+            for(int i = 0; i < names.length; i++)
+                map.put(names[i], fields[i].read(input));
+            return map;
+        }
+    }
+
+    private static final class ListCodec extends JsonTypeCodec {
+
+        private final JsonTypeCodec entry;
+
+        ListCodec(Object type, JsonTypeCodec entry) {
+            super(type);
+            this.entry = entry;
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                writeLength(output, -1);
+                return;
+            }
+            if(!(object instanceof List))
+                throw new SerializationException("Expected List but got " + object.getClass()
+                                                 + ": " + object);
+            List<?> list = (List<?>) object;
+            writeLength(output, list.size());
+            for(Object o: list)
+                entry.write(output, o);
+        }
+
+        @Override
+        public Object read(Input input) {
+            int size = readLength(input);
+            if(size < 0)
+                return null;
+            List<Object> items = new ArrayList<Object>(size);
+            for(int i = 0; i < size; i++)
+                items.add(entry.read(input));
+            return items;
+        }
+    }
+
+    private static final class BooleanCodec extends JsonTypeCodec {
+
+        BooleanCodec() {
+            super(JsonTypes.BOOLEAN);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            Boolean b = (Boolean) object;
+            if(b == null)
+                output.writeByte(-1);
+            else
+                output.writeByte(b.booleanValue() ? 1 : 0);
+        }
+
+        @Override
+        public Object read(Input input) {
+            byte b = input.readByte();
+            if(b < 0)
+                return null;
+            else
+                return b != 0;
+        }
+    }
+
+    private static final class Int8Codec extends JsonTypeCodec {
+
+        Int8Codec() {
+            super(JsonTypes.INT8);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            Byte b = (Byte) object;
+            if(b == null)
+                output.writeByte(Byte.MIN_VALUE);
+            else if(b.byteValue() == Byte.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Byte.MIN_VALUE
+                                                 + " in int8, but minimum value is "
+                                                 + (Byte.MIN_VALUE - 1) + ".");
+            else
+                output.writeByte(b.byteValue());
+        }
+
+        @Override
+        public Object read(Input input) {
+            byte b = input.readByte();
+            if(b == Byte.MIN_VALUE)
+                return null;
+            else
+                return b;
+        }
+    }
+
+    private static final class Int16Codec extends JsonTypeCodec {
+
+        Int16Codec() {
+            super(JsonTypes.INT16);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeShort(Short.MIN_VALUE);
+                return;
+            }
+            Class<?> c = object.getClass();
+            short s;
+            if(c == Short.class)
+                s = ((Short) object).shortValue();
+            else if(c == Byte.class)
+                s = ((Byte) object).shortValue();
+            else
+                throw cannotCoerce(c, JsonTypes.INT16);
+            if(s == Short.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Short.MIN_VALUE
+                                                 + " in int16, but minimum value is "
+                                                 + (Short.MIN_VALUE - 1) + ".");
+            output.writeShort(s);
+        }
+
+        @Override
+        public Object read(Input input) {
+            short s = input.readShort();
+            if(s == Short.MIN_VALUE)
+                return null;
+            else
+                return s;
+        }
+    }
+
+    private static final class Int32Codec extends JsonTypeCodec {
+
+        Int32Codec() {
+            super(JsonTypes.INT32);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeInt(Integer.MIN_VALUE);
+                return;
+            }
+            Class<?> c = object.getClass();
+            int i;
+            if(c == Integer.class)
+                i = ((Integer) object).intValue();
+            else if(c == Byte.class)
+                i = ((Byte) object).intValue();
+            else if(c == Short.class)
+                i = ((Short) object).intValue();
+            else
+                throw cannotCoerce(c, JsonTypes.INT32);
+            if(i == Integer.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Integer.MIN_VALUE
+                                                 + " in int32, but minimum value is "
+                                                 + (Integer.MIN_VALUE - 1) + ".");
+            output.writeInt(i);
+        }
+
+        @Override
+        public Object read(Input input) {
+            int i = input.readInt();
+            if(i == Integer.MIN_VALUE)
+                return null;
+            else
+                return i;
+        }
+    }
+
+    private static final class Int64Codec extends JsonTypeCodec {
+
+        Int64Codec() {
+            super(JsonTypes.INT64);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeLong(Long.MIN_VALUE);
+                return;
+            }
+            Class<?> c = object.getClass();
+            long l;
+            if(c == Long.class)
+                l = ((Long) object).longValue();
+            else if(c == Byte.class)
+                l = ((Byte) object).longValue();
+            else if(c == Short.class)
+                l = ((Short) object).longValue();
+            else if(c == Integer.class)
+                l = ((Integer) object).longValue();
+            else
+                throw cannotCoerce(c, JsonTypes.INT64);
+            if(l == Long.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Long.MIN_VALUE
+                                                 + " in int64, but minimum value is "
+                                                 + (Long.MIN_VALUE - 1) + ".");
+            output.writeLong(l);
+        }
+
+        @Override
+        public Object read(Input input) {
+            long l = input.readLong();
+            if(l == Long.MIN_VALUE)
+                return null;
+            else
+                return l;
+        }
+    }
+
+    private static final class Float32Codec extends JsonTypeCodec {
+
+        Float32Codec() {
+            super(JsonTypes.FLOAT32);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeInt(Float.floatToIntBits(Float.MIN_VALUE));
+                return;
+            }
+            Class<?> c = object.getClass();
+            float f;
+            if(c == Float.class)
+                f = ((Float) object).floatValue();
+            else if(c == Byte.class)
+                f = ((Byte) object).floatValue();
+            else if(c == Short.class)
+                f = ((Short) object).floatValue();
+            else if(c == Integer.class)
+                f = ((Integer) object).floatValue();
+            else
+                throw cannotCoerce(c, JsonTypes.FLOAT32);
+            if(f == Float.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Float.MIN_VALUE
+                                                 + " in float32, but that value is reserved for null.");
+            output.writeInt(Float.floatToIntBits(f));
+        }
+
+        @Override
+        public Object read(Input input) {
+            float f = Float.intBitsToFloat(input.readInt());
+            if(f == Float.MIN_VALUE)
+                return null;
+            else
+                return f;
+        }
+    }
+
+    private static final class Float64Codec extends JsonTypeCodec {
+
+        Float64Codec() {
+            super(JsonTypes.FLOAT64);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            if(object == null) {
+                output.writeLong(Double.doubleToLongBits(Double.MIN_VALUE));
+                return;
+            }
+            Class<?> c = object.getClass();
+            double d;
+            if(c == Double.class)
+                d = ((Double) object).doubleValue();
+            else if(c == Byte.class)
+                d = ((Byte) object).doubleValue();
+            else if(c == Short.class)
+                d = ((Short) object).doubleValue();
+            else if(c == Integer.class)
+                d = ((Integer) object).doubleValue();
+            else if(c == Float.class)
+                d = ((Float) object).doubleValue();
+            else
+                throw cannotCoerce(c, JsonTypes.FLOAT64);
+            if(d == Double.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store " + Double.MIN_VALUE
+                                                 + " in float64, but that value is reserved for null.");
+            output.writeLong(Double.doubleToLongBits(d));
+        }
+
+        @Override
+        public Object read(Input input) {
+            double d = Double.longBitsToDouble(input.readLong());
+            if(d == Double.MIN_VALUE)
+                return null;
+            else
+                return d;
+        }
+    }
+
+    private static final class DateCodec extends JsonTypeCodec {
+
+        DateCodec() {
+            super(JsonTypes.DATE);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            long time;
+            if(object == null) {
+                output.writeLong(Long.MIN_VALUE);
+                return;
+            } else if(object instanceof Date) {
+                time = ((Date) object).getTime();
+            } else if(object instanceof Number) {
+                time = ((Number) object).longValue();
+            } else {
+                throw new SerializationException("Object of type " + object.getClass()
+                                                 + " can not be coerced to type " + JsonTypes.DATE);
+            }
+            if(time == Long.MIN_VALUE)
+                throw new SerializationException("Underflow: attempt to store "
+                                                 + new Date(Long.MIN_VALUE)
+                                                 + " in date, but that value is reserved for null.");
+            output.writeLong(time);
+        }
+
+        @Override
+        public Object read(Input input) {
+            long l = input.readLong();
+            if(l == Long.MIN_VALUE)
+                return null;
+            else
+                return new Date(l);
+        }
+    }
+
+    private static final class BytesCodec extends JsonTypeCodec {
+
+        BytesCodec() {
+            super(JsonTypes.BYTES);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            writeBytes(output, (byte[]) object);
+        }
+
+        @Override
+        public Object read(Input input) {
+            return readBytes(input);
+        }
+    }
+
+    private static final class StringCodec extends JsonTypeCodec {
+
+        StringCodec() {
+            super(JsonTypes.STRING);
+        }
+
+        @Override
+        protected void writeValue(Output output, Object object) {
+            String s = (String) object;
+            writeBytes(output, s == null ? null : s.getBytes(UTF8));
+        }
+
+        @Override
+        public Object read(Input input) {
+            byte[] bytes = readBytes(input);
+            if(bytes == null)
+                return null;
+            else
+                return new String(bytes, UTF8);
+        }
+    }
+
+    private static void writeBytes(Output output, byte[] b) {
+        if(b == null) {
+            writeLength(output, -1);
+        } else {
+            writeLength(output, b.length);
+            output.write(b);
+        }
+    }
+
+    private static byte[] readBytes(Input input) {
+        int size = readLength(input);
+        if(size < 0)
+            return null;
+        return input.read(size);
+    }
+
+    private static SerializationException cannotCoerce(Class<?> c, JsonTypes type) {
+        return new SerializationException("Object of type " + c.getName()
+                                          + " cannot be coerced to type " + type
+                                          + " as the schema specifies.");
+    }
+}
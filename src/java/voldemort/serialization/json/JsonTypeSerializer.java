@@ -22,6 +22,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +41,9 @@ import voldemort.utils.ByteUtils;
  * Official motto of this class: "I fought the static type system, and the type
  * system won."
  * 
+ * In compiled mode, each type definition is turned into a {@link JsonTypeCodec}
+ * when the serializer is built, and values are converted straight between
+ * byte arrays and objects. The serialized bytes are the same in both modes.
  * 
  */
 public class JsonTypeSerializer implements Serializer<Object> {
@@ -49,6 +53,9 @@ public class JsonTypeSerializer implements Serializer<Object> {
     private final boolean hasVersion;
     private final SortedMap<Integer, JsonTypeDefinition> typeDefVersions;
 
+    // codecs of every version, null unless compiled
+    private final Map<Integer, JsonTypeCodec> codecs;
+
     public JsonTypeSerializer(String typeDef) {
         this(JsonTypeDefinition.fromJson(typeDef));
     }
@@ -58,23 +65,46 @@ public class JsonTypeSerializer implements Serializer<Object> {
     }
 
     public JsonTypeSerializer(JsonTypeDefinition typeDef) {
-        this.hasVersion = false;
-        this.typeDefVersions = new TreeMap<Integer, JsonTypeDefinition>();
-        this.typeDefVersions.put(0, typeDef);
+        this(typeDef, false);
     }
 
     public JsonTypeSerializer(JsonTypeDefinition typeDef, boolean hasVersion) {
-        this.hasVersion = hasVersion;
-        this.typeDefVersions = new TreeMap<Integer, JsonTypeDefinition>();
-        this.typeDefVersions.put(0, typeDef);
+        this(typeDef, hasVersion, false);
+    }
+
+    public JsonTypeSerializer(JsonTypeDefinition typeDef, boolean hasVersion, boolean compiled) {
+        this(Collections.singletonMap(0, typeDef), hasVersion, compiled);
     }
 
     public JsonTypeSerializer(Map<Integer, JsonTypeDefinition> typeDefVersions) {
-        this.hasVersion = true;
+        this(typeDefVersions, false);
+    }
+
+    public JsonTypeSerializer(Map<Integer, JsonTypeDefinition> typeDefVersions, boolean compiled) {
+        this(typeDefVersions, true, compiled);
+    }
+
+    private JsonTypeSerializer(Map<Integer, JsonTypeDefinition> typeDefVersions,
+                               boolean hasVersion,
+                               boolean compiled) {
+        this.hasVersion = hasVersion;
         this.typeDefVersions = new TreeMap<Integer, JsonTypeDefinition>(typeDefVersions);
+        if(compiled) {
+            this.codecs = new HashMap<Integer, JsonTypeCodec>();
+            for(Map.Entry<Integer, JsonTypeDefinition> entry: this.typeDefVersions.entrySet())
+                codecs.put(entry.getKey(), JsonTypeCodec.compile(entry.getValue().getType()));
+        } else {
+            this.codecs = null;
+        }
+    }
+
+    public boolean isCompiled() {
+        return codecs != null;
     }
 
     public byte[] toBytes(Object object) {
+        if(codecs != null)
+            return toBytesCompiled(object);
         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
         DataOutputStream output = new DataOutputStream(bytes);
         try {
@@ -86,7 +116,20 @@ public class JsonTypeSerializer implements Serializer<Object> {
         }
     }
 
+    private byte[] toBytesCompiled(Object object) {
+        Integer newestVersion = typeDefVersions.lastKey();
+        JsonTypeCodec.Output output = new JsonTypeCodec.Output(64);
+        if(hasVersion)
+            output.writeByte(newestVersion.byteValue());
+        codecs.get(newestVersion).write(output, object);
+        return output.toByteArray();
+    }
+
     public void toBytes(Object object, DataOutputStream output) throws IOException {
+        if(codecs != null) {
+            output.write(toBytesCompiled(object));
+            return;
+        }
         Integer newestVersion = typeDefVersions.lastKey();
         JsonTypeDefinition typeDef = typeDefVersions.get(newestVersion);
         if(hasVersion)
@@ -95,6 +138,8 @@ public class JsonTypeSerializer implements Serializer<Object> {
     }
 
     public Object toObject(byte[] bytes) {
+        if(codecs != null)
+            return toObjectCompiled(bytes);
         DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
         try {
             return toObject(input);
@@ -103,6 +148,17 @@ public class JsonTypeSerializer implements Serializer<Object> {
         }
     }
 
+    private Object toObjectCompiled(byte[] bytes) {
+        JsonTypeCodec.Input input = new JsonTypeCodec.Input(bytes, 0);
+        Integer version = 0;
+        if(hasVersion)
+            version = Integer.valueOf(input.readByte());
+        JsonTypeCodec codec = codecs.get(version);
+        if(codec == null)
+            throw new SerializationException("No schema found for schema version " + version + ".");
+        return codec.read(input);
+    }
+
     public Object toObject(DataInputStream input) throws IOException {
         Integer version = 0;
         if(hasVersion)
@@ -174,6 +174,7 @@ public class VoldemortConfig implements Serializable {
     public static final String ADMIN_CLIENT_SOCKET_TIMEOUT_SEC = "admin.client.socket.timeout.sec";
     public static final String STREAM_READ_BYTE_PER_SEC = "stream.read.byte.per.sec";
     public static final String STREAM_WRITE_BYTE_PER_SEC = "stream.write.byte.per.sec";
+    public static final String ADMIN_MERKLE_LEAF_CACHE_BYTES = "admin.merkle.leaf.cache.bytes";
     public static final String USE_MULTI_VERSION_STREAMING_PUTS = "use.multi.version.streaming.puts";
     public static final String SOCKET_TIMEOUT_MS = "socket.timeout.ms";
     public static final String SOCKET_BUFFER_SIZE = "socket.buffer.size";
@@ -216,12 +217,16 @@ public class VoldemortConfig implements Serializable {
     public static final String ENABLE_SLOP_PURGE_JOB = "enable.slop.purge.job";
     public static final String ENABLE_JMX_CLUSTERNAME = "enable.jmx.clustername";
     public static final String ENABLE_QUOTA_LIMITING = "enable.quota.limiting";
+    public static final String QUOTA_TOKEN_BUCKET_ENABLE = "quota.token.bucket.enable";
+    public static final String QUOTA_TOKEN_BUCKET_BURST_MS = "quota.token.bucket.burst.ms";
     public static final String GOSSIP_INTERVAL_MS = "gossip.interval.ms";
     public static final String SLOP_WRITE_BYTE_PER_SEC1 = "slop.write.byte.per.sec";
     public static final String SLOP_READ_BYTE_PER_SEC = "slop.read.byte.per.sec";
     public static final String SLOP_STORE_ENGINE = "slop.store.engine";
     public static final String SLOP_FREQUENCY_MS = "slop.frequency.ms";
     public static final String SLOP_BATCH_SIZE = "slop.batch.size";
+    public static final String SLOP_PUSHER_QUEUE_SIZE = "slop.pusher.queue.size";
+    public static final String SLOP_COALESCING_ENABLE = "slop.coalescing.enable";
     public static final String PUSHER_TYPE = "pusher.type";
     public static final String SLOP_ZONES_TERMINATE = "slop.zones.terminate";
     public static final String AUTO_PURGE_DEAD_SLOPS = "auto.purge.dead.slops";
@@ -233,13 +238,18 @@ public class VoldemortConfig implements Serializable {
     public static final String RETENTION_CLEANUP_FIRST_START_DAY = "retention.cleanup.first.start.day";
     public static final String RETENTION_CLEANUP_PERIOD_HOURS = "retention.cleanup.period.hours";
     public static final String RETENTION_CLEANUP_PIN_START_TIME = "retention.cleanup.pin.start.time";
+    public static final String RETENTION_CLEANUP_INDEX_ENABLE = "retention.cleanup.index.enable";
+    public static final String RETENTION_CLEANUP_INDEX_MAX_KEYS = "retention.cleanup.index.max.keys";
+    public static final String RETENTION_CLEANUP_FULL_SCAN_INTERVAL_RUNS = "retention.cleanup.full.scan.interval.runs";
     public static final String ENFORCE_RETENTION_POLICY_ON_READ = "enforce.retention.policy.on.read";
     public static final String DELETE_EXPIRED_VALUES_ON_READ = "delete.expired.values.on.read";
+    public static final String STORAGE_COMPACT_VALUE_FORMAT = "storage.compact.value.format";
     public static final String REQUEST_FORMAT = "request.format";
     public static final String REBALANCING_TIMEOUT_SECONDS = "rebalancing.timeout.seconds";
     public static final String MAX_PARALLEL_STORES_REBALANCING = "max.parallel.stores.rebalancing";
     public static final String USE_PARTITION_SCAN_FOR_REBALANCE = "use.partition.scan.for.rebalance";
     public static final String MAX_PROXY_PUT_THREADS = "max.proxy.put.threads";
+    public static final String PROXY_GET_MISS_CACHE_TTL_MS = "proxy.get.miss.cache.ttl.ms";
     public static final String FAILUREDETECTOR_IMPLEMENTATION = "failuredetector.implementation";
     public static final String CLIENT_NODE_BANNAGE_MS = "client.node.bannage.ms";
     public static final String FAILUREDETECTOR_BANNAGE_PERIOD = "failuredetector.bannage.period";
@@ -259,6 +269,8 @@ public class VoldemortConfig implements Serializable {
     public static final String MAX_HTTP_AGGREGATED_CONTENT_LENGTH = "max.http.aggregated.content.length";
     public static final String REPAIRJOB_MAX_KEYS_SCANNED_PER_SEC = "repairjob.max.keys.scanned.per.sec";
     public static final String PRUNEJOB_MAX_KEYS_SCANNED_PER_SEC = "prunejob.max.keys.scanned.per.sec";
+    public static final String REPAIRJOB_PRUNE_VERSIONED_PUTS = "repairjob.prune.versioned.puts";
+    public static final String MAINTENANCE_SCAN_PARALLELISM = "maintenance.scan.parallelism";
     public static final String SLOP_PURGEJOB_MAX_KEYS_SCANNED_PER_SEC = "slop.purgejob.max.keys.scanned.per.sec";
     public static final String ENABLE_NODE_ID_DETECTION = "enable.node.id.detection";
     public static final String VALIDATE_NODE_ID = "validate.node.id";
@@ -390,6 +402,7 @@ public class VoldemortConfig implements Serializable {
 
         defaultConfig.put(STREAM_READ_BYTE_PER_SEC, 10 * 1000 * 1000);
         defaultConfig.put(STREAM_WRITE_BYTE_PER_SEC, 10 * 1000 * 1000);
+        defaultConfig.put(ADMIN_MERKLE_LEAF_CACHE_BYTES, 64 * 1024 * 1024);
         defaultConfig.put(USE_MULTI_VERSION_STREAMING_PUTS, true);
 
         defaultConfig.put(SOCKET_TIMEOUT_MS, 5000);
@@ -432,6 +445,8 @@ public class VoldemortConfig implements Serializable {
         defaultConfig.put(ENABLE_SLOP_PURGE_JOB, true);
         defaultConfig.put(ENABLE_JMX_CLUSTERNAME, false);
         defaultConfig.put(ENABLE_QUOTA_LIMITING, true);
+        defaultConfig.put(QUOTA_TOKEN_BUCKET_ENABLE, false);
+        defaultConfig.put(QUOTA_TOKEN_BUCKET_BURST_MS, 1000);
 
         defaultConfig.put(GOSSIP_INTERVAL_MS, 30 * 1000);
 
@@ -440,6 +455,8 @@ public class VoldemortConfig implements Serializable {
         defaultConfig.put(SLOP_STORE_ENGINE, BdbStorageConfiguration.TYPE_NAME);
         defaultConfig.put(SLOP_FREQUENCY_MS, 5 * 60 * 1000);
         defaultConfig.put(SLOP_BATCH_SIZE, 100);
+        defaultConfig.put(SLOP_PUSHER_QUEUE_SIZE, 1000);
+        defaultConfig.put(SLOP_COALESCING_ENABLE, true);
         defaultConfig.put(PUSHER_TYPE, StreamingSlopPusherJob.TYPE_NAME);
         defaultConfig.put(SLOP_ZONES_TERMINATE, 0);
         defaultConfig.put(AUTO_PURGE_DEAD_SLOPS, true);
@@ -464,10 +481,16 @@ public class VoldemortConfig implements Serializable {
         defaultConfig.put(RETENTION_CLEANUP_PERIOD_HOURS, 24);
         // should the retention job always start at the 'start time' specified
         defaultConfig.put(RETENTION_CLEANUP_PIN_START_TIME, true);
+        // should the retention job only visit keys indexed by write time ?
+        defaultConfig.put(RETENTION_CLEANUP_INDEX_ENABLE, false);
+        defaultConfig.put(RETENTION_CLEANUP_INDEX_MAX_KEYS, 10000000L);
+        // full scan every 7th run, to catch writes bypassing the index
+        defaultConfig.put(RETENTION_CLEANUP_FULL_SCAN_INTERVAL_RUNS, 7);
         // should the online reads filter out stale values when reading them ?
         defaultConfig.put(ENFORCE_RETENTION_POLICY_ON_READ, false);
         // should the online reads issue deletes to clear out stale values when reading them?
         defaultConfig.put(DELETE_EXPIRED_VALUES_ON_READ, false);
+        defaultConfig.put(STORAGE_COMPACT_VALUE_FORMAT, false);
 
         defaultConfig.put(REQUEST_FORMAT, RequestFormatType.VOLDEMORT_V1.getCode());
 
@@ -476,6 +499,7 @@ public class VoldemortConfig implements Serializable {
         defaultConfig.put(MAX_PARALLEL_STORES_REBALANCING, 3);
         defaultConfig.put(USE_PARTITION_SCAN_FOR_REBALANCE, true);
         defaultConfig.put(MAX_PROXY_PUT_THREADS, Math.max(8, Runtime.getRuntime().availableProcessors()));
+        defaultConfig.put(PROXY_GET_MISS_CACHE_TTL_MS, 0);
         defaultConfig.put(FAILUREDETECTOR_IMPLEMENTATION, FailureDetectorConfig.DEFAULT_IMPLEMENTATION_CLASS_NAME);
         defaultConfig.put(FAILUREDETECTOR_BANNAGE_PERIOD, FailureDetectorConfig.DEFAULT_BANNAGE_PERIOD);
         defaultConfig.put(FAILUREDETECTOR_THRESHOLD, FailureDetectorConfig.DEFAULT_THRESHOLD);
@@ -497,6 +521,8 @@ public class VoldemortConfig implements Serializable {
 
         defaultConfig.put(REPAIRJOB_MAX_KEYS_SCANNED_PER_SEC, Integer.MAX_VALUE);
         defaultConfig.put(PRUNEJOB_MAX_KEYS_SCANNED_PER_SEC, Integer.MAX_VALUE);
+        defaultConfig.put(REPAIRJOB_PRUNE_VERSIONED_PUTS, false);
+        defaultConfig.put(MAINTENANCE_SCAN_PARALLELISM, 1);
         defaultConfig.put(SLOP_PURGEJOB_MAX_KEYS_SCANNED_PER_SEC, 10000);
 
         // RocksDB config
@@ -658,6 +684,8 @@ public class VoldemortConfig implements Serializable {
     private boolean enableRebalanceService;
     private boolean enableJmxClusterName;
     private boolean enableQuotaLimiting;
+    private boolean quotaTokenBucketEnabled;
+    private int quotaTokenBucketBurstMs;
 
     private List<String> storageConfigurations;
 
@@ -668,6 +696,8 @@ public class VoldemortConfig implements Serializable {
     private long slopMaxWriteBytesPerSec;
     private long slopMaxReadBytesPerSec;
     private int slopBatchSize;
+    private int slopPusherQueueSize;
+    private boolean slopCoalescingEnabled;
     private int slopZonesDownToTerminate;
     private boolean autoPurgeDeadSlops;
 
@@ -679,6 +709,7 @@ public class VoldemortConfig implements Serializable {
 
     private long streamMaxReadBytesPerSec;
     private long streamMaxWriteBytesPerSec;
+    private long adminMerkleLeafCacheBytes;
     private boolean multiVersionStreamingPutsEnabled;
     private int gossipIntervalMs;
 
@@ -695,12 +726,17 @@ public class VoldemortConfig implements Serializable {
     private int retentionCleanupScheduledPeriodInHour;
     private int retentionCleanupFirstStartDayOfWeek;
     private boolean retentionCleanupPinStartTime;
+    private boolean retentionCleanupIndexEnabled;
+    private long retentionCleanupIndexMaxKeys;
+    private int retentionCleanupFullScanIntervalRuns;
     private boolean enforceRetentionPolicyOnRead;
     private boolean deleteExpiredValuesOnRead;
+    private boolean storageCompactValueFormat;
     private long rebalancingTimeoutSec;
     private int maxParallelStoresRebalancing;
     private boolean usePartitionScanForRebalance;
     private int maxProxyPutThreads;
+    private long proxyGetMissCacheTtlMs;
 
     private boolean enableRestService;
     private int numRestServiceNettyServerBacklog;
@@ -712,6 +748,8 @@ public class VoldemortConfig implements Serializable {
 
     private int repairJobMaxKeysScannedPerSec;
     private int pruneJobMaxKeysScannedPerSec;
+    private boolean repairJobPruneVersionedPuts;
+    private int maintenanceScanParallelism;
     private int slopPurgeJobMaxKeysScannedPerSec;
 
     private List<String> restrictedConfigs;
@@ -927,6 +965,7 @@ public class VoldemortConfig implements Serializable {
 
         this.streamMaxReadBytesPerSec = this.allProps.getBytes(STREAM_READ_BYTE_PER_SEC);
         this.streamMaxWriteBytesPerSec = this.allProps.getBytes(STREAM_WRITE_BYTE_PER_SEC);
+        this.adminMerkleLeafCacheBytes = this.allProps.getBytes(ADMIN_MERKLE_LEAF_CACHE_BYTES);
         this.multiVersionStreamingPutsEnabled = this.allProps.getBoolean(USE_MULTI_VERSION_STREAMING_PUTS);
 
         this.socketTimeoutMs = this.allProps.getInt(SOCKET_TIMEOUT_MS);
@@ -975,6 +1014,8 @@ public class VoldemortConfig implements Serializable {
         this.enableSlopPurgeJob = this.allProps.getBoolean(ENABLE_SLOP_PURGE_JOB);
         this.enableJmxClusterName = this.allProps.getBoolean(ENABLE_JMX_CLUSTERNAME);
         this.enableQuotaLimiting = this.allProps.getBoolean(ENABLE_QUOTA_LIMITING);
+        this.quotaTokenBucketEnabled = this.allProps.getBoolean(QUOTA_TOKEN_BUCKET_ENABLE);
+        this.quotaTokenBucketBurstMs = this.allProps.getInt(QUOTA_TOKEN_BUCKET_BURST_MS);
 
         this.gossipIntervalMs = this.allProps.getInt(GOSSIP_INTERVAL_MS);
 
@@ -983,6 +1024,8 @@ public class VoldemortConfig implements Serializable {
         this.slopStoreType = this.allProps.getString(SLOP_STORE_ENGINE);
         this.slopFrequencyMs = this.allProps.getLong(SLOP_FREQUENCY_MS);
         this.slopBatchSize = this.allProps.getInt(SLOP_BATCH_SIZE);
+        this.slopPusherQueueSize = this.allProps.getInt(SLOP_PUSHER_QUEUE_SIZE);
+        this.slopCoalescingEnabled = this.allProps.getBoolean(SLOP_COALESCING_ENABLE);
         this.pusherType = this.allProps.getString(PUSHER_TYPE);
         this.slopZonesDownToTerminate = this.allProps.getInt(SLOP_ZONES_TERMINATE);
         this.autoPurgeDeadSlops = this.allProps.getBoolean(AUTO_PURGE_DEAD_SLOPS);
@@ -998,8 +1041,12 @@ public class VoldemortConfig implements Serializable {
         this.retentionCleanupFirstStartDayOfWeek = this.allProps.getInt(RETENTION_CLEANUP_FIRST_START_DAY);
         this.retentionCleanupScheduledPeriodInHour = this.allProps.getInt(RETENTION_CLEANUP_PERIOD_HOURS);
         this.retentionCleanupPinStartTime = this.allProps.getBoolean(RETENTION_CLEANUP_PIN_START_TIME);
+        this.retentionCleanupIndexEnabled = this.allProps.getBoolean(RETENTION_CLEANUP_INDEX_ENABLE);
+        this.retentionCleanupIndexMaxKeys = this.allProps.getLong(RETENTION_CLEANUP_INDEX_MAX_KEYS);
+        this.retentionCleanupFullScanIntervalRuns = this.allProps.getInt(RETENTION_CLEANUP_FULL_SCAN_INTERVAL_RUNS);
         this.enforceRetentionPolicyOnRead = this.allProps.getBoolean(ENFORCE_RETENTION_POLICY_ON_READ);
         this.deleteExpiredValuesOnRead = this.allProps.getBoolean(DELETE_EXPIRED_VALUES_ON_READ);
+        this.storageCompactValueFormat = this.allProps.getBoolean(STORAGE_COMPACT_VALUE_FORMAT);
 
         this.requestFormatType = RequestFormatType.fromCode(this.allProps.getString(REQUEST_FORMAT));
 
@@ -1008,6 +1055,7 @@ public class VoldemortConfig implements Serializable {
         this.maxParallelStoresRebalancing = this.allProps.getInt(MAX_PARALLEL_STORES_REBALANCING);
         this.usePartitionScanForRebalance = this.allProps.getBoolean(USE_PARTITION_SCAN_FOR_REBALANCE);
         this.maxProxyPutThreads = this.allProps.getInt(MAX_PROXY_PUT_THREADS);
+        this.proxyGetMissCacheTtlMs = this.allProps.getLong(PROXY_GET_MISS_CACHE_TTL_MS);
         this.failureDetectorImplementation = this.allProps.getString(FAILUREDETECTOR_IMPLEMENTATION);
 
         this.failureDetectorBannagePeriod = this.allProps.getLong(FAILUREDETECTOR_BANNAGE_PERIOD);
@@ -1032,6 +1080,8 @@ public class VoldemortConfig implements Serializable {
 
         this.repairJobMaxKeysScannedPerSec = this.allProps.getInt(REPAIRJOB_MAX_KEYS_SCANNED_PER_SEC);
         this.pruneJobMaxKeysScannedPerSec = this.allProps.getInt(PRUNEJOB_MAX_KEYS_SCANNED_PER_SEC);
+        this.repairJobPruneVersionedPuts = this.allProps.getBoolean(REPAIRJOB_PRUNE_VERSIONED_PUTS);
+        this.maintenanceScanParallelism = this.allProps.getInt(MAINTENANCE_SCAN_PARALLELISM);
         this.slopPurgeJobMaxKeysScannedPerSec = this.allProps.getInt(SLOP_PURGEJOB_MAX_KEYS_SCANNED_PER_SEC);
 
         // RocksDB config
@@ -1056,6 +1106,20 @@ public class VoldemortConfig implements Serializable {
             throw new ConfigurationException(MAX_THREADS + " cannot be less than 1.");
         if(slopFrequencyMs < 1)
             throw new ConfigurationException(SLOP_FREQUENCY_MS + " cannot be less than 1.");
+        if(slopPusherQueueSize < 1)
+            throw new ConfigurationException(SLOP_PUSHER_QUEUE_SIZE + " cannot be less than 1.");
+        if(retentionCleanupIndexMaxKeys < 1)
+            throw new ConfigurationException(RETENTION_CLEANUP_INDEX_MAX_KEYS
+                                             + " cannot be less than 1.");
+        if(retentionCleanupFullScanIntervalRuns < 1)
+            throw new ConfigurationException(RETENTION_CLEANUP_FULL_SCAN_INTERVAL_RUNS
+                                             + " cannot be less than 1.");
+        if(maintenanceScanParallelism < 1)
+            throw new ConfigurationException(MAINTENANCE_SCAN_PARALLELISM
+                                             + " cannot be less than 1.");
+        if(quotaTokenBucketBurstMs < 1)
+            throw new ConfigurationException(QUOTA_TOKEN_BUCKET_BURST_MS
+                                             + " cannot be less than 1.");
         if(socketTimeoutMs < 0)
             throw new ConfigurationException(SOCKET_TIMEOUT_MS + " must be 0 or more ms.");
         if(clientSelectors < 1)
@@ -2141,6 +2205,25 @@ public class VoldemortConfig implements Serializable {
         this.streamMaxWriteBytesPerSec = streamMaxWriteBytesPerSec;
     }
 
+    public long getAdminMerkleLeafCacheBytes() {
+        return adminMerkleLeafCacheBytes;
+    }
+
+    /**
+     * Bytes of keys and clocks of the Merkle trees built last by the admin
+     * service that are kept, so that the keys of the leaves that differ between
+     * replicas are listed without scanning the partition again. 0 keeps none.
+     * 
+     * <ul>
+     * <li>Property : "{@value #ADMIN_MERKLE_LEAF_CACHE_BYTES}"</li>
+     * <li>Default : 64MB</li>
+     * </ul>
+     * 
+     */
+    public void setAdminMerkleLeafCacheBytes(long adminMerkleLeafCacheBytes) {
+        this.adminMerkleLeafCacheBytes = adminMerkleLeafCacheBytes;
+    }
+
     public long getSlopMaxWriteBytesPerSec() {
         return slopMaxWriteBytesPerSec;
     }
@@ -2376,6 +2459,42 @@ public class VoldemortConfig implements Serializable {
         this.slopBatchSize = slopBatchSize;
     }
 
+    public int getSlopPusherQueueSize() {
+        return this.slopPusherQueueSize;
+    }
+
+    /**
+     * Number of slops the {@link StreamingSlopPusherJob} buffers per
+     * destination node, decoupling the slop store scan from the pushes
+     * 
+     * <ul>
+     * <li>Property : "{@value #SLOP_PUSHER_QUEUE_SIZE}"</li>
+     * <li>Default :1000</li>
+     * </ul>
+     */
+    public void setSlopPusherQueueSize(int slopPusherQueueSize) {
+        this.slopPusherQueueSize = slopPusherQueueSize;
+    }
+
+    public boolean isSlopCoalescingEnabled() {
+        return this.slopCoalescingEnabled;
+    }
+
+    /**
+     * If true, a new slop removes the slop of the opposite operation (put vs.
+     * delete) for the same node, store and key when its version is dominated,
+     * so the slop store grows with the number of distinct keys rather than
+     * with the write rate
+     * 
+     * <ul>
+     * <li>Property : "{@value #SLOP_COALESCING_ENABLE}"</li>
+     * <li>Default :true</li>
+     * </ul>
+     */
+    public void setSlopCoalescingEnabled(boolean slopCoalescingEnabled) {
+        this.slopCoalescingEnabled = slopCoalescingEnabled;
+    }
+
     public int getSocketTimeoutMs() {
         return this.socketTimeoutMs;
     }
@@ -3156,6 +3275,63 @@ public class VoldemortConfig implements Serializable {
         this.retentionCleanupPinStartTime = retentionCleanupFixStartTime;
     }
 
+    public boolean isRetentionCleanupIndexEnabled() {
+        return retentionCleanupIndexEnabled;
+    }
+
+    /**
+     * If enabled, writes to stores with a retention period are indexed in
+     * memory by the timestamp of their version, and {@link DataCleanupJob}
+     * only visits the keys which may have expired instead of scanning the
+     * whole store. A full scan is still done periodically, see
+     * {@link #setRetentionCleanupFullScanIntervalRuns(int)}
+     * 
+     * <ul>
+     * <li>Property : "{@value #RETENTION_CLEANUP_INDEX_ENABLE}"</li>
+     * <li>Default :false</li>
+     * </ul>
+     */
+    public void setRetentionCleanupIndexEnabled(boolean retentionCleanupIndexEnabled) {
+        this.retentionCleanupIndexEnabled = retentionCleanupIndexEnabled;
+    }
+
+    public long getRetentionCleanupIndexMaxKeys() {
+        return retentionCleanupIndexMaxKeys;
+    }
+
+    /**
+     * Maximum number of keys held by the retention index of a single store.
+     * Beyond this, the index is dropped and the cleanup falls back to full
+     * scans.
+     * 
+     * <ul>
+     * <li>Property : "{@value #RETENTION_CLEANUP_INDEX_MAX_KEYS}"</li>
+     * <li>Default :10000000</li>
+     * </ul>
+     */
+    public void setRetentionCleanupIndexMaxKeys(long retentionCleanupIndexMaxKeys) {
+        this.retentionCleanupIndexMaxKeys = retentionCleanupIndexMaxKeys;
+    }
+
+    public int getRetentionCleanupFullScanIntervalRuns() {
+        return retentionCleanupFullScanIntervalRuns;
+    }
+
+    /**
+     * When the retention index is enabled, every Nth run of
+     * {@link DataCleanupJob} still scans the whole store. This picks up data
+     * written without going through the server's store chain, eg: by
+     * rebalancing or admin streaming.
+     * 
+     * <ul>
+     * <li>Property : "{@value #RETENTION_CLEANUP_FULL_SCAN_INTERVAL_RUNS}"</li>
+     * <li>Default :7</li>
+     * </ul>
+     */
+    public void setRetentionCleanupFullScanIntervalRuns(int retentionCleanupFullScanIntervalRuns) {
+        this.retentionCleanupFullScanIntervalRuns = retentionCleanupFullScanIntervalRuns;
+    }
+
     public boolean isEnforceRetentionPolicyOnRead() {
         return enforceRetentionPolicyOnRead;
     }
@@ -3190,6 +3366,25 @@ public class VoldemortConfig implements Serializable {
         this.deleteExpiredValuesOnRead = deleteExpiredValuesOnRead;
     }
 
+    public boolean isStorageCompactValueFormat() {
+        return storageCompactValueFormat;
+    }
+
+    /**
+     * If enabled, the BDB and RocksDB storage engines write values in the
+     * compact, varint encoded format. Values in either format are always
+     * read, but releases before the compact format cannot read it, so only
+     * enable this once a rollback to such a release is ruled out.
+     * 
+     * <ul>
+     * <li>Property : "{@value #STORAGE_COMPACT_VALUE_FORMAT}"</li>
+     * <li>Default :false</li>
+     * </ul>
+     */
+    public void setStorageCompactValueFormat(boolean storageCompactValueFormat) {
+        this.storageCompactValueFormat = storageCompactValueFormat;
+    }
+
     public int getAdminSocketTimeout() {
         return adminSocketTimeout;
     }
@@ -3730,6 +3925,25 @@ public class VoldemortConfig implements Serializable {
         return this.maxProxyPutThreads;
     }
 
+    /**
+     * How long a key that was not found on its proxy node during rebalancing
+     * is remembered as missing, so that further reads of it do not go to the
+     * proxy node again. Keys written on this node in the meantime are served
+     * from local storage regardless. 0 disables the cache.
+     * 
+     * <ul>
+     * <li>Property : "{@value #PROXY_GET_MISS_CACHE_TTL_MS}"</li>
+     * <li>Default : 0</li>
+     * </ul>
+     */
+    public void setProxyGetMissCacheTtlMs(long proxyGetMissCacheTtlMs) {
+        this.proxyGetMissCacheTtlMs = proxyGetMissCacheTtlMs;
+    }
+
+    public long getProxyGetMissCacheTtlMs() {
+        return this.proxyGetMissCacheTtlMs;
+    }
+
     /**
      * Enables fast, efficient range scans to be used for rebalancing
      * 
@@ -3778,6 +3992,42 @@ public class VoldemortConfig implements Serializable {
         this.enableQuotaLimiting = enableQuotaLimiting;
     }
 
+    public boolean isQuotaTokenBucketEnabled() {
+        return quotaTokenBucketEnabled;
+    }
+
+    /**
+     * If enabled, throughput quotas are enforced with a token bucket per quota,
+     * rejecting requests as soon as a burst exceeds the quota, instead of
+     * comparing the quota with the throughput of the last minute.
+     * 
+     * <ul>
+     * <li>Property : "{@value #QUOTA_TOKEN_BUCKET_ENABLE}"</li>
+     * <li>Default :false</li>
+     * </ul>
+     */
+    public void setQuotaTokenBucketEnabled(boolean quotaTokenBucketEnabled) {
+        this.quotaTokenBucketEnabled = quotaTokenBucketEnabled;
+    }
+
+    public int getQuotaTokenBucketBurstMs() {
+        return quotaTokenBucketBurstMs;
+    }
+
+    /**
+     * Burst allowed by the quota token buckets, as the number of ms worth of
+     * quota that can be used at once. With a quota of 500 ops/sec and a burst
+     * of 1000 ms, up to 500 requests can arrive back to back.
+     * 
+     * <ul>
+     * <li>Property : "{@value #QUOTA_TOKEN_BUCKET_BURST_MS}"</li>
+     * <li>Default :1000</li>
+     * </ul>
+     */
+    public void setQuotaTokenBucketBurstMs(int quotaTokenBucketBurstMs) {
+        this.quotaTokenBucketBurstMs = quotaTokenBucketBurstMs;
+    }
+
     public OpTimeMap testingGetSlowQueueingDelays() {
         return this.testingSlowQueueingDelays;
     }
@@ -3943,6 +4193,42 @@ public class VoldemortConfig implements Serializable {
         this.pruneJobMaxKeysScannedPerSec = maxKeysPerSecond;
     }
 
+    public boolean isRepairJobPruneVersionedPuts() {
+        return repairJobPruneVersionedPuts;
+    }
+
+    /**
+     * If enabled, {@link RepairJob} also prunes the vector clocks of the keys
+     * it keeps, like {@link VersionedPutPruneJob} does, within the same scan
+     * of the store.
+     * 
+     * <ul>
+     * <li>Property : "{@value #REPAIRJOB_PRUNE_VERSIONED_PUTS}"</li>
+     * <li>Default : false</li>
+     * </ul>
+     */
+    public void setRepairJobPruneVersionedPuts(boolean repairJobPruneVersionedPuts) {
+        this.repairJobPruneVersionedPuts = repairJobPruneVersionedPuts;
+    }
+
+    public int getMaintenanceScanParallelism() {
+        return maintenanceScanParallelism;
+    }
+
+    /**
+     * Number of partitions scanned in parallel by the repair and prune jobs,
+     * on storage engines which support partition scans. The jobs' keys
+     * scanned per second limits apply to all of these threads together.
+     * 
+     * <ul>
+     * <li>Property : "{@value #MAINTENANCE_SCAN_PARALLELISM}"</li>
+     * <li>Default : 1</li>
+     * </ul>
+     */
+    public void setMaintenanceScanParallelism(int maintenanceScanParallelism) {
+        this.maintenanceScanParallelism = maintenanceScanParallelism;
+    }
+
     public int getSlopPurgeJobMaxKeysScannedPerSec() {
         return slopPurgeJobMaxKeysScannedPerSec;
     }
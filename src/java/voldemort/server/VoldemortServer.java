@@ -60,6 +60,7 @@ import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageEngine;
 import voldemort.store.readonly.StoreVersionManager;
 import voldemort.store.readonly.swapper.FailedFetchLock;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
 import voldemort.utils.JNAUtils;
 import voldemort.utils.Props;
@@ -475,6 +476,9 @@ public class VoldemortServer extends AbstractService {
         else
             goOnline = true;
 
+        if(voldemortConfig.isJmxEnabled())
+            RequestPhaseStats.getInstance().registerJmxIfRequired();
+
         for(VoldemortService service: basicServices) {
             try {
                 service.start();
@@ -516,6 +520,9 @@ public class VoldemortServer extends AbstractService {
         }
         logger.info("All services stopped for Node:" + getIdentityNode().getId());
 
+        if(voldemortConfig.isJmxEnabled())
+            RequestPhaseStats.getInstance().unregisterJmxIfRequired();
+
         if(exceptions.size() > 0)
             throw exceptions.get(0);
         // release lock of jvm heap
@@ -42,6 +42,8 @@ import voldemort.server.protocol.RequestHandlerFactory;
 import voldemort.server.protocol.StreamRequestHandler;
 import voldemort.server.protocol.StreamRequestHandler.StreamRequestDirection;
 import voldemort.server.protocol.StreamRequestHandler.StreamRequestHandlerState;
+import voldemort.store.stats.RequestPhase;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteUtils;
 
 /**
@@ -68,6 +70,9 @@ public class AsyncRequestHandler extends SelectorManagerWorker implements Closea
 
     private NioSelectorManagerStats nioStats;
 
+    // time the selector last picked up this connection for reading
+    private long selectedNs;
+
     public AsyncRequestHandler(Selector selector,
                                SocketChannel socketChannel,
                                RequestHandlerFactory requestHandlerFactory,
@@ -122,6 +127,14 @@ public class AsyncRequestHandler extends SelectorManagerWorker implements Closea
         this.outputStream = new ByteBufferBackedOutputStream(outputBufferContainer);
     }
 
+    /**
+     * Records when the selector picked up the key of this connection, so the
+     * time the request waited behind other connections can be sampled
+     */
+    void setSelectedNs(long selectedNs) {
+        this.selectedNs = selectedNs;
+    }
+
     @Override
     protected void connect(SelectionKey selectionKey) throws IOException {
         throw new IOException("Not implemented for Server sockets");
@@ -189,9 +202,24 @@ public class AsyncRequestHandler extends SelectorManagerWorker implements Closea
 
         DataInputStream dataInputStream = new DataInputStream(inputStream);
         DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-        streamRequestHandler = requestHandler.handleRequest(dataInputStream,
-                                                            dataOutputStream,
-                                                            outputStream.getBufferContainer());
+        // Whether the request is traced is only known once the request handler
+        // has read the trace id the client sent with it
+        long handleStartNs = System.nanoTime();
+        RequestPhaseStats.setCurrentTraceId(null);
+        try {
+            streamRequestHandler = requestHandler.handleRequest(dataInputStream,
+                                                                dataOutputStream,
+                                                                outputStream.getBufferContainer());
+            if(RequestPhaseStats.isCurrentTraced()) {
+                RequestPhaseStats phaseStats = RequestPhaseStats.getInstance();
+                if(selectedNs != 0)
+                    phaseStats.record(RequestPhase.SERVER_QUEUE, handleStartNs - selectedNs);
+                phaseStats.record(RequestPhase.SERVER_HANDLING, System.nanoTime()
+                                                                - handleStartNs);
+            }
+        } finally {
+            RequestPhaseStats.setCurrentTraceId(null);
+        }
 
         if(logger.isDebugEnabled()) {
             logger.debug("AsyncRequestHandler:read finished request from "
@@ -305,6 +333,10 @@ public class AsyncRequestHandler extends SelectorManagerWorker implements Closea
                 // writes to the client.
                 prepForWrite(selectionKey);
             }
+        } else if(state == StreamRequestHandlerState.YIELD) {
+            // The handler has more to write but lets the other connections of
+            // the selector go first, so wait for the next write readiness.
+            prepForWrite(selectionKey);
         }
 
         if(state == null) {
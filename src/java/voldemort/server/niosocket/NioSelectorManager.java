@@ -127,6 +127,12 @@ public class NioSelectorManager extends AbstractSelectorManager {
         selector.wakeup();
     }
 
+    @Override
+    protected void beforeWork(SelectionKey selectionKey, long selectedNs) {
+        if(selectionKey.isReadable())
+            ((AsyncRequestHandler) selectionKey.attachment()).setSelectedNs(selectedNs);
+    }
+
     @Override
     protected void processEvents() {
         try {
@@ -4,8 +4,11 @@ import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormatType;
 import voldemort.server.StoreRepository;
 import voldemort.server.protocol.pb.ProtoBuffRequestHandler;
+import voldemort.server.protocol.vold.MerkleLeafCache;
 import voldemort.server.protocol.vold.VoldemortNativeRequestHandler;
+import voldemort.server.storage.ScanPermitWrapper;
 import voldemort.store.ErrorCodeMapper;
+import voldemort.store.metadata.MetadataStore;
 
 /**
  * A factory that gets the appropriate request handler for a given
@@ -16,9 +19,35 @@ import voldemort.store.ErrorCodeMapper;
 public class ClientRequestHandlerFactory implements RequestHandlerFactory {
 
     private final StoreRepository repository;
+    private final MetadataStore metadata;
+    private final ScanPermitWrapper scanPermits;
+    private final long scanMaxBytesPerSec;
+    private final MerkleLeafCache leafCache;
 
     public ClientRequestHandlerFactory(StoreRepository repository) {
+        this(repository, null, null, 0, 0);
+    }
+
+    /**
+     * @param metadata The metadata of the server, needed by the native protocol
+     *        to serve Merkle trees
+     * @param scanPermits The permits the Merkle tree scans must hold
+     * @param scanMaxBytesPerSec The rate the Merkle tree scans read at (0 is
+     *        unlimited)
+     * @param leafCacheBytes The bytes of keys and clocks of the Merkle trees
+     *        built last that are kept to list the keys of their leaves (0
+     *        keeps none)
+     */
+    public ClientRequestHandlerFactory(StoreRepository repository,
+                                       MetadataStore metadata,
+                                       ScanPermitWrapper scanPermits,
+                                       long scanMaxBytesPerSec,
+                                       long leafCacheBytes) {
         this.repository = repository;
+        this.metadata = metadata;
+        this.scanPermits = scanPermits;
+        this.scanMaxBytesPerSec = scanMaxBytesPerSec;
+        this.leafCache = new MerkleLeafCache(leafCacheBytes);
     }
 
     @Override
@@ -32,6 +61,22 @@ public class ClientRequestHandlerFactory implements RequestHandlerFactory {
                 return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 2);
             case VOLDEMORT_V3:
                 return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 3);
+            case VOLDEMORT_V4:
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         metadata,
+                                                         scanPermits,
+                                                         scanMaxBytesPerSec,
+                                                         leafCache,
+                                                         4);
+            case VOLDEMORT_V5:
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         metadata,
+                                                         scanPermits,
+                                                         scanMaxBytesPerSec,
+                                                         leafCache,
+                                                         5);
             case PROTOCOL_BUFFERS:
                 return new ProtoBuffRequestHandler(new ErrorCodeMapper(), repository);
             default:
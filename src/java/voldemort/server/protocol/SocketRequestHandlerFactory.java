@@ -41,7 +41,15 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
                                        Rebalancer rebalancer,
                                        VoldemortServer server) {
 
-        this.clientFactory = new ClientRequestHandlerFactory(repository);
+        // the admin port also serves the Merkle tree scans of the native protocol
+        this.clientFactory = new ClientRequestHandlerFactory(repository,
+                                                             metadata,
+                                                             storageService == null ? null
+                                                                                   : storageService.getScanPermitWrapper(),
+                                                             voldemortConfig == null ? 0
+                                                                                    : voldemortConfig.getStreamMaxReadBytesPerSec(),
+                                                             voldemortConfig == null ? 0
+                                                                                    : voldemortConfig.getAdminMerkleLeafCacheBytes());
 
         this.storage = storageService;
         this.repository = repository;
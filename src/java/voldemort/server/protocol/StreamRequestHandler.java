@@ -43,7 +43,15 @@ public interface StreamRequestHandler {
         COMPLETE,
         READING,
         WRITING,
-        INCOMPLETE_READ;
+        INCOMPLETE_READ,
+
+        /**
+         * Like {@link #WRITING}, but the selector serves the other connections
+         * before the next segment is handled, whether or not anything was
+         * written. Used by the handlers that do a bounded chunk of work per
+         * segment without writing much.
+         */
+        YIELD;
 
     }
 
@@ -22,6 +22,7 @@ import voldemort.server.protocol.AbstractRequestHandler;
 import voldemort.server.protocol.StreamRequestHandler;
 import voldemort.store.ErrorCodeMapper;
 import voldemort.store.Store;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
@@ -61,6 +62,8 @@ public class ProtoBuffRequestHandler extends AbstractRequestHandler {
         if(request.hasRequestRouteType()) {
             type = RequestRoutingType.getRequestRoutingType(request.getRequestRouteType());
         }
+        RequestPhaseStats.setCurrentTraceId(request.hasTraceId() ? request.getTraceId()
+                                                                 : RequestPhaseStats.NOT_TRACED);
 
         String storeName = request.getStore();
         Store<ByteArray, byte[], byte[]> store = getStore(storeName, type);
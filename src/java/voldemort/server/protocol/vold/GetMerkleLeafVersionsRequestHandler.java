@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import voldemort.routing.StoreRoutingPlan;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.MerkleTree;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+
+/**
+ * Returns the keys of a partition that go to some leaves of its
+ * {@link MerkleTree}, with their versions, so that only the keys of the leaves
+ * that differ between replicas are compared one by one. The keys come from the
+ * {@link MerkleLeafCache} if the tree of the partition was just built at that
+ * depth, and the partition is scanned again only if it was not kept there.
+ */
+public class GetMerkleLeafVersionsRequestHandler extends MerkleScanRequestHandler {
+
+    private final MerkleLeafCache leafCache;
+
+    Set<Integer> leaves;
+    Map<ByteArray, List<Version>> results;
+
+    public GetMerkleLeafVersionsRequestHandler(StorageEngine<ByteArray, byte[], byte[]> engine,
+                                               StoreRoutingPlan routingPlan,
+                                               ScanPermitWrapper scanPermits,
+                                               EventThrottler throttler,
+                                               MerkleLeafCache leafCache,
+                                               ErrorCodeMapper errorMapper,
+                                               int protocolVersion) {
+        super(engine, routingPlan, scanPermits, throttler, errorMapper, protocolVersion);
+        this.leafCache = leafCache;
+    }
+
+    public static boolean isCompleteRequest(DataInputStream inputStream, ByteBuffer buffer)
+            throws IOException {
+        if(!MerkleScanRequestHandler.isCompleteRequest(inputStream, buffer))
+            return false;
+        int numLeaves = inputStream.readInt();
+        return ByteUtils.skipByteArray(buffer, 4 * numLeaves);
+    }
+
+    @Override
+    public boolean parseRequest(DataInputStream inputStream) throws IOException {
+        super.parseRequest(inputStream);
+        int numLeaves = inputStream.readInt();
+        leaves = new HashSet<Integer>(numLeaves);
+        for(int i = 0; i < numLeaves; i++)
+            leaves.add(inputStream.readInt());
+        return true;
+    }
+
+    @Override
+    protected boolean startScan() {
+        results = new LinkedHashMap<ByteArray, List<Version>>();
+        MerkleLeafCache.Leaves cached = leafCache.get(store.getName(), partition, depth);
+        if(cached == null)
+            return true;
+        for(int leaf: leaves) {
+            for(Map.Entry<ByteArray, List<Version>> key: cached.getKeys(leaf).entrySet())
+                results.put(key.getKey(), new ArrayList<Version>(key.getValue()));
+        }
+        return false;
+    }
+
+    @Override
+    protected void scanKey(ByteArray key, List<Version> versions) {
+        if(!leaves.contains(MerkleTree.getLeaf(key.get(), depth)))
+            return;
+        List<Version> found = results.get(key);
+        if(found == null)
+            results.put(key, versions);
+        else
+            found.addAll(versions);
+    }
+
+    @Override
+    public void writeResponse(DataOutputStream outputStream) throws IOException {
+        outputStream.writeShort(0);
+        outputStream.writeInt(results.size());
+        for(Map.Entry<ByteArray, List<Version>> result: results.entrySet()) {
+            outputStream.writeInt(result.getKey().length());
+            outputStream.write(result.getKey().get());
+            outputStream.writeInt(result.getValue().size());
+            for(Version version: result.getValue()) {
+                byte[] clock = ((VectorClock) version).toBytes();
+                outputStream.writeInt(clock.length);
+                outputStream.write(clock);
+            }
+        }
+    }
+
+    @Override
+    public int getResponseSize() {
+        int size = 2 + 4;
+        for(Map.Entry<ByteArray, List<Version>> result: results.entrySet()) {
+            size += 4 + result.getKey().length() + 4;
+            for(Version version: result.getValue())
+                size += 4 + ((VectorClock) version).sizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public String getDebugMessage() {
+        return "Operation GetMerkleLeafVersions partition " + partition + " depth " + depth
+               + " leaves " + (leaves == null ? 0 : leaves.size()) + " keys "
+               + (results == null ? 0 : results.size());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import voldemort.routing.StoreRoutingPlan;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.MerkleTree;
+import voldemort.versioning.Version;
+
+/**
+ * Builds the {@link MerkleTree} of the versions of a partition and returns the
+ * hash and key count of each of its leaves. The keys of the leaves are kept in
+ * the {@link MerkleLeafCache} for the {@link GetMerkleLeafVersionsRequestHandler}
+ * that follows.
+ */
+public class GetMerkleTreeRequestHandler extends MerkleScanRequestHandler {
+
+    private final MerkleLeafCache leafCache;
+
+    MerkleTree tree;
+    MerkleLeafCache.Leaves leaves;
+
+    public GetMerkleTreeRequestHandler(StorageEngine<ByteArray, byte[], byte[]> engine,
+                                       StoreRoutingPlan routingPlan,
+                                       ScanPermitWrapper scanPermits,
+                                       EventThrottler throttler,
+                                       MerkleLeafCache leafCache,
+                                       ErrorCodeMapper errorMapper,
+                                       int protocolVersion) {
+        super(engine, routingPlan, scanPermits, throttler, errorMapper, protocolVersion);
+        this.leafCache = leafCache;
+    }
+
+    @Override
+    protected boolean startScan() {
+        tree = new MerkleTree(depth);
+        leaves = leafCache.newLeaves(depth);
+        return true;
+    }
+
+    @Override
+    protected void scanKey(ByteArray key, List<Version> versions) {
+        tree.add(key.get(), versions);
+        if(leaves != null)
+            leaves.add(key, versions);
+    }
+
+    @Override
+    protected void endScan() {
+        if(leaves != null)
+            leafCache.put(store.getName(), partition, leaves);
+    }
+
+    @Override
+    public void writeResponse(DataOutputStream outputStream) throws IOException {
+        outputStream.writeShort(0);
+        outputStream.writeInt(tree.getNumLeaves());
+        for(int leaf = 0; leaf < tree.getNumLeaves(); leaf++) {
+            outputStream.writeLong(tree.getLeafHash(leaf));
+            outputStream.writeInt(tree.getLeafKeyCount(leaf));
+        }
+    }
+
+    @Override
+    public int getResponseSize() {
+        return 2 + 4 + tree.getNumLeaves() * (8 + 4);
+    }
+
+    @Override
+    public String getDebugMessage() {
+        return "Operation GetMerkleTree partition " + partition + " depth " + depth
+               + (tree == null ? "" : " keys " + tree.getKeyCount());
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.utils.ByteArray;
+import voldemort.utils.MerkleTree;
+import voldemort.utils.SystemTime;
+import voldemort.utils.Time;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+
+/**
+ * Keeps the keys of the leaves of the {@link MerkleTree}s the server built
+ * last, with their versions, so that the keys of the leaves that differ
+ * between replicas are listed without scanning the partition again.
+ * 
+ * One tree is kept per store and partition, for an hour at most. The oldest
+ * trees are dropped once the keys and clocks of all of them take more than the
+ * bytes the cache may hold, and a tree that takes more than that on its own is
+ * not kept at all.
+ */
+public class MerkleLeafCache {
+
+    public static final long EXPIRY_MS = Time.MS_PER_HOUR;
+
+    private final long maxBytes;
+    private final Time time;
+    private final Map<String, Leaves> trees;
+    private long sizeInBytes;
+
+    public MerkleLeafCache(long maxBytes) {
+        this(maxBytes, SystemTime.INSTANCE);
+    }
+
+    public MerkleLeafCache(long maxBytes, Time time) {
+        this.maxBytes = maxBytes;
+        this.time = time;
+        this.trees = new LinkedHashMap<String, Leaves>();
+        this.sizeInBytes = 0;
+    }
+
+    /**
+     * @return The leaves to fill while a tree of the given depth is built, or
+     *         null if the cache holds nothing
+     */
+    public Leaves newLeaves(int depth) {
+        return maxBytes > 0 ? new Leaves(depth, maxBytes) : null;
+    }
+
+    public synchronized void put(String storeName, int partition, Leaves leaves) {
+        if(leaves.isOverflown())
+            return;
+        String name = getName(storeName, partition);
+        Leaves old = trees.remove(name);
+        if(old != null)
+            sizeInBytes -= old.sizeInBytes;
+        leaves.builtMs = time.getMilliseconds();
+        trees.put(name, leaves);
+        sizeInBytes += leaves.sizeInBytes;
+
+        Iterator<Leaves> oldest = trees.values().iterator();
+        while(sizeInBytes > maxBytes) {
+            sizeInBytes -= oldest.next().sizeInBytes;
+            oldest.remove();
+        }
+    }
+
+    /**
+     * @return The leaves of the last tree of the partition, or null if none of
+     *         that depth was built within the hour
+     */
+    public synchronized Leaves get(String storeName, int partition, int depth) {
+        String name = getName(storeName, partition);
+        Leaves leaves = trees.get(name);
+        if(leaves == null)
+            return null;
+        if(time.getMilliseconds() - leaves.builtMs > EXPIRY_MS) {
+            trees.remove(name);
+            sizeInBytes -= leaves.sizeInBytes;
+            return null;
+        }
+        return leaves.depth == depth ? leaves : null;
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private static String getName(String storeName, int partition) {
+        return storeName + "/" + partition;
+    }
+
+    /**
+     * The keys of each leaf of one tree, with their versions
+     */
+    public static class Leaves {
+
+        private final int depth;
+        private final long maxBytes;
+        private final Map<Integer, Map<ByteArray, List<Version>>> keys;
+        private long sizeInBytes;
+        private boolean overflown;
+        private long builtMs;
+
+        private Leaves(int depth, long maxBytes) {
+            this.depth = depth;
+            this.maxBytes = maxBytes;
+            this.keys = new HashMap<Integer, Map<ByteArray, List<Version>>>();
+            this.sizeInBytes = 0;
+            this.overflown = false;
+        }
+
+        /**
+         * Records a key of the tree. Once the keys take more than the cache
+         * may hold, they are dropped and no more keys are recorded.
+         */
+        public void add(ByteArray key, List<Version> versions) {
+            if(overflown)
+                return;
+            sizeInBytes += key.length();
+            for(Version version: versions)
+                sizeInBytes += ((VectorClock) version).sizeInBytes();
+            if(sizeInBytes > maxBytes) {
+                overflown = true;
+                keys.clear();
+                return;
+            }
+
+            int leaf = MerkleTree.getLeaf(key.get(), depth);
+            Map<ByteArray, List<Version>> leafKeys = keys.get(leaf);
+            if(leafKeys == null) {
+                leafKeys = new LinkedHashMap<ByteArray, List<Version>>();
+                keys.put(leaf, leafKeys);
+            }
+            List<Version> found = leafKeys.get(key);
+            if(found == null)
+                leafKeys.put(key, versions);
+            else
+                found.addAll(versions);
+        }
+
+        public boolean isOverflown() {
+            return overflown;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return The keys of the leaf with their versions, empty if it has
+         *         none
+         */
+        public Map<ByteArray, List<Version>> getKeys(int leaf) {
+            Map<ByteArray, List<Version>> leafKeys = keys.get(leaf);
+            return leafKeys == null ? new HashMap<ByteArray, List<Version>>() : leafKeys;
+        }
+    }
+}
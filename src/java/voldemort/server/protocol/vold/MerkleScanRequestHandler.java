@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import voldemort.VoldemortException;
+import voldemort.routing.StoreRoutingPlan;
+import voldemort.server.protocol.StreamRequestHandler;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.MerkleTree;
+import voldemort.utils.Pair;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+/**
+ * Base of the requests that scan the entries of a partition into a
+ * {@link MerkleTree}. The request names the master partition and the depth of
+ * the tree, and each key of the partition is handed to
+ * {@link #scanKey(ByteArray, List)} with its versions.
+ *
+ * The storage engine is scanned whatever the routing type of the request is.
+ * These requests are only served on the admin port, where they hold one of the
+ * scan permits of the server, fail at once if none is free, and read no faster
+ * than the streaming rate of the admin service. The scan is streamed like the
+ * admin fetches: each segment scans {@link #SEGMENT_ENTRIES} entries and
+ * yields, so the selector serves its other connections in between, and the
+ * response is written once the last segment is done.
+ */
+public abstract class MerkleScanRequestHandler extends ClientRequestHandler implements
+        StreamRequestHandler {
+
+    public static final int SEGMENT_ENTRIES = 1000;
+
+    private final StoreRoutingPlan routingPlan;
+    private final ScanPermitWrapper scanPermits;
+    private final EventThrottler throttler;
+    private final ErrorCodeMapper errorMapper;
+
+    protected int partition;
+    protected int depth;
+
+    private String permitOwner;
+    private AtomicLong scanned;
+    private ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries;
+    private boolean partitionScan;
+    private ByteArray key;
+    private List<Version> versions;
+
+    public MerkleScanRequestHandler(StorageEngine<ByteArray, byte[], byte[]> engine,
+                                    StoreRoutingPlan routingPlan,
+                                    ScanPermitWrapper scanPermits,
+                                    EventThrottler throttler,
+                                    ErrorCodeMapper errorMapper,
+                                    int protocolVersion) {
+        super(engine, protocolVersion);
+        this.routingPlan = routingPlan;
+        this.scanPermits = scanPermits;
+        this.throttler = throttler;
+        this.errorMapper = errorMapper;
+    }
+
+    public static boolean isCompleteRequest(DataInputStream inputStream, ByteBuffer buffer)
+            throws IOException {
+        // partition and depth
+        inputStream.readInt();
+        inputStream.readByte();
+        return true;
+    }
+
+    @Override
+    public boolean parseRequest(DataInputStream inputStream) throws IOException {
+        partition = inputStream.readInt();
+        depth = inputStream.readByte();
+        return true;
+    }
+
+    /**
+     * Called once the request is known to be valid, before the first key
+     * 
+     * @return Whether the partition has to be scanned to answer the request
+     */
+    protected abstract boolean startScan();
+
+    protected abstract void scanKey(ByteArray key, List<Version> versions);
+
+    /**
+     * Called after the last key once the whole partition was scanned
+     */
+    protected void endScan() {}
+
+    /**
+     * Checks the request and takes the scan permit. The scan itself is done by
+     * the segments of {@link #handleRequest(DataInputStream, DataOutputStream)}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void processRequest() throws VoldemortException {
+        if(depth < 0 || depth > MerkleTree.MAX_DEPTH)
+            throw new VoldemortException("Merkle tree depth must be between 0 and "
+                                         + MerkleTree.MAX_DEPTH + ", not " + depth);
+        if(partition < 0 || partition >= routingPlan.getCluster().getNumberOfPartitions())
+            throw new VoldemortException("No partition " + partition + " in the cluster");
+        if(!startScan())
+            return;
+
+        String owner = getClass().getSimpleName() + " of store " + store.getName()
+                       + " partition " + partition + " (" + System.identityHashCode(this) + ")";
+        scanned = new AtomicLong(0);
+        if(!scanPermits.tryAcquire(scanned, new AtomicLong(0), owner))
+            throw new VoldemortException("No scan permit is free for the Merkle tree of partition "
+                                         + partition + ", try again later");
+        permitOwner = owner;
+
+        StorageEngine<ByteArray, byte[], byte[]> engine = (StorageEngine<ByteArray, byte[], byte[]>) store;
+        try {
+            partitionScan = engine.isPartitionScanSupported();
+            entries = partitionScan ? engine.entries(partition) : engine.entries();
+        } catch(VoldemortException e) {
+            closeScan();
+            throw e;
+        }
+    }
+
+    @Override
+    public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
+                                                   DataOutputStream outputStream)
+            throws IOException {
+        if(entries != null) {
+            // the versions of a key come one after the other
+            for(int i = 0; i < SEGMENT_ENTRIES && entries.hasNext(); i++) {
+                Pair<ByteArray, Versioned<byte[]>> entry = entries.next();
+                scanned.incrementAndGet();
+                throttler.maybeThrottle(entry.getFirst().length()
+                                        + entry.getSecond().getValue().length);
+                if(!partitionScan
+                   && routingPlan.getMasterPartitionId(entry.getFirst().get()) != partition)
+                    continue;
+                if(!entry.getFirst().equals(key)) {
+                    if(key != null)
+                        scanKey(key, versions);
+                    key = entry.getFirst();
+                    versions = new ArrayList<Version>();
+                }
+                versions.add(entry.getSecond().getVersion());
+            }
+            if(entries.hasNext())
+                return StreamRequestHandlerState.YIELD;
+
+            if(key != null)
+                scanKey(key, versions);
+            closeScan();
+            endScan();
+        }
+
+        writeResponse(outputStream);
+        return StreamRequestHandlerState.COMPLETE;
+    }
+
+    @Override
+    public void close(DataOutputStream outputStream) throws IOException {
+        closeScan();
+    }
+
+    @Override
+    public void handleError(DataOutputStream outputStream, VoldemortException e)
+            throws IOException {
+        outputStream.writeShort(errorMapper.getCode(e));
+        outputStream.writeUTF(e.getMessage());
+    }
+
+    @Override
+    public StreamRequestDirection getDirection() {
+        return StreamRequestDirection.WRITING;
+    }
+
+    private void closeScan() {
+        if(entries != null) {
+            entries.close();
+            entries = null;
+        }
+        if(permitOwner != null) {
+            scanPermits.release(permitOwner);
+            permitOwner = null;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.Store;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Handles a batch of puts. Each entry is laid out as in a put request, and the
+ * response lists the keys whose put failed, with the error code and message of
+ * the failure.
+ */
+public class PutAllRequestHandler extends ClientRequestHandler {
+
+    private final ErrorCodeMapper errorMapper;
+
+    Map<ByteArray, Versioned<byte[]>> entries;
+    Map<ByteArray, byte[]> transforms;
+    Map<ByteArray, VoldemortException> failures;
+
+    public PutAllRequestHandler(Store<ByteArray, byte[], byte[]> store,
+                                int protocolVersion,
+                                ErrorCodeMapper errorMapper) {
+        super(store, protocolVersion);
+        this.errorMapper = errorMapper;
+    }
+
+    public static boolean isCompleteRequest(DataInputStream inputStream,
+                                            ByteBuffer buffer,
+                                            int protocolVersion) throws IOException,
+            VoldemortException {
+        int numEntries = inputStream.readInt();
+        for(int i = 0; i < numEntries; i++) {
+            if(!PutRequestHandler.isCompleteRequest(inputStream, buffer, protocolVersion))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean parseRequest(DataInputStream inputStream) throws IOException {
+        int numEntries = inputStream.readInt();
+        entries = new HashMap<ByteArray, Versioned<byte[]>>(numEntries);
+        for(int i = 0; i < numEntries; i++) {
+            ByteArray key = ClientRequestHandler.readKey(inputStream);
+            int valueSize = inputStream.readInt();
+            VectorClock clock = VectorClock.createVectorClock(inputStream);
+            byte[] value = new byte[valueSize - clock.sizeInBytes()];
+            ByteUtils.read(inputStream, value);
+            entries.put(key, new Versioned<byte[]>(value, clock));
+
+            byte[] transform = ClientRequestHandler.readSingleTransform(inputStream,
+                                                                        protocolVersion);
+            if(transform != null) {
+                if(transforms == null)
+                    transforms = new HashMap<ByteArray, byte[]>();
+                transforms.put(key, transform);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void processRequest() throws VoldemortException {
+        failures = store.putAll(entries, transforms);
+    }
+
+    @Override
+    public void writeResponse(DataOutputStream outputStream) throws IOException {
+        outputStream.writeShort(0);
+        outputStream.writeInt(failures.size());
+        for(Map.Entry<ByteArray, VoldemortException> failure: failures.entrySet()) {
+            outputStream.writeInt(failure.getKey().length());
+            outputStream.write(failure.getKey().get());
+            outputStream.writeShort(getCode(failure.getValue()));
+            outputStream.writeUTF(getMessage(failure.getValue()));
+        }
+    }
+
+    @Override
+    public int getResponseSize() {
+        int size = 2 + 4;
+        for(Map.Entry<ByteArray, VoldemortException> failure: failures.entrySet()) {
+            size += 4 + failure.getKey().length();
+            size += 2 + ByteUtils.getUTFMaxLength(getMessage(failure.getValue()));
+        }
+        return size;
+    }
+
+    /*
+     * Failures of a type the mapper does not know about are reported as the
+     * closest type it does, rather than failing the whole response
+     */
+    @SuppressWarnings("unchecked")
+    private short getCode(VoldemortException e) {
+        Class<?> c = e.getClass();
+        while(true) {
+            try {
+                return errorMapper.getCode((Class<? extends VoldemortException>) c);
+            } catch(IllegalArgumentException unmapped) {
+                c = c.getSuperclass();
+            }
+        }
+    }
+
+    private static String getMessage(VoldemortException e) {
+        return e.getMessage() == null ? "" : e.getMessage();
+    }
+
+    @Override
+    public String getDebugMessage() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Operation PUTALL ");
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            sb.append(ClientRequestHandler.getDebugMessageForKey(entry.getKey()));
+            if(failures.containsKey(entry.getKey()))
+                sb.append(" failed ");
+        }
+        return sb.toString();
+    }
+
+}
@@ -11,14 +11,20 @@ import voldemort.VoldemortException;
 import voldemort.common.VoldemortOpCode;
 import voldemort.common.nio.ByteBufferBackedInputStream;
 import voldemort.common.nio.ByteBufferContainer;
+import voldemort.routing.StoreRoutingPlan;
 import voldemort.server.RequestRoutingType;
 import voldemort.server.StoreRepository;
 import voldemort.server.protocol.AbstractRequestHandler;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.server.protocol.StreamRequestHandler;
+import voldemort.server.storage.ScanPermitWrapper;
 import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
 import voldemort.store.Store;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
+import voldemort.utils.EventThrottler;
 import voldemort.versioning.ObsoleteVersionException;
 
 /**
@@ -32,13 +38,46 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
 
     private final int protocolVersion;
 
+    private final MetadataStore metadata;
+
+    private final ScanPermitWrapper scanPermits;
+
+    private final long scanMaxBytesPerSec;
+
+    private final MerkleLeafCache leafCache;
+
     public VoldemortNativeRequestHandler(ErrorCodeMapper errorMapper,
                                          StoreRepository repository,
                                          int protocolVersion) {
+        this(errorMapper, repository, null, null, 0, null, protocolVersion);
+    }
+
+    /**
+     * @param metadata The metadata of the server, needed to map keys to
+     *        partitions for the Merkle tree requests
+     * @param scanPermits The permits the Merkle tree scans must hold. The
+     *        Merkle tree requests are refused if this, the metadata or the
+     *        leaf cache is null.
+     * @param scanMaxBytesPerSec The rate the Merkle tree scans read at (0 is
+     *        unlimited)
+     * @param leafCache The keys of the Merkle trees built last, shared by the
+     *        connections of the port
+     */
+    public VoldemortNativeRequestHandler(ErrorCodeMapper errorMapper,
+                                         StoreRepository repository,
+                                         MetadataStore metadata,
+                                         ScanPermitWrapper scanPermits,
+                                         long scanMaxBytesPerSec,
+                                         MerkleLeafCache leafCache,
+                                         int protocolVersion) {
         super(errorMapper, repository);
-        if(protocolVersion < 0 || protocolVersion > 3)
+        if(protocolVersion < 0 || protocolVersion > 5)
             throw new IllegalArgumentException("Unknown protocol version: " + protocolVersion);
         this.protocolVersion = protocolVersion;
+        this.metadata = metadata;
+        this.scanPermits = scanPermits;
+        this.scanMaxBytesPerSec = scanMaxBytesPerSec;
+        this.leafCache = leafCache;
     }
 
     private ClientRequestHandler getClientRequestHandler(byte opCode,
@@ -55,12 +94,48 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
                 return new DeleteRequestHandler(store, protocolVersion);
             case VoldemortOpCode.GET_VERSION_OP_CODE:
                 return new GetVersionRequestHandler(store, protocolVersion);
+            case VoldemortOpCode.PUT_ALL_OP_CODE:
+                if(protocolVersion > 3)
+                    return new PutAllRequestHandler(store, protocolVersion, getErrorMapper());
+                throw new IOException("Put all is not supported by protocol version "
+                                      + protocolVersion);
+            case VoldemortOpCode.GET_MERKLE_TREE_OP_CODE:
+                return new GetMerkleTreeRequestHandler(getMerkleStorageEngine(store),
+                                                       getRoutingPlan(store),
+                                                       scanPermits,
+                                                       new EventThrottler(scanMaxBytesPerSec),
+                                                       leafCache,
+                                                       getErrorMapper(),
+                                                       protocolVersion);
+            case VoldemortOpCode.GET_MERKLE_LEAF_VERSIONS_OP_CODE:
+                return new GetMerkleLeafVersionsRequestHandler(getMerkleStorageEngine(store),
+                                                               getRoutingPlan(store),
+                                                               scanPermits,
+                                                               new EventThrottler(scanMaxBytesPerSec),
+                                                               leafCache,
+                                                               getErrorMapper(),
+                                                               protocolVersion);
             default:
                 throw new IOException("Unknown op code: " + opCode);
         }
 
     }
 
+    private StorageEngine<ByteArray, byte[], byte[]> getMerkleStorageEngine(Store<ByteArray, byte[], byte[]> store)
+            throws IOException {
+        if(protocolVersion < 4 || metadata == null || scanPermits == null || leafCache == null)
+            throw new IOException("Merkle trees are not supported by protocol version "
+                                  + protocolVersion + " on this port");
+        StorageEngine<ByteArray, byte[], byte[]> engine = getStoreRepository().getStorageEngine(store.getName());
+        if(engine == null)
+            throw new IOException("No storage engine for store '" + store.getName() + "'");
+        return engine;
+    }
+
+    private StoreRoutingPlan getRoutingPlan(Store<ByteArray, byte[], byte[]> store) {
+        return new StoreRoutingPlan(metadata.getCluster(), metadata.getStoreDef(store.getName()));
+    }
+
     @Override
     public StreamRequestHandler handleRequest(final DataInputStream inputStream,
                                               final DataOutputStream outputStream)
@@ -91,6 +166,8 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
         byte opCode = inputStream.readByte();
         String storeName = inputStream.readUTF();
         RequestRoutingType routingType = getRoutingType(inputStream);
+        // the phases of the request are timed if the client sampled it
+        RequestPhaseStats.setCurrentTraceId(readTraceId(inputStream));
 
         Store<ByteArray, byte[], byte[]> store = getStore(storeName, routingType);
         if(store == null) {
@@ -119,6 +196,10 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
         // We are done with Input, clear the buffers
         clearBuffer(outputContainer);
 
+        // the Merkle tree scans answer once their last segment is done
+        if(requestHandler instanceof StreamRequestHandler)
+            return (StreamRequestHandler) requestHandler;
+
         int size = requestHandler.getResponseSize();
         if(outputContainer != null) {
             outputContainer.growBuffer(size);
@@ -153,6 +234,12 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
         return routingType;
     }
 
+    private long readTraceId(DataInputStream inputStream) throws IOException {
+        if(protocolVersion > 4 && inputStream.readBoolean())
+            return inputStream.readLong();
+        return RequestPhaseStats.NOT_TRACED;
+    }
+
     /**
      * This is pretty ugly. We end up mimicking the request logic here, so this
      * needs to stay in sync with handleRequest.
@@ -169,6 +256,8 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
             inputStream.readUTF();
             // Store routing type
             getRoutingType(inputStream);
+            // trace id
+            readTraceId(inputStream);
 
             switch(opCode) {
                 case VoldemortOpCode.GET_VERSION_OP_CODE:
@@ -193,6 +282,18 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
                         return false;
                     break;
                 }
+                case VoldemortOpCode.PUT_ALL_OP_CODE:
+                    if(!PutAllRequestHandler.isCompleteRequest(inputStream, buffer, protocolVersion))
+                        return false;
+                    break;
+                case VoldemortOpCode.GET_MERKLE_TREE_OP_CODE:
+                    if(!MerkleScanRequestHandler.isCompleteRequest(inputStream, buffer))
+                        return false;
+                    break;
+                case VoldemortOpCode.GET_MERKLE_LEAF_VERSIONS_OP_CODE:
+                    if(!GetMerkleLeafVersionsRequestHandler.isCompleteRequest(inputStream, buffer))
+                        return false;
+                    break;
                 default:
                     throw new VoldemortException(" Unrecognized Voldemort OpCode " + opCode);
             }
@@ -16,6 +16,7 @@
 
 package voldemort.server.scheduler;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
@@ -27,6 +28,7 @@ import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.metadata.MetadataStore.VoldemortState;
+import voldemort.store.retention.RetentionKeyIndex;
 import voldemort.utils.ClosableIterator;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.Pair;
@@ -38,11 +40,15 @@ import voldemort.versioning.Versioned;
 /**
  * Expire old data
  * 
+ * If given a {@link RetentionKeyIndex}, the job only visits the keys the index
+ * knows to be expiring, doing a full scan of the store (which rebuilds the
+ * index) when the index is incomplete or every few runs.
  * 
  */
 public class DataCleanupJob<K, V, T> implements Runnable {
 
     private static final Logger logger = Logger.getLogger(DataCleanupJob.class);
+    private static final long CHECK_INTERVAL = 10000;
 
     private final StorageEngine<K, V, T> store;
     private final ScanPermitWrapper cleanupPermits;
@@ -53,17 +59,32 @@ public class DataCleanupJob<K, V, T> implements Runnable {
     private long totalEntriesDeleted = 0;
     private AtomicLong deleteProgressThisRun;
     private MetadataStore metadataStore;
+    private final RetentionKeyIndex<K> index;
+    private final int fullScanIntervalRuns;
+    private int runsSinceFullScan = 0;
 
     public DataCleanupJob(StorageEngine<K, V, T> store,
                           ScanPermitWrapper cleanupPermits,
                           String storeName,
                           Time time,
                           MetadataStore metadataStore) {
+        this(store, cleanupPermits, storeName, time, metadataStore, null, 1);
+    }
+
+    public DataCleanupJob(StorageEngine<K, V, T> store,
+                          ScanPermitWrapper cleanupPermits,
+                          String storeName,
+                          Time time,
+                          MetadataStore metadataStore,
+                          RetentionKeyIndex<K> index,
+                          int fullScanIntervalRuns) {
         this.store = Utils.notNull(store);
         this.cleanupPermits = Utils.notNull(cleanupPermits);
         this.storeName = Utils.notNull(storeName);
         this.time = Utils.notNull(time);
         this.metadataStore = Utils.notNull(metadataStore);
+        this.index = index;
+        this.fullScanIntervalRuns = fullScanIntervalRuns;
 
         this.scanProgressThisRun = new AtomicLong(0);
         this.deleteProgressThisRun = new AtomicLong(0);
@@ -116,7 +137,6 @@ public class DataCleanupJob<K, V, T> implements Runnable {
 
         acquireCleanupPermit(scanProgressThisRun, deleteProgressThisRun);
 
-        ClosableIterator<Pair<K, Versioned<V>>> iterator = null;
         try {
             int maxReadRate = storeDef.hasRetentionScanThrottleRate() ? storeDef.getRetentionScanThrottleRate()
                     : Integer.MAX_VALUE;
@@ -124,38 +144,29 @@ public class DataCleanupJob<K, V, T> implements Runnable {
 
             store.beginBatchModifications();
 
-            logger.info("Starting data cleanup on store \"" + store.getName() + "\"...");
             long now = time.getMilliseconds();
-            iterator = store.entries();
-
-            while(iterator.hasNext()) {
-                // check if we have been interrupted
-                if(Thread.currentThread().isInterrupted()) {
-                    logger.info("Datacleanup job halted.");
+            if(index != null && index.isComplete() && runsSinceFullScan < fullScanIntervalRuns) {
+                logger.info("Starting indexed data cleanup on store \"" + store.getName()
+                            + "\"...");
+                if(cleanupIndexed(now, maxAgeMs, throttler)) {
+                    runsSinceFullScan++;
+                } else {
+                    // keys polled from the index may not have been visited
+                    index.invalidate();
                     return;
                 }
-
-                final long INETERVAL = 10000;
-                long entriesScanned = scanProgressThisRun.get();
-                if(entriesScanned % INETERVAL == 0) {
-                    if(!isServerInNormalState() && !isServerInOfflineState()) {
-                        return;
-                    }
-                }
-
-                scanProgressThisRun.incrementAndGet();
-                Pair<K, Versioned<V>> keyAndVal = iterator.next();
-                VectorClock clock = (VectorClock) keyAndVal.getSecond().getVersion();
-                if(now - clock.getTimestamp() > maxAgeMs) {
-                    store.delete(keyAndVal.getFirst(), clock);
-                    final long entriesDeleted = this.deleteProgressThisRun.incrementAndGet();
-                    if(logger.isDebugEnabled() && entriesDeleted % INETERVAL == 0) {
-                        logger.debug("Deleted item " + this.deleteProgressThisRun.get());
+            } else {
+                logger.info("Starting data cleanup on store \"" + store.getName() + "\"...");
+                if(index != null)
+                    index.reset();
+                if(cleanupFullScan(now, maxAgeMs, throttler)) {
+                    if(index != null) {
+                        index.markComplete();
+                        runsSinceFullScan = 1;
                     }
+                } else {
+                    return;
                 }
-
-                // throttle on number of entries.
-                throttler.maybeThrottle(1);
             }
             // log the total items scanned, so we will get an idea of data
             // growth in a cheap, periodic way
@@ -165,8 +176,9 @@ public class DataCleanupJob<K, V, T> implements Runnable {
 
         } catch(Exception e) {
             logger.error("Error in data cleanup job for store " + store.getName() + ": ", e);
+            if(index != null)
+                index.invalidate();
         } finally {
-            closeIterator(iterator);
             logger.info("Releasing lock  after data cleanup on \"" + store.getName() + "\".");
             this.cleanupPermits.release(this.getClass().getCanonicalName());
             synchronized(this) {
@@ -179,6 +191,95 @@ public class DataCleanupJob<K, V, T> implements Runnable {
         }
     }
 
+    /**
+     * Returns false if the cleanup has to stop, because the job was
+     * interrupted or the server changed state
+     */
+    private boolean shouldContinue() {
+        if(Thread.currentThread().isInterrupted()) {
+            logger.info("Datacleanup job halted.");
+            return false;
+        }
+        long entriesScanned = scanProgressThisRun.get();
+        if(entriesScanned % CHECK_INTERVAL == 0) {
+            if(!isServerInNormalState() && !isServerInOfflineState()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void deleteExpired(K key, VectorClock clock) {
+        store.delete(key, clock);
+        final long entriesDeleted = this.deleteProgressThisRun.incrementAndGet();
+        if(logger.isDebugEnabled() && entriesDeleted % CHECK_INTERVAL == 0) {
+            logger.debug("Deleted item " + this.deleteProgressThisRun.get());
+        }
+    }
+
+    /**
+     * Scans all the entries of the store, filling the index with the ones that
+     * have not expired yet.
+     * 
+     * @return true if the whole store was scanned
+     */
+    private boolean cleanupFullScan(long now, long maxAgeMs, EventThrottler throttler) {
+        ClosableIterator<Pair<K, Versioned<V>>> iterator = null;
+        try {
+            iterator = store.entries();
+
+            while(iterator.hasNext()) {
+                if(!shouldContinue())
+                    return false;
+
+                scanProgressThisRun.incrementAndGet();
+                Pair<K, Versioned<V>> keyAndVal = iterator.next();
+                VectorClock clock = (VectorClock) keyAndVal.getSecond().getVersion();
+                if(now - clock.getTimestamp() > maxAgeMs) {
+                    deleteExpired(keyAndVal.getFirst(), clock);
+                } else if(index != null) {
+                    index.add(keyAndVal.getFirst(), clock.getTimestamp());
+                }
+
+                // throttle on number of entries.
+                throttler.maybeThrottle(1);
+            }
+            return true;
+        } finally {
+            closeIterator(iterator);
+        }
+    }
+
+    /**
+     * Visits only the keys the index holds as expired, putting back the ones
+     * which still have live versions.
+     * 
+     * @return true if all the expired keys were visited
+     */
+    private boolean cleanupIndexed(long now, long maxAgeMs, EventThrottler throttler) {
+        List<K> expiredKeys = index.pollExpired(now - maxAgeMs);
+        for(K key: expiredKeys) {
+            if(!shouldContinue())
+                return false;
+
+            long oldestLive = Long.MAX_VALUE;
+            for(Versioned<V> versioned: store.get(key, null)) {
+                scanProgressThisRun.incrementAndGet();
+                VectorClock clock = (VectorClock) versioned.getVersion();
+                if(now - clock.getTimestamp() > maxAgeMs)
+                    deleteExpired(key, clock);
+                else
+                    oldestLive = Math.min(oldestLive, clock.getTimestamp());
+            }
+            if(oldestLive != Long.MAX_VALUE)
+                index.add(key, oldestLive);
+
+            // throttle on number of entries.
+            throttler.maybeThrottle(1);
+        }
+        return true;
+    }
+
     private void closeIterator(ClosableIterator<Pair<K, Versioned<V>>> iterator) {
         try {
             if(iterator != null)
@@ -19,12 +19,13 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -46,6 +47,7 @@ import voldemort.store.UnreachableStoreException;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.slop.Slop;
 import voldemort.store.slop.SlopStorageEngine;
+import voldemort.store.stats.SlopStats;
 import voldemort.store.stats.StreamingStats;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ClosableIterator;
@@ -69,13 +71,15 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
 
     private final static Versioned<Slop> END = Versioned.value(null);
 
-    private Map<Integer, SynchronousQueue<Versioned<Slop>>> slopQueues;
+    private Map<Integer, BlockingQueue<Versioned<Slop>>> slopQueues;
     private ExecutorService consumerExecutor;
     private final EventThrottler readThrottler;
     private AdminClient adminClient;
     private Cluster cluster;
 
     private final List<Future> consumerResults;
+    // the latest consumer of each node
+    private final Map<Integer, Future> nodeConsumers;
     private final Map<Integer, Set<Integer>> zoneMapping;
     private Map<Integer, Long> attemptedByNode;
     private Map<Integer, Long> succeededByNode;
@@ -96,6 +100,7 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
         this.readThrottler = new EventThrottler(voldemortConfig.getSlopMaxReadBytesPerSec());
         this.adminClient = null;
         this.consumerResults = Lists.newArrayList();
+        this.nodeConsumers = Maps.newHashMap();
         this.zoneMapping = Maps.newHashMap();
         this.consumerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
 
@@ -169,8 +174,12 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
             succeededByNode.put(node.getId(), 0L);
         }
         Set<String> storeNames = StoreDefinitionUtils.getStoreNamesSet(metadataStore.getStoreDefList());
+        SlopStats slopStats = slopStorageEngine.getSlopStats();
+        slopStats.clearCount(SlopStats.Tracked.PENDING);
+        slopStats.clearCount(SlopStats.Tracked.PUSHED);
 
         acquireRepairPermit();
+        slopStorageEngine.beginBatchModifications();
         try {
             StorageEngine<ByteArray, Slop, byte[]> slopStore = slopStorageEngine.asSlopStore();
             iterator = slopStore.entries();
@@ -211,22 +220,27 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
                                      + " of key: " + versioned.getValue().getKey());
 
                     if(failureDetector.isAvailable(node)) {
-                        SynchronousQueue<Versioned<Slop>> slopQueue = slopQueues.get(nodeId);
+                        BlockingQueue<Versioned<Slop>> slopQueue = slopQueues.get(nodeId);
                         if(slopQueue == null) {
                             // No previous slop queue, add one
-                            slopQueue = new SynchronousQueue<Versioned<Slop>>();
+                            slopQueue = new ArrayBlockingQueue<Versioned<Slop>>(voldemortConfig.getSlopPusherQueueSize());
                             slopQueues.put(nodeId, slopQueue);
-                            consumerResults.add(consumerExecutor.submit(new SlopConsumer(nodeId,
-                                                                                         slopQueue,
-                                                                                         slopStorageEngine)));
+                            Future consumer = consumerExecutor.submit(new SlopConsumer(nodeId,
+                                                                                       slopQueue,
+                                                                                       slopStorageEngine));
+                            consumerResults.add(consumer);
+                            nodeConsumers.put(nodeId, consumer);
                         }
                         boolean offered = slopQueue.offer(versioned,
                                                           voldemortConfig.getClientRoutingTimeoutMs(),
                                                           TimeUnit.MILLISECONDS);
-                        if(!offered) {
+                        if(offered) {
+                            slopStats.incrementCount(SlopStats.Tracked.PENDING, nodeId);
+                        } else {
                             if(logger.isDebugEnabled())
-                                logger.debug("No consumer appeared for slop in "
-                                             + voldemortConfig.getClientConnectionTimeoutMs()
+                                logger.debug("Slop queue for node " + nodeId
+                                             + " stayed full for "
+                                             + voldemortConfig.getClientRoutingTimeoutMs()
                                              + " ms");
                         }
                         readThrottler.maybeThrottle(nBytesRead(keyAndVal));
@@ -252,10 +266,21 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
                 logger.warn("Failed to close iterator cleanly as database might be closed", e);
             }
 
-            // Adding the poison pill
-            for(SynchronousQueue<Versioned<Slop>> slopQueue: slopQueues.values()) {
+            // Adding the poison pill. A slow consumer may take longer than
+            // the timeout to make room for it, so keep offering it for as
+            // long as the consumer runs. One which died will never take it.
+            for(Map.Entry<Integer, BlockingQueue<Versioned<Slop>>> entry: slopQueues.entrySet()) {
+                Future consumer = nodeConsumers.get(entry.getKey());
                 try {
-                    slopQueue.put(END);
+                    while(!entry.getValue().offer(END,
+                                                  voldemortConfig.getClientRoutingTimeoutMs(),
+                                                  TimeUnit.MILLISECONDS)) {
+                        if(consumer == null || consumer.isDone()) {
+                            logger.warn("Could not hand poison pill to slop consumer of node "
+                                        + entry.getKey() + " which is not running");
+                            break;
+                        }
+                    }
                 } catch(InterruptedException e) {
                     logger.warn("Error putting poison pill", e);
                 }
@@ -268,6 +293,7 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
                     logger.warn("Exception in consumer", e);
                 }
             }
+            slopStorageEngine.endBatchModifications();
 
             // Only if exception didn't take place do we update the counts
             if(!terminatedEarly) {
@@ -293,6 +319,7 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
 
             // Shut down admin client as not to waste connections
             consumerResults.clear();
+            nodeConsumers.clear();
             slopQueues.clear();
             stopAdminClient();
             this.repairPermits.release(this.getClass().getCanonicalName());
@@ -303,7 +330,7 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
     private void loadMetadata() {
         this.cluster = metadataStore.getCluster();
         this.failureDetector.getConfig().setCluster(cluster);
-        this.slopQueues = new ConcurrentHashMap<Integer, SynchronousQueue<Versioned<Slop>>>(cluster.getNumberOfNodes());
+        this.slopQueues = new ConcurrentHashMap<Integer, BlockingQueue<Versioned<Slop>>>(cluster.getNumberOfNodes());
         this.attemptedByNode = new ConcurrentHashMap<Integer, Long>(cluster.getNumberOfNodes());
         this.succeededByNode = new ConcurrentHashMap<Integer, Long>(cluster.getNumberOfNodes());
     }
@@ -345,12 +372,14 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
     }
 
     /**
-     * Smart slop iterator which keeps two previous batches of data
+     * Slop iterator which drains at most one batch worth of slops from the
+     * per-node queue, remembering them so they can be deleted once the
+     * destination acknowledged the batch
      * 
      */
     private class SlopIterator extends AbstractIterator<Versioned<Slop>> {
 
-        private final SynchronousQueue<Versioned<Slop>> slopQueue;
+        private final BlockingQueue<Versioned<Slop>> slopQueue;
         private final List<Pair<ByteArray, Version>> deleteBatch;
         private final EventThrottler writeThrottler;
 
@@ -358,7 +387,7 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
         private long slopsDone = 0L;
         private boolean shutDown = false, isComplete = false;
 
-        public SlopIterator(SynchronousQueue<Versioned<Slop>> slopQueue,
+        public SlopIterator(BlockingQueue<Versioned<Slop>> slopQueue,
                             List<Pair<ByteArray, Version>> deleteBatch) {
             this.slopQueue = slopQueue;
             this.deleteBatch = deleteBatch;
@@ -415,64 +444,32 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
     private class SlopConsumer implements Runnable {
 
         private final int nodeId;
-        private SynchronousQueue<Versioned<Slop>> slopQueue;
+        private BlockingQueue<Versioned<Slop>> slopQueue;
         private long startTime;
         private SlopStorageEngine slopStorageEngine;
 
-        // Keep two lists to track deleted items
-        private List<Pair<ByteArray, Version>> previous, current;
+        // Slops of the batch currently being streamed
+        private List<Pair<ByteArray, Version>> current;
 
         public SlopConsumer(int nodeId,
-                            SynchronousQueue<Versioned<Slop>> slopQueue,
+                            BlockingQueue<Versioned<Slop>> slopQueue,
                             SlopStorageEngine slopStorageEngine) {
             this.nodeId = nodeId;
             this.slopQueue = slopQueue;
             this.slopStorageEngine = slopStorageEngine;
-            this.previous = Lists.newArrayList();
-            this.current = Lists.newArrayList();
+            this.current = Lists.newArrayListWithCapacity(voldemortConfig.getSlopBatchSize());
         }
 
         public void run() {
             try {
                 SlopIterator iterator = null;
                 do {
-                    if(!current.isEmpty()) {
-                        if(!previous.isEmpty()) {
-                            for(Pair<ByteArray, Version> entry: previous) {
-                                slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                            }
-                            Long succeeded = succeededByNode.get(nodeId);
-                            succeeded += previous.size();
-                            succeededByNode.put(nodeId, succeeded);
-                            previous.clear();
-                        }
-                        previous = null;
-                        previous = current;
-                        current = Lists.newArrayList();
-                    }
                     this.startTime = System.currentTimeMillis();
                     iterator = new SlopIterator(slopQueue, current);
                     adminClient.streamingOps.updateSlopEntries(nodeId, iterator);
+                    // The destination acknowledged the whole batch
+                    deleteBatch();
                 } while(!iterator.isComplete());
-
-                // Clear up both previous and current
-                if(!previous.isEmpty()) {
-                    for(Pair<ByteArray, Version> entry: previous)
-                        slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                    Long succeeded = succeededByNode.get(nodeId);
-                    succeeded += previous.size();
-                    succeededByNode.put(nodeId, succeeded);
-                    previous.clear();
-                }
-                if(!current.isEmpty()) {
-                    for(Pair<ByteArray, Version> entry: current)
-                        slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                    Long succeeded = succeededByNode.get(nodeId);
-                    succeeded += current.size();
-                    succeededByNode.put(nodeId, succeeded);
-                    current.clear();
-                }
-
             } catch(UnreachableStoreException e) {
                 failureDetector.recordException(metadataStore.getCluster().getNodeById(nodeId),
                                                 System.currentTimeMillis() - this.startTime,
@@ -481,10 +478,27 @@ public class StreamingSlopPusherJob extends SlopPusherJob implements Runnable {
             } finally {
                 // Clean the slop queue and remove the queue from the global
                 // queue
-                slopQueue.clear();
                 slopQueues.remove(nodeId);
+                slopQueue.clear();
+                slopStorageEngine.getSlopStats().clearCount(SlopStats.Tracked.PENDING, nodeId);
             }
         }
+
+        private void deleteBatch() {
+            if(current.isEmpty())
+                return;
+            for(Pair<ByteArray, Version> entry: current)
+                slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
+
+            Long succeeded = succeededByNode.get(nodeId);
+            succeeded += current.size();
+            succeededByNode.put(nodeId, succeeded);
+
+            SlopStats slopStats = slopStorageEngine.getSlopStats();
+            slopStats.addCount(SlopStats.Tracked.PENDING, nodeId, -current.size());
+            slopStats.addCount(SlopStats.Tracked.PUSHED, nodeId, current.size());
+            current.clear();
+        }
     }
 
     @Override
@@ -15,9 +15,18 @@
  */
 package voldemort.server.storage;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -25,17 +34,24 @@ import org.apache.log4j.Logger;
 
 import voldemort.annotations.jmx.JmxGetter;
 import voldemort.server.StoreRepository;
+import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ClosableIterator;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.Utils;
 
 /**
  * Base class for jobs that do some maintenance on the data stored in the server
  * 
+ * Subclasses hand the work to be done on each key to
+ * {@link #scanKeys(StorageEngine, List)} as {@link KeyScanConsumer}s, so that
+ * a single pass over the store serves all of them. If the scan parallelism is
+ * more than one and the engine supports partition scans, the partitions are
+ * scanned in parallel, sharing the job's throttler.
  * 
  */
 public abstract class DataMaintenanceJob implements Runnable {
@@ -53,6 +69,9 @@ public abstract class DataMaintenanceJob implements Runnable {
     protected long totalKeysUpdated = 0;
     protected AtomicBoolean isRunning;
     protected final EventThrottler throttler;
+    private volatile int scanParallelism = 1;
+    private final Map<Integer, AtomicLong> partitionScanProgress;
+    private volatile long scanStartMs = 0;
 
     public DataMaintenanceJob(StoreRepository storeRepo,
                               MetadataStore metadataStore,
@@ -65,6 +84,7 @@ public abstract class DataMaintenanceJob implements Runnable {
         this.numKeysUpdatedThisRun = new AtomicLong(0);
         this.isRunning = new AtomicBoolean(false);
         this.throttler = new EventThrottler(maxRatePerSecond);
+        this.partitionScanProgress = new ConcurrentHashMap<Integer, AtomicLong>();
     }
 
     public DataMaintenanceJob(StoreRepository storeRepo,
@@ -95,6 +115,8 @@ public abstract class DataMaintenanceJob implements Runnable {
 
         // actually operate the job
         try {
+            partitionScanProgress.clear();
+            scanStartMs = System.currentTimeMillis();
             operate();
         } catch(Exception e) {
             getLogger().error("Error running " + getJobName(), e);
@@ -113,6 +135,92 @@ public abstract class DataMaintenanceJob implements Runnable {
 
     abstract protected String getJobName();
 
+    /**
+     * Scans all the keys of the engine once, handing each key to the consumers
+     * in order.
+     * 
+     * @param engine The storage engine to scan
+     * @param consumers The work to do on each key
+     * @throws Exception if a consumer failed, or the scan was interrupted
+     */
+    protected void scanKeys(final StorageEngine<ByteArray, byte[], byte[]> engine,
+                            final List<KeyScanConsumer> consumers) throws Exception {
+        int numPartitions = metadataStore.getCluster().getNumberOfPartitions();
+        if(scanParallelism <= 1 || !engine.isPartitionScanSupported() || numPartitions <= 1) {
+            iterator = engine.keys();
+            try {
+                consumeKeys(engine, iterator, consumers, null);
+            } finally {
+                closeIterator(iterator);
+                iterator = null;
+            }
+            return;
+        }
+
+        getLogger().info("Scanning " + numPartitions + " partitions of " + engine.getName()
+                         + " with " + scanParallelism + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(scanParallelism,
+                                                                         numPartitions),
+                                                                new DaemonThreadFactory(getJobName()
+                                                                                        + "-scan"));
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>(numPartitions);
+            for(int partitionId = 0; partitionId < numPartitions; partitionId++) {
+                final int partition = partitionId;
+                final AtomicLong progress = new AtomicLong(0);
+                partitionScanProgress.put(partition, progress);
+                results.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        ClosableIterator<ByteArray> partitionIterator = engine.keys(partition);
+                        try {
+                            consumeKeys(engine, partitionIterator, consumers, progress);
+                        } finally {
+                            closeIterator(partitionIterator);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> result: results) {
+                try {
+                    result.get();
+                } catch(ExecutionException e) {
+                    if(e.getCause() instanceof Exception)
+                        throw (Exception) e.getCause();
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void consumeKeys(StorageEngine<ByteArray, byte[], byte[]> engine,
+                             ClosableIterator<ByteArray> keys,
+                             List<KeyScanConsumer> consumers,
+                             AtomicLong progress) throws Exception {
+        while(keys.hasNext()) {
+            if(Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException(getJobName() + " interrupted");
+            }
+            ByteArray key = keys.next();
+            for(KeyScanConsumer consumer: consumers) {
+                if(!consumer.consume(engine, key))
+                    break;
+            }
+            if(progress != null)
+                progress.incrementAndGet();
+            long itemsScanned = this.numKeysScannedThisRun.incrementAndGet();
+            throttler.maybeThrottle(1);
+            if(itemsScanned % STAT_RECORDS_INTERVAL == 0) {
+                getLogger().info("#Scanned:" + itemsScanned + " #Updated:"
+                                 + numKeysUpdatedThisRun.get());
+            }
+        }
+    }
+
     private boolean isServerNormal() {
         return metadataStore.getServerStateUnlocked()
                             .equals(MetadataStore.VoldemortState.NORMAL_SERVER);
@@ -175,6 +283,38 @@ public abstract class DataMaintenanceJob implements Runnable {
         return totalKeysScanned + numKeysScannedThisRun.get();
     }
 
+    /**
+     * Number of threads scanning the partitions of a store. Only used for
+     * engines supporting partition scans.
+     * 
+     * @param scanParallelism
+     */
+    public void setScanParallelism(int scanParallelism) {
+        this.scanParallelism = scanParallelism;
+    }
+
+    @JmxGetter(name = "scanParallelism", description = "Returns number of threads scanning partitions")
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    @JmxGetter(name = "partitionScanProgress", description = "Returns number of keys scanned per partition in the current run")
+    public Map<Integer, Long> getPartitionScanProgress() {
+        Map<Integer, Long> progress = new HashMap<Integer, Long>();
+        for(Map.Entry<Integer, AtomicLong> entry: partitionScanProgress.entrySet()) {
+            progress.put(entry.getKey(), entry.getValue().get());
+        }
+        return progress;
+    }
+
+    @JmxGetter(name = "keysScannedPerSecond", description = "Returns the scan throughput of the current run")
+    public long getKeysScannedPerSecond() {
+        long elapsedMs = System.currentTimeMillis() - scanStartMs;
+        if(!isRunning.get() || elapsedMs <= 0)
+            return 0;
+        return numKeysScannedThisRun.get() * 1000 / elapsedMs;
+    }
+
     protected synchronized void resetStats() {
         totalKeysScanned += numKeysScannedThisRun.get();
         numKeysScannedThisRun.set(0);
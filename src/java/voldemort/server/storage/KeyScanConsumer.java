@@ -0,0 +1,41 @@
+/*
+ * Copyright 2008-2013 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.server.storage;
+
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+
+/**
+ * Does the work of a {@link DataMaintenanceJob} on a single key. Several
+ * consumers can share one scan of a store, each seeing every key in turn.
+ * Implementations must be thread safe, since partitions of a store may be
+ * scanned in parallel.
+ * 
+ */
+public interface KeyScanConsumer {
+
+    /**
+     * Process a key found by the scan
+     * 
+     * @param engine The storage engine being scanned
+     * @param key The key
+     * @return false if the key was removed, so the following consumers should
+     *         not see it
+     * @throws Exception
+     */
+    public boolean consume(StorageEngine<ByteArray, byte[], byte[]> engine, ByteArray key)
+            throws Exception;
+}
@@ -91,6 +91,8 @@ import voldemort.store.rebalancing.ProxyPutStats;
 import voldemort.store.rebalancing.RebootstrappingStore;
 import voldemort.store.rebalancing.RedirectingStore;
 import voldemort.store.retention.RetentionEnforcingStore;
+import voldemort.store.retention.RetentionIndexingStore;
+import voldemort.store.retention.RetentionKeyIndex;
 import voldemort.store.routed.RoutedStore;
 import voldemort.store.routed.RoutedStoreConfig;
 import voldemort.store.routed.RoutedStoreFactory;
@@ -98,6 +100,7 @@ import voldemort.store.slop.SlopStorageEngine;
 import voldemort.store.socket.SocketStoreFactory;
 import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.store.stats.DataSetStats;
+import voldemort.store.stats.RequestPhase;
 import voldemort.store.stats.StatTrackingStore;
 import voldemort.store.stats.StoreStats;
 import voldemort.store.stats.StoreStatsJmx;
@@ -141,6 +144,7 @@ public class StorageService extends AbstractService {
     private final ScanPermitWrapper scanPermitWrapper;
     private final SocketStoreFactory storeFactory;
     private final ConcurrentMap<String, StorageConfiguration> storageConfigs;
+    private final ConcurrentMap<String, RetentionKeyIndex<ByteArray>> retentionIndexes;
     private final ClientThreadPool clientThreadPool;
     private final FailureDetector failureDetector, slopStreamingFailureDetector;
     private final StoreStats storeStats;
@@ -161,6 +165,7 @@ public class StorageService extends AbstractService {
         this.metadata = metadata;
         this.scanPermitWrapper = new ScanPermitWrapper(voldemortConfig.getNumScanPermits());
         this.storageConfigs = new ConcurrentHashMap<String, StorageConfiguration>();
+        this.retentionIndexes = new ConcurrentHashMap<String, RetentionKeyIndex<ByteArray>>();
         this.clientThreadPool = new ClientThreadPool(config.getClientMaxThreads(),
                                                      config.getClientThreadIdleMs(),
                                                      config.getClientMaxQueuedRequests());
@@ -322,7 +327,8 @@ public class StorageService extends AbstractService {
             SlopStorageEngine slopEngine = new SlopStorageEngine(config.getStore(slopStoreDefinition,
                                                                                  new RoutingStrategyFactory().updateRoutingStrategy(slopStoreDefinition,
                                                                                                                                     metadata.getCluster())),
-                                                                 metadata.getCluster());
+                                                                 metadata.getCluster(),
+                                                                 voldemortConfig.isSlopCoalescingEnabled());
             registerInternalEngine(slopEngine, false, "slop");
             storeRepository.setSlopStore(slopEngine);
 
@@ -370,6 +376,8 @@ public class StorageService extends AbstractService {
                                           metadata,
                                           scanPermitWrapper,
                                           voldemortConfig.getRepairJobMaxKeysScannedPerSec());
+            job.setScanParallelism(voldemortConfig.getMaintenanceScanParallelism());
+            job.setPruneVersionedPuts(voldemortConfig.isRepairJobPruneVersionedPuts());
             JmxUtils.registerMbean(job, JmxUtils.createObjectName(job.getClass()));
             storeRepository.registerRepairJob(job);
         }
@@ -381,6 +389,7 @@ public class StorageService extends AbstractService {
                                                                 metadata,
                                                                 scanPermitWrapper,
                                                                 voldemortConfig.getPruneJobMaxKeysScannedPerSec());
+            job.setScanParallelism(voldemortConfig.getMaintenanceScanParallelism());
             JmxUtils.registerMbean(job, JmxUtils.createObjectName(job.getClass()));
             storeRepository.registerPruneJob(job);
         }
@@ -542,7 +551,9 @@ public class StorageService extends AbstractService {
             store = new InvalidMetadataCheckingStore(metadata.getNodeId(), store, metadata);
 
         if(voldemortConfig.isStatTrackingEnabled()) {
-            StatTrackingStore statStore = new StatTrackingStore(store, this.storeStats);
+            StatTrackingStore statStore = new StatTrackingStore(store,
+                                                                this.storeStats,
+                                                                RequestPhase.STORAGE);
             store = statStore;
             if(voldemortConfig.isJmxEnabled()) {
 
@@ -756,6 +767,10 @@ public class StorageService extends AbstractService {
         }
 
         storeRepository.removeStorageEngine(storeName);
+        if(retentionIndexes.remove(storeName) != null && voldemortConfig.isJmxEnabled()) {
+            JmxUtils.unregisterMbean(JmxUtils.createObjectName(JmxUtils.getPackageName(RetentionKeyIndex.class),
+                                                               "RetentionKeyIndex-" + storeName));
+        }
 
         // Then truncate (if needed) and close
         if(truncate) {
@@ -816,6 +831,19 @@ public class StorageService extends AbstractService {
                                                                 SystemTime.INSTANCE);
         if(!isSlop) {
             if(!isReadOnly && !isMetadata && !isView) {
+                // wrap store to index writes for the retention cleanup
+                if(voldemortConfig.isRetentionCleanupIndexEnabled() && storeDef != null
+                   && storeDef.hasRetentionPeriod()) {
+                    RetentionKeyIndex<ByteArray> index = new RetentionKeyIndex<ByteArray>(store.getName(),
+                                                                                          Time.MS_PER_HOUR,
+                                                                                          voldemortConfig.getRetentionCleanupIndexMaxKeys());
+                    retentionIndexes.put(store.getName(), index);
+                    store = new RetentionIndexingStore(store, index);
+                    if(voldemortConfig.isJmxEnabled()) {
+                        JmxUtils.registerMbean("RetentionKeyIndex-" + engine.getName(), index);
+                    }
+                }
+
                 // wrap store to enforce retention policy
                 if(voldemortConfig.isEnforceRetentionPolicyOnRead() && storeDef != null) {
                     RetentionEnforcingStore retentionEnforcingStore = new RetentionEnforcingStore(store,
@@ -840,7 +868,8 @@ public class StorageService extends AbstractService {
                                                  failureDetector,
                                                  storeFactory,
                                                  proxyPutWorkerPool,
-                                                 proxyPutStats);
+                                                 proxyPutStats,
+                                                 voldemortConfig.getProxyGetMissCacheTtlMs());
                     if(voldemortConfig.isJmxEnabled()) {
                         MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
                         ObjectName name = null;
@@ -872,7 +901,9 @@ public class StorageService extends AbstractService {
         }
 
         if(voldemortConfig.isStatTrackingEnabled()) {
-            StatTrackingStore statStore = new StatTrackingStore(store, this.storeStats);
+            StatTrackingStore statStore = new StatTrackingStore(store,
+                                                                this.storeStats,
+                                                                RequestPhase.STORAGE);
             store = statStore;
             if(voldemortConfig.isJmxEnabled()) {
 
@@ -907,7 +938,9 @@ public class StorageService extends AbstractService {
                                                                               currentStoreStats,
                                                                               quotaStats,
                                                                               quotaStore,
-                                                                              metadata);
+                                                                              metadata,
+                                                                              voldemortConfig.isQuotaTokenBucketEnabled(),
+                                                                              voldemortConfig.getQuotaTokenBucketBurstMs());
                 if(voldemortConfig.isJmxEnabled()) {
                     JmxUtils.registerMbean(quotaStats,
                                            JmxUtils.createObjectName("voldemort.store.quota",
@@ -1014,7 +1047,9 @@ public class StorageService extends AbstractService {
                                                                             scanPermitWrapper,
                                                                             storeDef.getName(),
                                                                             SystemTime.INSTANCE,
-                                                                            metadata);
+                                                                            metadata,
+                                                                            retentionIndexes.get(storeDef.getName()),
+                                                                            voldemortConfig.getRetentionCleanupFullScanIntervalRuns());
         if(voldemortConfig.isJmxEnabled()) {
             JmxUtils.registerMbean("DataCleanupJob-" + engine.getName(), cleanupJob);
         }
@@ -1250,6 +1285,10 @@ public class StorageService extends AbstractService {
         return storeFactory;
     }
 
+    public ScanPermitWrapper getScanPermitWrapper() {
+        return scanPermitWrapper;
+    }
+
     @JmxGetter(name = "getScanPermitOwners", description = "Returns class names of services holding the scan permit")
     public List<String> getPermitOwners() {
         return this.scanPermitWrapper.getPermitOwners();
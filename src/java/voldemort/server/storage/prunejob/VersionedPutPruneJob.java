@@ -16,7 +16,9 @@
 package voldemort.server.storage.prunejob;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.mutable.MutableBoolean;
 import org.apache.log4j.Logger;
@@ -27,6 +29,7 @@ import voldemort.routing.StoreRoutingPlan;
 import voldemort.server.StoreRepository;
 import voldemort.server.storage.DataMaintenanceJob;
 import voldemort.server.storage.KeyLockHandle;
+import voldemort.server.storage.KeyScanConsumer;
 import voldemort.server.storage.ScanPermitWrapper;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
@@ -123,13 +126,27 @@ public class VersionedPutPruneJob extends DataMaintenanceJob {
                                                                 storeDef);
             logger.info("Pruning store " + storeDef.getName());
             StorageEngine<ByteArray, byte[], byte[]> engine = storeRepo.getStorageEngine(storeDef.getName());
-            iterator = engine.keys();
+            scanKeys(engine,
+                     Arrays.asList(createPruneConsumer(routingPlan, this.numKeysUpdatedThisRun)));
+            logger.info("Completed store " + storeDef.getName() + " #Scanned:"
+                        + numKeysScannedThisRun.get() + " #Pruned:" + numKeysUpdatedThisRun.get());
+        }
+    }
 
-            long itemsScanned = 0;
-            long numPrunedKeys = 0;
-            while(iterator.hasNext()) {
-                ByteArray key = iterator.next();
+    /**
+     * Creates the consumer pruning the clocks of each scanned key, so other
+     * maintenance jobs can prune as part of their own scan
+     * 
+     * @param routingPlan routing plan of the store with the current replicas
+     * @param numPrunedKeys incremented for every key pruned
+     * @return consumer pruning the keys handed to it
+     */
+    public static KeyScanConsumer createPruneConsumer(final StoreRoutingPlan routingPlan,
+                                                      final AtomicLong numPrunedKeys) {
+        return new KeyScanConsumer() {
 
+            @Override
+            public boolean consume(StorageEngine<ByteArray, byte[], byte[]> engine, ByteArray key) {
                 KeyLockHandle<byte[]> lockHandle = null;
                 try {
                     lockHandle = engine.getAndLock(key);
@@ -146,27 +163,19 @@ public class VersionedPutPruneJob extends DataMaintenanceJob {
                         // TODO this is only implemented for BDB for now
                         lockHandle.setValues(resolvedVals);
                         engine.putAndUnlock(key, lockHandle);
-                        numPrunedKeys = this.numKeysUpdatedThisRun.incrementAndGet();
+                        numPrunedKeys.incrementAndGet();
                     } else {
                         // if we did not prune, still need to let go of the lock
                         engine.releaseLock(lockHandle);
                     }
-                    itemsScanned = this.numKeysScannedThisRun.incrementAndGet();
-                    throttler.maybeThrottle(1);
-                    if(itemsScanned % STAT_RECORDS_INTERVAL == 0) {
-                        logger.info("#Scanned:" + itemsScanned + " #Pruned:" + numPrunedKeys);
-                    }
-                } catch(Exception e) {
-                    throw e;
                 } finally {
                     if(lockHandle != null && !lockHandle.isClosed()) {
                         engine.releaseLock(lockHandle);
                     }
                 }
+                return true;
             }
-            logger.info("Completed store " + storeDef.getName() + " #Scanned:" + itemsScanned
-                        + " #Pruned:" + numPrunedKeys);
-        }
+        };
     }
 
     /**
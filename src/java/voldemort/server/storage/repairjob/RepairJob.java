@@ -15,6 +15,10 @@
  */
 package voldemort.server.storage.repairjob;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.management.MBeanOperationInfo;
 
 import org.apache.log4j.Logger;
@@ -24,7 +28,9 @@ import voldemort.annotations.jmx.JmxOperation;
 import voldemort.routing.StoreRoutingPlan;
 import voldemort.server.StoreRepository;
 import voldemort.server.storage.DataMaintenanceJob;
+import voldemort.server.storage.KeyScanConsumer;
 import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.server.storage.prunejob.VersionedPutPruneJob;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.store.metadata.MetadataStore;
@@ -40,6 +46,10 @@ public class RepairJob extends DataMaintenanceJob {
 
     private final static Logger logger = Logger.getLogger(RepairJob.class.getName());
 
+    private volatile boolean pruneVersionedPuts = false;
+    private final AtomicLong numKeysPrunedThisRun = new AtomicLong(0);
+    private long totalKeysPruned = 0;
+
     public RepairJob(StoreRepository storeRepo,
                      MetadataStore metadataStore,
                      ScanPermitWrapper repairPermits,
@@ -52,38 +62,55 @@ public class RepairJob extends DataMaintenanceJob {
         run();
     }
 
+    /**
+     * If set, the keys kept by the repair job also get their vector clocks
+     * pruned as done by {@link VersionedPutPruneJob}, within the same scan.
+     * 
+     * @param pruneVersionedPuts
+     */
+    public void setPruneVersionedPuts(boolean pruneVersionedPuts) {
+        this.pruneVersionedPuts = pruneVersionedPuts;
+    }
+
     @Override
     public void operate() throws Exception {
         for(StoreDefinition storeDef: metadataStore.getStoreDefList()) {
             if(isWritableStore(storeDef)) {
                 // Lets generate routing strategy for this storage engine
-                StoreRoutingPlan routingPlan = new StoreRoutingPlan(metadataStore.getCluster(),
-                                                                    storeDef);
+                final StoreRoutingPlan routingPlan = new StoreRoutingPlan(metadataStore.getCluster(),
+                                                                          storeDef);
                 logger.info("Repairing store " + storeDef.getName());
                 StorageEngine<ByteArray, byte[], byte[]> engine = storeRepo.getStorageEngine(storeDef.getName());
-                iterator = engine.keys();
-
-                long itemsScanned = 0;
-                long numDeletedKeys = 0;
-                while(iterator.hasNext()) {
-                    ByteArray key = iterator.next();
-
-                    if(!routingPlan.checkKeyBelongsToNode(key.get(), metadataStore.getNodeId())) {
-                        /**
-                         * Blow away the entire key with all its versions..
-                         */
-                        engine.delete(key, null);
-                        numDeletedKeys = this.numKeysUpdatedThisRun.incrementAndGet();
-                    }
-                    itemsScanned = this.numKeysScannedThisRun.incrementAndGet();
-                    throttler.maybeThrottle(1);
-                    if(itemsScanned % STAT_RECORDS_INTERVAL == 0) {
-                        logger.info("#Scanned:" + itemsScanned + " #Deleted:" + numDeletedKeys);
+                final int nodeId = metadataStore.getNodeId();
+
+                List<KeyScanConsumer> consumers = new ArrayList<KeyScanConsumer>();
+                consumers.add(new KeyScanConsumer() {
+
+                    @Override
+                    public boolean consume(StorageEngine<ByteArray, byte[], byte[]> engine,
+                                           ByteArray key) {
+                        if(!routingPlan.checkKeyBelongsToNode(key.get(), nodeId)) {
+                            /**
+                             * Blow away the entire key with all its versions..
+                             */
+                            engine.delete(key, null);
+                            numKeysUpdatedThisRun.incrementAndGet();
+                            return false;
+                        }
+                        return true;
                     }
+                });
+                if(pruneVersionedPuts) {
+                    consumers.add(VersionedPutPruneJob.createPruneConsumer(routingPlan,
+                                                                           numKeysPrunedThisRun));
                 }
-                closeIterator(iterator);
-                logger.info("Completed store " + storeDef.getName() + " #Scanned:" + itemsScanned
-                            + " #Deleted:" + numDeletedKeys);
+
+                long scannedBefore = this.numKeysScannedThisRun.get();
+                long deletedBefore = this.numKeysUpdatedThisRun.get();
+                scanKeys(engine, consumers);
+                logger.info("Completed store " + storeDef.getName() + " #Scanned:"
+                            + (numKeysScannedThisRun.get() - scannedBefore) + " #Deleted:"
+                            + (numKeysUpdatedThisRun.get() - deletedBefore));
             }
         }
     }
@@ -102,4 +129,16 @@ public class RepairJob extends DataMaintenanceJob {
     public synchronized long getKeysDeleted() {
         return totalKeysUpdated + numKeysUpdatedThisRun.get();
     }
+
+    @JmxGetter(name = "numKeysPruned", description = "Returns number of keys pruned")
+    public synchronized long getKeysPruned() {
+        return totalKeysPruned + numKeysPrunedThisRun.get();
+    }
+
+    @Override
+    protected synchronized void resetStats() {
+        super.resetStats();
+        totalKeysPruned += numKeysPrunedThisRun.get();
+        numKeysPrunedThisRun.set(0);
+    }
 }
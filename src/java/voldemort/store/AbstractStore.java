@@ -30,6 +30,12 @@ public abstract class AbstractStore<K, V, T> implements Store<K, V, T> {
     @Override
     public void put(K key, Versioned<V> value, T transforms) throws VoldemortException {}
 
+    @Override
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries, Map<K, T> transforms)
+            throws VoldemortException {
+        return StoreUtils.putAll(this, entries, transforms);
+    }
+
     @Override
     public boolean delete(K key, Version version) throws VoldemortException {
         return false;
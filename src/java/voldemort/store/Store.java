@@ -67,6 +67,21 @@ public interface Store<K, V, T> {
      */
     public void put(K key, Versioned<V> value, T transforms) throws VoldemortException;
 
+    /**
+     * Associate each value with its key, as {@link #put(Object, Versioned, Object)}
+     * does, but possibly in fewer round trips and as a single batch on disk.
+     * Each put succeeds or fails on its own.
+     * 
+     * @param entries The values to store and their versions, keyed by key
+     * @param transforms The transforms to apply to each value, or null
+     * @return The exception each failed put threw, keyed by key. Empty if all
+     *         the puts succeeded.
+     * @throws VoldemortException If the batch failed as a whole, for instance
+     *         because the store could not be reached
+     */
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries, Map<K, T> transforms)
+            throws VoldemortException;
+
     /**
      * Delete all entries prior to the given version
      * 
@@ -13,29 +13,96 @@ import voldemort.versioning.Versioned;
  * -----------------------------------------
  *    FORMAT_VERSION                       : 1 byte
  *    Versioned value (repeating) {
- *        Clock (variable length) {
+ *        Clock (variable length)
+ *        Value (variable length)
+ *    }
+ * -----------------------------------------
+ *
+ *  Version 0 uses fixed width numbers
+ * -----------------------------------------
+ *        Clock {
  *            NUM_CLOCK_ENTRIES            : 2 bytes (short)
  *            VERSION_SIZE                 : 1 byte
  *            Server clock (repeating) {
  *                NODE_ID                  : 2 bytes (short)
  *                VERSION                  : VERSION_SIZE bytes
  *            }
+ *            TIMESTAMP                    : 8 bytes (long)
  *        }
- *        Value (variable length) {
+ *        Value {
  *             VALUE_SIZE                  : 4 bytes (int)
  *             VALUE_BYTES                 : VALUE_SIZE bytes
  *        }
- *    }     
  * -----------------------------------------
+ *
+ *  Version 1 uses variable length numbers, 7 bits per byte
+ * -----------------------------------------
+ *        Clock {
+ *            NUM_CLOCK_ENTRIES            : varint
+ *            Server clock (repeating) {
+ *                NODE_ID_DELTA            : zigzag varint, from the previous node id
+ *                VERSION                  : varint
+ *            }
+ *            TIMESTAMP                    : zigzag varint
+ *        }
+ *        Value {
+ *             VALUE_SIZE                  : varint
+ *             VALUE_BYTES                 : VALUE_SIZE bytes
+ *        }
+ * -----------------------------------------
+ *
+ *  Values are read in either version. They are written in version 0 unless
+ *  the compact format is asked for, since releases before version 1 cannot
+ *  read it.
  */
 public class StoreBinaryFormat {
 
-    /* In the future we can use this to handle format changes */
-    private static final byte VERSION = 0;
+    private static final byte FIXED_WIDTH_VERSION = 0;
+    private static final byte COMPACT_VERSION = 1;
 
     public static final int PARTITIONID_PREFIX_SIZE = ByteUtils.SIZE_OF_SHORT;
 
     public static byte[] toByteArray(List<Versioned<byte[]>> values) {
+        return toByteArray(values, false);
+    }
+
+    /**
+     * @param compact Write version 1 rather than version 0
+     */
+    public static byte[] toByteArray(List<Versioned<byte[]>> values, boolean compact) {
+        return compact ? toCompactByteArray(values) : toFixedWidthByteArray(values);
+    }
+
+    /**
+     * Writes the values in version 1, which releases before it cannot read
+     */
+    public static byte[] toCompactByteArray(List<Versioned<byte[]>> values) {
+        int size = 1;
+        for(Versioned<byte[]> v: values) {
+            size += ((VectorClock) v.getVersion()).sizeInCompactBytes();
+            size += ByteUtils.sizeOfVarLong(v.getValue().length);
+            size += v.getValue().length;
+        }
+        byte[] bytes = new byte[size];
+        int pos = 1;
+        bytes[0] = COMPACT_VERSION;
+        for(Versioned<byte[]> v: values) {
+            pos += ((VectorClock) v.getVersion()).toCompactBytes(bytes, pos);
+            int len = v.getValue().length;
+            pos += ByteUtils.writeVarLong(bytes, len, pos);
+            System.arraycopy(v.getValue(), 0, bytes, pos, len);
+            pos += len;
+        }
+        if(pos != bytes.length)
+            throw new VoldemortException((bytes.length - pos)
+                                         + " straggling bytes found in value (this should not be possible)!");
+        return bytes;
+    }
+
+    /**
+     * Writes the values in version 0, which every release can read
+     */
+    public static byte[] toFixedWidthByteArray(List<Versioned<byte[]>> values) {
         int size = 1;
         for(Versioned<byte[]> v: values) {
             size += ((VectorClock) v.getVersion()).sizeInBytes();
@@ -44,7 +111,7 @@ public class StoreBinaryFormat {
         }
         byte[] bytes = new byte[size];
         int pos = 1;
-        bytes[0] = VERSION;
+        bytes[0] = FIXED_WIDTH_VERSION;
         for(Versioned<byte[]> v: values) {
             pos += ((VectorClock) v.getVersion()).toBytes(bytes, pos);
             int len = v.getValue().length;
@@ -62,15 +129,28 @@ public class StoreBinaryFormat {
     public static List<Versioned<byte[]>> fromByteArray(byte[] bytes) {
         if(bytes.length < 1)
             throw new VoldemortException("Invalid value length: " + bytes.length);
-        if(bytes[0] != VERSION)
+        if(bytes[0] != FIXED_WIDTH_VERSION && bytes[0] != COMPACT_VERSION)
             throw new VoldemortException("Unexpected version number in value: " + bytes[0]);
+        boolean compact = bytes[0] == COMPACT_VERSION;
         int pos = 1;
         List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>(2);
         while(pos < bytes.length) {
-            VectorClock clock = new VectorClock(bytes, pos);
-            pos += clock.sizeInBytes();
-            int valueSize = ByteUtils.readInt(bytes, pos);
-            pos += ByteUtils.SIZE_OF_INT;
+            VectorClock clock;
+            int valueSize;
+            if(compact) {
+                clock = VectorClock.fromCompactBytes(bytes, pos);
+                pos += clock.sizeInCompactBytes();
+                long size = ByteUtils.readVarLong(bytes, pos);
+                pos += ByteUtils.sizeOfVarLong(size);
+                if(size < 0 || size > bytes.length - pos)
+                    throw new VoldemortException("Invalid value size: " + size);
+                valueSize = (int) size;
+            } else {
+                clock = new VectorClock(bytes, pos);
+                pos += clock.sizeInBytes();
+                valueSize = ByteUtils.readInt(bytes, pos);
+                pos += ByteUtils.SIZE_OF_INT;
+            }
             byte[] val = new byte[valueSize];
             System.arraycopy(bytes, pos, val, 0, valueSize);
             pos += valueSize;
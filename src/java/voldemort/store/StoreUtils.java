@@ -27,6 +27,7 @@ import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import voldemort.VoldemortException;
 import voldemort.cluster.Node;
 import voldemort.routing.RoutingStrategy;
 import voldemort.serialization.Serializer;
@@ -92,6 +93,24 @@ public class StoreUtils {
         return result;
     }
 
+    /**
+     * Implements putAll by delegating to put, one key at a time.
+     */
+    public static <K, V, T> Map<K, VoldemortException> putAll(Store<K, V, T> store,
+                                                              Map<K, Versioned<V>> entries,
+                                                              Map<K, T> transforms) {
+        Map<K, VoldemortException> failures = new HashMap<K, VoldemortException>();
+        for(Map.Entry<K, Versioned<V>> entry: entries.entrySet()) {
+            K key = entry.getKey();
+            try {
+                store.put(key, entry.getValue(), transforms != null ? transforms.get(key) : null);
+            } catch(VoldemortException e) {
+                failures.put(key, e);
+            }
+        }
+        return failures;
+    }
+
     /**
      * Returns an empty map with expected size matching the iterable size if
      * it's of type Collection. Otherwise, an empty map with the default size is
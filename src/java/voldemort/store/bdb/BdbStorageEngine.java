@@ -19,6 +19,8 @@ package voldemort.store.bdb;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -83,6 +85,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
     protected final BdbEnvironmentStats bdbEnvironmentStats;
     protected final boolean minimizeScanImpact;
     protected final boolean checkpointerOffForBatchWrites;
+    protected final boolean compactValueFormat;
     private volatile int numOutstandingBatchWriteJobs = 0;
 
     public BdbStorageEngine(String name,
@@ -100,6 +103,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
                                                            config.getExposeSpaceUtil());
         this.minimizeScanImpact = config.getMinimizeScanImpact();
         this.checkpointerOffForBatchWrites = config.isCheckpointerOffForBatchWrites();
+        this.compactValueFormat = config.isCompactValueFormat();
     }
 
     @Override
@@ -303,58 +307,78 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
             startTimeNs = System.nanoTime();
 
         StoreUtils.assertValidKey(key);
-        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
-        DatabaseEntry valueEntry = new DatabaseEntry();
 
         boolean succeeded = false;
         Transaction transaction = null;
-        List<Versioned<byte[]>> vals = null;
 
         try {
             transaction = environment.beginTransaction(null, null);
+            putInTransaction(transaction, key, value);
+            succeeded = true;
 
-            // do a get for the existing values
-            OperationStatus status = getBdbDatabase().get(transaction,
-                                                          keyEntry,
-                                                          valueEntry,
-                                                          LockMode.RMW);
-            if(OperationStatus.SUCCESS == status) {
-                // update
-                vals = StoreBinaryFormat.fromByteArray(valueEntry.getData());
-                // compare vector clocks and throw out old ones, for updates
-
-                Iterator<Versioned<byte[]>> iter = vals.iterator();
-                while(iter.hasNext()) {
-                    Versioned<byte[]> curr = iter.next();
-                    Occurred occurred = value.getVersion().compare(curr.getVersion());
-                    if(occurred == Occurred.BEFORE)
-                        throw new ObsoleteVersionException("Key "
-                                                           + new String(hexCodec.encode(key.get()))
-                                                           + " "
-                                                           + value.getVersion().toString()
-                                                           + " is obsolete, it is no greater than the current version of "
-                                                           + curr.getVersion().toString() + ".");
-                    else if(occurred == Occurred.AFTER)
-                        iter.remove();
-                }
-            } else {
-                // insert
-                vals = new ArrayList<Versioned<byte[]>>(1);
+        } catch(DatabaseException e) {
+            this.bdbEnvironmentStats.reportException(e);
+            logger.error("Error in put for store " + this.getName(), e);
+            throw new PersistenceFailureException(e);
+        } finally {
+            if(succeeded)
+                attemptCommit(transaction);
+            else
+                attemptAbort(transaction);
+            if(logger.isTraceEnabled()) {
+                logger.trace("Completed PUT (" + getName() + ") to key " + key + " (keyRef: "
+                             + System.identityHashCode(key) + " value " + value + " in "
+                             + (System.nanoTime() - startTimeNs) + " ns at "
+                             + System.currentTimeMillis());
             }
+        }
+    }
 
-            // update the new value
-            vals.add(value);
+    /**
+     * Puts all the entries in a single transaction, in key order. Obsolete
+     * versions are reported per key and do not abort the transaction, any
+     * other error fails the whole batch.
+     */
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws PersistenceFailureException {
 
-            valueEntry.setData(StoreBinaryFormat.toByteArray(vals));
-            status = getBdbDatabase().put(transaction, keyEntry, valueEntry);
+        long startTimeNs = -1;
 
-            if(status != OperationStatus.SUCCESS)
-                throw new PersistenceFailureException("Put operation failed with status: " + status);
+        if(logger.isTraceEnabled())
+            startTimeNs = System.nanoTime();
+
+        StoreUtils.assertValidKeys(entries.keySet());
+        // taking the locks of a batch in a consistent order keeps concurrent
+        // batches from deadlocking each other
+        List<ByteArray> keys = new ArrayList<ByteArray>(entries.keySet());
+        Collections.sort(keys, new Comparator<ByteArray>() {
+
+            @Override
+            public int compare(ByteArray key1, ByteArray key2) {
+                return ByteUtils.compare(key1.get(), key2.get());
+            }
+        });
+
+        Map<ByteArray, VoldemortException> failures = new HashMap<ByteArray, VoldemortException>();
+        boolean succeeded = false;
+        Transaction transaction = null;
+
+        try {
+            transaction = environment.beginTransaction(null, null);
+            for(ByteArray key: keys) {
+                try {
+                    putInTransaction(transaction, key, entries.get(key));
+                } catch(ObsoleteVersionException e) {
+                    failures.put(key, e);
+                }
+            }
             succeeded = true;
 
         } catch(DatabaseException e) {
             this.bdbEnvironmentStats.reportException(e);
-            logger.error("Error in put for store " + this.getName(), e);
+            logger.error("Error in putAll for store " + this.getName(), e);
             throw new PersistenceFailureException(e);
         } finally {
             if(succeeded)
@@ -362,12 +386,61 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
             else
                 attemptAbort(transaction);
             if(logger.isTraceEnabled()) {
-                logger.trace("Completed PUT (" + getName() + ") to key " + key + " (keyRef: "
-                             + System.identityHashCode(key) + " value " + value + " in "
-                             + (System.nanoTime() - startTimeNs) + " ns at "
+                logger.trace("Completed PUTALL (" + getName() + ") of " + keys.size()
+                             + " keys in " + (System.nanoTime() - startTimeNs) + " ns at "
                              + System.currentTimeMillis());
             }
         }
+        return failures;
+    }
+
+    /**
+     * Adds the value to the versions of the key, dropping the versions it
+     * supersedes, using the given transaction
+     */
+    private void putInTransaction(Transaction transaction, ByteArray key, Versioned<byte[]> value)
+            throws DatabaseException {
+        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
+        DatabaseEntry valueEntry = new DatabaseEntry();
+        List<Versioned<byte[]>> vals = null;
+
+        // do a get for the existing values
+        OperationStatus status = getBdbDatabase().get(transaction,
+                                                      keyEntry,
+                                                      valueEntry,
+                                                      LockMode.RMW);
+        if(OperationStatus.SUCCESS == status) {
+            // update
+            vals = StoreBinaryFormat.fromByteArray(valueEntry.getData());
+            // compare vector clocks and throw out old ones, for updates
+
+            Iterator<Versioned<byte[]>> iter = vals.iterator();
+            while(iter.hasNext()) {
+                Versioned<byte[]> curr = iter.next();
+                Occurred occurred = value.getVersion().compare(curr.getVersion());
+                if(occurred == Occurred.BEFORE)
+                    throw new ObsoleteVersionException("Key "
+                                                       + new String(hexCodec.encode(key.get()))
+                                                       + " "
+                                                       + value.getVersion().toString()
+                                                       + " is obsolete, it is no greater than the current version of "
+                                                       + curr.getVersion().toString() + ".");
+                else if(occurred == Occurred.AFTER)
+                    iter.remove();
+            }
+        } else {
+            // insert
+            vals = new ArrayList<Versioned<byte[]>>(1);
+        }
+
+        // update the new value
+        vals.add(value);
+
+        valueEntry.setData(StoreBinaryFormat.toByteArray(vals, compactValueFormat));
+        status = getBdbDatabase().put(transaction, keyEntry, valueEntry);
+
+        if(status != OperationStatus.SUCCESS)
+            throw new PersistenceFailureException("Put operation failed with status: " + status);
     }
 
     @Override
@@ -423,7 +496,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
 
                 if(numDeletedVersions < numVersions) {
                     // we still have some valid versions
-                    valueEntry.setData(StoreBinaryFormat.toByteArray(vals));
+                    valueEntry.setData(StoreBinaryFormat.toByteArray(vals, compactValueFormat));
                     getBdbDatabase().put(transaction, keyEntry, valueEntry);
                 } else {
                     // we have deleted all the versions; so get rid of the entry
@@ -722,7 +795,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
 
         try {
             transaction = (Transaction) handle.getKeyLock();
-            valueEntry.setData(StoreBinaryFormat.toByteArray(handle.getValues()));
+            valueEntry.setData(StoreBinaryFormat.toByteArray(handle.getValues(), compactValueFormat));
             OperationStatus status = getBdbDatabase().put(transaction, keyEntry, valueEntry);
 
             if(status != OperationStatus.SUCCESS)
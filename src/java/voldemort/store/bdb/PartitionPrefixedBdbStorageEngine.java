@@ -17,11 +17,14 @@
 package voldemort.store.bdb;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.apache.log4j.Logger;
 
+import voldemort.VoldemortException;
 import voldemort.routing.RoutingStrategy;
 import voldemort.server.storage.KeyLockHandle;
 import voldemort.store.PersistenceFailureException;
@@ -111,6 +114,25 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
         super.put(validateAndConstructKey(key), value, transforms);
     }
 
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws PersistenceFailureException {
+        Map<ByteArray, ByteArray> prefixedKeyToKey = new HashMap<ByteArray, ByteArray>();
+        Map<ByteArray, Versioned<byte[]>> prefixedEntries = new HashMap<ByteArray, Versioned<byte[]>>();
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            ByteArray prefixedKey = validateAndConstructKey(entry.getKey());
+            prefixedKeyToKey.put(prefixedKey, entry.getKey());
+            prefixedEntries.put(prefixedKey, entry.getValue());
+        }
+        Map<ByteArray, VoldemortException> prefixedFailures = super.putAll(prefixedEntries,
+                                                                           transforms);
+        Map<ByteArray, VoldemortException> failures = new HashMap<ByteArray, VoldemortException>();
+        for(Map.Entry<ByteArray, VoldemortException> failure: prefixedFailures.entrySet())
+            failures.put(prefixedKeyToKey.get(failure.getKey()), failure.getValue());
+        return failures;
+    }
+
     @Override
     public boolean delete(ByteArray key, Version version) throws PersistenceFailureException {
         return super.delete(validateAndConstructKey(key), version);
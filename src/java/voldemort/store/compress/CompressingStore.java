@@ -159,6 +159,30 @@ public class CompressingStore extends AbstractStore<ByteArray, byte[], byte[]> {
         innerStore.put(deflateKey(key), deflateValue(value), transforms);
     }
 
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(entries.keySet());
+        Map<ByteArray, ByteArray> deflatedKeyToKey = Maps.newHashMapWithExpectedSize(entries.size());
+        Map<ByteArray, Versioned<byte[]>> deflatedEntries = Maps.newHashMapWithExpectedSize(entries.size());
+        Map<ByteArray, byte[]> deflatedTransforms = transforms == null ? null
+                                                                       : Maps.<ByteArray, byte[]> newHashMap();
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            ByteArray deflatedKey = deflateKey(entry.getKey());
+            deflatedKeyToKey.put(deflatedKey, entry.getKey());
+            deflatedEntries.put(deflatedKey, deflateValue(entry.getValue()));
+            if(transforms != null && transforms.containsKey(entry.getKey()))
+                deflatedTransforms.put(deflatedKey, transforms.get(entry.getKey()));
+        }
+        Map<ByteArray, VoldemortException> deflatedFailures = innerStore.putAll(deflatedEntries,
+                                                                                deflatedTransforms);
+        Map<ByteArray, VoldemortException> failures = Maps.newHashMapWithExpectedSize(deflatedFailures.size());
+        for(Map.Entry<ByteArray, VoldemortException> failure: deflatedFailures.entrySet())
+            failures.put(deflatedKeyToKey.get(failure.getKey()), failure.getValue());
+        return failures;
+    }
+
     @Override
     public void close() throws VoldemortException {
         innerStore.close();
@@ -16,11 +16,14 @@
 
 package voldemort.store.invalidmetadata;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
 import voldemort.VoldemortException;
+import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
+import voldemort.routing.ConsistentRoutingStrategy;
 import voldemort.routing.RoutingStrategy;
 import voldemort.store.DelegatingStore;
 import voldemort.store.InvalidMetadataException;
@@ -42,6 +45,7 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
 
     private final int nodeId;
     private final MetadataStore metadata;
+    private volatile Ownership ownership;
 
     /**
      * Create a store which delegates its operations to its inner store and
@@ -61,13 +65,80 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
         this.nodeId = nodeId;
     }
 
+    /**
+     * The partitions this node holds a replica of, for one version of the
+     * cluster and routing strategy.
+     * 
+     * For consistent routing strategies, a key is routed to this node if and
+     * only if its master partition is in the set, so checking a key costs a
+     * single hash and no allocation.
+     */
+    private static class Ownership {
+
+        private final Cluster cluster;
+        private final RoutingStrategy routingStrategy;
+        private final Node node;
+        private final BitSet masterPartitions;
+
+        Ownership(Cluster cluster, RoutingStrategy routingStrategy, Node node) {
+            this.cluster = cluster;
+            this.routingStrategy = routingStrategy;
+            this.node = node;
+            if(routingStrategy instanceof ConsistentRoutingStrategy) {
+                Node[] partitionToNode = ((ConsistentRoutingStrategy) routingStrategy).getPartitionToNode();
+                masterPartitions = new BitSet(partitionToNode.length);
+                for(int partition = 0; partition < partitionToNode.length; partition++) {
+                    for(int replica: routingStrategy.getReplicatingPartitionList(partition)) {
+                        if(partitionToNode[replica].getId() == node.getId()) {
+                            masterPartitions.set(partition);
+                            break;
+                        }
+                    }
+                }
+            } else {
+                masterPartitions = null;
+            }
+        }
+
+        boolean isCurrent(Cluster currentCluster, RoutingStrategy currentRoutingStrategy) {
+            return cluster == currentCluster && routingStrategy == currentRoutingStrategy;
+        }
+
+        void assertValidMetadata(ByteArray key) {
+            if(masterPartitions == null) {
+                StoreUtils.assertValidMetadata(key, routingStrategy, node);
+            } else if(!masterPartitions.get(routingStrategy.getMasterPartition(key.get()))) {
+                throw new InvalidMetadataException("Client accessing key belonging to partitions "
+                                                   + routingStrategy.getPartitionList(key.get())
+                                                   + " not present at " + node);
+            }
+        }
+    }
+
+    /**
+     * Checks that this node is in the cluster, and returns its partition
+     * ownership, computed again only when the metadata changed
+     */
+    private Ownership getOwnership() {
+        Cluster cluster = metadata.getCluster();
+        RoutingStrategy routingStrategy = metadata.getRoutingStrategy(getName());
+        Ownership current = ownership;
+        if(current != null && current.isCurrent(cluster, routingStrategy))
+            return current;
+
+        if(!cluster.hasNodeWithId(nodeId)) {
+            throw new InvalidMetadataException("NodeId " + nodeId
+                                               + " is not or no longer in this cluster");
+        }
+        current = new Ownership(cluster, routingStrategy, cluster.getNodeById(nodeId));
+        ownership = current;
+        return current;
+    }
+
     @Override
     public boolean delete(ByteArray key, Version version) throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidNode(metadata, nodeId);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        getOwnership().assertValidMetadata(key);
 
         return getInnerStore().delete(key, version);
     }
@@ -77,11 +148,9 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
                                                           Map<ByteArray, byte[]> transforms)
             throws VoldemortException {
         StoreUtils.assertValidKeys(keys);
-        StoreUtils.assertValidNode(metadata, nodeId);
-        RoutingStrategy routingStrategy = metadata.getRoutingStrategy(getName());
-        Node node = metadata.getCluster().getNodeById(nodeId);
+        Ownership current = getOwnership();
         for(ByteArray key: keys)
-            StoreUtils.assertValidMetadata(key, routingStrategy, node);
+            current.assertValidMetadata(key);
 
         return getInnerStore().getAll(keys, transforms);
     }
@@ -90,21 +159,27 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
     public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
             throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidNode(metadata, nodeId);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        getOwnership().assertValidMetadata(key);
 
         getInnerStore().put(key, value, transforms);
     }
 
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(entries.keySet());
+        Ownership current = getOwnership();
+        for(ByteArray key: entries.keySet())
+            current.assertValidMetadata(key);
+
+        return getInnerStore().putAll(entries, transforms);
+    }
+
     @Override
     public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms) throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        StoreUtils.assertValidNode(metadata, nodeId);
-        StoreUtils.assertValidMetadata(key,
-                                       metadata.getRoutingStrategy(getName()),
-                                       metadata.getCluster().getNodeById(nodeId));
+        getOwnership().assertValidMetadata(key);
 
         return getInnerStore().get(key, transforms);
     }
@@ -17,6 +17,7 @@
 package voldemort.store.logging;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -126,6 +127,23 @@ public class LoggingStore<K, V, T> extends DelegatingStore<K, V, T> {
         }
     }
 
+    @Override
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries, Map<K, T> transforms)
+            throws VoldemortException {
+        long startTimeNs = 0;
+        boolean succeeded = false;
+        if(logger.isDebugEnabled()) {
+            startTimeNs = time.getNanoseconds();
+        }
+        try {
+            Map<K, VoldemortException> failures = getInnerStore().putAll(entries, transforms);
+            succeeded = true;
+            return failures;
+        } finally {
+            printTimedMessage("PUT_ALL", succeeded, startTimeNs);
+        }
+    }
+
     private void printTimedMessage(String operation, boolean success, long startNs) {
         if(logger.isDebugEnabled()) {
             double elapsedMs = (time.getNanoseconds() - startNs) / (double) Time.NS_PER_MS;
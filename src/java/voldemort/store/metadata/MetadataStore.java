@@ -29,9 +29,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
 
 import javax.management.MBeanOperationInfo;
 
@@ -55,6 +57,7 @@ import voldemort.store.StoreCapabilityType;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreNotFoundException;
 import voldemort.store.StoreUtils;
+import voldemort.store.compress.GzipCompressionStrategy;
 import voldemort.store.configuration.ConfigurationStorageEngine;
 import voldemort.store.memory.InMemoryStorageEngine;
 import voldemort.store.system.SystemStoreConstants;
@@ -117,6 +120,13 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
                                                                 .addAll(OPTIONAL_KEYS)
                                                                 .build();
 
+    /**
+     * Transform a client can pass on a metadata get to receive the value
+     * gzipped. Servers predating it ignore the transform and answer with the
+     * plain value, see {@link #decodeMetadataValue(byte[])}
+     */
+    public static final String GZIP_TRANSFORM = "gzip";
+
     // helper keys for metadataCacheOnly
     private static final String ROUTING_STRATEGY_KEY = "routing.strategy";
     private static final String SYSTEM_ROUTING_STRATEGY_KEY = "system.routing.strategy";
@@ -137,6 +147,7 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
 
     private final Store<String, String, String> innerStore;
     private final Map<String, Versioned<Object>> metadataCache;
+    private final Map<String, SerializedValue> serializedCache;
     private final StorageEngine<String, String, String> storeDefinitionsStorageEngine;
     private final List<String> storeNames;
 
@@ -145,10 +156,14 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
     private static final RoutingStrategyFactory routingFactory = new RoutingStrategyFactory();
 
     // Guards mutations made to non-scalar objects e.g., lists stored in
-    // innerStore
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // innerStore. Releasing the outermost hold of the write lock publishes a
+    // new snapshot, so the request path reads metadata without locking
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     public final Lock readLock = lock.readLock();
-    public final Lock writeLock = lock.writeLock();
+    public final Lock writeLock = new SnapshotPublishingLock(lock.writeLock());
+
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<String, Versioned<Object>>(),
+                                                      new ArrayList<String>());
 
     private final Map<String, List<MetadataStoreListener>> storeNameTolisteners;
 
@@ -159,6 +174,7 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         super(innerStore.getName());
         this.innerStore = innerStore;
         this.metadataCache = new HashMap<String, Versioned<Object>>();
+        this.serializedCache = new ConcurrentHashMap<String, SerializedValue>();
         this.storeNameTolisteners = new ConcurrentHashMap<String, List<MetadataStoreListener>>();
         this.storeDefinitionsStorageEngine = storeDefinitionsStorageEngine;
         this.storeNames = new ArrayList<String>();
@@ -533,15 +549,19 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
                 try {
                     List<Versioned<byte[]>> values = Lists.newArrayList();
 
-                    // Get the cached value and convert to string
-                    Versioned<String> value = convertObjectToString(key, metadataCache.get(key));
+                    // Get the cached value, serialized once per version
+                    SerializedValue value = getSerializedValue(key);
 
                     // Metadata debugging information
                     if(logger.isTraceEnabled())
-                        logger.trace("Key " + key + " requested, returning: " + value.getValue());
+                        logger.trace("Key " + key + " requested, returning: "
+                                     + ByteUtils.getString(value.serialized.getValue(), "UTF-8"));
 
-                    values.add(new Versioned<byte[]>(ByteUtils.getBytes(value.getValue(), "UTF-8"),
-                                                     value.getVersion()));
+                    if(transforms != null
+                       && GZIP_TRANSFORM.equals(ByteUtils.getString(transforms, "UTF-8")))
+                        values.add(value.getCompressed());
+                    else
+                        values.add(value.serialized);
 
                     return values;
                 } catch(Exception e) {
@@ -566,6 +586,138 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         }
     }
 
+    /**
+     * Returns the serialized form of the cached value of the key, serializing
+     * it only if the cached object changed since the last call. Entries of the
+     * metadata cache are always replaced, never modified in place, so the
+     * identity of the cached {@link Versioned} tells whether the serialized
+     * value is still current.
+     * 
+     * Must be called holding the read lock
+     */
+    private SerializedValue getSerializedValue(String key) {
+        Versioned<Object> current = metadataCache.get(key);
+        SerializedValue serialized = serializedCache.get(key);
+        if(serialized == null || serialized.source != current) {
+            Versioned<String> value = convertObjectToString(key, current);
+            serialized = new SerializedValue(current,
+                                             new Versioned<byte[]>(ByteUtils.getBytes(value.getValue(),
+                                                                                      "UTF-8"),
+                                                                   value.getVersion()));
+            serializedCache.put(key, serialized);
+        }
+        return serialized;
+    }
+
+    /**
+     * Reverses the compression a server applies to a metadata value requested
+     * with {@link #GZIP_TRANSFORM}. Values that are not gzipped are returned
+     * as is.
+     * 
+     * @param value Value of a metadata get
+     * @return The uncompressed value
+     */
+    public static byte[] decodeMetadataValue(byte[] value) {
+        if(value == null || value.length < 2 || value[0] != (byte) GZIPInputStream.GZIP_MAGIC
+           || value[1] != (byte) (GZIPInputStream.GZIP_MAGIC >> 8))
+            return value;
+        try {
+            return new GzipCompressionStrategy().inflate(value);
+        } catch(IOException e) {
+            throw new VoldemortException("Failed to decompress metadata value", e);
+        }
+    }
+
+    /**
+     * Serialized metadata value, along with the cache entry it was built from
+     */
+    private static class SerializedValue {
+
+        private final Versioned<Object> source;
+        private final Versioned<byte[]> serialized;
+        private volatile Versioned<byte[]> compressed;
+
+        private SerializedValue(Versioned<Object> source, Versioned<byte[]> serialized) {
+            this.source = source;
+            this.serialized = serialized;
+        }
+
+        private Versioned<byte[]> getCompressed() throws IOException {
+            if(compressed == null) {
+                compressed = new Versioned<byte[]>(new GzipCompressionStrategy().deflate(serialized.getValue()),
+                                                   serialized.getVersion());
+            }
+            return compressed;
+        }
+    }
+
+    /**
+     * Immutable copy of the metadata cache, replaced as a whole whenever the
+     * write lock is released
+     */
+    private static class Snapshot {
+
+        private final Map<String, Versioned<Object>> values;
+        private final Map<String, StoreDefinition> storeDefs;
+        private final Set<String> storeNames;
+
+        @SuppressWarnings("unchecked")
+        private Snapshot(Map<String, Versioned<Object>> values, List<String> storeNames) {
+            this.values = Collections.unmodifiableMap(new HashMap<String, Versioned<Object>>(values));
+            Map<String, StoreDefinition> storeDefs = new HashMap<String, StoreDefinition>();
+            Versioned<Object> stores = values.get(STORES_KEY);
+            if(stores != null && stores.getValue() != null) {
+                for(StoreDefinition storeDef: (List<StoreDefinition>) stores.getValue()) {
+                    if(!storeDefs.containsKey(storeDef.getName()))
+                        storeDefs.put(storeDef.getName(), storeDef);
+                }
+            }
+            this.storeDefs = Collections.unmodifiableMap(storeDefs);
+            this.storeNames = Collections.unmodifiableSet(new HashSet<String>(storeNames));
+        }
+    }
+
+    /**
+     * Write lock that publishes a new {@link Snapshot} before its outermost
+     * hold is released, so lock free readers never observe a partial update
+     * made under one hold of the lock, e.g. the cluster and stores swapped
+     * together by the rebalancer.
+     */
+    private class SnapshotPublishingLock implements Lock {
+
+        private final Lock inner;
+
+        private SnapshotPublishingLock(Lock inner) {
+            this.inner = inner;
+        }
+
+        public void lock() {
+            inner.lock();
+        }
+
+        public void lockInterruptibly() throws InterruptedException {
+            inner.lockInterruptibly();
+        }
+
+        public boolean tryLock() {
+            return inner.tryLock();
+        }
+
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return inner.tryLock(time, unit);
+        }
+
+        public void unlock() {
+            if(lock.getWriteHoldCount() == 1)
+                snapshot = new Snapshot(metadataCache, storeNames);
+            inner.unlock();
+        }
+
+        public Condition newCondition() {
+            return inner.newCondition();
+        }
+    }
+
     public List<Versioned<byte[]>> get(String key, String transforms) throws VoldemortException {
         // acquire read lock
         readLock.lock();
@@ -611,189 +763,112 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         }
     }
 
-    public Cluster getCluster() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (Cluster) metadataCache.get(CLUSTER_KEY).getValue();
-        } finally {
-            readLock.unlock();
+    /**
+     * The metadata values visible to the calling thread. A thread holding the
+     * write lock sees its own unpublished changes, every other thread reads
+     * the last published snapshot without taking a lock.
+     */
+    private Map<String, Versioned<Object>> currentValues() {
+        if(lock.isWriteLockedByCurrentThread())
+            return metadataCache;
+        return snapshot.values;
+    }
 
-        }
+    private Object currentValue(String key) {
+        return currentValues().get(key).getValue();
+    }
+
+    public Cluster getCluster() {
+        return (Cluster) currentValue(CLUSTER_KEY);
     }
 
     @SuppressWarnings("unchecked")
     public List<StoreDefinition> getStoreDefList() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (List<StoreDefinition>) metadataCache.get(STORES_KEY).getValue();
-        } finally {
-            readLock.unlock();
-
-        }
+        return (List<StoreDefinition>) currentValue(STORES_KEY);
     }
 
     @SuppressWarnings("unchecked")
     public List<StoreDefinition> getSystemStoreDefList() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (List<StoreDefinition>) metadataCache.get(SYSTEM_STORES_KEY).getValue();
-        } finally {
-            readLock.unlock();
-        }
+        return (List<StoreDefinition>) currentValue(SYSTEM_STORES_KEY);
     }
 
     private int getNodeIdNoLock() {
-        return (Integer) (metadataCache.get(NODE_ID_KEY).getValue());
+        return (Integer) currentValue(NODE_ID_KEY);
     }
 
     public int getNodeId() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getNodeIdNoLock();
-        } finally {
-            readLock.unlock();
-        }
+        return getNodeIdNoLock();
     }
 
     public StoreDefinition getStoreDef(String storeName) {
-        // acquire read lock
-        readLock.lock();
-        try {
-
-            List<StoreDefinition> storeDefs = getStoreDefList();
-            for(StoreDefinition storeDef: storeDefs) {
-                if(storeDef.getName().equals(storeName))
-                    return storeDef;
+        StoreDefinition storeDef = null;
+        if(lock.isWriteLockedByCurrentThread()) {
+            for(StoreDefinition def: getStoreDefList()) {
+                if(def.getName().equals(storeName)) {
+                    storeDef = def;
+                    break;
+                }
             }
+        } else {
+            storeDef = snapshot.storeDefs.get(storeName);
+        }
 
+        if(storeDef == null)
             throw new VoldemortException("Store " + storeName + " not found in MetadataStore");
-        } finally {
-            readLock.unlock();
-        }
+        return storeDef;
     }
 
     public VoldemortState getServerStateLocked() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getServerStateUnlocked();
-        } finally {
-            readLock.unlock();
-
-        }
+        return getServerStateUnlocked();
     }
 
     public VoldemortState getServerStateUnlocked() {
-
-        return VoldemortState.valueOf(metadataCache.get(SERVER_STATE_KEY).getValue().toString());
-
+        return VoldemortState.valueOf(currentValue(SERVER_STATE_KEY).toString());
     }
 
     public boolean getSlopStreamingEnabledLocked() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getSlopStreamingEnabledUnlocked();
-        } finally {
-            readLock.unlock();
-        }
+        return getSlopStreamingEnabledUnlocked();
     }
 
     public boolean getSlopStreamingEnabledUnlocked() {
-
-        return Boolean.parseBoolean(metadataCache.get(SLOP_STREAMING_ENABLED_KEY)
-                                                 .getValue()
-                                                 .toString());
-
+        return Boolean.parseBoolean(currentValue(SLOP_STREAMING_ENABLED_KEY).toString());
     }
 
     public boolean getPartitionStreamingEnabledLocked() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getPartitionStreamingEnabledUnlocked();
-        } finally {
-            readLock.unlock();
-        }
+        return getPartitionStreamingEnabledUnlocked();
     }
 
     public boolean getPartitionStreamingEnabledUnlocked() {
-
-        return Boolean.parseBoolean(metadataCache.get(PARTITION_STREAMING_ENABLED_KEY)
-                                                 .getValue()
-                                                 .toString());
-
+        return Boolean.parseBoolean(currentValue(PARTITION_STREAMING_ENABLED_KEY).toString());
     }
 
     public boolean getReadOnlyFetchEnabledLocked() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getReadOnlyFetchEnabledUnlocked();
-        } finally {
-            readLock.unlock();
-        }
+        return getReadOnlyFetchEnabledUnlocked();
     }
 
     public boolean getReadOnlyFetchEnabledUnlocked() {
-
-        return Boolean.parseBoolean(metadataCache.get(READONLY_FETCH_ENABLED_KEY)
-                                                 .getValue()
-                                                 .toString());
-
+        return Boolean.parseBoolean(currentValue(READONLY_FETCH_ENABLED_KEY).toString());
     }
 
     public boolean getQuotaEnforcingEnabledLocked() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return getQuotaEnforcingEnabledUnlocked();
-        } finally {
-            readLock.unlock();
-
-        }
+        return getQuotaEnforcingEnabledUnlocked();
     }
 
     public boolean getQuotaEnforcingEnabledUnlocked() {
-        return Boolean.parseBoolean(metadataCache.get(QUOTA_ENFORCEMENT_ENABLED_KEY)
-                                                 .getValue()
-                                                 .toString());
+        return Boolean.parseBoolean(currentValue(QUOTA_ENFORCEMENT_ENABLED_KEY).toString());
     }
 
     public RebalancerState getRebalancerState() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (RebalancerState) metadataCache.get(REBALANCING_STEAL_INFO).getValue();
-        } finally {
-            readLock.unlock();
-        }
+        return (RebalancerState) currentValue(REBALANCING_STEAL_INFO);
     }
 
     public Cluster getRebalancingSourceCluster() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (Cluster) metadataCache.get(REBALANCING_SOURCE_CLUSTER_XML).getValue();
-        } finally {
-            readLock.unlock();
-        }
+        return (Cluster) currentValue(REBALANCING_SOURCE_CLUSTER_XML);
     }
 
     @SuppressWarnings("unchecked")
     public List<StoreDefinition> getRebalancingSourceStores() {
-        // acquire read lock
-        readLock.lock();
-        try {
-            return (List<StoreDefinition>) metadataCache.get(REBALANCING_SOURCE_STORES_XML)
-                                                        .getValue();
-        } finally {
-            readLock.unlock();
-        }
+        return (List<StoreDefinition>) currentValue(REBALANCING_SOURCE_STORES_XML);
     }
 
     /*
@@ -802,21 +877,16 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
      */
     @SuppressWarnings("unchecked")
     public RoutingStrategy getRoutingStrategy(String storeName) {
-        // acquire read lock
-        readLock.lock();
-        try {
-            Map<String, RoutingStrategy> routingStrategyMap = (Map<String, RoutingStrategy>) metadataCache.get(ROUTING_STRATEGY_KEY)
-                                                                                                          .getValue();
-            RoutingStrategy strategy = routingStrategyMap.get(storeName);
-            if(strategy == null) {
-                Map<String, RoutingStrategy> systemRoutingStrategyMap = (Map<String, RoutingStrategy>) metadataCache.get(SYSTEM_ROUTING_STRATEGY_KEY)
-                                                                                                                    .getValue();
-                strategy = systemRoutingStrategyMap.get(storeName);
-            }
-            return strategy;
-        } finally {
-            readLock.unlock();
+        Map<String, Versioned<Object>> values = currentValues();
+        Map<String, RoutingStrategy> routingStrategyMap = (Map<String, RoutingStrategy>) values.get(ROUTING_STRATEGY_KEY)
+                                                                                               .getValue();
+        RoutingStrategy strategy = routingStrategyMap.get(storeName);
+        if(strategy == null) {
+            Map<String, RoutingStrategy> systemRoutingStrategyMap = (Map<String, RoutingStrategy>) values.get(SYSTEM_ROUTING_STRATEGY_KEY)
+                                                                                                         .getValue();
+            strategy = systemRoutingStrategyMap.get(storeName);
         }
+        return strategy;
     }
 
     /**
@@ -1140,15 +1210,9 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
      *         otherwise.
      */
     public boolean isValidStore(String name) {
-        readLock.lock();
-        try {
-            if(this.storeNames.contains(name)) {
-                return true;
-            }
-            return false;
-        } finally {
-            readLock.unlock();
-        }
+        if(lock.isWriteLockedByCurrentThread())
+            return this.storeNames.contains(name);
+        return snapshot.storeNames.contains(name);
     }
 
     public void initNodeId(int nodeId) {
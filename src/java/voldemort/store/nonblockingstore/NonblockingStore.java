@@ -83,6 +83,15 @@ public interface NonblockingStore {
                                  NonblockingStoreCallback callback,
                                  long timeoutMs);
 
+    /**
+     * On success the callback receives the exception each failed put threw,
+     * keyed by key
+     */
+    public void submitPutAllRequest(Map<ByteArray, Versioned<byte[]>> entries,
+                                    Map<ByteArray, byte[]> transforms,
+                                    NonblockingStoreCallback callback,
+                                    long timeoutMs);
+
     public void submitDeleteRequest(ByteArray key,
                                     Version version,
                                     NonblockingStoreCallback callback,
@@ -18,6 +18,7 @@ package voldemort.store.quota;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
@@ -45,11 +46,32 @@ public class QuotaLimitingStore extends DelegatingStore<ByteArray, byte[], byte[
     private final String getQuotaKey;
     private final String putQuotaKey;
 
+    private final boolean useTokenBuckets;
+    private final long burstMs;
+    private final AtomicReference<Quota> getQuota;
+    private final AtomicReference<Quota> putQuota;
+
 	public QuotaLimitingStore(Store<ByteArray, byte[], byte[]> innerStore,
                               StoreStats stats,
                               QuotaLimitStats quotaStats,
                               FileBackedCachingStorageEngine quotaStore,
                               MetadataStore metadataStore) {
+        this(innerStore, stats, quotaStats, quotaStore, metadataStore, false, 0);
+    }
+
+    /**
+     * @param useTokenBuckets If true, each quota is enforced with a
+     *        {@link TokenBucket} holding burstMs worth of operations, instead
+     *        of against the throughput of the last minute
+     * @param burstMs Size of the token buckets, in ms of quota
+     */
+    public QuotaLimitingStore(Store<ByteArray, byte[], byte[]> innerStore,
+                              StoreStats stats,
+                              QuotaLimitStats quotaStats,
+                              FileBackedCachingStorageEngine quotaStore,
+                              MetadataStore metadataStore,
+                              boolean useTokenBuckets,
+                              long burstMs) {
         super(innerStore);
         this.stats = stats;
         this.quotaStore = quotaStore;
@@ -58,6 +80,58 @@ public class QuotaLimitingStore extends DelegatingStore<ByteArray, byte[], byte[
         this.getQuotaKey = QuotaUtils.makeQuotaKey(innerStore.getName(), QuotaType.GET_THROUGHPUT);
         this.putQuotaKey = QuotaUtils.makeQuotaKey(innerStore.getName(), QuotaType.PUT_THROUGHPUT);
         this.quotaStats = quotaStats;
+
+        this.useTokenBuckets = useTokenBuckets;
+        this.burstMs = burstMs;
+        this.getQuota = new AtomicReference<Quota>();
+        this.putQuota = new AtomicReference<Quota>();
+    }
+
+    /**
+     * A quota value parsed once, along with its token bucket
+     */
+    private static class Quota {
+
+        private final String value;
+        private final float allowedRate;
+        private final TokenBucket bucket;
+
+        Quota(String value, float allowedRate, TokenBucket bucket) {
+            this.value = value;
+            this.allowedRate = allowedRate;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Returns the parsed quota for the current value of the quota key,
+     * parsing it again only when the value changed in the quota store
+     * 
+     * @return The parsed quota, with a NaN rate if the value is not a number
+     */
+    private Quota getQuota(AtomicReference<Quota> quotaRef, String quotaKey, String quotaValue) {
+        Quota quota = quotaRef.get();
+        if(quota != null && (quota.value == quotaValue || quota.value.equals(quotaValue)))
+            return quota;
+
+        float allowedRate;
+        try {
+            allowedRate = Float.parseFloat(quotaValue);
+        } catch(NumberFormatException nfe) {
+            // move on, if we cannot parse quota value properly
+            logger.debug("Invalid formatting of quota value for key " + quotaKey + " : "
+                         + quotaValue);
+            Quota invalid = new Quota(quotaValue, Float.NaN, null);
+            quotaRef.set(invalid);
+            return invalid;
+        }
+        Quota updated = new Quota(quotaValue,
+                                  allowedRate,
+                                  useTokenBuckets ? new TokenBucket(allowedRate, burstMs) : null);
+        // if another thread raced us, use its bucket
+        if(!quotaRef.compareAndSet(quota, updated))
+            return getQuota(quotaRef, quotaKey, quotaValue);
+        return updated;
     }
 
     public StoreStats getStats() {
@@ -86,36 +160,57 @@ public class QuotaLimitingStore extends DelegatingStore<ByteArray, byte[], byte[
      * @param trackedOp
      */
     private void checkRateLimit(String quotaKey, Tracked trackedOp) {
-        String quotaValue = null;
-        try {
-            if(!metadataStore.getQuotaEnforcingEnabledUnlocked()) {
-                return;
-            }
-            quotaValue = quotaStore.cacheGet(quotaKey);
-            // Store may not have any quotas
-            if(quotaValue == null) {
-                return;
-            }
-            // But, if it does
-            float currentRate = getThroughput(trackedOp);
-            float allowedRate = Float.parseFloat(quotaValue);
-            // TODO the histogram should be reasonably accurate to do all
-            // these things.. (ghost qps and all)
+        checkRateLimit(quotaKey, trackedOp, 1);
+    }
 
-            // Report the current quota usage level
-            quotaStats.reportQuotaUsed(trackedOp, Utils.safeGetPercentage(currentRate, allowedRate));
+    /**
+     * @param numOps Number of operations the request performs. The rate
+     *        limit of the token buckets takes them all or rejects the
+     *        request; the throughput based limit sees them once they are
+     *        tracked.
+     */
+    private void checkRateLimit(String quotaKey, Tracked trackedOp, int numOps) {
+        if(!metadataStore.getQuotaEnforcingEnabledUnlocked()) {
+            return;
+        }
+        String quotaValue = quotaStore.cacheGet(quotaKey);
+        // Store may not have any quotas
+        if(quotaValue == null) {
+            return;
+        }
+        // But, if it does
+        AtomicReference<Quota> quotaRef = trackedOp.equals(Tracked.GET) ? getQuota : putQuota;
+        Quota quota = getQuota(quotaRef, quotaKey, quotaValue);
+        if(Float.isNaN(quota.allowedRate)) {
+            return;
+        }
 
-            // check if we have exceeded rate.
-            if(currentRate > allowedRate) {
+        if(useTokenBuckets) {
+            boolean acquired = quota.bucket.tryAcquireAll(numOps);
+            quotaStats.reportQuotaUsed(trackedOp, quota.bucket.getPctUsed());
+            if(!acquired) {
                 quotaStats.reportRateLimitedOp(trackedOp);
                 throw new QuotaExceededException("Exceeded rate limit for " + quotaKey
-                                                 + ". Maximum allowed : " + allowedRate
-                                                 + " Current: " + currentRate);
+                                                 + ". Maximum allowed : " + quota.allowedRate
+                                                 + " with a burst of " + burstMs + " ms");
             }
-        } catch(NumberFormatException nfe) {
-            // move on, if we cannot parse quota value properly
-            logger.debug("Invalid formatting of quota value for key " + quotaKey + " : "
-                         + quotaValue);
+            return;
+        }
+
+        float currentRate = getThroughput(trackedOp);
+        float allowedRate = quota.allowedRate;
+        // TODO the histogram should be reasonably accurate to do all
+        // these things.. (ghost qps and all)
+
+        // Report the current quota usage level
+        quotaStats.reportQuotaUsed(trackedOp, Utils.safeGetPercentage(currentRate, allowedRate));
+
+        // check if we have exceeded rate.
+        if(currentRate > allowedRate) {
+            quotaStats.reportRateLimitedOp(trackedOp);
+            throw new QuotaExceededException("Exceeded rate limit for " + quotaKey
+                                             + ". Maximum allowed : " + allowedRate
+                                             + " Current: " + currentRate);
         }
     }
 
@@ -151,4 +246,15 @@ public class QuotaLimitingStore extends DelegatingStore<ByteArray, byte[], byte[
         checkRateLimit(putQuotaKey, Tracked.PUT);
         super.put(key, value, transforms);
     }
+
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        // Unlike GetAll, every put of a PutAll counts against the quota, so
+        // that batching does not get around it
+        if(!entries.isEmpty())
+            checkRateLimit(putQuotaKey, Tracked.PUT, entries.size());
+        return getInnerStore().putAll(entries, transforms);
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2008-2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.quota;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock free token bucket, refilled at a fixed rate and holding at most a
+ * burst worth of tokens.
+ *
+ * Instead of a token count, the bucket keeps the theoretical time at which it
+ * will be full again, so taking a token is a single compare and set.
+ *
+ */
+public class TokenBucket {
+
+    // bounds the interval and the burst, so that the theoretical full time
+    // stays within a comparable distance of the current time at any rate
+    private static final long MAX_INTERVAL_NS = Long.MAX_VALUE / 4;
+
+    private final double ratePerSec;
+    private final long intervalNs;
+    private final long toleranceNs;
+    private final AtomicLong fullAtNs;
+
+    /**
+     * @param ratePerSec Number of tokens added per second
+     * @param burstMs The bucket holds the tokens added in this many ms, and at
+     *        least one
+     */
+    public TokenBucket(double ratePerSec, long burstMs) {
+        this(ratePerSec, burstMs, System.nanoTime());
+    }
+
+    TokenBucket(double ratePerSec, long burstMs, long nowNs) {
+        this.ratePerSec = ratePerSec;
+        if(ratePerSec > 0) {
+            this.intervalNs = (long) Math.min(TimeUnit.SECONDS.toNanos(1) / ratePerSec,
+                                              MAX_INTERVAL_NS);
+            long burstNs = Math.min(TimeUnit.MILLISECONDS.toNanos(burstMs), MAX_INTERVAL_NS);
+            this.toleranceNs = Math.max(burstNs - intervalNs, 0);
+        } else {
+            this.intervalNs = Long.MAX_VALUE;
+            this.toleranceNs = 0;
+        }
+        this.fullAtNs = new AtomicLong(nowNs);
+    }
+
+    public double getRatePerSec() {
+        return ratePerSec;
+    }
+
+    /**
+     * Takes a token if one is available
+     *
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long nowNs) {
+        return tryAcquire(1, nowNs);
+    }
+
+    /**
+     * Takes the given number of tokens if all of them are available, so a
+     * batch larger than the burst is never let through
+     *
+     * @return true if the tokens were taken, false if none were
+     */
+    public boolean tryAcquireAll(int tokens) {
+        return tryAcquire(tokens, System.nanoTime());
+    }
+
+    boolean tryAcquire(int tokens, long nowNs) {
+        if(tokens <= 0)
+            throw new IllegalArgumentException("tokens must be positive.");
+        if(ratePerSec <= 0)
+            return false;
+        while(true) {
+            long fullAt = fullAtNs.get();
+            long start = fullAt - nowNs > 0 ? fullAt : nowNs;
+            long pendingNs = start - nowNs;
+            if(pendingNs > toleranceNs || tokens - 1 > (toleranceNs - pendingNs) / intervalNs)
+                return false;
+            if(fullAtNs.compareAndSet(fullAt, start + tokens * intervalNs))
+                return true;
+        }
+    }
+
+    /**
+     * @return The percentage of the burst currently used up
+     */
+    public long getPctUsed() {
+        return getPctUsed(System.nanoTime());
+    }
+
+    long getPctUsed(long nowNs) {
+        if(ratePerSec <= 0)
+            return 100;
+        long pending = fullAtNs.get() - nowNs;
+        if(pending <= 0)
+            return 0;
+        return Math.min(100, Math.round(100.0 * pending / (toleranceNs + intervalNs)));
+    }
+}
@@ -18,8 +18,14 @@ package voldemort.store.rebalancing;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -98,6 +104,24 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
     // statistics on proxy put tasks
     private final ProxyPutStats proxyPutStats;
 
+    // routing plans of the current and source metadata, rebuilt only when the
+    // metadata changes
+    private volatile BaseStoreRoutingPlan currentRoutingPlan;
+    private volatile BaseStoreRoutingPlan sourceRoutingPlan;
+
+    // upper bound on the keys remembered as missing on their proxy node
+    private static final int MAX_PROXY_GET_MISSES = 100000;
+
+    // keys not found on their proxy node, until the entry expires
+    private final long proxyGetMissCacheTtlMs;
+    private final ConcurrentMap<ByteArray, ProxyGetMiss> proxyGetMisses;
+
+    // proxy gets in progress, which concurrent gets of the same key wait for
+    private final ConcurrentMap<ByteArray, FutureTask<List<Versioned<byte[]>>>> proxyGetsInFlight;
+
+    private final AtomicLong proxyGetMissCacheHits = new AtomicLong(0);
+    private final AtomicLong coalescedProxyGets = new AtomicLong(0);
+
     public RedirectingStore(Store<ByteArray, byte[], byte[]> innerStore,
                             MetadataStore metadata,
                             StoreRepository storeRepository,
@@ -105,6 +129,28 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
                             SocketStoreFactory storeFactory,
                             ExecutorService proxyPutWorkerPool,
                             ProxyPutStats proxyPutStats) {
+        this(innerStore,
+             metadata,
+             storeRepository,
+             detector,
+             storeFactory,
+             proxyPutWorkerPool,
+             proxyPutStats,
+             0);
+    }
+
+    /**
+     * @param proxyGetMissCacheTtlMs How long a key not found on its proxy node
+     *        is not looked up there again, 0 to always look it up
+     */
+    public RedirectingStore(Store<ByteArray, byte[], byte[]> innerStore,
+                            MetadataStore metadata,
+                            StoreRepository storeRepository,
+                            FailureDetector detector,
+                            SocketStoreFactory storeFactory,
+                            ExecutorService proxyPutWorkerPool,
+                            ProxyPutStats proxyPutStats,
+                            long proxyGetMissCacheTtlMs) {
         super(innerStore);
         this.metadata = metadata;
         this.storeRepository = storeRepository;
@@ -113,6 +159,9 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         this.isRedirectingStoreEnabled = new AtomicBoolean(true);
         this.proxyPutWorkerPool = proxyPutWorkerPool;
         this.proxyPutStats = proxyPutStats;
+        this.proxyGetMissCacheTtlMs = proxyGetMissCacheTtlMs;
+        this.proxyGetMisses = new ConcurrentHashMap<ByteArray, ProxyGetMiss>();
+        this.proxyGetsInFlight = new ConcurrentHashMap<ByteArray, FutureTask<List<Versioned<byte[]>>>>();
     }
 
     @JmxSetter(name = "setRedirectingStoreEnabled", description = "Enable the redirecting store for this store")
@@ -129,6 +178,16 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         return this.isRedirectingStoreEnabled.get();
     }
 
+    @JmxGetter(name = "proxyGetMissCacheHits", description = "Number of proxy gets saved by remembering keys missing on the proxy node")
+    public long getProxyGetMissCacheHits() {
+        return this.proxyGetMissCacheHits.get();
+    }
+
+    @JmxGetter(name = "coalescedProxyGets", description = "Number of proxy gets which waited for a concurrent proxy get of the same key")
+    public long getCoalescedProxyGets() {
+        return this.coalescedProxyGets.get();
+    }
+
     /**
      * If needed, satisfies the get request by redirecting calls to the remote
      * proxy node. Also updates local storage accordingly.
@@ -162,11 +221,15 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
                 return vals;
             }
 
+            if(isProxyGetMiss(key, redirectNode)) {
+                return vals;
+            }
+
             if(logger.isTraceEnabled()) {
                 logger.trace("Proxying GET on stealer:" + metadata.getNodeId() + " for  key "
                              + ByteUtils.toHexString(key.get()) + " to node:" + redirectNode);
             }
-            proxyGetAndLocalPut(key, redirectNode, transforms);
+            coalescingProxyGetAndLocalPut(key, redirectNode, transforms);
         }
         return getInnerStore().get(key, transforms);
     }
@@ -197,12 +260,16 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
                 return versions;
             }
 
+            if(isProxyGetMiss(key, redirectNode)) {
+                return versions;
+            }
+
             if(logger.isTraceEnabled()) {
                 logger.trace("Proxying GETVERSIONS on stealer:" + metadata.getNodeId()
                              + " for  key " + ByteUtils.toHexString(key.get()) + " to node:"
                              + redirectNode);
             }
-            proxyGetAndLocalPut(key, redirectNode, null);
+            coalescingProxyGetAndLocalPut(key, redirectNode, null);
         }
         return getInnerStore().getVersions(key);
     }
@@ -239,7 +306,7 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
              * this is a non-existent key. We can't really confirm key does not
              * exist, without going to the proxy node..
              */
-            if(redirectNode != null) {
+            if(redirectNode != null && !isProxyGetMiss(key, redirectNode)) {
                 /*
                  * If we are indeed rebalancing for the key, then a proxy fetch
                  * will make things certain.
@@ -295,7 +362,7 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         if(storeDef.getType().compareTo(ReadOnlyStorageConfiguration.TYPE_NAME) == 0) {
             throw new UnsupportedOperationException("put() not supported on read-only store");
         }
-        BaseStoreRoutingPlan currentRoutingPlan = new BaseStoreRoutingPlan(currentCluster, storeDef);
+        BaseStoreRoutingPlan currentRoutingPlan = getCurrentRoutingPlan(currentCluster, storeDef);
         Integer redirectNode = getProxyNode(currentRoutingPlan, storeDef, key.get());
         /**
          * If I am rebalancing for this key, try to do remote get() if this node
@@ -316,7 +383,9 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
                                  + " for  key " + ByteUtils.toHexString(key.get()) + " to node:"
                                  + redirectNode);
                 }
-                proxyGetAndLocalPut(key, redirectNode, transforms);
+                // a remembered miss is not trusted here, a missed version
+                // would be overwritten rather than superseded
+                coalescingProxyGetAndLocalPut(key, redirectNode, transforms);
             }
         }
 
@@ -381,6 +450,21 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         }
     }
 
+    /**
+     * While the server is rebalancing, every put may need its own proxy get,
+     * so the batch is broken up into individual puts
+     */
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        if(isServerRebalancing()) {
+            return StoreUtils.putAll(this, entries, transforms);
+        } else {
+            return getInnerStore().putAll(entries, transforms);
+        }
+    }
+
     /**
      * TODO : Handle delete correctly.
      * <p>
@@ -486,8 +570,7 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         Integer zoneId = currentRoutingPlan.getCluster().getNodeById(nodeId).getZoneId();
 
         // Use the old store definition to get the routing object
-        BaseStoreRoutingPlan oldRoutingPlan = new BaseStoreRoutingPlan(sourceCluster,
-                                                                       sourceStoreDef);
+        BaseStoreRoutingPlan oldRoutingPlan = getSourceRoutingPlan(sourceCluster, sourceStoreDef);
         // Check the current node's relationship to the key.
         int zoneNAry = currentRoutingPlan.getZoneNAry(zoneId, nodeId, key);
         // Determine which node held the key with the same relationship in the
@@ -520,12 +603,39 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
      * @return
      */
     private Integer getProxyNode(byte[] key) {
+        // get out if redirecting is disabled, before looking up any metadata
+        if(!isRedirectingStoreEnabled.get()) {
+            return null;
+        }
         Cluster currentCluster = metadata.getCluster();
         StoreDefinition storeDef = metadata.getStoreDef(getName());
-        // TODO Ideally, this object construction should be done only when
-        // metadata changes using a listener mechanism
-        BaseStoreRoutingPlan currentRoutingPlan = new BaseStoreRoutingPlan(currentCluster, storeDef);
-        return getProxyNode(currentRoutingPlan, storeDef, key);
+        return getProxyNode(getCurrentRoutingPlan(currentCluster, storeDef), storeDef, key);
+    }
+
+    /**
+     * Returns the routing plan of the given cluster and store definition,
+     * reusing the last one built for them
+     */
+    private BaseStoreRoutingPlan getCurrentRoutingPlan(Cluster cluster, StoreDefinition storeDef) {
+        BaseStoreRoutingPlan plan = currentRoutingPlan;
+        if(plan == null || plan.getCluster() != cluster || plan.getStoreDefinition() != storeDef) {
+            plan = new BaseStoreRoutingPlan(cluster, storeDef);
+            currentRoutingPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Same as {@link #getCurrentRoutingPlan(Cluster, StoreDefinition)}, for
+     * the rebalancing source cluster and store definition
+     */
+    private BaseStoreRoutingPlan getSourceRoutingPlan(Cluster cluster, StoreDefinition storeDef) {
+        BaseStoreRoutingPlan plan = sourceRoutingPlan;
+        if(plan == null || plan.getCluster() != cluster || plan.getStoreDefinition() != storeDef) {
+            plan = new BaseStoreRoutingPlan(cluster, storeDef);
+            sourceRoutingPlan = plan;
+        }
+        return plan;
     }
 
     /**
@@ -638,6 +748,101 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
         return proxyValues;
     }
 
+    /**
+     * Same as {@link #proxyGetAndLocalPut(ByteArray, int, byte[])}, except
+     * that concurrent calls for the same key share one proxy get, and a key
+     * missing on the proxy node is remembered as such. Gets with transforms
+     * are not shared, since their results depend on the transforms.
+     */
+    private List<Versioned<byte[]>> coalescingProxyGetAndLocalPut(final ByteArray key,
+                                                                  final int proxyId,
+                                                                  final byte[] transforms)
+            throws VoldemortException {
+        if(transforms != null) {
+            List<Versioned<byte[]>> proxyValues = proxyGetAndLocalPut(key, proxyId, transforms);
+            if(proxyValues.isEmpty())
+                recordProxyGetMiss(key, proxyId);
+            return proxyValues;
+        }
+
+        FutureTask<List<Versioned<byte[]>>> proxyGet = new FutureTask<List<Versioned<byte[]>>>(new Callable<List<Versioned<byte[]>>>() {
+
+            public List<Versioned<byte[]>> call() {
+                List<Versioned<byte[]>> proxyValues = proxyGetAndLocalPut(key, proxyId, null);
+                if(proxyValues.isEmpty())
+                    recordProxyGetMiss(key, proxyId);
+                return proxyValues;
+            }
+        });
+        FutureTask<List<Versioned<byte[]>>> inFlight = proxyGetsInFlight.putIfAbsent(key, proxyGet);
+        if(inFlight == null) {
+            try {
+                proxyGet.run();
+            } finally {
+                proxyGetsInFlight.remove(key, proxyGet);
+            }
+            inFlight = proxyGet;
+        } else {
+            coalescedProxyGets.incrementAndGet();
+        }
+
+        try {
+            return inFlight.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof VoldemortException)
+                throw (VoldemortException) e.getCause();
+            throw new VoldemortException("Proxy get failed for key "
+                                         + ByteUtils.toHexString(key.get()), e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VoldemortException("Interrupted while waiting for the proxy get of key "
+                                         + ByteUtils.toHexString(key.get()), e);
+        }
+    }
+
+    /**
+     * Whether the key was recently found missing on the given proxy node
+     */
+    private boolean isProxyGetMiss(ByteArray key, int proxyId) {
+        if(proxyGetMissCacheTtlMs <= 0)
+            return false;
+        ProxyGetMiss miss = proxyGetMisses.get(key);
+        if(miss == null)
+            return false;
+        if(miss.proxyId != proxyId || miss.expiryMs < System.currentTimeMillis()) {
+            proxyGetMisses.remove(key, miss);
+            return false;
+        }
+        proxyGetMissCacheHits.incrementAndGet();
+        return true;
+    }
+
+    private void recordProxyGetMiss(ByteArray key, int proxyId) {
+        if(proxyGetMissCacheTtlMs <= 0)
+            return;
+        long nowMs = System.currentTimeMillis();
+        if(proxyGetMisses.size() >= MAX_PROXY_GET_MISSES) {
+            for(Map.Entry<ByteArray, ProxyGetMiss> entry: proxyGetMisses.entrySet()) {
+                if(entry.getValue().expiryMs < nowMs)
+                    proxyGetMisses.remove(entry.getKey(), entry.getValue());
+            }
+            if(proxyGetMisses.size() >= MAX_PROXY_GET_MISSES)
+                return;
+        }
+        proxyGetMisses.put(key, new ProxyGetMiss(proxyId, nowMs + proxyGetMissCacheTtlMs));
+    }
+
+    private static class ProxyGetMiss {
+
+        private final int proxyId;
+        private final long expiryMs;
+
+        private ProxyGetMiss(int proxyId, long expiryMs) {
+            this.proxyId = proxyId;
+            this.expiryMs = expiryMs;
+        }
+    }
+
     /**
      * Similar to {@link #proxyGetAndLocalPut(ByteArray, int)} but meant for
      * {@link #getAll(Iterable)}
@@ -653,6 +858,11 @@ public class RedirectingStore extends DelegatingStore<ByteArray, byte[], byte[]>
                                    Map<ByteArray, byte[]> transforms) throws VoldemortException {
         Map<ByteArray, List<Versioned<byte[]>>> proxyKeyValues = proxyGetAll(keyToProxyNodeMap,
                                                                              transforms);
+        for(Map.Entry<ByteArray, Integer> entry: keyToProxyNodeMap.entrySet()) {
+            List<Versioned<byte[]>> proxyValues = proxyKeyValues.get(entry.getKey());
+            if(proxyValues == null || proxyValues.isEmpty())
+                recordProxyGetMiss(entry.getKey(), entry.getValue());
+        }
         for(Map.Entry<ByteArray, List<Versioned<byte[]>>> keyValuePair: proxyKeyValues.entrySet()) {
             for(Versioned<byte[]> proxyValue: keyValuePair.getValue()) {
                 try {
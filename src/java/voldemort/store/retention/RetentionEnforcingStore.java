@@ -109,4 +109,12 @@ public class RetentionEnforcingStore extends DelegatingStore<ByteArray, byte[],
             return vals;
         return filterExpiredEntries(key, vals);
     }
+
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(entries.keySet());
+        return getInnerStore().putAll(entries, transforms);
+    }
 }
@@ -0,0 +1,53 @@
+package voldemort.store.retention;
+
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.store.DelegatingStore;
+import voldemort.store.Store;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Wraps the storage layer and records every write in a
+ * {@link RetentionKeyIndex}, so the retention cleanup can find the keys that
+ * may expire without scanning the whole store.
+ * 
+ */
+public class RetentionIndexingStore extends DelegatingStore<ByteArray, byte[], byte[]> {
+
+    private final RetentionKeyIndex<ByteArray> index;
+
+    public RetentionIndexingStore(Store<ByteArray, byte[], byte[]> innerStore,
+                                  RetentionKeyIndex<ByteArray> index) {
+        super(innerStore);
+        this.index = index;
+    }
+
+    @Override
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        getInnerStore().put(key, value, transforms);
+        if(value.getVersion() instanceof VectorClock)
+            index.add(key, ((VectorClock) value.getVersion()).getTimestamp());
+    }
+
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        Map<ByteArray, VoldemortException> failures = getInnerStore().putAll(entries, transforms);
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            if(!failures.containsKey(entry.getKey())
+               && entry.getValue().getVersion() instanceof VectorClock)
+                index.add(entry.getKey(),
+                          ((VectorClock) entry.getValue().getVersion()).getTimestamp());
+        }
+        return failures;
+    }
+
+    public RetentionKeyIndex<ByteArray> getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,135 @@
+package voldemort.store.retention;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.annotations.jmx.JmxGetter;
+
+/**
+ * In-memory secondary index of the keys of a store with a retention period,
+ * bucketed by the timestamp of the version written. It lets the
+ * {@link voldemort.server.scheduler.DataCleanupJob} visit only the keys whose
+ * versions may have expired, instead of scanning the whole store.
+ *
+ * The index only knows about writes it has seen. It becomes complete once a
+ * full scan of the store finished while it was tracking writes, and it stops
+ * being complete (falling back to full scans) if it grows beyond its key limit
+ * or a cleanup run is aborted half way.
+ *
+ */
+public class RetentionKeyIndex<K> {
+
+    private static final Logger logger = Logger.getLogger(RetentionKeyIndex.class);
+
+    private final String storeName;
+    private final long bucketWidthMs;
+    private final long maxKeys;
+    private final ConcurrentSkipListMap<Long, Set<K>> buckets;
+    private final AtomicLong numKeys;
+    private volatile boolean complete;
+    private volatile boolean overflowed;
+
+    public RetentionKeyIndex(String storeName, long bucketWidthMs, long maxKeys) {
+        if(bucketWidthMs <= 0)
+            throw new IllegalArgumentException("Bucket width must be positive.");
+        this.storeName = storeName;
+        this.bucketWidthMs = bucketWidthMs;
+        this.maxKeys = maxKeys;
+        this.buckets = new ConcurrentSkipListMap<Long, Set<K>>();
+        this.numKeys = new AtomicLong(0);
+        this.complete = false;
+        this.overflowed = false;
+    }
+
+    /**
+     * Records that a version of the key was written with the given timestamp
+     *
+     * @param key The key written
+     * @param timestampMs The timestamp of the version's vector clock
+     */
+    public void add(K key, long timestampMs) {
+        if(overflowed)
+            return;
+        Long bucket = timestampMs / bucketWidthMs;
+        Set<K> keys = buckets.get(bucket);
+        if(keys == null) {
+            keys = Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>());
+            Set<K> existing = buckets.putIfAbsent(bucket, keys);
+            if(existing != null)
+                keys = existing;
+        }
+        if(keys.add(key) && numKeys.incrementAndGet() > maxKeys) {
+            logger.warn("Retention index of store " + storeName + " exceeded " + maxKeys
+                        + " keys, falling back to full scans");
+            overflowed = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * Removes and returns the keys of all buckets whose versions are all older
+     * than the given cutoff
+     *
+     * @param cutoffMs Versions with a timestamp before this are expired
+     * @return The keys which may have expired versions
+     */
+    public List<K> pollExpired(long cutoffMs) {
+        List<K> expired = new ArrayList<K>();
+        // a bucket is expired if its last millisecond is before the cutoff
+        ConcurrentNavigableMap<Long, Set<K>> expiredBuckets = buckets.headMap(cutoffMs
+                                                                              / bucketWidthMs);
+        Iterator<Map.Entry<Long, Set<K>>> iterator = expiredBuckets.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Set<K> keys = iterator.next().getValue();
+            iterator.remove();
+            expired.addAll(keys);
+            numKeys.addAndGet(-keys.size());
+        }
+        return expired;
+    }
+
+    /**
+     * Clears the index before a full scan, which will fill it again
+     */
+    public void reset() {
+        overflowed = false;
+        invalidate();
+    }
+
+    /**
+     * Marks the index as covering all the keys of the store
+     */
+    public void markComplete() {
+        if(!overflowed)
+            complete = true;
+    }
+
+    /**
+     * Drops the content of the index, so the next cleanup does a full scan
+     */
+    public void invalidate() {
+        complete = false;
+        buckets.clear();
+        numKeys.set(0);
+    }
+
+    @JmxGetter(name = "complete", description = "Whether the retention index covers all keys of the store")
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @JmxGetter(name = "numKeys", description = "Number of keys in the retention index")
+    public long getNumKeys() {
+        return numKeys.get();
+    }
+}
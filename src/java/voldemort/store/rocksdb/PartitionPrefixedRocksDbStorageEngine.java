@@ -30,7 +30,31 @@ public class PartitionPrefixedRocksDbStorageEngine extends RocksDbStorageEngine
                                                  int lockStripes,
                                                  RoutingStrategy routingStrategy,
                                                  boolean enableReadLocks) {
-        super(storeName, rdbStore, storeHandle, storeOptions, lockStripes, enableReadLocks);
+        this(storeName,
+             rdbStore,
+             storeHandle,
+             storeOptions,
+             lockStripes,
+             routingStrategy,
+             enableReadLocks,
+             false);
+    }
+
+    public PartitionPrefixedRocksDbStorageEngine(String storeName,
+                                                 RocksDB rdbStore,
+                                                 ColumnFamilyHandle storeHandle,
+                                                 ColumnFamilyOptions storeOptions,
+                                                 int lockStripes,
+                                                 RoutingStrategy routingStrategy,
+                                                 boolean enableReadLocks,
+                                                 boolean compactValueFormat) {
+        super(storeName,
+              rdbStore,
+              storeHandle,
+              storeOptions,
+              lockStripes,
+              enableReadLocks,
+              compactValueFormat);
         this.routingStrategy = routingStrategy;
     }
 
@@ -101,14 +101,16 @@ public class RocksDbStorageConfiguration implements StorageConfiguration {
                                                                                  cfOptions,
                                                                                  lockStripes,
                                                                                  strategy,
-                                                                                 voldemortconfig.isRocksdbEnableReadLocks());
+                                                                                 voldemortconfig.isRocksdbEnableReadLocks(),
+                                                                                 voldemortconfig.isStorageCompactValueFormat());
                 } else {
                     rdbStorageEngine = new RocksDbStorageEngine(storeName,
                                                                 rdbStore,
                                                                 storeHandle,
                                                                 cfOptions,
                                                                 lockStripes,
-                                                                voldemortconfig.isRocksdbEnableReadLocks());
+                                                                voldemortconfig.isRocksdbEnableReadLocks(),
+                                                                voldemortconfig.isStorageCompactValueFormat());
                 }
                 stores.put(storeName, rdbStorageEngine);
             } catch(Exception e) {
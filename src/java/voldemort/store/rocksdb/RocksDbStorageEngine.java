@@ -45,6 +45,7 @@ public class RocksDbStorageEngine extends AbstractStorageEngine<ByteArray, byte[
     private final StripedLock locks;
     private static final Hex hexCodec = new Hex();
     private final boolean enableReadLocks;
+    private final boolean compactValueFormat;
 
     // TODO Need to add stats and loggers later
 
@@ -54,12 +55,23 @@ public class RocksDbStorageEngine extends AbstractStorageEngine<ByteArray, byte[
                                 ColumnFamilyOptions storeOptions,
                                 int lockStripes,
                                 boolean enableReadLocks) {
+        this(name, rdbInstance, storeHandle, storeOptions, lockStripes, enableReadLocks, false);
+    }
+
+    public RocksDbStorageEngine(String name,
+                                RocksDB rdbInstance,
+                                ColumnFamilyHandle storeHandle,
+                                ColumnFamilyOptions storeOptions,
+                                int lockStripes,
+                                boolean enableReadLocks,
+                                boolean compactValueFormat) {
         super(name);
         this.rocksDB = rdbInstance;
         this.storeHandle = storeHandle;
         this.storeOptions = storeOptions;
         this.locks = new StripedLock(lockStripes);
         this.enableReadLocks = enableReadLocks;
+        this.compactValueFormat = compactValueFormat;
     }
 
     public RocksDB getRocksDB() {
@@ -238,7 +250,7 @@ public class RocksDbStorageEngine extends AbstractStorageEngine<ByteArray, byte[
             currentValues.add(value);
 
             try {
-                getRocksDB().put(storeHandle, key.get(), StoreBinaryFormat.toByteArray(currentValues));
+                getRocksDB().put(storeHandle, key.get(), StoreBinaryFormat.toByteArray(currentValues, compactValueFormat));
             } catch(RocksDBException e) {
                 logger.error(e);
                 throw new PersistenceFailureException(e);
@@ -296,7 +308,7 @@ public class RocksDbStorageEngine extends AbstractStorageEngine<ByteArray, byte[
 
                     if(numDeletedVersions < numVersions) {
                         // we still have some valid versions
-                        value = StoreBinaryFormat.toByteArray(vals);
+                        value = StoreBinaryFormat.toByteArray(vals, compactValueFormat);
                         getRocksDB().put(storeHandle, key.get(), value);
                     } else {
                         // we have deleted all the versions; so get rid of the
@@ -365,7 +377,7 @@ public class RocksDbStorageEngine extends AbstractStorageEngine<ByteArray, byte[
             }
             obsoleteVals = resolveAndConstructVersionsToPersist(currentValues, values);
             try {
-                getRocksDB().put(storeHandle, key.get(), StoreBinaryFormat.toByteArray(currentValues));
+                getRocksDB().put(storeHandle, key.get(), StoreBinaryFormat.toByteArray(currentValues, compactValueFormat));
             } catch(RocksDBException e) {
                 logger.error(e);
                 throw new PersistenceFailureException(e);
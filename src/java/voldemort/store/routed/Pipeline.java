@@ -26,7 +26,11 @@ import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.store.InsufficientOperationalNodesException;
+import voldemort.store.routed.action.AbstractHintedHandoffAction;
+import voldemort.store.routed.action.AbstractReadRepair;
 import voldemort.store.routed.action.Action;
+import voldemort.store.stats.RequestPhase;
+import voldemort.store.stats.RequestPhaseStats;
 
 /**
  * A Pipeline is the main conduit through which an {@link Action} is run. An
@@ -68,6 +72,7 @@ public class Pipeline {
         GET_ALL,
         GET_VERSIONS,
         PUT,
+        PUT_ALL,
         DELETE;
 
         public String getSimpleName() {
@@ -171,6 +176,13 @@ public class Pipeline {
      */
 
     public void execute() {
+        // sampled once per request, the socket stores of the actions send its
+        // trace id to the servers
+        RequestPhaseStats phaseStats = RequestPhaseStats.getInstance();
+        Long outerTraceId = RequestPhaseStats.getCurrentTraceId();
+        long traceId = phaseStats.getOrStartTrace();
+        boolean sampled = traceId != RequestPhaseStats.NOT_TRACED;
+        RequestPhaseStats.setCurrentTraceId(traceId);
         try {
             while(true) {
                 Event event = null;
@@ -209,11 +221,26 @@ public class Pipeline {
                                  + action.getClass().getSimpleName() + " to handle " + event
                                  + " event");
 
-                action.execute(this);
+                if(sampled) {
+                    long startNs = System.nanoTime();
+                    action.execute(this);
+                    phaseStats.record(getPhase(action), System.nanoTime() - startNs);
+                } else {
+                    action.execute(this);
+                }
             }
         } finally {
             finished = true;
+            RequestPhaseStats.setCurrentTraceId(outerTraceId);
         }
     }
 
+    private static RequestPhase getPhase(Action action) {
+        if(action instanceof AbstractReadRepair)
+            return RequestPhase.READ_REPAIR;
+        if(action instanceof AbstractHintedHandoffAction)
+            return RequestPhase.HINTED_HANDOFF;
+        return RequestPhase.ROUTING;
+    }
+
 }
@@ -54,6 +54,7 @@ import voldemort.store.routed.action.IncrementClock;
 import voldemort.store.routed.action.PerformDeleteHintedHandoff;
 import voldemort.store.routed.action.PerformParallelDeleteRequests;
 import voldemort.store.routed.action.PerformParallelGetAllRequests;
+import voldemort.store.routed.action.PerformParallelPutAllRequests;
 import voldemort.store.routed.action.PerformParallelPutRequests;
 import voldemort.store.routed.action.PerformParallelRequests;
 import voldemort.store.routed.action.PerformPutHintedHandoff;
@@ -61,6 +62,8 @@ import voldemort.store.routed.action.PerformSerialGetAllRequests;
 import voldemort.store.routed.action.PerformSerialPutRequests;
 import voldemort.store.routed.action.PerformSerialRequests;
 import voldemort.store.routed.action.PerformZoneSerialRequests;
+import voldemort.store.routed.action.PutAllConfigureNodes;
+import voldemort.store.routed.action.PutAllIncrementClock;
 import voldemort.store.routed.action.ReadRepair;
 import voldemort.store.slop.HintedHandoff;
 import voldemort.store.slop.Slop;
@@ -91,6 +94,7 @@ public class PipelineRoutedStore extends RoutedStore {
     private boolean jmxEnabled;
     private String identifierString;
     private final ZoneAffinity zoneAffinity;
+    private final ReadRepairExecutor readRepairExecutor;
 
     private enum ConfigureNodesType {
         DEFAULT,
@@ -123,6 +127,43 @@ public class PipelineRoutedStore extends RoutedStore {
                                boolean isJmxEnabled,
                                PipelineRoutedStats stats,
                                ZoneAffinity zoneAffinity) {
+        this(innerStores,
+             nonblockingStores,
+             slopStores,
+             nonblockingSlopStores,
+             cluster,
+             storeDef,
+             failureDetector,
+             repairReads,
+             timeoutConfig,
+             clientZoneId,
+             isJmxEnabled,
+             stats,
+             zoneAffinity,
+             null);
+    }
+
+    /**
+     * Create a PipelineRoutedStore whose read repairs are sent in the
+     * background
+     * 
+     * @param readRepairExecutor Sends the read repairs, or null to send them
+     *        from the request pipeline
+     */
+    public PipelineRoutedStore(Map<Integer, Store<ByteArray, byte[], byte[]>> innerStores,
+                               Map<Integer, NonblockingStore> nonblockingStores,
+                               Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores,
+                               Map<Integer, NonblockingStore> nonblockingSlopStores,
+                               Cluster cluster,
+                               StoreDefinition storeDef,
+                               FailureDetector failureDetector,
+                               boolean repairReads,
+                               TimeoutConfig timeoutConfig,
+                               int clientZoneId,
+                               boolean isJmxEnabled,
+                               PipelineRoutedStats stats,
+                               ZoneAffinity zoneAffinity,
+                               ReadRepairExecutor readRepairExecutor) {
         super(storeDef.getName(),
               innerStores,
               cluster,
@@ -189,6 +230,7 @@ public class PipelineRoutedStore extends RoutedStore {
 
         this.jmxEnabled = isJmxEnabled;
         this.stats = stats;
+        this.readRepairExecutor = readRepairExecutor;
         if(this.jmxEnabled) {
             this.stats.registerJmxIfRequired();
         }
@@ -349,7 +391,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                storeDef.getPreferredReads(),
                                                                                                getOpTimeout,
                                                                                                nonblockingStores,
-                                                                                               readRepairer));
+                                                                                               readRepairer,
+                                                                                               readRepairExecutor));
 
         if(zoneRoutingEnabled)
             pipeline.addEventAction(Event.INSUFFICIENT_ZONES,
@@ -481,7 +524,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                          storeDef.getPreferredReads(),
                                                          getAllOpTimeoutInMs,
                                                          nonblockingStores,
-                                                         readRepairer));
+                                                         readRepairer,
+                                                         readRepairExecutor));
 
         pipeline.addEvent(Event.STARTED);
 
@@ -931,6 +975,111 @@ public class PipelineRoutedStore extends RoutedStore {
             throw pipelineData.getFatalError();
     }
 
+    /**
+     * Puts the entries in a batch per node, first on the master of each key
+     * then on its other nodes. Stores with hinted handoff, zone requirements
+     * or local node preference put each entry on its own.
+     */
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        return putAll(entries,
+                      transforms,
+                      timeoutConfig.getOperationTimeout(VoldemortOpCode.PUT_OP_CODE));
+    }
+
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms,
+                                                     long putOpTimeoutInMs)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(entries.keySet());
+        Integer zonesRequired = zoneRoutingEnabled ? storeDef.getZoneCountWrites() : null;
+        if(isHintedHandoffEnabled()
+           || obtainNodeConfigurationType(zonesRequired, Operation.PUT_ALL) != ConfigureNodesType.DEFAULT)
+            return StoreUtils.putAll(this, entries, transforms);
+
+        long startTimeMs = -1;
+        long startTimeNs = -1;
+
+        if(logger.isDebugEnabled()) {
+            startTimeMs = System.currentTimeMillis();
+            startTimeNs = System.nanoTime();
+        }
+
+        PutAllPipelineData pipelineData = new PutAllPipelineData(entries, transforms);
+        pipelineData.setStoreName(getName());
+        pipelineData.setStats(stats);
+
+        Pipeline pipeline = new Pipeline(Operation.PUT_ALL,
+                                         putOpTimeoutInMs,
+                                         TimeUnit.MILLISECONDS);
+        pipeline.addEventAction(Event.STARTED,
+                                new PutAllConfigureNodes(pipelineData,
+                                                         Event.CONFIGURED,
+                                                         failureDetector,
+                                                         storeDef.getRequiredWrites(),
+                                                         routingStrategy));
+        pipeline.addEventAction(Event.CONFIGURED,
+                                new PerformParallelPutAllRequests(pipelineData,
+                                                                  Event.MASTER_DETERMINED,
+                                                                  failureDetector,
+                                                                  putOpTimeoutInMs,
+                                                                  nonblockingStores,
+                                                                  time,
+                                                                  true));
+        pipeline.addEventAction(Event.MASTER_DETERMINED,
+                                new PerformParallelPutAllRequests(pipelineData,
+                                                                  Event.RESPONSES_RECEIVED,
+                                                                  failureDetector,
+                                                                  putOpTimeoutInMs,
+                                                                  nonblockingStores,
+                                                                  time,
+                                                                  false));
+        pipeline.addEventAction(Event.RESPONSES_RECEIVED,
+                                new PutAllIncrementClock(pipelineData,
+                                                         Event.COMPLETED,
+                                                         storeDef.getRequiredWrites()));
+
+        pipeline.addEvent(Event.STARTED);
+        if(logger.isDebugEnabled()) {
+            logger.debug("Operation " + pipeline.getOperation().getSimpleName() + " Keys "
+                         + ByteArray.toHexStrings(entries.keySet()));
+        }
+        try {
+            pipeline.execute();
+        } catch(VoldemortException e) {
+            stats.reportException(e);
+            throw e;
+        }
+
+        if(pipelineData.getFatalError() != null)
+            throw pipelineData.getFatalError();
+
+        // the keys whose master failed go through the whole put pipeline,
+        // which tries the next nodes as master
+        Map<ByteArray, VoldemortException> failures = pipelineData.getKeyToFailure();
+        for(ByteArray key: pipelineData.getKeysWithoutMaster()) {
+            try {
+                put(key,
+                    entries.get(key),
+                    transforms != null ? transforms.get(key) : null,
+                    putOpTimeoutInMs);
+            } catch(VoldemortException e) {
+                failures.put(key, e);
+            }
+        }
+
+        if(logger.isDebugEnabled()) {
+            logger.debug("Finished " + pipeline.getOperation().getSimpleName() + " for "
+                         + entries.size() + " keys keyRef: " + System.identityHashCode(entries)
+                         + "; started at " + startTimeMs + " took "
+                         + (System.nanoTime() - startTimeNs) + " failures: " + failures.size());
+        }
+
+        return failures;
+    }
+
     @Override
     public void close() {
         VoldemortException exception = null;
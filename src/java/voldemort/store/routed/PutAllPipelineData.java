@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.mutable.MutableInt;
+
+import voldemort.VoldemortException;
+import voldemort.cluster.Node;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+/**
+ * This is used only by the "put all" operation as it includes data specific
+ * only to that operation.
+ *
+ * Each key goes through the same steps as a single put: its first available
+ * node is its master, which gets the value first with the clock incremented
+ * for that node, then the other nodes get the same copy. Keys are batched per
+ * node at each step.
+ */
+
+public class PutAllPipelineData extends
+        PipelineData<Iterable<ByteArray>, Map<ByteArray, VoldemortException>> {
+
+    private final Map<ByteArray, Versioned<byte[]>> entries;
+
+    private final Map<ByteArray, byte[]> transforms;
+
+    private final Map<ByteArray, List<Node>> keyToNodes;
+
+    private final Map<ByteArray, Node> keyToMaster;
+
+    private final Map<ByteArray, Versioned<byte[]>> keyToVersionedCopy;
+
+    private final Map<ByteArray, MutableInt> keyToSuccessCount;
+
+    private final Map<ByteArray, VoldemortException> keyToFailure;
+
+    private final List<ByteArray> keysWithoutMaster;
+
+    public PutAllPipelineData(Map<ByteArray, Versioned<byte[]>> entries,
+                              Map<ByteArray, byte[]> transforms) {
+        this.entries = entries;
+        this.transforms = transforms;
+        this.keyToNodes = new HashMap<ByteArray, List<Node>>();
+        this.keyToMaster = new HashMap<ByteArray, Node>();
+        this.keyToVersionedCopy = new HashMap<ByteArray, Versioned<byte[]>>();
+        this.keyToSuccessCount = new HashMap<ByteArray, MutableInt>();
+        this.keyToFailure = new HashMap<ByteArray, VoldemortException>();
+        this.keysWithoutMaster = new ArrayList<ByteArray>();
+    }
+
+    /**
+     * @return The values to put as given by the caller, keyed by key
+     */
+    public Map<ByteArray, Versioned<byte[]>> getEntries() {
+        return entries;
+    }
+
+    public byte[] getTransforms(ByteArray key) {
+        return transforms == null ? null : transforms.get(key);
+    }
+
+    /**
+     * @return The available nodes of each key that did not fail yet, in
+     *         preference order
+     */
+    public Map<ByteArray, List<Node>> getKeyToNodes() {
+        return keyToNodes;
+    }
+
+    /**
+     * @return The node each key was first put on successfully
+     */
+    public Map<ByteArray, Node> getKeyToMaster() {
+        return keyToMaster;
+    }
+
+    /**
+     * @return The copy of each value, with its clock incremented for its
+     *         master, that is put on the nodes of the key
+     */
+    public Map<ByteArray, Versioned<byte[]>> getKeyToVersionedCopy() {
+        return keyToVersionedCopy;
+    }
+
+    public MutableInt getSuccessCount(ByteArray key) {
+        MutableInt value = keyToSuccessCount.get(key);
+
+        if(value == null) {
+            value = new MutableInt(0);
+            keyToSuccessCount.put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Records the failure of the put of a key, which will not be tried on any
+     * other node
+     */
+    public void setFailure(ByteArray key, VoldemortException e) {
+        keyToNodes.remove(key);
+        keyToFailure.put(key, e);
+    }
+
+    /**
+     * @return The exception each failed put threw, keyed by key
+     */
+    public Map<ByteArray, VoldemortException> getKeyToFailure() {
+        return keyToFailure;
+    }
+
+    /**
+     * @return The keys whose master could not be reached as a batch, to be put
+     *         one by one
+     */
+    public List<ByteArray> getKeysWithoutMaster() {
+        return keysWithoutMaster;
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortApplicationException;
+import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxManaged;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
+import voldemort.utils.Time;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Sends read repairs in the background, so that they add no latency to the
+ * reads which found them.
+ *
+ * Repairs wait in a bounded queue, where a repair that is already pending is
+ * coalesced with it and a repair that does not fit is dropped; a later read of
+ * the key will find it again. A single thread drains the queue and sends the
+ * repairs of each store and node as one putAll request, at no more than the
+ * configured rate per node.
+ *
+ * The thread never sleeps on behalf of one node. The repairs of a node which
+ * is over its rate wait aside, up to the size of the queue per node, until the
+ * node may be sent to again, while the repairs of the other nodes go out.
+ */
+@JmxManaged(description = "Background read repairs")
+public class ReadRepairExecutor {
+
+    private static final Logger logger = Logger.getLogger(ReadRepairExecutor.class);
+
+    private static final int MAX_REPAIRS_PER_DRAIN = 1000;
+
+    private final BlockingQueue<Repair> queue;
+    private final int queueSize;
+    private final Set<Repair> pending;
+    private final long maxRepairsPerSecondPerNode;
+    // only touched by the sending thread
+    private final Map<Integer, List<Repair>> waitingRepairs;
+    private final Map<Integer, Long> nodeReadyNs;
+    private final ExecutorService executor;
+
+    private final AtomicLong repairsIssued = new AtomicLong(0);
+    private final AtomicLong repairsCoalesced = new AtomicLong(0);
+    private final AtomicLong repairsDropped = new AtomicLong(0);
+    private final AtomicLong repairsFailed = new AtomicLong(0);
+
+    /**
+     * @param queueSize The number of repairs which may wait to be sent
+     * @param maxRepairsPerSecondPerNode The rate at which repairs are sent to
+     *        each node, 0 for unlimited
+     */
+    public ReadRepairExecutor(int queueSize, long maxRepairsPerSecondPerNode) {
+        if(queueSize <= 0)
+            throw new IllegalArgumentException("queueSize must be positive.");
+        this.queue = new LinkedBlockingQueue<Repair>(queueSize);
+        this.queueSize = queueSize;
+        this.pending = Collections.newSetFromMap(new ConcurrentHashMap<Repair, Boolean>());
+        this.maxRepairsPerSecondPerNode = maxRepairsPerSecondPerNode;
+        this.waitingRepairs = Maps.newLinkedHashMap();
+        this.nodeReadyNs = Maps.newHashMap();
+        this.executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("voldemort-read-repair"));
+        this.executor.execute(new Runnable() {
+
+            public void run() {
+                while(!Thread.currentThread().isInterrupted()) {
+                    try {
+                        sendRepairs();
+                    } catch(InterruptedException e) {
+                        break;
+                    } catch(Exception e) {
+                        logger.error("Failed to send read repairs", e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues a repair, unless the same repair is already waiting to be sent
+     * or the queue is full. Never blocks.
+     *
+     * @param store The store of the node to repair
+     * @param repair The node, key and the value to put there. The caller must
+     *        not modify it afterwards.
+     * @param timeoutMs The timeout of the put
+     */
+    public void submit(NonblockingStore store, NodeValue<ByteArray, byte[]> repair, long timeoutMs) {
+        Repair queued = new Repair(store, repair, timeoutMs);
+        if(!pending.add(queued)) {
+            repairsCoalesced.incrementAndGet();
+            return;
+        }
+        if(!queue.offer(queued)) {
+            pending.remove(queued);
+            repairsDropped.incrementAndGet();
+            if(logger.isDebugEnabled())
+                logger.debug("Read repair queue is full, dropping the repair of " + repair);
+        }
+    }
+
+    private void sendRepairs() throws InterruptedException {
+        List<Repair> repairs = Lists.newArrayList();
+        Repair first;
+        if(waitingRepairs.isEmpty()) {
+            first = queue.take();
+        } else {
+            long waitNs = getNsUntilNextNodeIsReady(System.nanoTime());
+            first = waitNs > 0 ? queue.poll(waitNs, TimeUnit.NANOSECONDS) : queue.poll();
+        }
+        if(first != null) {
+            repairs.add(first);
+            queue.drainTo(repairs, MAX_REPAIRS_PER_DRAIN - 1);
+        }
+
+        for(Repair repair: repairs) {
+            int nodeId = repair.value.getNodeId();
+            List<Repair> nodeRepairs = waitingRepairs.get(nodeId);
+            if(nodeRepairs == null) {
+                nodeRepairs = Lists.newArrayList();
+                waitingRepairs.put(nodeId, nodeRepairs);
+            }
+            if(nodeRepairs.size() < queueSize) {
+                nodeRepairs.add(repair);
+            } else {
+                pending.remove(repair);
+                repairsDropped.incrementAndGet();
+                if(logger.isDebugEnabled())
+                    logger.debug("Too many read repairs wait for node " + nodeId
+                                 + ", dropping the repair of " + repair.value);
+            }
+        }
+
+        long nowNs = System.nanoTime();
+        Iterator<Map.Entry<Integer, List<Repair>>> nodes = waitingRepairs.entrySet().iterator();
+        while(nodes.hasNext()) {
+            Map.Entry<Integer, List<Repair>> node = nodes.next();
+            Long readyNs = nodeReadyNs.get(node.getKey());
+            if(readyNs != null && readyNs - nowNs > 0)
+                continue;
+            List<Repair> nodeRepairs = node.getValue();
+            List<Repair> sent = nodeRepairs.subList(0, Math.min(nodeRepairs.size(),
+                                                                MAX_REPAIRS_PER_DRAIN));
+            sendNodeRepairs(node.getKey(), sent, nowNs);
+            sent.clear();
+            if(nodeRepairs.isEmpty())
+                nodes.remove();
+        }
+    }
+
+    /**
+     * @return How long until the first node with waiting repairs may be sent
+     *         to, 0 if one may be already
+     */
+    private long getNsUntilNextNodeIsReady(long nowNs) {
+        long waitNs = Long.MAX_VALUE;
+        for(Integer nodeId: waitingRepairs.keySet()) {
+            Long readyNs = nodeReadyNs.get(nodeId);
+            if(readyNs == null)
+                return 0;
+            waitNs = Math.min(waitNs, Math.max(0, readyNs - nowNs));
+        }
+        return waitNs;
+    }
+
+    private void sendNodeRepairs(int nodeId, List<Repair> repairs, long nowNs) {
+        // the nonblocking store of a store definition talks to a single node,
+        // so there is one batch per store, but concurrent versions of a key go
+        // into successive batches since a putAll holds one value per key
+        Map<NonblockingStore, List<Map<ByteArray, Versioned<byte[]>>>> batches = new IdentityHashMap<NonblockingStore, List<Map<ByteArray, Versioned<byte[]>>>>();
+        Map<NonblockingStore, Repair> firstRepairs = new IdentityHashMap<NonblockingStore, Repair>();
+        for(Repair repair: repairs) {
+            pending.remove(repair);
+            List<Map<ByteArray, Versioned<byte[]>>> storeBatches = batches.get(repair.store);
+            if(storeBatches == null) {
+                storeBatches = Lists.newArrayList();
+                batches.put(repair.store, storeBatches);
+                firstRepairs.put(repair.store, repair);
+            }
+            addToBatch(storeBatches, repair.value);
+        }
+
+        for(Map.Entry<NonblockingStore, List<Map<ByteArray, Versioned<byte[]>>>> entry: batches.entrySet()) {
+            Repair first = firstRepairs.get(entry.getKey());
+            for(Map<ByteArray, Versioned<byte[]>> batch: entry.getValue())
+                send(entry.getKey(), nodeId, batch, first.timeoutMs);
+        }
+
+        // the node may be sent to again once the repairs fit in its rate
+        if(maxRepairsPerSecondPerNode > 0) {
+            Long readyNs = nodeReadyNs.get(nodeId);
+            long startNs = readyNs == null || readyNs - nowNs < 0 ? nowNs : readyNs;
+            nodeReadyNs.put(nodeId, startNs + (long) (repairs.size() * (double) Time.NS_PER_SECOND
+                                                      / maxRepairsPerSecondPerNode));
+        }
+    }
+
+    private void addToBatch(List<Map<ByteArray, Versioned<byte[]>>> batches,
+                            NodeValue<ByteArray, byte[]> repair) {
+        for(Map<ByteArray, Versioned<byte[]>> batch: batches) {
+            if(!batch.containsKey(repair.getKey())) {
+                batch.put(repair.getKey(), repair.getVersioned());
+                return;
+            }
+        }
+        Map<ByteArray, Versioned<byte[]>> batch = Maps.newHashMap();
+        batch.put(repair.getKey(), repair.getVersioned());
+        batches.add(batch);
+    }
+
+    private void send(NonblockingStore store,
+                      final int nodeId,
+                      final Map<ByteArray, Versioned<byte[]>> batch,
+                      long timeoutMs) {
+        if(logger.isDebugEnabled())
+            logger.debug("Doing read repair of " + batch.size() + " keys on node " + nodeId);
+
+        repairsIssued.addAndGet(batch.size());
+        try {
+            store.submitPutAllRequest(batch, null, new NonblockingStoreCallback() {
+
+                @SuppressWarnings("unchecked")
+                public void requestComplete(Object result, long requestTime) {
+                    if(result instanceof Exception) {
+                        repairsFailed.addAndGet(batch.size());
+                        if(logger.isDebugEnabled())
+                            logger.debug("Read repair failed on node " + nodeId + ": ",
+                                         (Exception) result);
+                        return;
+                    }
+                    for(Map.Entry<ByteArray, VoldemortException> failure: ((Map<ByteArray, VoldemortException>) result).entrySet()) {
+                        // a newer version got there first, nothing to repair
+                        if(failure.getValue() instanceof ObsoleteVersionException)
+                            continue;
+                        repairsFailed.incrementAndGet();
+                        if(logger.isDebugEnabled()
+                           && !(failure.getValue() instanceof VoldemortApplicationException))
+                            logger.debug("Read repair failed on node " + nodeId + ": ",
+                                         failure.getValue());
+                    }
+                }
+            }, timeoutMs);
+        } catch(Exception e) {
+            repairsFailed.addAndGet(batch.size());
+            logger.debug("Read repair failed: ", e);
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @JmxGetter(name = "repairsIssued", description = "Number of read repairs sent")
+    public long getRepairsIssued() {
+        return repairsIssued.get();
+    }
+
+    @JmxGetter(name = "repairsCoalesced", description = "Number of read repairs coalesced with one that was pending")
+    public long getRepairsCoalesced() {
+        return repairsCoalesced.get();
+    }
+
+    @JmxGetter(name = "repairsDropped", description = "Number of read repairs dropped because the queue was full")
+    public long getRepairsDropped() {
+        return repairsDropped.get();
+    }
+
+    @JmxGetter(name = "repairsFailed", description = "Number of read repairs which failed")
+    public long getRepairsFailed() {
+        return repairsFailed.get();
+    }
+
+    @JmxGetter(name = "queueLength", description = "Number of read repairs waiting to be sent")
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    private static class Repair {
+
+        private final NonblockingStore store;
+        private final NodeValue<ByteArray, byte[]> value;
+        private final long timeoutMs;
+
+        private Repair(NonblockingStore store, NodeValue<ByteArray, byte[]> value, long timeoutMs) {
+            this.store = store;
+            this.value = value;
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Repair))
+                return false;
+            Repair other = (Repair) o;
+            return store == other.store && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store) + value.hashCode();
+        }
+    }
+}
@@ -30,6 +30,8 @@ public class RoutedStoreConfig {
     private String identifierString = "";
     private int clientZoneId = Zone.UNSET_ZONE_ID;
     private ZoneAffinity zoneAffinity = new ZoneAffinity();
+    private int readRepairQueueSize = 0;
+    private long readRepairMaxRatePerNode = 0;
 
     public RoutedStoreConfig() {}
 
@@ -38,6 +40,8 @@ public class RoutedStoreConfig {
         this.clientZoneId = clientConfig.getClientZoneId();
         this.timeoutConfig = clientConfig.getTimeoutConfig();
         this.zoneAffinity = clientConfig.getZoneAffinity();
+        this.readRepairQueueSize = clientConfig.getReadRepairQueueSize();
+        this.readRepairMaxRatePerNode = clientConfig.getReadRepairMaxRatePerNode();
     }
 
     public RoutedStoreConfig(VoldemortConfig voldemortConfig, Cluster cluster) {
@@ -100,4 +104,26 @@ public class RoutedStoreConfig {
         this.zoneAffinity = zoneAffinity;
         return this;
     }
+
+    public int getReadRepairQueueSize() {
+        return readRepairQueueSize;
+    }
+
+    /**
+     * The number of read repairs which may wait to be sent in the background,
+     * or 0 to send them from the request pipeline
+     */
+    public RoutedStoreConfig setReadRepairQueueSize(int readRepairQueueSize) {
+        this.readRepairQueueSize = readRepairQueueSize;
+        return this;
+    }
+
+    public long getReadRepairMaxRatePerNode() {
+        return readRepairMaxRatePerNode;
+    }
+
+    public RoutedStoreConfig setReadRepairMaxRatePerNode(long readRepairMaxRatePerNode) {
+        this.readRepairMaxRatePerNode = readRepairMaxRatePerNode;
+        return this;
+    }
 }
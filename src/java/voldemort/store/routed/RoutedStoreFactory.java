@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
+import javax.management.ObjectName;
+
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
@@ -16,6 +18,7 @@ import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
 import voldemort.store.slop.Slop;
 import voldemort.utils.ByteArray;
+import voldemort.utils.JmxUtils;
 
 import com.google.common.collect.Maps;
 
@@ -23,6 +26,10 @@ public class RoutedStoreFactory {
 
     private ExecutorService threadPool;
 
+    private ReadRepairExecutor readRepairExecutor;
+
+    private ObjectName readRepairExecutorName;
+
     private final Logger logger = Logger.getLogger(getClass());
 
     public RoutedStoreFactory() {
@@ -89,6 +96,37 @@ public class RoutedStoreFactory {
         return stats;
     }
 
+    /**
+     * The read repairs of all the stores created by this factory share one
+     * background executor, created with the first of them
+     */
+    private synchronized ReadRepairExecutor getReadRepairExecutor(RoutedStoreConfig routedStoreConfig) {
+        if(routedStoreConfig.getReadRepairQueueSize() <= 0)
+            return null;
+        if(readRepairExecutor == null) {
+            readRepairExecutor = new ReadRepairExecutor(routedStoreConfig.getReadRepairQueueSize(),
+                                                        routedStoreConfig.getReadRepairMaxRatePerNode());
+            if(routedStoreConfig.isJmxEnabled()) {
+                readRepairExecutorName = JmxUtils.createObjectName(JmxUtils.getPackageName(ReadRepairExecutor.class),
+                                                                   "read-repair"
+                                                                           + routedStoreConfig.getIdentifierString());
+                JmxUtils.registerMbean(readRepairExecutor, readRepairExecutorName);
+            }
+        }
+        return readRepairExecutor;
+    }
+
+    public synchronized void close() {
+        if(readRepairExecutor != null) {
+            readRepairExecutor.close();
+            readRepairExecutor = null;
+        }
+        if(readRepairExecutorName != null) {
+            JmxUtils.unregisterMbean(readRepairExecutorName);
+            readRepairExecutorName = null;
+        }
+    }
+
     public RoutedStore create(Cluster cluster,
                               StoreDefinition storeDefinition,
                               Map<Integer, Store<ByteArray, byte[], byte[]>> nodeStores,
@@ -112,6 +150,7 @@ public class RoutedStoreFactory {
                                        routedStoreConfig.getClientZoneId(),
                                        routedStoreConfig.isJmxEnabled(),
                                        stats,
-                                       routedStoreConfig.getZoneAffinity());
+                                       routedStoreConfig.getZoneAffinity(),
+                                       getReadRepairExecutor(routedStoreConfig));
     }
 }
@@ -26,6 +26,7 @@ import voldemort.store.routed.NodeValue;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.PipelineData;
+import voldemort.store.routed.ReadRepairExecutor;
 import voldemort.store.routed.ReadRepairer;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
@@ -45,19 +46,27 @@ public abstract class AbstractReadRepair<K, V, PD extends PipelineData<K, V>> ex
 
     private final ReadRepairer<ByteArray, byte[]> readRepairer;
 
+    private final ReadRepairExecutor readRepairExecutor;
+
     private final List<NodeValue<ByteArray, byte[]>> nodeValues;
 
+    /**
+     * @param readRepairExecutor Sends the repairs in the background, or null
+     *        to submit them from the pipeline
+     */
     public AbstractReadRepair(PD pipelineData,
                               Event completeEvent,
                               int preferred,
                               long timeoutMs,
                               Map<Integer, NonblockingStore> nonblockingStores,
-                              ReadRepairer<ByteArray, byte[]> readRepairer) {
+                              ReadRepairer<ByteArray, byte[]> readRepairer,
+                              ReadRepairExecutor readRepairExecutor) {
         super(pipelineData, completeEvent);
         this.preferred = preferred;
         this.timeoutMs = timeoutMs;
         this.nonblockingStores = nonblockingStores;
         this.readRepairer = readRepairer;
+        this.readRepairExecutor = readRepairExecutor;
         this.nodeValues = Lists.newArrayListWithExpectedSize(pipelineData.getResponses().size());
     }
 
@@ -99,6 +108,10 @@ public abstract class AbstractReadRepair<K, V, PD extends PipelineData<K, V>> ex
             }
 
             for(NodeValue<ByteArray, byte[]> v: toReadRepair) {
+                if(readRepairExecutor != null) {
+                    readRepairExecutor.submit(nonblockingStores.get(v.getNodeId()), v, timeoutMs);
+                    continue;
+                }
                 try {
                     if(logger.isDebugEnabled())
                         logger.debug("Doing read repair on node " + v.getNodeId() + " for key '"
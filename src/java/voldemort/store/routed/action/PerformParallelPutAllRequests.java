@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.store.routed.action;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Level;
+
+import voldemort.VoldemortApplicationException;
+import voldemort.VoldemortException;
+import voldemort.cluster.Node;
+import voldemort.cluster.failuredetector.FailureDetector;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.store.routed.Pipeline;
+import voldemort.store.routed.Pipeline.Event;
+import voldemort.store.routed.PutAllPipelineData;
+import voldemort.store.routed.Response;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Time;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Sends one batch of puts to each node involved in a step of a put all, in
+ * parallel.
+ *
+ * The master step sends every key to its first available node, with the clock
+ * incremented for that node. A key whose master failed for a reason other
+ * than the value itself, obsolete for instance, is left for the caller to put
+ * on its own so it can fail over to another master. The replica step then
+ * sends the same copies to the other nodes of the keys that have a master.
+ */
+public class PerformParallelPutAllRequests extends
+        AbstractAction<Iterable<ByteArray>, Map<ByteArray, VoldemortException>, PutAllPipelineData> {
+
+    private final FailureDetector failureDetector;
+
+    private final long timeoutMs;
+
+    private final Map<Integer, NonblockingStore> nonblockingStores;
+
+    private final Time time;
+
+    private final boolean masters;
+
+    public PerformParallelPutAllRequests(PutAllPipelineData pipelineData,
+                                         Event completeEvent,
+                                         FailureDetector failureDetector,
+                                         long timeoutMs,
+                                         Map<Integer, NonblockingStore> nonblockingStores,
+                                         Time time,
+                                         boolean masters) {
+        super(pipelineData, completeEvent);
+        this.failureDetector = failureDetector;
+        this.timeoutMs = timeoutMs;
+        this.nonblockingStores = nonblockingStores;
+        this.time = time;
+        this.masters = masters;
+    }
+
+    private Map<Node, Map<ByteArray, Versioned<byte[]>>> groupByNode() {
+        Map<Node, Map<ByteArray, Versioned<byte[]>>> nodeToEntries = new HashMap<Node, Map<ByteArray, Versioned<byte[]>>>();
+        for(Map.Entry<ByteArray, List<Node>> entry: pipelineData.getKeyToNodes().entrySet()) {
+            ByteArray key = entry.getKey();
+            List<Node> nodes;
+            if(masters) {
+                Node master = entry.getValue().get(0);
+                Versioned<byte[]> versioned = pipelineData.getEntries().get(key);
+                VectorClock clock = (VectorClock) versioned.getVersion();
+                pipelineData.getKeyToVersionedCopy()
+                            .put(key,
+                                 new Versioned<byte[]>(versioned.getValue(),
+                                                       clock.incremented(master.getId(),
+                                                                         time.getMilliseconds())));
+                nodes = entry.getValue().subList(0, 1);
+            } else {
+                nodes = entry.getValue().subList(1, entry.getValue().size());
+            }
+
+            for(Node node: nodes) {
+                Map<ByteArray, Versioned<byte[]>> nodeEntries = nodeToEntries.get(node);
+                if(nodeEntries == null) {
+                    nodeEntries = new HashMap<ByteArray, Versioned<byte[]>>();
+                    nodeToEntries.put(node, nodeEntries);
+                }
+                nodeEntries.put(key, pipelineData.getKeyToVersionedCopy().get(key));
+            }
+        }
+        return nodeToEntries;
+    }
+
+    private Map<ByteArray, byte[]> getTransforms(Iterable<ByteArray> keys) {
+        Map<ByteArray, byte[]> transforms = null;
+        for(ByteArray key: keys) {
+            byte[] transform = pipelineData.getTransforms(key);
+            if(transform != null) {
+                if(transforms == null)
+                    transforms = new HashMap<ByteArray, byte[]>();
+                transforms.put(key, transform);
+            }
+        }
+        return transforms;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void execute(final Pipeline pipeline) {
+        Map<Node, Map<ByteArray, Versioned<byte[]>>> nodeToEntries = groupByNode();
+        final Map<Integer, Response<Iterable<ByteArray>, Object>> responses = new ConcurrentHashMap<Integer, Response<Iterable<ByteArray>, Object>>();
+        final CountDownLatch latch = new CountDownLatch(nodeToEntries.size());
+        final AtomicBoolean isResponseProcessed = new AtomicBoolean(false);
+
+        if(logger.isTraceEnabled())
+            logger.trace("Attempting " + nodeToEntries.size() + " "
+                         + pipeline.getOperation().getSimpleName() + " operations in parallel on "
+                         + (masters ? "masters" : "replicas"));
+
+        for(Map.Entry<Node, Map<ByteArray, Versioned<byte[]>>> entry: nodeToEntries.entrySet()) {
+            final Node node = entry.getKey();
+            final Iterable<ByteArray> keys = new ArrayList<ByteArray>(entry.getValue().keySet());
+
+            NonblockingStoreCallback callback = new NonblockingStoreCallback() {
+
+                public void requestComplete(Object result, long requestTime) {
+                    if(logger.isTraceEnabled())
+                        logger.trace(pipeline.getOperation().getSimpleName()
+                                     + " response received (" + requestTime + " ms.) from node "
+                                     + node.getId());
+
+                    Response<Iterable<ByteArray>, Object> response = new Response<Iterable<ByteArray>, Object>(node,
+                                                                                                               keys,
+                                                                                                               result,
+                                                                                                               requestTime);
+                    responses.put(node.getId(), response);
+                    latch.countDown();
+
+                    // the node failed after the step gave up waiting for it
+                    if(isResponseProcessed.get() && response.getValue() instanceof Exception)
+                        handleResponseError(response, pipeline, failureDetector);
+                }
+            };
+
+            NonblockingStore store = nonblockingStores.get(node.getId());
+            store.submitPutAllRequest(entry.getValue(),
+                                      getTransforms(keys),
+                                      callback,
+                                      timeoutMs);
+        }
+
+        try {
+            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException e) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn(e, e);
+        }
+
+        for(Node node: nodeToEntries.keySet()) {
+            Response<Iterable<ByteArray>, Object> response = responses.get(node.getId());
+            if(response == null) {
+                // no answer in time, the keys may or may not be there
+                if(masters)
+                    addKeysWithoutMaster(nodeToEntries.get(node).keySet());
+            } else if(response.getValue() instanceof Exception) {
+                if(handleResponseError(response, pipeline, failureDetector))
+                    return;
+                if(masters)
+                    addKeysWithoutMaster(response.getKey());
+            } else {
+                Map<ByteArray, VoldemortException> failures = (Map<ByteArray, VoldemortException>) response.getValue();
+                for(ByteArray key: response.getKey()) {
+                    VoldemortException failure = failures.get(key);
+                    if(failure == null) {
+                        pipelineData.getSuccessCount(key).increment();
+                        if(masters)
+                            pipelineData.getKeyToMaster().put(key, node);
+                    } else if(masters) {
+                        if(failure instanceof VoldemortApplicationException)
+                            pipelineData.setFailure(key, failure);
+                        else
+                            addKeyWithoutMaster(key);
+                    } else {
+                        pipelineData.recordFailure(failure);
+                    }
+                }
+                failureDetector.recordSuccess(node, response.getRequestTime());
+            }
+        }
+        isResponseProcessed.set(true);
+
+        pipeline.addEvent(completeEvent);
+    }
+
+    private void addKeysWithoutMaster(Iterable<ByteArray> keys) {
+        for(ByteArray key: keys)
+            addKeyWithoutMaster(key);
+    }
+
+    private void addKeyWithoutMaster(ByteArray key) {
+        pipelineData.getKeyToNodes().remove(key);
+        pipelineData.getKeysWithoutMaster().add(key);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.store.routed.action;
+
+import java.util.List;
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.cluster.Node;
+import voldemort.cluster.failuredetector.FailureDetector;
+import voldemort.routing.RoutingStrategy;
+import voldemort.store.routed.Pipeline;
+import voldemort.store.routed.Pipeline.Event;
+import voldemort.store.routed.PutAllPipelineData;
+import voldemort.utils.ByteArray;
+
+/**
+ * Finds the available nodes of every key of a put all. A key without enough
+ * available nodes fails on its own, the other keys go on.
+ */
+public class PutAllConfigureNodes extends
+        AbstractConfigureNodes<Iterable<ByteArray>, Map<ByteArray, VoldemortException>, PutAllPipelineData> {
+
+    public PutAllConfigureNodes(PutAllPipelineData pipelineData,
+                                Event completeEvent,
+                                FailureDetector failureDetector,
+                                int required,
+                                RoutingStrategy routingStrategy) {
+        super(pipelineData, completeEvent, failureDetector, required, routingStrategy);
+    }
+
+    public void execute(Pipeline pipeline) {
+        for(ByteArray key: pipelineData.getEntries().keySet()) {
+            try {
+                List<Node> nodes = getNodes(key);
+                pipelineData.getKeyToNodes().put(key, nodes);
+            } catch(VoldemortException e) {
+                pipelineData.setFailure(key, e);
+            }
+        }
+
+        pipeline.addEvent(completeEvent);
+    }
+
+}
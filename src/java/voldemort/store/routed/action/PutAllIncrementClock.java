@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.store.routed.action;
+
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.cluster.Node;
+import voldemort.store.InsufficientOperationalNodesException;
+import voldemort.store.routed.Pipeline;
+import voldemort.store.routed.Pipeline.Event;
+import voldemort.store.routed.PutAllPipelineData;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+
+/**
+ * Fails the keys of a put all that were not put on enough nodes, and
+ * increments the clock of the caller's value for the others, as
+ * {@link IncrementClock} does for a single put.
+ */
+public class PutAllIncrementClock extends
+        AbstractAction<Iterable<ByteArray>, Map<ByteArray, VoldemortException>, PutAllPipelineData> {
+
+    private final int required;
+
+    public PutAllIncrementClock(PutAllPipelineData pipelineData, Event completeEvent, int required) {
+        super(pipelineData, completeEvent);
+        this.required = required;
+    }
+
+    public void execute(Pipeline pipeline) {
+        for(Map.Entry<ByteArray, Node> entry: pipelineData.getKeyToMaster().entrySet()) {
+            ByteArray key = entry.getKey();
+            int successes = pipelineData.getSuccessCount(key).intValue();
+            if(successes < required) {
+                pipelineData.setFailure(key,
+                                        new InsufficientOperationalNodesException(required + " "
+                                                                                  + pipeline.getOperation()
+                                                                                            .getSimpleName()
+                                                                                  + "s required, but only "
+                                                                                  + successes
+                                                                                  + " succeeded"));
+                continue;
+            }
+
+            // use the timestamp of the copy the nodes got
+            VectorClock copyClock = (VectorClock) pipelineData.getKeyToVersionedCopy()
+                                                              .get(key)
+                                                              .getVersion();
+            VectorClock versionedClock = (VectorClock) pipelineData.getEntries()
+                                                                   .get(key)
+                                                                   .getVersion();
+            versionedClock.incrementVersion(entry.getValue().getId(), copyClock.getTimestamp());
+        }
+
+        pipeline.addEvent(completeEvent);
+    }
+
+}
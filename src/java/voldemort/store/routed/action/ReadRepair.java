@@ -21,6 +21,7 @@ import java.util.Map;
 
 import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.routed.BasicPipelineData;
+import voldemort.store.routed.ReadRepairExecutor;
 import voldemort.store.routed.ReadRepairer;
 import voldemort.store.routed.Response;
 import voldemort.store.routed.Pipeline.Event;
@@ -35,8 +36,15 @@ public class ReadRepair<PD extends BasicPipelineData<List<Versioned<byte[]>>>> e
                       int preferred,
                       long timeoutMs,
                       Map<Integer, NonblockingStore> nonblockingStores,
-                      ReadRepairer<ByteArray, byte[]> readRepairer) {
-        super(pipelineData, completeEvent, preferred, timeoutMs, nonblockingStores, readRepairer);
+                      ReadRepairer<ByteArray, byte[]> readRepairer,
+                      ReadRepairExecutor readRepairExecutor) {
+        super(pipelineData,
+              completeEvent,
+              preferred,
+              timeoutMs,
+              nonblockingStores,
+              readRepairer,
+              readRepairExecutor);
     }
 
     @Override
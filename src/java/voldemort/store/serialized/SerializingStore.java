@@ -142,6 +142,26 @@ public class SerializingStore<K, V, T> extends AbstractStore<K, V, T> {
                   transformToBytes(transforms));
     }
 
+    @Override
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries, Map<K, T> transforms)
+            throws VoldemortException {
+        Map<ByteArray, K> byteKeyToKey = Maps.newHashMapWithExpectedSize(entries.size());
+        Map<ByteArray, Versioned<byte[]>> byteEntries = Maps.newHashMapWithExpectedSize(entries.size());
+        for(Map.Entry<K, Versioned<V>> entry: entries.entrySet()) {
+            ByteArray byteKey = keyToBytes(entry.getKey());
+            Versioned<V> value = entry.getValue();
+            byteKeyToKey.put(byteKey, entry.getKey());
+            byteEntries.put(byteKey, new Versioned<byte[]>(valueSerializer.toBytes(value.getValue()),
+                                                           value.getVersion()));
+        }
+        Map<ByteArray, VoldemortException> byteFailures = store.putAll(byteEntries,
+                                                                       transformsToBytes(transforms));
+        Map<K, VoldemortException> failures = Maps.newHashMapWithExpectedSize(byteFailures.size());
+        for(Map.Entry<ByteArray, VoldemortException> failure: byteFailures.entrySet())
+            failures.put(byteKeyToKey.get(failure.getKey()), failure.getValue());
+        return failures;
+    }
+
     @Override
     public List<Version> getVersions(K key) {
         return store.getVersions(keyToBytes(key));
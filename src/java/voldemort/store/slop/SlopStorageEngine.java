@@ -41,6 +41,12 @@ import voldemort.versioning.Versioned;
  * last time a pusher job ran; also tracks hints that have been added after the
  * last run
  * 
+ * Slops are keyed by (operation, store, node, key), so the underlying engine
+ * already replaces a slop with a newer one of the same operation. With
+ * coalescing enabled, a new slop also removes the slops of the opposite
+ * operation for the same (store, node, key) whose versions it dominates, so
+ * that at most one slop per operation is kept for every key.
+ * 
  */
 public class SlopStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]> {
 
@@ -49,12 +55,20 @@ public class SlopStorageEngine extends AbstractStorageEngine<ByteArray, byte[],
     private final StorageEngine<ByteArray, byte[], byte[]> slopEngine;
     private final SlopSerializer slopSerializer;
     private final SlopStats slopStats;
+    private final boolean coalescingEnabled;
 
     public SlopStorageEngine(StorageEngine<ByteArray, byte[], byte[]> slopEngine, Cluster cluster) {
+        this(slopEngine, cluster, true);
+    }
+
+    public SlopStorageEngine(StorageEngine<ByteArray, byte[], byte[]> slopEngine,
+                             Cluster cluster,
+                             boolean coalescingEnabled) {
         super(slopEngine.getName());
         this.slopEngine = slopEngine;
         this.slopSerializer = new SlopSerializer();
         this.slopStats = new SlopStats(cluster);
+        this.coalescingEnabled = coalescingEnabled;
     }
 
     @JmxGetter(name = "outstandingTotal", description = "slops outstanding since last push")
@@ -72,10 +86,29 @@ public class SlopStorageEngine extends AbstractStorageEngine<ByteArray, byte[],
         return slopStats.byZone(SlopStats.Tracked.OUTSTANDING);
     }
 
+    @JmxGetter(name = "pendingByNode", description = "slops queued for, but not yet acknowledged by, each node in the running push")
+    public Map<Integer, Long> getPendingByNode() {
+        return slopStats.asMap(SlopStats.Tracked.PENDING);
+    }
+
+    @JmxGetter(name = "pushedByNode", description = "slops pushed to each node in the running or last push")
+    public Map<Integer, Long> getPushedByNode() {
+        return slopStats.asMap(SlopStats.Tracked.PUSHED);
+    }
+
+    @JmxGetter(name = "coalescedByNode", description = "slops dropped by node since they were superseded by a newer slop")
+    public Map<Integer, Long> getCoalescedByNode() {
+        return slopStats.asMap(SlopStats.Tracked.COALESCED);
+    }
+
     public void resetStats(Map<Integer, Long> newValues) {
         slopStats.setAll(SlopStats.Tracked.OUTSTANDING, newValues);
     }
 
+    public SlopStats getSlopStats() {
+        return slopStats;
+    }
+
     public StorageEngine<ByteArray, Slop, byte[]> asSlopStore() {
         return SerializingStorageEngine.wrap(this,
                                              new ByteArraySerializer(),
@@ -124,6 +157,33 @@ public class SlopStorageEngine extends AbstractStorageEngine<ByteArray, byte[],
     public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
             throws VoldemortException {
         slopEngine.put(key, value, transforms);
+        if(coalescingEnabled)
+            coalesce(key, value);
+    }
+
+    /**
+     * Deletes the slops of the opposite operation for the same key, which are
+     * superseded by the slop just written.
+     * 
+     * @param key The slop key that was written
+     * @param value The slop that was written
+     */
+    private void coalesce(ByteArray key, Versioned<byte[]> value) {
+        if(value.getVersion() == null)
+            return;
+        byte[] oppositeKey = key.get().clone();
+        if(oppositeKey[0] == Slop.Operation.PUT.getOpCode())
+            oppositeKey[0] = Slop.Operation.DELETE.getOpCode();
+        else if(oppositeKey[0] == Slop.Operation.DELETE.getOpCode())
+            oppositeKey[0] = Slop.Operation.PUT.getOpCode();
+        else
+            return;
+
+        // deletes only the versions strictly before the new slop's version
+        if(slopEngine.delete(new ByteArray(oppositeKey), value.getVersion())) {
+            Slop slop = slopSerializer.toObject(value.getValue());
+            slopStats.incrementCount(SlopStats.Tracked.COALESCED, slop.getNodeId());
+        }
     }
 
     @Override
@@ -16,8 +16,11 @@
 
 package voldemort.store.socket;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -39,10 +42,15 @@ import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.store.socket.clientrequest.DeleteClientRequest;
 import voldemort.store.socket.clientrequest.GetAllClientRequest;
 import voldemort.store.socket.clientrequest.GetClientRequest;
+import voldemort.store.socket.clientrequest.GetMerkleLeafVersionsClientRequest;
+import voldemort.store.socket.clientrequest.GetMerkleTreeClientRequest;
 import voldemort.store.socket.clientrequest.GetVersionsClientRequest;
+import voldemort.store.socket.clientrequest.PutAllClientRequest;
 import voldemort.store.socket.clientrequest.PutClientRequest;
 import voldemort.store.stats.ClientSocketStats;
 import voldemort.utils.ByteArray;
+import voldemort.utils.MerkleTree;
+import voldemort.utils.Time;
 import voldemort.utils.Utils;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
@@ -172,6 +180,60 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
         requestAsync(clientRequest, callback, timeoutMs, "put");
     }
 
+    /**
+     * Sends the batch as a single request if the protocol supports it,
+     * otherwise submits one put per entry and calls back once all of them
+     * completed.
+     */
+    @Override
+    public void submitPutAllRequest(Map<ByteArray, Versioned<byte[]>> entries,
+                                    Map<ByteArray, byte[]> transforms,
+                                    final NonblockingStoreCallback callback,
+                                    long timeoutMs) {
+        StoreUtils.assertValidKeys(entries.keySet());
+        if(requestFormat.supportsPutAll()) {
+            PutAllClientRequest clientRequest = new PutAllClientRequest(getName(),
+                                                                        requestFormat,
+                                                                        requestRoutingType,
+                                                                        entries,
+                                                                        transforms);
+            if(logger.isDebugEnabled())
+                logger.debug("PUTALL keyRef: " + System.identityHashCode(entries)
+                             + " requestRef: " + System.identityHashCode(clientRequest));
+            requestAsync(clientRequest, callback, timeoutMs, "put all");
+            return;
+        }
+
+        final Map<ByteArray, VoldemortException> failures = new ConcurrentHashMap<ByteArray, VoldemortException>();
+        final AtomicInteger remaining = new AtomicInteger(entries.size());
+        final long startNs = System.nanoTime();
+        if(entries.isEmpty()) {
+            callback.requestComplete(failures, 0);
+            return;
+        }
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+            final ByteArray key = entry.getKey();
+            submitPutRequest(key,
+                             entry.getValue(),
+                             transforms != null ? transforms.get(key) : null,
+                             new NonblockingStoreCallback() {
+
+                                 public void requestComplete(Object result, long requestTime) {
+                                     if(result instanceof VoldemortException)
+                                         failures.put(key, (VoldemortException) result);
+                                     else if(result instanceof Exception)
+                                         failures.put(key,
+                                                      new VoldemortException((Exception) result));
+                                     if(remaining.decrementAndGet() == 0)
+                                         callback.requestComplete(failures,
+                                                                  (System.nanoTime() - startNs)
+                                                                          / Time.NS_PER_MS);
+                                 }
+                             },
+                             timeoutMs);
+        }
+    }
+
     @Override
     public boolean delete(ByteArray key, Version version) throws VoldemortException {
         StoreUtils.assertValidKey(key);
@@ -245,6 +307,65 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
         request(clientRequest, "put");
     }
 
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        if(!requestFormat.supportsPutAll())
+            return super.putAll(entries, transforms);
+        StoreUtils.assertValidKeys(entries.keySet());
+        PutAllClientRequest clientRequest = new PutAllClientRequest(getName(),
+                                                                    requestFormat,
+                                                                    requestRoutingType,
+                                                                    entries,
+                                                                    transforms);
+        if(logger.isDebugEnabled())
+            logger.debug("PUTALL keyRef: " + System.identityHashCode(entries) + " requestRef: "
+                         + System.identityHashCode(clientRequest));
+        return request(clientRequest, "putAll");
+    }
+
+    /**
+     * Fetches the Merkle tree of the versions of a partition, as stored on the
+     * server whatever the routing type of this store is. The servers only
+     * build the trees for stores connected to their admin port.
+     *
+     * @param partition The master partition of the keys of the tree
+     * @param depth The depth of the tree, at most MerkleTree.MAX_DEPTH
+     */
+    public MerkleTree getMerkleTree(int partition, int depth) {
+        if(!requestFormat.supportsMerkleTrees())
+            throw new UnsupportedOperationException("Merkle trees are not supported by "
+                                                    + requestFormat.getClass().getSimpleName());
+        GetMerkleTreeClientRequest clientRequest = new GetMerkleTreeClientRequest(getName(),
+                                                                                  requestFormat,
+                                                                                  requestRoutingType,
+                                                                                  partition,
+                                                                                  depth);
+        return request(clientRequest, "getMerkleTree");
+    }
+
+    /**
+     * Fetches the versions of the keys of a partition that go to the given
+     * leaves of its Merkle tree
+     *
+     * @return The versions of each key, keyed by key
+     */
+    public Map<ByteArray, List<Version>> getMerkleLeafVersions(int partition,
+                                                               int depth,
+                                                               Collection<Integer> leaves) {
+        if(!requestFormat.supportsMerkleTrees())
+            throw new UnsupportedOperationException("Merkle trees are not supported by "
+                                                    + requestFormat.getClass().getSimpleName());
+        GetMerkleLeafVersionsClientRequest clientRequest = new GetMerkleLeafVersionsClientRequest(getName(),
+                                                                                                  requestFormat,
+                                                                                                  requestRoutingType,
+                                                                                                  partition,
+                                                                                                  depth,
+                                                                                                  leaves);
+        return request(clientRequest, "getMerkleLeafVersions");
+    }
+
     @Override
     public Object getCapability(StoreCapabilityType capability) {
         if(StoreCapabilityType.SOCKET_POOL.equals(capability))
@@ -275,7 +396,8 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
         if(logger.isDebugEnabled()) {
             startTimeMs = System.currentTimeMillis();
         }
-        ClientRequestExecutor clientRequestExecutor = pool.checkout(destination);
+        ClientRequestExecutor clientRequestExecutor = pool.checkout(destination,
+                                                                    delegate.getTraceId());
         String debugMsgStr = "";
 
         startTimeNs = System.nanoTime();
@@ -23,6 +23,7 @@ import voldemort.VoldemortException;
 import voldemort.common.nio.ByteBufferBackedOutputStream;
 import voldemort.store.StoreTimeoutException;
 import voldemort.store.UnreachableStoreException;
+import voldemort.store.stats.RequestPhaseStats;
 
 /**
  * AbstractClientRequest implements ClientRequest to provide some basic
@@ -68,6 +69,11 @@ public abstract class AbstractClientRequest<T> implements ClientRequest<T> {
         error = e;
     }
 
+    @Override
+    public long getTraceId() {
+        return RequestPhaseStats.NOT_TRACED;
+    }
+
     @Override
     public void parseResponse(DataInputStream inputStream) {
         try {
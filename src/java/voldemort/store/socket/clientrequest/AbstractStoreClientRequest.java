@@ -18,6 +18,7 @@ package voldemort.store.socket.clientrequest;
 
 import voldemort.client.protocol.RequestFormat;
 import voldemort.server.RequestRoutingType;
+import voldemort.store.stats.RequestPhaseStats;
 
 public abstract class AbstractStoreClientRequest<T> extends AbstractClientRequest<T> {
 
@@ -27,12 +28,21 @@ public abstract class AbstractStoreClientRequest<T> extends AbstractClientReques
 
     protected final RequestRoutingType requestRoutingType;
 
+    private final long traceId;
+
     public AbstractStoreClientRequest(String storeName,
                                       RequestFormat requestFormat,
                                       RequestRoutingType requestRoutingType) {
         this.storeName = storeName;
         this.requestFormat = requestFormat;
         this.requestRoutingType = requestRoutingType;
+        // part of the request of the calling pipeline if any
+        this.traceId = RequestPhaseStats.getInstance().getOrStartTrace();
+    }
+
+    @Override
+    public long getTraceId() {
+        return traceId;
     }
 
 }
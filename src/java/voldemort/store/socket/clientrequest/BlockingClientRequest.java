@@ -90,4 +90,8 @@ public class BlockingClientRequest<T> implements ClientRequest<T> {
         delegate.reportException(e);
     }
 
+    public long getTraceId() {
+        return delegate.getTraceId();
+    }
+
 }
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import voldemort.client.protocol.RequestFormat;
 import voldemort.common.nio.ByteBufferBackedOutputStream;
 import voldemort.store.UnreachableStoreException;
+import voldemort.store.stats.RequestPhaseStats;
 
 /**
  * ClientRequest represents a <b>single</b> request/response combination to a
@@ -50,6 +51,13 @@ public interface ClientRequest<T> {
 
     public void reportException(IOException e);
 
+    /**
+     * @return The trace id the request is sent with,
+     *         {@link RequestPhaseStats#NOT_TRACED} if it is not sampled
+     */
+
+    public long getTraceId();
+
     /**
      * This eventually calls into a nested {@link RequestFormat} instance's
      * writeXxx method. The ClientRequest actually buffers all I/O, so the data
@@ -34,6 +34,8 @@ import voldemort.common.nio.ByteBufferContainer;
 import voldemort.common.nio.CommBufferSizeStats;
 import voldemort.common.nio.SelectorManagerWorker;
 import voldemort.store.socket.SocketDestination;
+import voldemort.store.stats.RequestPhase;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.Time;
 
 /**
@@ -62,6 +64,11 @@ public class ClientRequestExecutor extends SelectorManagerWorker implements Clos
     private final SocketDestination socketDesination;
     private final long idleConnectionTimeoutNs;
 
+    // when the current request is sampled, the time it was sent at and the
+    // time it took to format, otherwise 0
+    private long traceSentNs;
+    private long traceSerializationNs;
+
     public ClientRequestExecutor(Selector selector,
                                  SocketChannel socketChannel,
                                  int socketBufferSize,
@@ -183,8 +190,24 @@ public class ClientRequestExecutor extends SelectorManagerWorker implements Clos
         computeExpirationTime(timeoutMs, elapsedNs);
         outputStream.getBuffer().clear();
 
-        boolean wasSuccessful = clientRequest.formatRequest(outputStream);
+        // the request format writes the trace id of the request being formatted
+        long traceId = clientRequest.getTraceId();
+        long formatStartNs = traceId != RequestPhaseStats.NOT_TRACED ? System.nanoTime() : 0;
+        Long outerTraceId = RequestPhaseStats.getCurrentTraceId();
+        RequestPhaseStats.setCurrentTraceId(traceId);
+        boolean wasSuccessful;
+        try {
+            wasSuccessful = clientRequest.formatRequest(outputStream);
+        } finally {
+            RequestPhaseStats.setCurrentTraceId(outerTraceId);
+        }
         outputStream.getBuffer().flip();
+        if(formatStartNs != 0) {
+            traceSentNs = System.nanoTime();
+            traceSerializationNs = traceSentNs - formatStartNs;
+        } else {
+            traceSentNs = 0;
+        }
 
         if(wasSuccessful) {
             SelectionKey selectionKey = socketChannel.keyFor(selector);
@@ -295,7 +318,16 @@ public class ClientRequestExecutor extends SelectorManagerWorker implements Clos
             if(logger.isTraceEnabled())
                 logger.trace("Starting read for " + socketChannel.socket());
 
+            long sentNs = traceSentNs;
+            long parseStartNs = sentNs != 0 ? System.nanoTime() : 0;
             request.parseResponse(new DataInputStream(inputStream));
+            if(sentNs != 0) {
+                RequestPhaseStats phaseStats = RequestPhaseStats.getInstance();
+                phaseStats.record(RequestPhase.NETWORK, parseStartNs - sentNs);
+                phaseStats.record(RequestPhase.SERIALIZATION, traceSerializationNs
+                                                              + System.nanoTime()
+                                                              - parseStartNs);
+            }
 
             // At this point we've completed a full stand-alone request. So
             // clear our input buffer and prepare for outputting back to the
@@ -16,6 +16,10 @@
 
 package voldemort.store.socket.clientrequest;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -34,6 +38,10 @@ import voldemort.store.socket.SocketStore;
 import voldemort.store.socket.SocketStoreFactory;
 import voldemort.store.stats.ClientSocketStats;
 import voldemort.store.stats.ClientSocketStatsJmx;
+import voldemort.store.stats.ConcurrentHistogram;
+import voldemort.store.stats.RequestPhase;
+import voldemort.store.stats.RequestPhaseStats;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.JmxUtils;
 import voldemort.utils.Time;
 import voldemort.utils.Utils;
@@ -59,12 +67,19 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
     public static final Boolean DEFAULT_JMX_ENABLED = false;
     public static final String DEFAULT_IDENTIFIER_STRING = "";
     public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT_MS  = -1 ; //Disabled by default.
+    public static final long DEFAULT_POOL_RESIZE_INTERVAL_MS = -1; // Disabled by default.
 
     private final QueuedKeyedResourcePool<SocketDestination, ClientRequestExecutor> queuedPool;
     private final ClientRequestExecutorFactory factory;
     private final ClientSocketStats stats;
     private final boolean jmxEnabled;
     private final String identifierString;
+    private final int minConnectionsPerNode;
+    private final int maxConnectionsPerNode;
+    private final ScheduledExecutorService poolSizer;
+    // queue length histograms of each destination at its last resize, so that
+    // resizing does not reset the histograms exposed by JMX
+    private final Map<SocketDestination, QueueLengthMarks> resizeMarks = new HashMap<SocketDestination, QueueLengthMarks>();
 
     private final Logger logger = Logger.getLogger(ClientRequestExecutorPool.class);
 
@@ -82,6 +97,44 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
                                      boolean socketKeepAlive,
                                      boolean jmxEnabled,
                                      String identifierString) {
+        this(selectors,
+             maxConnectionsPerNode,
+             maxConnectionsPerNode,
+             DEFAULT_POOL_RESIZE_INTERVAL_MS,
+             connectionTimeoutMs,
+             soTimeoutMs,
+             idleConnectionTimeoutMs,
+             socketBufferSize,
+             socketKeepAlive,
+             jmxEnabled,
+             identifierString);
+    }
+
+    /**
+     * @param minConnectionsPerNode The size below which the pool of a
+     *        destination is never shrunk
+     * @param maxConnectionsPerNode The size above which the pool of a
+     *        destination is never grown
+     * @param poolResizeIntervalMs The interval at which the pool of every
+     *        destination is resized to the concurrency observed in the
+     *        interval; zero or negative to keep every pool at
+     *        maxConnectionsPerNode
+     */
+    public ClientRequestExecutorPool(int selectors,
+                                     int minConnectionsPerNode,
+                                     int maxConnectionsPerNode,
+                                     long poolResizeIntervalMs,
+                                     int connectionTimeoutMs,
+                                     int soTimeoutMs,
+                                     long idleConnectionTimeoutMs,
+                                     int socketBufferSize,
+                                     boolean socketKeepAlive,
+                                     boolean jmxEnabled,
+                                     String identifierString) {
+        if(minConnectionsPerNode <= 0 || minConnectionsPerNode > maxConnectionsPerNode)
+            throw new IllegalArgumentException("minConnectionsPerNode must be between 1 and maxConnectionsPerNode");
+        this.minConnectionsPerNode = minConnectionsPerNode;
+        this.maxConnectionsPerNode = maxConnectionsPerNode;
         ResourcePoolConfig config = new ResourcePoolConfig().setIsFair(true)
                                                             .setMaxPoolSize(maxConnectionsPerNode)
                                                             .setMaxInvalidAttempts(maxConnectionsPerNode)
@@ -92,6 +145,10 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         if(this.jmxEnabled) {
             stats = new ClientSocketStats(identifierString);
             JmxUtils.registerMbean(new ClientSocketStatsJmx(stats), getAggregateMetricName());
+        } else if(poolResizeIntervalMs > 0) {
+            // the pools are resized from the stats, which are then kept
+            // without exposing them through JMX
+            stats = new ClientSocketStats(identifierString, false);
         } else {
             stats = null;
         }
@@ -109,6 +166,23 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         if(stats != null) {
             this.stats.setPool(queuedPool);
         }
+
+        if(poolResizeIntervalMs > 0) {
+            this.poolSizer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("voldemort-pool-sizer"
+                                                                                                + identifierString));
+            this.poolSizer.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    try {
+                        resizePools();
+                    } catch(Exception e) {
+                        logger.error("Failed to resize the connection pools", e);
+                    }
+                }
+            }, poolResizeIntervalMs, poolResizeIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.poolSizer = null;
+        }
     }
 
     public ClientRequestExecutorPool(int selectors,
@@ -204,9 +278,22 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
      */
 
     public ClientRequestExecutor checkout(SocketDestination destination) {
-        // timing instrumentation (stats only)
+        return checkout(destination, RequestPhaseStats.NOT_TRACED);
+    }
+
+    /**
+     * Checkout a socket from the pool for a request
+     * 
+     * @param destination The socket destination you want to connect to
+     * @param traceId The trace id of the request the socket is for
+     * @return The socket
+     */
+
+    public ClientRequestExecutor checkout(SocketDestination destination, long traceId) {
+        // timing instrumentation (stats and sampled requests only)
         long startTimeNs = 0;
-        if(stats != null) {
+        boolean sampled = traceId != RequestPhaseStats.NOT_TRACED;
+        if(stats != null || sampled) {
             startTimeNs = System.nanoTime();
         }
 
@@ -231,6 +318,10 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
                 stats.recordCheckoutQueueLength(destination,
                                                 queuedPool.getBlockingGetsCount(destination));
             }
+            if(sampled) {
+                RequestPhaseStats.getInstance().record(RequestPhase.CHECKOUT,
+                                                       System.nanoTime() - startTimeNs);
+            }
         }
         return clientRequestExecutor;
     }
@@ -251,6 +342,68 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
     }
 
 
+    private static class QueueLengthMarks {
+
+        final ConcurrentHistogram.Mark checkoutQueueLength;
+        final ConcurrentHistogram.Mark resourceRequestQueueLength;
+
+        QueueLengthMarks(ClientSocketStats nodeStats) {
+            this.checkoutQueueLength = nodeStats.getCheckoutQueueLengthHistogram().mark();
+            this.resourceRequestQueueLength = nodeStats.getResourceRequestQueueLengthHistogram()
+                                                       .mark();
+        }
+    }
+
+    /**
+     * Resizes the pool of every destination to the concurrency observed since
+     * the last resize. A pool grows by half, up to maxConnectionsPerNode, if
+     * more than one percent of its checkouts found other requests queued for a
+     * connection. Otherwise it gives up half of its idle connections, down to
+     * minConnectionsPerNode.
+     */
+    public synchronized void resizePools() {
+        for(Map.Entry<SocketDestination, ClientSocketStats> entry: stats.getStatsMap().entrySet()) {
+            SocketDestination destination = entry.getKey();
+            ClientSocketStats nodeStats = entry.getValue();
+            QueueLengthMarks lastMarks = resizeMarks.get(destination);
+            QueueLengthMarks marks = new QueueLengthMarks(nodeStats);
+            resizeMarks.put(destination, marks);
+            long queueLength = Math.max(nodeStats.getCheckoutQueueLengthHistogram()
+                                                 .getSnapshot(lastMarks == null ? null
+                                                                               : lastMarks.checkoutQueueLength,
+                                                              marks.checkoutQueueLength)
+                                                 .getValueAtQuantile(0.99),
+                                        nodeStats.getResourceRequestQueueLengthHistogram()
+                                                 .getSnapshot(lastMarks == null ? null
+                                                                               : lastMarks.resourceRequestQueueLength,
+                                                              marks.resourceRequestQueueLength)
+                                                 .getValueAtQuantile(0.99));
+
+            int maxPoolSize = queuedPool.getMaxPoolSize(destination);
+            int total = queuedPool.getTotalResourceCount(destination);
+            int idle = queuedPool.getCheckedInResourcesCount(destination);
+            int newMaxPoolSize = maxPoolSize;
+            if(queueLength > 0) {
+                if(total >= maxPoolSize)
+                    newMaxPoolSize = Math.min(maxConnectionsPerNode,
+                                              maxPoolSize + Math.max(1, maxPoolSize / 2));
+            } else if(idle > 0) {
+                newMaxPoolSize = Math.max(minConnectionsPerNode, Math.min(maxPoolSize, total)
+                                                                 - (idle + 1) / 2);
+            }
+
+            if(newMaxPoolSize != maxPoolSize) {
+                if(logger.isDebugEnabled()) {
+                    logger.debug("Resizing the connection pool of " + destination + " from "
+                                 + maxPoolSize + " to " + newMaxPoolSize + " (connections: "
+                                 + total + ", idle: " + idle + ", queued checkouts: "
+                                 + queueLength + ")");
+                }
+                queuedPool.setMaxPoolSize(destination, newMaxPoolSize);
+            }
+        }
+    }
+
     /**
      * Used only for testing. Don't take a production dependency
      * 
@@ -278,6 +431,9 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
      */
     @Override
     public void close() {
+        if(poolSizer != null) {
+            poolSizer.shutdownNow();
+        }
         // unregister MBeans
         if(stats != null) {
             try {
@@ -350,6 +506,9 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
         @Override
         public void useResource(ClientRequestExecutor clientRequestExecutor) {
             updateStats();
+            if(delegate.getTraceId() != RequestPhaseStats.NOT_TRACED)
+                RequestPhaseStats.getInstance().record(RequestPhase.CHECKOUT,
+                                                       System.nanoTime() - startTimeNs);
             if(logger.isDebugEnabled()) {
                 logger.debug("Async request start; type: "
                              + operationName
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket.clientrequest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.client.protocol.RequestFormat;
+import voldemort.common.nio.ByteBufferBackedOutputStream;
+import voldemort.server.RequestRoutingType;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Version;
+
+public class GetMerkleLeafVersionsClientRequest extends
+        AbstractStoreClientRequest<Map<ByteArray, List<Version>>> {
+
+    private final int partition;
+    private final int depth;
+    private final Collection<Integer> leaves;
+
+    public GetMerkleLeafVersionsClientRequest(String storeName,
+                                              RequestFormat requestFormat,
+                                              RequestRoutingType requestRoutingType,
+                                              int partition,
+                                              int depth,
+                                              Collection<Integer> leaves) {
+        super(storeName, requestFormat, requestRoutingType);
+        this.partition = partition;
+        this.depth = depth;
+        this.leaves = leaves;
+    }
+
+    public boolean isCompleteResponse(ByteBuffer buffer) {
+        return requestFormat.isCompleteGetMerkleLeafVersionsResponse(buffer);
+    }
+
+    @Override
+    protected void formatRequestInternal(ByteBufferBackedOutputStream outputStream)
+            throws IOException {
+        requestFormat.writeGetMerkleLeafVersionsRequest(new DataOutputStream(outputStream),
+                                                        storeName,
+                                                        partition,
+                                                        depth,
+                                                        leaves,
+                                                        requestRoutingType);
+    }
+
+    @Override
+    protected Map<ByteArray, List<Version>> parseResponseInternal(DataInputStream inputStream)
+            throws IOException {
+        return requestFormat.readGetMerkleLeafVersionsResponse(inputStream);
+    }
+
+}
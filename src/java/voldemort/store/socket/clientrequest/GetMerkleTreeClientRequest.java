@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket.clientrequest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import voldemort.client.protocol.RequestFormat;
+import voldemort.common.nio.ByteBufferBackedOutputStream;
+import voldemort.server.RequestRoutingType;
+import voldemort.utils.MerkleTree;
+
+public class GetMerkleTreeClientRequest extends AbstractStoreClientRequest<MerkleTree> {
+
+    private final int partition;
+    private final int depth;
+
+    public GetMerkleTreeClientRequest(String storeName,
+                                      RequestFormat requestFormat,
+                                      RequestRoutingType requestRoutingType,
+                                      int partition,
+                                      int depth) {
+        super(storeName, requestFormat, requestRoutingType);
+        this.partition = partition;
+        this.depth = depth;
+    }
+
+    public boolean isCompleteResponse(ByteBuffer buffer) {
+        return requestFormat.isCompleteGetMerkleTreeResponse(buffer);
+    }
+
+    @Override
+    protected void formatRequestInternal(ByteBufferBackedOutputStream outputStream)
+            throws IOException {
+        requestFormat.writeGetMerkleTreeRequest(new DataOutputStream(outputStream),
+                                                storeName,
+                                                partition,
+                                                depth,
+                                                requestRoutingType);
+    }
+
+    @Override
+    protected MerkleTree parseResponseInternal(DataInputStream inputStream) throws IOException {
+        return requestFormat.readGetMerkleTreeResponse(inputStream);
+    }
+
+}
@@ -135,4 +135,9 @@ public class NonblockingStoreCallbackClientRequest<T> implements ClientRequest<T
     public boolean isTimedOut() {
         return clientRequest.isTimedOut();
     }
+
+    @Override
+    public long getTraceId() {
+        return clientRequest.getTraceId();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket.clientrequest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.client.protocol.RequestFormat;
+import voldemort.common.nio.ByteBufferBackedOutputStream;
+import voldemort.server.RequestRoutingType;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+public class PutAllClientRequest extends
+        AbstractStoreClientRequest<Map<ByteArray, VoldemortException>> {
+
+    private final Map<ByteArray, Versioned<byte[]>> entries;
+    private final Map<ByteArray, byte[]> transforms;
+
+    public PutAllClientRequest(String storeName,
+                               RequestFormat requestFormat,
+                               RequestRoutingType requestRoutingType,
+                               Map<ByteArray, Versioned<byte[]>> entries,
+                               Map<ByteArray, byte[]> transforms) {
+        super(storeName, requestFormat, requestRoutingType);
+        this.entries = entries;
+        this.transforms = transforms;
+    }
+
+    public boolean isCompleteResponse(ByteBuffer buffer) {
+        return requestFormat.isCompletePutAllResponse(buffer);
+    }
+
+    @Override
+    protected void formatRequestInternal(ByteBufferBackedOutputStream outputStream)
+            throws IOException {
+        requestFormat.writePutAllRequest(new DataOutputStream(outputStream),
+                                         storeName,
+                                         entries,
+                                         transforms,
+                                         requestRoutingType);
+    }
+
+    @Override
+    protected Map<ByteArray, VoldemortException> parseResponseInternal(DataInputStream inputStream)
+            throws IOException {
+        return requestFormat.readPutAllResponse(inputStream);
+    }
+
+}
@@ -81,11 +81,15 @@ public class ClientSocketStats {
     // The histograms will be reset after monitoringInterval
     private final AtomicInteger monitoringInterval = new AtomicInteger(60000);
     private long startMs;
-    // FIXME: Change this for a Tehuti Histogram
-    private final Histogram checkoutQueueLengthHistogram = new Histogram(250, 1);
-    private final Histogram resourceRequestQueueLengthHistogram = new Histogram(250, 1);
+    private static final long MAX_QUEUE_LENGTH = 100000;
+    private final ConcurrentHistogram checkoutQueueLengthHistogram =
+            new ConcurrentHistogram(MAX_QUEUE_LENGTH, 0);
+    private final ConcurrentHistogram resourceRequestQueueLengthHistogram =
+            new ConcurrentHistogram(MAX_QUEUE_LENGTH, 0);
 
     private final String identifierString;
+    // whether the per node stats are registered as MBeans
+    private final boolean jmxEnabled;
     private static final Logger logger = Logger.getLogger(ClientSocketStats.class.getName());
 
     private final Map<Tracked, AtomicInteger> counters;
@@ -125,6 +129,7 @@ public class ClientSocketStats {
         this.destination = destination;
         this.pool = pool;
         this.identifierString = identifierString;
+        this.jmxEnabled = parent.jmxEnabled;
         this.startMs = SystemTime.INSTANCE.getMilliseconds();
         counters = new EnumMap<Tracked, AtomicInteger>(Tracked.class);
         for(Tracked tracked: Tracked.values()) {
@@ -144,11 +149,22 @@ public class ClientSocketStats {
      * @param identifierString The string of identifier
      */
     public ClientSocketStats(String identifierString) {
+        this(identifierString, true);
+    }
+
+    /**
+     * Construction of a new aggregate stats object
+     * 
+     * @param identifierString The string of identifier
+     * @param jmxEnabled Whether to register the per node stats as MBeans
+     */
+    public ClientSocketStats(String identifierString, boolean jmxEnabled) {
         this.parent = null;
         this.statsMap = new ConcurrentHashMap<SocketDestination, ClientSocketStats>();
         this.destination = null;
         this.pool = null;
         this.identifierString = identifierString;
+        this.jmxEnabled = jmxEnabled;
         this.startMs = SystemTime.INSTANCE.getMilliseconds();
         counters = new EnumMap<Tracked, AtomicInteger>(Tracked.class);
         for(Tracked tracked: Tracked.values()) {
@@ -190,13 +206,14 @@ public class ClientSocketStats {
             stats = statsMap.putIfAbsent(destination, socketStats);
             if(stats == null) {
                 stats = socketStats;
-                JmxUtils.registerMbean(new ClientSocketStatsJmx(stats),
-                                       JmxUtils.createObjectName(JmxUtils.getPackageName(ClientRequestExecutor.class),
-                                                                 "stats_"
-                                                                         + destination.toString()
-                                                                                      .replace(':',
-                                                                                               '_')
-                                                                         + identifierString));
+                if(jmxEnabled)
+                    JmxUtils.registerMbean(new ClientSocketStatsJmx(stats),
+                                           JmxUtils.createObjectName(JmxUtils.getPackageName(ClientRequestExecutor.class),
+                                                                     "stats_"
+                                                                             + destination.toString()
+                                                                                          .replace(':',
+                                                                                                   '_')
+                                                                             + identifierString));
             }
         }
         return stats;
@@ -285,7 +302,7 @@ public class ClientSocketStats {
             getOrCreateNodeStats(dest).recordCheckoutQueueLength(null, queueLength);
             recordCheckoutQueueLength(null, queueLength);
         } else {
-            this.checkoutQueueLengthHistogram.insert(queueLength);
+            this.checkoutQueueLengthHistogram.record(queueLength);
             checkMonitoringInterval();
         }
     }
@@ -323,7 +340,7 @@ public class ClientSocketStats {
             getOrCreateNodeStats(dest).recordResourceRequestQueueLength(null, queueLength);
             recordResourceRequestQueueLength(null, queueLength);
         } else {
-            this.resourceRequestQueueLengthHistogram.insert(queueLength);
+            this.resourceRequestQueueLengthHistogram.record(queueLength);
             checkMonitoringInterval();
         }
     }
@@ -362,7 +379,7 @@ public class ClientSocketStats {
         return checkoutTimeRequestCounter.getQ99LatencyMs();
     }
 
-    public Histogram getCheckoutQueueLengthHistogram() {
+    public ConcurrentHistogram getCheckoutQueueLengthHistogram() {
         checkMonitoringInterval();
         return this.checkoutQueueLengthHistogram;
     }
@@ -391,7 +408,7 @@ public class ClientSocketStats {
         return resourceRequestTimeRequestCounter.getQ99LatencyMs();
     }
 
-    public Histogram getResourceRequestQueueLengthHistogram() {
+    public ConcurrentHistogram getResourceRequestQueueLengthHistogram() {
         checkMonitoringInterval();
         return this.resourceRequestQueueLengthHistogram;
     }
@@ -435,6 +452,10 @@ public class ClientSocketStats {
         return this.syncOpTimeRequestCounter.getQ99LatencyMs();
     }
 
+    public double getSyncOpTimeMsQ999th() {
+        return this.syncOpTimeRequestCounter.getQ999LatencyMs();
+    }
+
     // Getters for async op time
     public double getAsyncOpTimeMsAvg() {
         return this.asynOpTimeRequestCounter.getAverageTimeInMs();
@@ -448,6 +469,10 @@ public class ClientSocketStats {
         return this.asynOpTimeRequestCounter.getQ99LatencyMs();
     }
 
+    public double getAsyncOpTimeMsQ999th() {
+        return this.asynOpTimeRequestCounter.getQ999LatencyMs();
+    }
+
     // Config & administrivia interfaces
 
     public void setMonitoringInterval(int count) {
@@ -479,7 +504,7 @@ public class ClientSocketStats {
     /**
      * Reset all of the stats counters
      */
-    protected void resetForInterval() {
+    public void resetForInterval() {
         // harmless race conditions amongst all of this counter resetting:
         this.checkoutQueueLengthHistogram.reset();
         this.resourceRequestQueueLengthHistogram.reset();
@@ -502,6 +527,8 @@ public class ClientSocketStats {
      * Unregister all MBeans
      */
     public void close() {
+        if(!jmxEnabled)
+            return;
         Iterator<SocketDestination> it = getStatsMap().keySet().iterator();
         while(it.hasNext()) {
             try {
@@ -127,6 +127,11 @@ public class ClientSocketStatsJmx {
     public double getSyncOpTimeMsQ99th() {
         return stats.getSyncOpTimeMsQ99th();
     }
+
+    @JmxGetter(name = "syncOpTimeMsQ999th", description = "99.9th percentile time (ms) to do a sync operation. Aggregate measure based on current monitoring interval.")
+    public double getSyncOpTimeMsQ999th() {
+        return stats.getSyncOpTimeMsQ999th();
+    }
     
     @JmxGetter(name = "asyncOpTimeMsAverage", description = "Average time (ms) to do an async operation.. Aggregate measure based on current monitoring interval.")
     public double getAsyncOpTimeMsAverage() {
@@ -143,6 +148,11 @@ public class ClientSocketStatsJmx {
         return stats.getAsyncOpTimeMsQ99th();
     }
 
+    @JmxGetter(name = "asyncOpTimeMsQ999th", description = "99.9th percentile time (ms) to do an async operation. Aggregate measure based on current monitoring interval.")
+    public double getAsyncOpTimeMsQ999th() {
+        return stats.getAsyncOpTimeMsQ999th();
+    }
+
     @JmxGetter(name = "resourceRequestQueueLengthQ50th", description = "50th percentile asynchronous queue length to get a connection. Aggregate measure based on current monitoring interval.")
     public double getResourceRequestQueueLengthQ50th() {
         return stats.getResourceRequestQueueLengthHistogram().getQuantile(0.5);
@@ -56,6 +56,17 @@ public class ClusterWideCounter {
         counter.incrementAndGet();
     }
 
+    public void addCount(int nodeId, long delta) {
+        AtomicLong counter = values.get(nodeId);
+        if(counter == null) {
+            counter = new AtomicLong(0L);
+            AtomicLong existing = values.putIfAbsent(nodeId, counter);
+            if(existing != null)
+                counter = existing;
+        }
+        counter.addAndGet(delta);
+    }
+
     public void clearCount() {
         for(AtomicLong counter: values.values())
             counter.set(0L);
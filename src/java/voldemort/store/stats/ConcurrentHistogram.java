@@ -0,0 +1,286 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import voldemort.annotations.concurrency.Threadsafe;
+
+/**
+ * A histogram of non negative values with a bounded relative error, in the
+ * spirit of HdrHistogram.
+ *
+ * Values below 128 get a bucket each, larger values share log-linear buckets
+ * no wider than 1/64th of the values they hold. Recording a value is a single
+ * atomic increment on one of a few stripes picked by thread, so writers never
+ * block each other or the readers.
+ *
+ * Counts are cumulative. A {@link Snapshot} is the difference between the
+ * current counts and the counts saved at the start of the previous window, so
+ * it covers between one and two windows and never loses a value recorded
+ * concurrently: such a value simply shows up in the next snapshot.
+ */
+@Threadsafe
+public class ConcurrentHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+    static final int DEFAULT_STRIPES = 4;
+
+    private final long highestValue;
+    private final int numBuckets;
+    private final int stripeMask;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray sums;
+    private final long windowMs;
+
+    // guarded by this, only touched by readers. The last element of the
+    // boundaries is the sum of the values
+    private long[] previousBoundary;
+    private long[] currentBoundary;
+    private long currentBoundaryMs;
+
+    /**
+     * @param highestValue Larger values are recorded as this value
+     * @param windowMs Length of a window, or 0 to only start a new window on
+     *        {@link #reset()}
+     */
+    public ConcurrentHistogram(long highestValue, long windowMs) {
+        this(highestValue, windowMs, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param highestValue Larger values are recorded as this value
+     * @param windowMs Length of a window, or 0 to only start a new window on
+     *        {@link #reset()}
+     * @param stripes Number of independent counter arrays, rounded up to a
+     *        power of two
+     */
+    public ConcurrentHistogram(long highestValue, long windowMs, int stripes) {
+        this(highestValue, windowMs, stripes, System.currentTimeMillis());
+    }
+
+    ConcurrentHistogram(long highestValue, long windowMs, int stripes, long startMs) {
+        if(highestValue < 1)
+            throw new IllegalArgumentException("Highest value must be positive");
+        if(stripes < 1)
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        this.highestValue = highestValue;
+        this.numBuckets = bucketIndex(highestValue) + 1;
+        int roundedStripes = Integer.highestOneBit(stripes);
+        if(roundedStripes < stripes)
+            roundedStripes <<= 1;
+        this.stripeMask = roundedStripes - 1;
+        this.counts = new AtomicLongArray(roundedStripes * numBuckets);
+        this.sums = new AtomicLongArray(roundedStripes);
+        this.windowMs = windowMs;
+        this.previousBoundary = new long[numBuckets + 1];
+        this.currentBoundary = previousBoundary;
+        this.currentBoundaryMs = startMs;
+    }
+
+    static int bucketIndex(long value) {
+        if(value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift)
+               - HALF_SUB_BUCKETS;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if(index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long mantissa = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are ignored.
+     */
+    public void record(long value) {
+        if(value < 0)
+            return;
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * numBuckets + bucketIndex(Math.min(value, highestValue)));
+        sums.addAndGet(stripe, value);
+    }
+
+    private long[] cumulativeCounts() {
+        long[] total = new long[numBuckets + 1];
+        for(int i = 0; i < counts.length(); i++)
+            total[i % numBuckets] += counts.get(i);
+        for(int i = 0; i < sums.length(); i++)
+            total[numBuckets] += sums.get(i);
+        return total;
+    }
+
+    /**
+     * Starts a new window, forgetting everything recorded so far
+     */
+    public synchronized void reset() {
+        reset(System.currentTimeMillis());
+    }
+
+    synchronized void reset(long nowMs) {
+        this.currentBoundary = cumulativeCounts();
+        this.previousBoundary = currentBoundary;
+        this.currentBoundaryMs = nowMs;
+    }
+
+    /**
+     * @return The values recorded since the start of the previous window
+     */
+    public Snapshot getSnapshot() {
+        return getSnapshot(System.currentTimeMillis());
+    }
+
+    synchronized Snapshot getSnapshot(long nowMs) {
+        long[] current = cumulativeCounts();
+        if(windowMs > 0 && nowMs - currentBoundaryMs >= windowMs) {
+            previousBoundary = currentBoundary;
+            currentBoundary = current;
+            currentBoundaryMs = nowMs;
+        }
+        return getSnapshot(previousBoundary, current);
+    }
+
+    /**
+     * @return The position of the histogram now. Unlike {@link #reset()},
+     *         taking a mark leaves the windows alone.
+     */
+    public Mark mark() {
+        return new Mark(this, cumulativeCounts());
+    }
+
+    /**
+     * @param from Start of the interval, or null for the creation of the
+     *        histogram
+     * @param to End of the interval
+     * @return The values recorded between two marks of this histogram
+     */
+    public Snapshot getSnapshot(Mark from, Mark to) {
+        if((from != null && from.histogram != this) || to.histogram != this)
+            throw new IllegalArgumentException("Mark of another histogram");
+        return getSnapshot(from == null ? new long[numBuckets + 1] : from.counts, to.counts);
+    }
+
+    private Snapshot getSnapshot(long[] from, long[] to) {
+        long[] interval = new long[numBuckets];
+        long total = 0;
+        for(int i = 0; i < numBuckets; i++) {
+            interval[i] = to[i] - from[i];
+            total += interval[i];
+        }
+        return new Snapshot(interval, total, to[numBuckets] - from[numBuckets], highestValue);
+    }
+
+    /**
+     * @param quantile The quantile to find, between 0 and 1
+     * @return The value at the given quantile in the current snapshot
+     * @see Snapshot#getValueAtQuantile(double)
+     */
+    public long getQuantile(double quantile) {
+        return getSnapshot().getValueAtQuantile(quantile);
+    }
+
+    /**
+     * @return The average of the values in the current snapshot
+     */
+    public double getAverage() {
+        return getSnapshot().getAverage();
+    }
+
+    /**
+     * Position of a histogram, see {@link ConcurrentHistogram#mark()}
+     */
+    public static class Mark {
+
+        private final ConcurrentHistogram histogram;
+        private final long[] counts;
+
+        private Mark(ConcurrentHistogram histogram, long[] counts) {
+            this.histogram = histogram;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Immutable view of the values recorded in an interval
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long totalCount;
+        private final long sum;
+        private final long highestValue;
+
+        private Snapshot(long[] counts, long totalCount, long sum, long highestValue) {
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.sum = sum;
+            this.highestValue = highestValue;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * @return The exact average of the values, including the ones above
+         *         the highest value of the histogram, or 0 if nothing was
+         *         recorded
+         */
+        public double getAverage() {
+            if(totalCount == 0)
+                return 0.0;
+            return (double) sum / totalCount;
+        }
+
+        /**
+         * @param quantile The quantile to find, between 0 and 1
+         * @return The smallest value at or above the given fraction of the
+         *         values, within the precision of the histogram, or 0 if
+         *         nothing was recorded
+         */
+        public long getValueAtQuantile(double quantile) {
+            if(totalCount == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank)
+                    return Math.min(highestEquivalentValue(i), highestValue);
+            }
+            return getMaxValue();
+        }
+
+        /**
+         * @return The largest value recorded, within the precision of the
+         *         histogram, or 0 if nothing was recorded
+         */
+        public long getMaxValue() {
+            for(int i = counts.length - 1; i >= 0; i--) {
+                if(counts[i] > 0)
+                    return Math.min(highestEquivalentValue(i), highestValue);
+            }
+            return 0;
+        }
+    }
+}
@@ -26,7 +26,6 @@ import io.tehuti.utils.Time;
 import io.tehuti.utils.SystemTime;
 import org.apache.log4j.Logger;
 
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,8 +45,6 @@ public class RequestCounter {
     private Metric
             // Averages
             latencyAverage, valueBytesAverage, keyBytesAverage,
-            // Percentiles
-            latency10thPercentile, latency50thPercentile, latency95thPercentile, latency99thPercentile,
             // Maximums
             latencyMax, valueBytesMax, keyBytesMax, getAllKeysCountMax,
             // Sampled Totals
@@ -61,6 +58,13 @@ public class RequestCounter {
 
     private MetricsRepository metricsRepository;
 
+    // Latency percentiles, in us
+    private final ConcurrentHistogram latencyHistogram;
+    private final RequestCounter[] parents;
+
+    // Latencies above this many us are recorded as this value in the histogram
+    private static final long HISTOGRAM_HIGHEST_LATENCY_US = 60 * voldemort.utils.Time.US_PER_SECOND;
+
     private static final Logger logger = Logger.getLogger(RequestCounter.class.getName());
 
     public RequestCounter(String name, long durationMs) {
@@ -137,17 +141,14 @@ public class RequestCounter {
         String timeSensorName = name + ".time";
         this.timeSensor =
                 metricsRepository.sensor(timeSensorName, metricConfig, timeParentSensors);
+        this.parents = parents;
         if (useHistogram) {
-            Percentiles timePercentiles = new Percentiles(40000, 10000, Percentiles.BucketSizing.LINEAR,
-                    new Percentile(timeSensorName + ".10thPercentile", 10),
-                    new Percentile(timeSensorName + ".50thPercentile", 50),
-                    new Percentile(timeSensorName + ".95thPercentile", 95),
-                    new Percentile(timeSensorName + ".99thPercentile", 99));
-            Map<String, Metric> percentiles = this.timeSensor.add(timePercentiles);
-            this.latency10thPercentile = percentiles.get(timeSensorName + ".10thPercentile");
-            this.latency50thPercentile = percentiles.get(timeSensorName + ".50thPercentile");
-            this.latency95thPercentile = percentiles.get(timeSensorName + ".95thPercentile");
-            this.latency99thPercentile = percentiles.get(timeSensorName + ".99thPercentile");
+            this.latencyHistogram = new ConcurrentHistogram(HISTOGRAM_HIGHEST_LATENCY_US,
+                                                            durationMs,
+                                                            ConcurrentHistogram.DEFAULT_STRIPES,
+                                                            time.milliseconds());
+        } else {
+            this.latencyHistogram = null;
         }
         this.latencyMax = this.timeSensor.add(timeSensorName + ".max", new Max(0));
         this.latencyAverage = this.timeSensor.add(timeSensorName + ".avg", new Avg());
@@ -279,6 +280,7 @@ public class RequestCounter {
         long currentTime = time.milliseconds();
 
         timeSensor.record((double) timeNS / voldemort.utils.Time.NS_PER_MS, currentTime);
+        recordLatency(timeNS / voldemort.utils.Time.NS_PER_US);
         emptyResponseKeysSensor.record(numEmptyResponses, currentTime);
         valueBytesSensor.record(valueBytes, currentTime);
         keyBytesSensor.record(keyBytes, currentTime);
@@ -290,6 +292,15 @@ public class RequestCounter {
         }
     }
 
+    private void recordLatency(long timeUs) {
+        if(latencyHistogram != null)
+            latencyHistogram.record(timeUs);
+        if(parents != null) {
+            for(RequestCounter parent: parents)
+                parent.recordLatency(timeUs);
+        }
+    }
+
     /**
      * @return the number of requests that have returned returned no value for the requested key. Tracked only for GET.
      */
@@ -341,18 +352,34 @@ public class RequestCounter {
     }
     
     public double getQ10LatencyMs() {
-        return latency10thPercentile.value();
+        return getLatencyMsAtQuantile(0.10);
     }
-    
+
     public double getQ50LatencyMs() {
-        return latency50thPercentile.value();
+        return getLatencyMsAtQuantile(0.50);
     }
-    
+
     public double getQ95LatencyMs() {
-        return latency95thPercentile.value();
+        return getLatencyMsAtQuantile(0.95);
     }
-    
+
     public double getQ99LatencyMs() {
-        return latency99thPercentile.value();
+        return getLatencyMsAtQuantile(0.99);
+    }
+
+    public double getQ999LatencyMs() {
+        return getLatencyMsAtQuantile(0.999);
+    }
+
+    /**
+     * @return The latency in ms at the given quantile over the last one to two
+     *         time windows, or 0 if this counter does not keep a histogram
+     */
+    public double getLatencyMsAtQuantile(double quantile) {
+        if(latencyHistogram == null)
+            return 0;
+        long latencyUs = latencyHistogram.getSnapshot(time.milliseconds())
+                                         .getValueAtQuantile(quantile);
+        return (double) latencyUs / voldemort.utils.Time.US_PER_MS;
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+/**
+ * The phases a request spends its time in, see {@link RequestPhaseStats}
+ */
+public enum RequestPhase {
+    /** Client waiting to check out a connection */
+    CHECKOUT("checkout"),
+    /** Client writing a request to and parsing a response from the wire */
+    SERIALIZATION("serialization"),
+    /** From sending a request until its whole response is in, server included */
+    NETWORK("network"),
+    /** Routing actions of a client pipeline, including waiting for responses */
+    ROUTING("routing"),
+    /** Read repair actions of a client pipeline */
+    READ_REPAIR("readRepair"),
+    /** Hinted handoff actions of a client pipeline */
+    HINTED_HANDOFF("hintedHandoff"),
+    /** Server connection ready, waiting behind the other connections selected */
+    SERVER_QUEUE("serverQueue"),
+    /** Server parsing, executing and answering a request */
+    SERVER_HANDLING("serverHandling"),
+    /** Server store stack below the request handler */
+    STORAGE("storage");
+
+    private final String name;
+
+    private RequestPhase(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.ObjectName;
+
+import voldemort.annotations.concurrency.Threadsafe;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxOperation;
+import voldemort.annotations.jmx.JmxSetter;
+import voldemort.utils.JmxUtils;
+import voldemort.utils.Time;
+
+/**
+ * Breaks the latency of sampled requests down into the {@link RequestPhase}s
+ * they went through, on the client and on the server.
+ *
+ * One in {@link #getSampleRate()} requests is timed. Whether a request is
+ * sampled is decided once, by {@link #startTrace()} when the client starts it,
+ * and a sampled request gets a trace id that the client sends to the servers
+ * with it. The thread working on a request makes its trace id current with
+ * {@link #setCurrentTraceId(Long)}, and each phase only reads the clock if the
+ * request it times is traced. Each phase keeps a {@link ConcurrentHistogram}
+ * of its durations, exported over JMX.
+ *
+ * A single instance is shared by all the clients and servers of a JVM.
+ */
+@Threadsafe
+public class RequestPhaseStats {
+
+    public static final int DEFAULT_SAMPLE_RATE = 100;
+
+    /**
+     * The trace id of the requests that are not sampled
+     */
+    public static final long NOT_TRACED = 0;
+
+    private static final long HIGHEST_DURATION_US = 60 * Time.US_PER_SECOND;
+
+    private static final RequestPhaseStats INSTANCE = new RequestPhaseStats(DEFAULT_SAMPLE_RATE,
+                                                                            StoreStats.timeWindow);
+
+    private static final ThreadLocal<Long> currentTraceId = new ThreadLocal<Long>();
+
+    private final Map<RequestPhase, ConcurrentHistogram> histograms;
+    private volatile int sampleRate;
+
+    private ObjectName jmxObjectName = null;
+    private int referenceCount = 0;
+
+    /**
+     * @param sampleRate Time one request in this many, 0 disables sampling
+     * @param windowMs Window of the phase histograms
+     */
+    public RequestPhaseStats(int sampleRate, long windowMs) {
+        setSampleRate(sampleRate);
+        this.histograms = new EnumMap<RequestPhase, ConcurrentHistogram>(RequestPhase.class);
+        for(RequestPhase phase: RequestPhase.values())
+            histograms.put(phase, new ConcurrentHistogram(HIGHEST_DURATION_US, windowMs));
+    }
+
+    /**
+     * @return The instance shared by the clients and servers of this JVM
+     */
+    public static RequestPhaseStats getInstance() {
+        return INSTANCE;
+    }
+
+    private boolean isSampled() {
+        int rate = sampleRate;
+        return rate == 1 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    /**
+     * Decides whether the request about to start is sampled
+     *
+     * @return A new trace id if the request is sampled, {@link #NOT_TRACED}
+     *         otherwise
+     */
+    public long startTrace() {
+        if(!isSampled())
+            return NOT_TRACED;
+        long traceId;
+        do {
+            traceId = ThreadLocalRandom.current().nextLong();
+        } while(traceId == NOT_TRACED);
+        return traceId;
+    }
+
+    /**
+     * @return The trace id of the request the current thread works on, or the
+     *         one {@link #startTrace()} gives if it works on none
+     */
+    public long getOrStartTrace() {
+        Long traceId = currentTraceId.get();
+        return traceId != null ? traceId : startTrace();
+    }
+
+    /**
+     * @return The trace id of the request the current thread works on, null
+     *         if it works on none
+     */
+    public static Long getCurrentTraceId() {
+        return currentTraceId.get();
+    }
+
+    /**
+     * @param traceId The trace id of the request the current thread works on,
+     *        null once it is done with it
+     */
+    public static void setCurrentTraceId(Long traceId) {
+        if(traceId == null)
+            currentTraceId.remove();
+        else
+            currentTraceId.set(traceId);
+    }
+
+    /**
+     * @return true if the request the current thread works on is sampled
+     */
+    public static boolean isCurrentTraced() {
+        Long traceId = currentTraceId.get();
+        return traceId != null && traceId != NOT_TRACED;
+    }
+
+    /**
+     * Records the time a sampled request spent in a phase
+     */
+    public void record(RequestPhase phase, long durationNs) {
+        histograms.get(phase).record(durationNs / Time.NS_PER_US);
+    }
+
+    public ConcurrentHistogram.Snapshot getSnapshot(RequestPhase phase) {
+        return histograms.get(phase).getSnapshot();
+    }
+
+    @JmxGetter(name = "sampleRate", description = "One in this many requests is timed, 0 if none is")
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @JmxSetter(name = "sampleRate", description = "Time one in this many requests, 0 to stop timing requests")
+    public void setSampleRate(int sampleRate) {
+        if(sampleRate < 0)
+            throw new IllegalArgumentException("Sample rate cannot be negative");
+        this.sampleRate = sampleRate;
+    }
+
+    @JmxOperation(description = "Latency in ms of the given phase at the given quantile, between 0 and 1")
+    public double getPhaseLatencyMs(String phaseName, double quantile) {
+        for(RequestPhase phase: RequestPhase.values()) {
+            if(phase.toString().equals(phaseName))
+                return (double) getSnapshot(phase).getValueAtQuantile(quantile) / Time.US_PER_MS;
+        }
+        throw new IllegalArgumentException("Unknown request phase " + phaseName);
+    }
+
+    @JmxGetter(name = "phaseLatenciesAsString", description = "Count and latency percentiles in ms of every request phase")
+    public String getPhaseLatenciesAsString() {
+        StringBuilder result = new StringBuilder("phase count avg q50 q99 q999 max\n");
+        for(RequestPhase phase: RequestPhase.values()) {
+            ConcurrentHistogram.Snapshot snapshot = getSnapshot(phase);
+            result.append(String.format("%s %d %.3f %.3f %.3f %.3f %.3f\n",
+                                        phase,
+                                        snapshot.getTotalCount(),
+                                        snapshot.getAverage() / Time.US_PER_MS,
+                                        (double) snapshot.getValueAtQuantile(0.5) / Time.US_PER_MS,
+                                        (double) snapshot.getValueAtQuantile(0.99) / Time.US_PER_MS,
+                                        (double) snapshot.getValueAtQuantile(0.999) / Time.US_PER_MS,
+                                        (double) snapshot.getMaxValue() / Time.US_PER_MS));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Clients and servers sharing this object register it once, the first
+     * caller registers the MBean. All callers increment the counter.
+     */
+    public synchronized void registerJmxIfRequired() {
+        referenceCount++;
+        if(jmxObjectName == null) {
+            jmxObjectName = JmxUtils.createObjectName(JmxUtils.getPackageName(getClass()),
+                                                      JmxUtils.getClassName(getClass()));
+            JmxUtils.registerMbean(this, jmxObjectName);
+        }
+    }
+
+    /**
+     * Last caller of this method will unregister the MBean. All callers
+     * decrement the counter.
+     */
+    public synchronized void unregisterJmxIfRequired() {
+        referenceCount--;
+        if(jmxObjectName != null && referenceCount <= 0) {
+            JmxUtils.unregisterMbean(jmxObjectName);
+            jmxObjectName = null;
+            referenceCount = 0;
+        }
+    }
+}
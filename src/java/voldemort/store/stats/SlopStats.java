@@ -62,6 +62,10 @@ public class SlopStats {
         counters.get(metric).incrementCount(nodeId);
     }
 
+    public void addCount(Tracked metric, int nodeId, long delta) {
+        counters.get(metric).addCount(nodeId, delta);
+    }
+
     public void setCount(Tracked metric, int nodeId, Long value) {
         counters.get(metric).setCount(nodeId, value);
     }
@@ -71,7 +75,10 @@ public class SlopStats {
     }
 
     public static enum Tracked {
-        OUTSTANDING("outstanding");
+        OUTSTANDING("outstanding"),
+        PENDING("pending"),
+        PUSHED("pushed"),
+        COALESCED("coalesced");
 
         private final String name;
 
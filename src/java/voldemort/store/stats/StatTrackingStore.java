@@ -37,6 +37,7 @@ import voldemort.versioning.Versioned;
 public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]> {
 
     private final StoreStats stats;
+    private final RequestPhase phase;
     
     private StoreStats getOrCreateStoreStats(Map<String, StoreStats> cachedStats,
                                                           StoreStats parentStats) {
@@ -59,11 +60,28 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
                              Map<String, StoreStats> cachedStats) {
         super(innerStore);
         this.stats = getOrCreateStoreStats(cachedStats, parentStats);
+        this.phase = null;
     }
 
     public StatTrackingStore(Store<ByteArray, byte[], byte[]> innerStore, StoreStats parentStats) {
+        this(innerStore, parentStats, (RequestPhase) null);
+    }
+
+    /**
+     * @param phase The phase the time spent in the inner store is recorded as
+     *        for the requests the clients traced, or null not to record it
+     */
+    public StatTrackingStore(Store<ByteArray, byte[], byte[]> innerStore,
+                             StoreStats parentStats,
+                             RequestPhase phase) {
         super(innerStore);
         this.stats = new StoreStats(getName(), parentStats);
+        this.phase = phase;
+    }
+
+    private void recordPhase(long durationNs) {
+        if(phase != null && RequestPhaseStats.isCurrentTraced())
+            RequestPhaseStats.getInstance().record(phase, durationNs);
     }
 
     @Override
@@ -75,7 +93,9 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
             stats.recordTime(Tracked.EXCEPTION, System.nanoTime() - start);
             throw e;
         } finally {
-            stats.recordDeleteTime(System.nanoTime() - start, key.get().length);
+            long duration = System.nanoTime() - start;
+            recordPhase(duration);
+            stats.recordDeleteTime(duration, key.get().length);
         }
     }
 
@@ -95,6 +115,7 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
             if(result != null) {
                 returningEmpty = result.size() == 0;
             }
+            recordPhase(duration);
             stats.recordGetVersionsTime(duration, returningEmpty);
         }
     }
@@ -119,6 +140,7 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
                     totalValueBytes += bytes.getValue().length;
                 }
             }
+            recordPhase(duration);
             stats.recordGetTime(duration, returningEmpty, totalValueBytes, key.get().length);
         }
     }
@@ -159,6 +181,7 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
                 }
             }
 
+            recordPhase(duration);
             stats.recordGetAllTime(duration,
                                    requestedValues,
                                    returnedValues,
@@ -180,12 +203,50 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
             stats.recordTime(Tracked.EXCEPTION, System.nanoTime() - start);
             throw e;
         } finally {
-            stats.recordPutTimeAndSize(System.nanoTime() - start,
+            long duration = System.nanoTime() - start;
+            recordPhase(duration);
+            stats.recordPutTimeAndSize(duration,
                                        value.getValue().length,
                                        key.get().length);
         }
     }
 
+    /**
+     * Every put of the batch is counted, each taking an equal share of the
+     * time of the batch
+     */
+    @Override
+    public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                     Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        Map<ByteArray, VoldemortException> failures = null;
+        long start = System.nanoTime();
+        try {
+            failures = getInnerStore().putAll(entries, transforms);
+            return failures;
+        } catch(VoldemortException e) {
+            stats.recordTime(Tracked.EXCEPTION, System.nanoTime() - start);
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            recordPhase(duration);
+            if(!entries.isEmpty()) {
+                long durationPerPut = duration / entries.size();
+                for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+                    VoldemortException failure = failures == null ? null
+                                                                  : failures.get(entry.getKey());
+                    if(failure instanceof ObsoleteVersionException)
+                        stats.recordTime(Tracked.OBSOLETE, durationPerPut);
+                    else if(failure != null)
+                        stats.recordTime(Tracked.EXCEPTION, durationPerPut);
+                    stats.recordPutTimeAndSize(durationPerPut,
+                                               entry.getValue().getValue().length,
+                                               entry.getKey().get().length);
+                }
+            }
+        }
+    }
+
     @Override
     public Object getCapability(StoreCapabilityType capability) {
         if(StoreCapabilityType.STAT_TRACKER.equals(capability))
@@ -262,6 +323,7 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
                 }
             }
 
+            recordPhase(duration);
             stats.recordGetAllTime(duration,
                                    requestedValues,
                                    returnedValues,
@@ -200,6 +200,10 @@ public class StoreStats {
         return counters.get(op).getQ99LatencyMs();
     }
 
+    public double getQ999LatencyInMs(Tracked op) {
+        return counters.get(op).getQ999LatencyMs();
+    }
+
     public Map<Tracked, RequestCounter> getCounters() {
         return Collections.unmodifiableMap(counters);
     }
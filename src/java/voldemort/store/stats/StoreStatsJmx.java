@@ -265,6 +265,31 @@ public class StoreStatsJmx {
         return stats.getQ99LatencyInMs(Tracked.DELETE);
     }
 
+    @JmxGetter(name = "q999PutLatencyInMs", description = "")
+    public double getQ999PutLatency() {
+        return stats.getQ999LatencyInMs(Tracked.PUT);
+    }
+
+    @JmxGetter(name = "q999GetLatencyInMs", description = "")
+    public double getQ999GetLatency() {
+        return stats.getQ999LatencyInMs(Tracked.GET);
+    }
+
+    @JmxGetter(name = "q999GetVersionsLatencyInMs", description = "")
+    public double getQ999GetVersionsLatency() {
+        return stats.getQ999LatencyInMs(Tracked.GET_VERSIONS);
+    }
+
+    @JmxGetter(name = "q999GetAllLatencyInMs", description = "")
+    public double getQ999GetAllLatency() {
+        return stats.getQ999LatencyInMs(Tracked.GET_ALL);
+    }
+
+    @JmxGetter(name = "q999DeleteLatencyInMs", description = "")
+    public double getQ999DeleteLatency() {
+        return stats.getQ999LatencyInMs(Tracked.DELETE);
+    }
+
     @JmxGetter(name = "maxPutSizeInBytes", description = "Maximum size of value returned in bytes by PUT.")
     public long getMaxPutSizeInBytes() {
         return stats.getMaxValueSizeInBytes(Tracked.PUT);
@@ -60,6 +60,12 @@ public class InconsistencyResolvingStore<K, V, T> extends DelegatingStore<K, V,
         return m;
     }
 
+    @Override
+    public Map<K, VoldemortException> putAll(Map<K, Versioned<V>> entries, Map<K, T> transforms)
+            throws VoldemortException {
+        return getInnerStore().putAll(entries, transforms);
+    }
+
     @Override
     public Object getCapability(StoreCapabilityType capability) {
         if(capability == StoreCapabilityType.INCONSISTENCY_RESOLVER)
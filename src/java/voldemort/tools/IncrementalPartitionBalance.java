@@ -0,0 +1,395 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.cluster.Cluster;
+import voldemort.cluster.Node;
+import voldemort.routing.RoutingStrategyType;
+import voldemort.store.StoreDefinition;
+import voldemort.utils.StoreDefinitionUtils;
+
+/**
+ * Maintains the utility of {@link PartitionBalance} under partition swaps.
+ *
+ * The utility only depends on how many partitions each node is a zone n-ary
+ * and a zone primary for, aggregated over the stores. A swap only changes the
+ * replicating nodes of the master partitions whose clockwise walk of the ring
+ * went over one of the two swapped partitions, so only those walks are
+ * redone. The utility computed this way is exactly the one PartitionBalance
+ * computes for the swapped cluster, down to the last bit of the double.
+ *
+ * {@link #getUtilityAfterSwap(int, int)} only reads the current state and may
+ * be called from many threads at once, as long as no swap is applied
+ * concurrently.
+ *
+ * Only the consistent and zone routing strategies are walked incrementally.
+ * If any store routes otherwise, every utility is recomputed by a full
+ * PartitionBalance of the swapped cluster instead, as it was done before.
+ */
+public class IncrementalPartitionBalance {
+
+    private final List<Integer> zoneIds;
+    private final Map<Integer, Integer> nodeIdToIndex;
+    private final int[] nodeIndexToZoneIndex;
+    private final int[][] zoneIndexToNodeIndexes;
+
+    private final int[] partitionToNodeIndex;
+    private final List<StoreBalance> stores;
+
+    private final int[] zonePrimaryCounts;
+    private final int[] naryCounts;
+
+    // only set when some routing strategy cannot be walked incrementally
+    private Cluster fullBalanceCluster;
+    private final List<StoreDefinition> storeDefs;
+    private double fullBalanceUtility;
+
+    /**
+     * Replicating nodes of every master partition for one exemplar store,
+     * weighted by the number of stores like it.
+     */
+    private static class StoreBalance {
+
+        final int weight;
+        final int numReplicas;
+        // null for the consistent routing strategy
+        final int[] zoneReplicationFactors;
+
+        final int[][] replicatingNodes;
+        // number of partitions the walk of each master partition went over
+        final int[] walkLengths;
+        // upper bound of the walk lengths
+        int maxWalkLength;
+
+        StoreBalance(int weight, int numReplicas, int[] zoneReplicationFactors, int numPartitions) {
+            this.weight = weight;
+            this.numReplicas = numReplicas;
+            this.zoneReplicationFactors = zoneReplicationFactors;
+            this.replicatingNodes = new int[numPartitions][];
+            this.walkLengths = new int[numPartitions];
+        }
+    }
+
+    /**
+     * Per-call scratch space, so that walks can run on many threads
+     */
+    private class Walk {
+
+        final int[] visitedNodes = new int[nodeIndexToZoneIndex.length];
+        final int[] zoneReplicasLeft = new int[zoneIds.size()];
+        final int[] replicatingNodes = new int[nodeIndexToZoneIndex.length];
+        int numReplicatingNodes;
+        int length;
+    }
+
+    public IncrementalPartitionBalance(Cluster cluster, List<StoreDefinition> storeDefs) {
+        this.zoneIds = new ArrayList<Integer>(cluster.getZoneIds());
+        Map<Integer, Integer> zoneIdToIndex = new HashMap<Integer, Integer>();
+        for(int zoneId: zoneIds)
+            zoneIdToIndex.put(zoneId, zoneIdToIndex.size());
+
+        this.nodeIdToIndex = new HashMap<Integer, Integer>();
+        this.nodeIndexToZoneIndex = new int[cluster.getNumberOfNodes()];
+        List<List<Integer>> nodesInZone = new ArrayList<List<Integer>>();
+        for(int i = 0; i < zoneIds.size(); i++)
+            nodesInZone.add(new ArrayList<Integer>());
+        for(Node node: cluster.getNodes()) {
+            int nodeIndex = nodeIdToIndex.size();
+            nodeIdToIndex.put(node.getId(), nodeIndex);
+            nodeIndexToZoneIndex[nodeIndex] = zoneIdToIndex.get(node.getZoneId());
+            nodesInZone.get(nodeIndexToZoneIndex[nodeIndex]).add(nodeIndex);
+        }
+        this.zoneIndexToNodeIndexes = new int[zoneIds.size()][];
+        for(int zoneIndex = 0; zoneIndex < zoneIds.size(); zoneIndex++) {
+            List<Integer> nodeIndexes = nodesInZone.get(zoneIndex);
+            zoneIndexToNodeIndexes[zoneIndex] = new int[nodeIndexes.size()];
+            for(int i = 0; i < nodeIndexes.size(); i++)
+                zoneIndexToNodeIndexes[zoneIndex][i] = nodeIndexes.get(i);
+        }
+
+        Node[] partitionToNode = cluster.getPartitionIdToNodeArray();
+        this.partitionToNodeIndex = new int[partitionToNode.length];
+        for(int partitionId = 0; partitionId < partitionToNode.length; partitionId++)
+            partitionToNodeIndex[partitionId] = nodeIdToIndex.get(partitionToNode[partitionId].getId());
+
+        this.zonePrimaryCounts = new int[nodeIndexToZoneIndex.length];
+        this.naryCounts = new int[nodeIndexToZoneIndex.length];
+        this.stores = new ArrayList<StoreBalance>();
+        this.storeDefs = storeDefs;
+        for(StoreDefinition storeDef: storeDefs) {
+            if(!isIncrementallySupported(storeDef)) {
+                this.fullBalanceCluster = cluster;
+                this.fullBalanceUtility = new PartitionBalance(cluster, storeDefs).getUtility();
+                return;
+            }
+        }
+
+        Walk walk = new Walk();
+        for(Map.Entry<StoreDefinition, Integer> entry: StoreDefinitionUtils.getUniqueStoreDefinitionsWithCounts(storeDefs)
+                                                                           .entrySet()) {
+            StoreDefinition storeDef = entry.getKey();
+            int[] zoneReplicationFactors = null;
+            if(RoutingStrategyType.ZONE_STRATEGY.equals(storeDef.getRoutingStrategyType())) {
+                zoneReplicationFactors = new int[zoneIds.size()];
+                for(Map.Entry<Integer, Integer> zoneEntry: storeDef.getZoneReplicationFactor()
+                                                                   .entrySet()) {
+                    Integer zoneIndex = zoneIdToIndex.get(zoneEntry.getKey());
+                    if(zoneIndex != null)
+                        zoneReplicationFactors[zoneIndex] = zoneEntry.getValue();
+                }
+            }
+            StoreBalance store = new StoreBalance(entry.getValue(),
+                                                  storeDef.getReplicationFactor(),
+                                                  zoneReplicationFactors,
+                                                  partitionToNodeIndex.length);
+            for(int masterPartitionId = 0; masterPartitionId < partitionToNodeIndex.length; masterPartitionId++) {
+                walk(store, masterPartitionId, -1, -1, walk);
+                store.replicatingNodes[masterPartitionId] = copyReplicatingNodes(walk);
+                store.walkLengths[masterPartitionId] = walk.length;
+                store.maxWalkLength = Math.max(store.maxWalkLength, walk.length);
+                count(store, store.replicatingNodes[masterPartitionId], 1, zonePrimaryCounts, naryCounts);
+            }
+            stores.add(store);
+        }
+    }
+
+    private static boolean isIncrementallySupported(StoreDefinition storeDef) {
+        return RoutingStrategyType.ZONE_STRATEGY.equals(storeDef.getRoutingStrategyType())
+               || RoutingStrategyType.CONSISTENT_STRATEGY.equals(storeDef.getRoutingStrategyType());
+    }
+
+    /**
+     * @return The utility of the current cluster, see
+     *         {@link PartitionBalance#getUtility()}
+     */
+    public double getUtility() {
+        if(fullBalanceCluster != null)
+            return fullBalanceUtility;
+        return getUtility(zonePrimaryCounts, naryCounts);
+    }
+
+    /**
+     * Computes the utility the cluster would have if the two partitions
+     * swapped nodes, without changing anything.
+     */
+    public double getUtilityAfterSwap(int partitionIdA, int partitionIdB) {
+        if(partitionToNodeIndex[partitionIdA] == partitionToNodeIndex[partitionIdB])
+            return getUtility();
+        if(fullBalanceCluster != null)
+            return new PartitionBalance(swapFullBalanceCluster(partitionIdA, partitionIdB),
+                                        storeDefs).getUtility();
+        int[] newZonePrimaryCounts = zonePrimaryCounts.clone();
+        int[] newNaryCounts = naryCounts.clone();
+        Walk walk = new Walk();
+        for(StoreBalance store: stores) {
+            for(int masterPartitionId: getAffectedMasterPartitions(store, partitionIdA, partitionIdB)) {
+                count(store,
+                      store.replicatingNodes[masterPartitionId],
+                      -1,
+                      newZonePrimaryCounts,
+                      newNaryCounts);
+                walk(store, masterPartitionId, partitionIdA, partitionIdB, walk);
+                count(store,
+                      walk.replicatingNodes,
+                      walk.numReplicatingNodes,
+                      1,
+                      newZonePrimaryCounts,
+                      newNaryCounts);
+            }
+        }
+        return getUtility(newZonePrimaryCounts, newNaryCounts);
+    }
+
+    /**
+     * Swaps the nodes of the two partitions, like
+     * {@link Repartitioner#swapPartitions(Cluster, int, int, int, int)} does
+     * to the cluster.
+     */
+    public void swapPartitions(int partitionIdA, int partitionIdB) {
+        if(partitionToNodeIndex[partitionIdA] == partitionToNodeIndex[partitionIdB])
+            return;
+        if(fullBalanceCluster != null) {
+            fullBalanceCluster = swapFullBalanceCluster(partitionIdA, partitionIdB);
+            fullBalanceUtility = new PartitionBalance(fullBalanceCluster, storeDefs).getUtility();
+        }
+        Walk walk = new Walk();
+        for(StoreBalance store: stores) {
+            for(int masterPartitionId: getAffectedMasterPartitions(store, partitionIdA, partitionIdB)) {
+                count(store, store.replicatingNodes[masterPartitionId], -1, zonePrimaryCounts, naryCounts);
+                walk(store, masterPartitionId, partitionIdA, partitionIdB, walk);
+                store.replicatingNodes[masterPartitionId] = copyReplicatingNodes(walk);
+                store.walkLengths[masterPartitionId] = walk.length;
+                store.maxWalkLength = Math.max(store.maxWalkLength, walk.length);
+                count(store, store.replicatingNodes[masterPartitionId], 1, zonePrimaryCounts, naryCounts);
+            }
+        }
+        int nodeIndexA = partitionToNodeIndex[partitionIdA];
+        partitionToNodeIndex[partitionIdA] = partitionToNodeIndex[partitionIdB];
+        partitionToNodeIndex[partitionIdB] = nodeIndexA;
+    }
+
+    private Cluster swapFullBalanceCluster(int partitionIdA, int partitionIdB) {
+        return Repartitioner.swapPartitions(fullBalanceCluster,
+                                            fullBalanceCluster.getNodeForPartitionId(partitionIdA)
+                                                              .getId(),
+                                            partitionIdA,
+                                            fullBalanceCluster.getNodeForPartitionId(partitionIdB)
+                                                              .getId(),
+                                            partitionIdB);
+    }
+
+    /**
+     * @return The master partitions whose walk went over either partition
+     */
+    private List<Integer> getAffectedMasterPartitions(StoreBalance store,
+                                                      int partitionIdA,
+                                                      int partitionIdB) {
+        int numPartitions = partitionToNodeIndex.length;
+        List<Integer> masterPartitionIds = new ArrayList<Integer>();
+        for(int distance = 0; distance < store.maxWalkLength; distance++) {
+            int masterPartitionId = (partitionIdA - distance + numPartitions) % numPartitions;
+            if(distance < store.walkLengths[masterPartitionId])
+                masterPartitionIds.add(masterPartitionId);
+        }
+        for(int distance = 0; distance < store.maxWalkLength; distance++) {
+            int masterPartitionId = (partitionIdB - distance + numPartitions) % numPartitions;
+            int distanceToA = (partitionIdA - masterPartitionId + numPartitions) % numPartitions;
+            if(distance < store.walkLengths[masterPartitionId]
+               && distanceToA >= store.walkLengths[masterPartitionId])
+                masterPartitionIds.add(masterPartitionId);
+        }
+        return masterPartitionIds;
+    }
+
+    /**
+     * Walks the ring clockwise from the master partition like the routing
+     * strategy of the store does, as if the two partitions had swapped nodes.
+     * Pass -1 for both partitions to walk the ring as it is.
+     */
+    private void walk(StoreBalance store,
+                      int masterPartitionId,
+                      int partitionIdA,
+                      int partitionIdB,
+                      Walk walk) {
+        int numPartitions = partitionToNodeIndex.length;
+        int numVisitedNodes = 0;
+        walk.numReplicatingNodes = 0;
+        walk.length = numPartitions;
+        if(store.zoneReplicationFactors != null)
+            System.arraycopy(store.zoneReplicationFactors,
+                             0,
+                             walk.zoneReplicasLeft,
+                             0,
+                             walk.zoneReplicasLeft.length);
+
+        int partitionId = masterPartitionId;
+        for(int i = 0; i < numPartitions; i++) {
+            int nodeIndex;
+            if(partitionId == partitionIdA)
+                nodeIndex = partitionToNodeIndex[partitionIdB];
+            else if(partitionId == partitionIdB)
+                nodeIndex = partitionToNodeIndex[partitionIdA];
+            else
+                nodeIndex = partitionToNodeIndex[partitionId];
+
+            boolean visited = false;
+            for(int j = 0; j < numVisitedNodes && !visited; j++)
+                visited = walk.visitedNodes[j] == nodeIndex;
+            if(!visited) {
+                walk.visitedNodes[numVisitedNodes++] = nodeIndex;
+                if(store.zoneReplicationFactors == null) {
+                    walk.replicatingNodes[walk.numReplicatingNodes++] = nodeIndex;
+                } else if(walk.zoneReplicasLeft[nodeIndexToZoneIndex[nodeIndex]] > 0) {
+                    walk.zoneReplicasLeft[nodeIndexToZoneIndex[nodeIndex]]--;
+                    walk.replicatingNodes[walk.numReplicatingNodes++] = nodeIndex;
+                }
+            }
+
+            if(walk.numReplicatingNodes >= store.numReplicas) {
+                walk.length = i + 1;
+                return;
+            }
+            partitionId = (partitionId + 1) % numPartitions;
+        }
+    }
+
+    private static int[] copyReplicatingNodes(Walk walk) {
+        int[] replicatingNodes = new int[walk.numReplicatingNodes];
+        System.arraycopy(walk.replicatingNodes, 0, replicatingNodes, 0, replicatingNodes.length);
+        return replicatingNodes;
+    }
+
+    private void count(StoreBalance store,
+                       int[] replicatingNodes,
+                       int sign,
+                       int[] zonePrimaryCounts,
+                       int[] naryCounts) {
+        count(store, replicatingNodes, replicatingNodes.length, sign, zonePrimaryCounts, naryCounts);
+    }
+
+    /**
+     * Adds (or removes) the replicating nodes of one master partition to the
+     * per-node counts. Every node is a zone n-ary, the first node of each zone
+     * is also its zone primary.
+     */
+    private void count(StoreBalance store,
+                       int[] replicatingNodes,
+                       int numReplicatingNodes,
+                       int sign,
+                       int[] zonePrimaryCounts,
+                       int[] naryCounts) {
+        for(int i = 0; i < numReplicatingNodes; i++) {
+            int nodeIndex = replicatingNodes[i];
+            naryCounts[nodeIndex] += sign * store.weight;
+            boolean zonePrimary = true;
+            for(int j = 0; j < i && zonePrimary; j++)
+                zonePrimary = nodeIndexToZoneIndex[replicatingNodes[j]] != nodeIndexToZoneIndex[nodeIndex];
+            if(zonePrimary)
+                zonePrimaryCounts[nodeIndex] += sign * store.weight;
+        }
+    }
+
+    private double getUtility(int[] zonePrimaryCounts, int[] naryCounts) {
+        return (PartitionBalance.UTILITY_MULTIPLIER_IOPS * getMaxMinRatioSum(zonePrimaryCounts))
+               + (PartitionBalance.UTILITY_MULTIPLIER_CAPACITY * getMaxMinRatioSum(naryCounts));
+    }
+
+    /**
+     * Same arithmetic, in the same order, as PartitionBalance.summarizeBalance
+     */
+    private double getMaxMinRatioSum(int[] counts) {
+        double sum = 0;
+        for(int zoneIndex = 0; zoneIndex < zoneIndexToNodeIndexes.length; zoneIndex++) {
+            int minVal = Integer.MAX_VALUE;
+            int maxVal = Integer.MIN_VALUE;
+            for(int nodeIndex: zoneIndexToNodeIndexes[zoneIndex]) {
+                maxVal = Math.max(maxVal, counts[nodeIndex]);
+                minVal = Math.min(minVal, counts[nodeIndex]);
+            }
+            if(minVal == 0)
+                sum += maxVal;
+            else
+                sum += maxVal * 1.0 / minVal;
+        }
+        return sum;
+    }
+}
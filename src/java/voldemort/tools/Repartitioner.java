@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.log4j.Logger;
 
@@ -168,6 +170,56 @@ public class Repartitioner {
                                       final int greedySwapMaxPartitionsPerZone,
                                       final List<Integer> greedySwapZoneIds,
                                       final int maxContiguousPartitionsPerZone) {
+        return repartition(currentCluster,
+                           currentStoreDefs,
+                           interimCluster,
+                           finalStoreDefs,
+                           outputDir,
+                           attempts,
+                           disableNodeBalancing,
+                           disableZoneBalancing,
+                           enableRandomSwaps,
+                           randomSwapAttempts,
+                           randomSwapSuccesses,
+                           randomSwapZoneIds,
+                           enableGreedySwaps,
+                           greedySwapAttempts,
+                           greedySwapMaxPartitionsPerNode,
+                           greedySwapMaxPartitionsPerZone,
+                           greedySwapZoneIds,
+                           maxContiguousPartitionsPerZone,
+                           System.currentTimeMillis());
+    }
+
+    /**
+     * Same as the other repartition method, with every random choice drawn
+     * from a generator seeded with the given seed. Repartitioning the same
+     * clusters with the same seed and arguments always yields the same final
+     * cluster.
+     * 
+     * @param seed Seed of the random choices
+     */
+    public static Cluster repartition(final Cluster currentCluster,
+                                      final List<StoreDefinition> currentStoreDefs,
+                                      final Cluster interimCluster,
+                                      final List<StoreDefinition> finalStoreDefs,
+                                      final String outputDir,
+                                      final int attempts,
+                                      final boolean disableNodeBalancing,
+                                      final boolean disableZoneBalancing,
+                                      final boolean enableRandomSwaps,
+                                      final int randomSwapAttempts,
+                                      final int randomSwapSuccesses,
+                                      final List<Integer> randomSwapZoneIds,
+                                      final boolean enableGreedySwaps,
+                                      final int greedySwapAttempts,
+                                      final int greedySwapMaxPartitionsPerNode,
+                                      final int greedySwapMaxPartitionsPerZone,
+                                      final List<Integer> greedySwapZoneIds,
+                                      final int maxContiguousPartitionsPerZone,
+                                      final long seed) {
+        System.out.println("Repartitioning with seed " + seed);
+        Random random = new Random(seed);
         PartitionBalance partitionBalance = new PartitionBalance(currentCluster, currentStoreDefs);
         RebalanceUtils.dumpAnalysisToFile(outputDir,
                                           RebalanceUtils.currentClusterFileName,
@@ -182,12 +234,14 @@ public class Repartitioner {
 
             if(maxContiguousPartitionsPerZone > 0) {
                 nextCandidateCluster = repeatedlyBalanceContiguousPartitionsPerZone(nextCandidateCluster,
-                                                                                    maxContiguousPartitionsPerZone);
+                                                                                    maxContiguousPartitionsPerZone,
+                                                                                    random);
             }
 
             if(!disableNodeBalancing) {
                 nextCandidateCluster = balancePrimaryPartitions(nextCandidateCluster,
-                                                                !disableZoneBalancing);
+                                                                !disableZoneBalancing,
+                                                                random);
             }
 
             if(enableRandomSwaps) {
@@ -195,7 +249,8 @@ public class Repartitioner {
                                                                randomSwapAttempts,
                                                                randomSwapSuccesses,
                                                                randomSwapZoneIds,
-                                                               finalStoreDefs);
+                                                               finalStoreDefs,
+                                                               random);
             }
             if(enableGreedySwaps) {
                 nextCandidateCluster = greedyShufflePartitions(nextCandidateCluster,
@@ -203,7 +258,8 @@ public class Repartitioner {
                                                                greedySwapMaxPartitionsPerNode,
                                                                greedySwapMaxPartitionsPerZone,
                                                                greedySwapZoneIds,
-                                                               finalStoreDefs);
+                                                               finalStoreDefs,
+                                                               random);
             }
             RebalanceUtils.validateCurrentFinalCluster(currentCluster, nextCandidateCluster);
 
@@ -327,10 +383,12 @@ public class Repartitioner {
      * @param nextCandidateCluster
      * @param balanceZones indicates whether or not number of primary partitions
      *        per zone should be balanced.
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster balancePrimaryPartitions(final Cluster nextCandidateCluster,
-                                                   boolean balanceZones) {
+                                                   boolean balanceZones,
+                                                   Random random) {
         System.out.println("Balance number of partitions across all nodes and zones.");
 
         Map<Integer, Integer> targetPartitionsPerZone;
@@ -389,7 +447,7 @@ public class Repartitioner {
         // Go over every stealerNode and steal partition Ids from donor nodes
         Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
 
-        Collections.shuffle(stealerNodeKeys, new Random(System.currentTimeMillis()));
+        Collections.shuffle(stealerNodeKeys, random);
         for(Node stealerNode: stealerNodeKeys) {
             int partitionsToSteal = stealerNodes.get(stealerNode)
                                     - stealerNode.getNumberOfPartitions();
@@ -399,7 +457,7 @@ public class Repartitioner {
                                + partitionsToSteal);
 
             while(partitionsToSteal > 0) {
-                Collections.shuffle(donorNodeKeys, new Random(System.currentTimeMillis()));
+                Collections.shuffle(donorNodeKeys, random);
 
                 // Repeatedly loop over donor nodes to distribute stealing
                 for(Node donorNode: donorNodeKeys) {
@@ -414,7 +472,7 @@ public class Repartitioner {
 
                     List<Integer> donorPartitions = Lists.newArrayList(currentDonorNode.getPartitionIds());
 
-                    Collections.shuffle(donorPartitions, new Random(System.currentTimeMillis()));
+                    Collections.shuffle(donorPartitions, random);
                     for(int donorPartition: donorPartitions) {
                         Cluster intermediateCluster = UpdateClusterUtils.createUpdatedCluster(returnCluster,
                                                                                               stealerNode.getId(),
@@ -449,11 +507,13 @@ public class Repartitioner {
      * 
      * @param nextCandidateCluster
      * @param maxContiguousPartitionsPerZone See RebalanceCLI.
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster
             repeatedlyBalanceContiguousPartitionsPerZone(final Cluster nextCandidateCluster,
-                                                         final int maxContiguousPartitionsPerZone) {
+                                                         final int maxContiguousPartitionsPerZone,
+                                                         Random random) {
         System.out.println("Looping to evenly balance partitions across zones while limiting contiguous partitions");
         // This loop is hard to make definitive. I.e., there are corner cases
         // for small clusters and/or clusters with few partitions for which it
@@ -464,9 +524,10 @@ public class Repartitioner {
         Cluster returnCluster = nextCandidateCluster;
         for(int i = 0; i < repeatContigBalance; i++) {
             returnCluster = balanceContiguousPartitionsPerZone(returnCluster,
-                                                               maxContiguousPartitionsPerZone);
+                                                               maxContiguousPartitionsPerZone,
+                                                               random);
 
-            returnCluster = balancePrimaryPartitions(returnCluster, false);
+            returnCluster = balancePrimaryPartitions(returnCluster, false, random);
             System.out.println("Completed round of balancing contiguous partitions: round "
                                + (i + 1) + " of " + repeatContigBalance);
         }
@@ -484,11 +545,13 @@ public class Repartitioner {
      * 
      * @param nextCandidateCluster cluster metadata
      * @param maxContiguousPartitionsPerZone See RebalanceCLI.
+     * @param random source of the random choices
      * @return Return updated cluster metadata.
      */
     public static Cluster
             balanceContiguousPartitionsPerZone(final Cluster nextCandidateCluster,
-                                               final int maxContiguousPartitionsPerZone) {
+                                               final int maxContiguousPartitionsPerZone,
+                                               Random random) {
         System.out.println("Balance number of contiguous partitions within a zone.");
         System.out.println("numPartitionsPerZone");
         for(int zoneId: nextCandidateCluster.getZoneIds()) {
@@ -529,7 +592,6 @@ public class Repartitioner {
 
         Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
 
-        Random r = new Random();
         for(int zoneId: returnCluster.getZoneIds()) {
             for(int partitionId: partitionsToRemoveFromZone.get(zoneId)) {
                 // Pick a random other zone Id
@@ -539,10 +601,10 @@ public class Repartitioner {
                         otherZoneIds.add(otherZoneId);
                     }
                 }
-                int whichOtherZoneId = otherZoneIds.get(r.nextInt(otherZoneIds.size()));
+                int whichOtherZoneId = otherZoneIds.get(random.nextInt(otherZoneIds.size()));
 
                 // Pick a random node from other zone ID
-                int whichNodeOffset = r.nextInt(returnCluster.getNumberOfNodesInZone(whichOtherZoneId));
+                int whichNodeOffset = random.nextInt(returnCluster.getNumberOfNodesInZone(whichOtherZoneId));
                 int whichNodeId = new ArrayList<Integer>(returnCluster.getNodeIdsInZone(whichOtherZoneId)).get(whichNodeOffset);
 
                 // Steal partition from one zone to another!
@@ -590,53 +652,14 @@ public class Repartitioner {
      * 
      * @param nextCandidateCluster
      * @param zoneId Zone ID within which to shuffle partitions
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster swapRandomPartitionsWithinZone(final Cluster nextCandidateCluster,
-                                                         final int zoneId) {
-        Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
-        Random r = new Random();
-
+                                                         final int zoneId,
+                                                         Random random) {
         List<Integer> nodeIdsInZone = new ArrayList<Integer>(nextCandidateCluster.getNodeIdsInZone(zoneId));
-
-        if(nodeIdsInZone.size() == 0) {
-            return returnCluster;
-        }
-
-        // Select random stealer node
-        int stealerNodeOffset = r.nextInt(nodeIdsInZone.size());
-        Integer stealerNodeId = nodeIdsInZone.get(stealerNodeOffset);
-
-        // Select random stealer partition
-        List<Integer> stealerPartitions = returnCluster.getNodeById(stealerNodeId)
-                                                       .getPartitionIds();
-        if(stealerPartitions.size() == 0) {
-            return nextCandidateCluster;
-        }
-        int stealerPartitionOffset = r.nextInt(stealerPartitions.size());
-        int stealerPartitionId = stealerPartitions.get(stealerPartitionOffset);
-
-        // Select random donor node
-        List<Integer> donorNodeIds = new ArrayList<Integer>();
-        donorNodeIds.addAll(nodeIdsInZone);
-        donorNodeIds.remove(stealerNodeId);
-
-        if(donorNodeIds.isEmpty()) { // No donor nodes!
-            return returnCluster;
-        }
-        int donorIdOffset = r.nextInt(donorNodeIds.size());
-        Integer donorNodeId = donorNodeIds.get(donorIdOffset);
-
-        // Select random donor partition
-        List<Integer> donorPartitions = returnCluster.getNodeById(donorNodeId).getPartitionIds();
-        int donorPartitionOffset = r.nextInt(donorPartitions.size());
-        int donorPartitionId = donorPartitions.get(donorPartitionOffset);
-
-        return swapPartitions(returnCluster,
-                              stealerNodeId,
-                              stealerPartitionId,
-                              donorNodeId,
-                              donorPartitionId);
+        return swapRandomPartitionsAmongNodes(nextCandidateCluster, nodeIdsInZone, random);
     }
 
     /**
@@ -644,28 +667,65 @@ public class Repartitioner {
      * 
      * @param nextCandidateCluster
      * @param nodeIds
+     * @param random source of the random choices
      * @return shuffled cluster
      */
     public static Cluster swapRandomPartitionsAmongNodes(final Cluster nextCandidateCluster,
-                                                         List<Integer> nodeIds) {
-        Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
-        Random r = new Random();
+                                                         List<Integer> nodeIds,
+                                                         Random random) {
+        PartitionSwap swap = pickRandomSwap(nextCandidateCluster, nodeIds, random);
+        if(swap == null) {
+            return Cluster.cloneCluster(nextCandidateCluster);
+        }
+        return swap.apply(nextCandidateCluster);
+    }
 
+    /**
+     * A swap of partitionIdA, hosted on nodeIdA, with partitionIdB, hosted on
+     * nodeIdB.
+     */
+    private static class PartitionSwap {
+
+        final int nodeIdA;
+        final int partitionIdA;
+        final int nodeIdB;
+        final int partitionIdB;
+
+        PartitionSwap(int nodeIdA, int partitionIdA, int nodeIdB, int partitionIdB) {
+            this.nodeIdA = nodeIdA;
+            this.partitionIdA = partitionIdA;
+            this.nodeIdB = nodeIdB;
+            this.partitionIdB = partitionIdB;
+        }
+
+        Cluster apply(Cluster cluster) {
+            return swapPartitions(cluster, nodeIdA, partitionIdA, nodeIdB, partitionIdB);
+        }
+    }
+
+    /**
+     * Selects a random partition on a random stealer node and a random
+     * partition on a random donor node among the specified nodes.
+     * 
+     * @return the swap, or null if there is nothing to swap
+     */
+    private static PartitionSwap pickRandomSwap(final Cluster cluster,
+                                                List<Integer> nodeIds,
+                                                Random random) {
         if(nodeIds.isEmpty()) {
-            return returnCluster;
+            return null;
         }
 
         // Select random stealer node
-        int stealerNodeOffset = r.nextInt(nodeIds.size());
+        int stealerNodeOffset = random.nextInt(nodeIds.size());
         Integer stealerNodeId = nodeIds.get(stealerNodeOffset);
 
         // Select random stealer partition
-        List<Integer> stealerPartitions = returnCluster.getNodeById(stealerNodeId)
-                                                       .getPartitionIds();
+        List<Integer> stealerPartitions = cluster.getNodeById(stealerNodeId).getPartitionIds();
         if(stealerPartitions.size() == 0) {
-            return nextCandidateCluster;
+            return null;
         }
-        int stealerPartitionOffset = r.nextInt(stealerPartitions.size());
+        int stealerPartitionOffset = random.nextInt(stealerPartitions.size());
         int stealerPartitionId = stealerPartitions.get(stealerPartitionOffset);
 
         // Select random donor node
@@ -674,39 +734,40 @@ public class Repartitioner {
         donorNodeIds.remove(stealerNodeId);
 
         if(donorNodeIds.isEmpty()) { // No donor nodes!
-            return returnCluster;
+            return null;
         }
-        int donorIdOffset = r.nextInt(donorNodeIds.size());
+        int donorIdOffset = random.nextInt(donorNodeIds.size());
         Integer donorNodeId = donorNodeIds.get(donorIdOffset);
 
         // Select random donor partition
-        List<Integer> donorPartitions = returnCluster.getNodeById(donorNodeId).getPartitionIds();
-        int donorPartitionOffset = r.nextInt(donorPartitions.size());
+        List<Integer> donorPartitions = cluster.getNodeById(donorNodeId).getPartitionIds();
+        int donorPartitionOffset = random.nextInt(donorPartitions.size());
         int donorPartitionId = donorPartitions.get(donorPartitionOffset);
 
-        return swapPartitions(returnCluster,
-                              stealerNodeId,
-                              stealerPartitionId,
-                              donorNodeId,
-                              donorPartitionId);
+        return new PartitionSwap(stealerNodeId, stealerPartitionId, donorNodeId, donorPartitionId);
     }
 
     /**
      * Randomly shuffle partitions between nodes within every zone.
      * 
+     * Each swap attempt is evaluated with an {@link IncrementalPartitionBalance}
+     * rather than by recomputing the balance of the whole cluster.
+     * 
      * @param nextCandidateCluster cluster object.
      * @param randomSwapAttempts See RebalanceCLI.
      * @param randomSwapSuccesses See RebalanceCLI.
      * @param randomSwapZoneIds The set of zoneIds to consider. Each zone is done
      *        independently.
      * @param storeDefs List of store definitions
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster randomShufflePartitions(final Cluster nextCandidateCluster,
                                                   final int randomSwapAttempts,
                                                   final int randomSwapSuccesses,
                                                   final List<Integer> randomSwapZoneIds,
-                                                  List<StoreDefinition> storeDefs) {
+                                                  List<StoreDefinition> storeDefs,
+                                                  Random random) {
         List<Integer> zoneIds = null;
         if(randomSwapZoneIds.isEmpty()) {
             zoneIds = new ArrayList<Integer>(nextCandidateCluster.getZoneIds());
@@ -716,7 +777,9 @@ public class Repartitioner {
 
         List<Integer> nodeIds = new ArrayList<Integer>();
         Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
-        double currentUtility = new PartitionBalance(returnCluster, storeDefs).getUtility();
+        IncrementalPartitionBalance balance = new IncrementalPartitionBalance(returnCluster,
+                                                                              storeDefs);
+        double currentUtility = balance.getUtility();
 
         int successes = 0;
         for(int i = 0; i < randomSwapAttempts; i++) {
@@ -733,17 +796,21 @@ public class Repartitioner {
             Set<Integer> nodeIdSet = nextCandidateCluster.getNodeIdsInZone(zoneIds.get(zoneIdOffset));
             nodeIds = new ArrayList<Integer>(nodeIdSet);
 
-            Collections.shuffle(zoneIds, new Random(System.currentTimeMillis()));
-            Cluster shuffleResults = swapRandomPartitionsAmongNodes(returnCluster, nodeIds);
-
-            double nextUtility = new PartitionBalance(shuffleResults, storeDefs).getUtility();
-            if(nextUtility < currentUtility) {
-                System.out.println("Swap improved max-min ratio: " + currentUtility + " -> "
-                                   + nextUtility + " (improvement " + successes
-                                   + " on swap attempt " + i + ")");
-                successes++;
-                returnCluster = shuffleResults;
-                currentUtility = nextUtility;
+            Collections.shuffle(zoneIds, random);
+            PartitionSwap swap = pickRandomSwap(returnCluster, nodeIds, random);
+
+            if(swap != null) {
+                double nextUtility = balance.getUtilityAfterSwap(swap.partitionIdA,
+                                                                 swap.partitionIdB);
+                if(nextUtility < currentUtility) {
+                    System.out.println("Swap improved max-min ratio: " + currentUtility + " -> "
+                                       + nextUtility + " (improvement " + successes
+                                       + " on swap attempt " + i + ")");
+                    successes++;
+                    returnCluster = swap.apply(returnCluster);
+                    balance.swapPartitions(swap.partitionIdA, swap.partitionIdB);
+                    currentUtility = nextUtility;
+                }
             }
             if(successes >= randomSwapSuccesses) {
                 // Enough successes, move on.
@@ -771,27 +838,57 @@ public class Repartitioner {
      * @param greedySwapMaxPartitionsPerNode See RebalanceCLI.
      * @param greedySwapMaxPartitionsPerZone See RebalanceCLI.
      * @param storeDefs
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster swapGreedyRandomPartitions(final Cluster nextCandidateCluster,
                                                      final List<Integer> nodeIds,
                                                      final int greedySwapMaxPartitionsPerNode,
                                                      final int greedySwapMaxPartitionsPerZone,
-                                                     List<StoreDefinition> storeDefs) {
+                                                     List<StoreDefinition> storeDefs,
+                                                     Random random) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return swapGreedyRandomPartitions(nextCandidateCluster,
+                                              new IncrementalPartitionBalance(nextCandidateCluster,
+                                                                              storeDefs),
+                                              nodeIds,
+                                              greedySwapMaxPartitionsPerNode,
+                                              greedySwapMaxPartitionsPerZone,
+                                              random,
+                                              pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Draws all the candidate swaps first, in the same order as the random
+     * choices were always made, then evaluates them in parallel on the pool.
+     * The best swap is the first one with the lowest utility, as if the
+     * candidates had been evaluated one after the other.
+     * 
+     * @param balance balance of nextCandidateCluster, updated with the chosen
+     *        swap
+     */
+    private static Cluster swapGreedyRandomPartitions(final Cluster nextCandidateCluster,
+                                                      final IncrementalPartitionBalance balance,
+                                                      final List<Integer> nodeIds,
+                                                      final int greedySwapMaxPartitionsPerNode,
+                                                      final int greedySwapMaxPartitionsPerZone,
+                                                      Random random,
+                                                      ForkJoinPool pool) {
 
         System.out.println("GreedyRandom : nodeIds:" + nodeIds);
         Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
-        double currentUtility = new PartitionBalance(returnCluster, storeDefs).getUtility();
-        int nodeIdA = -1;
-        int nodeIdB = -1;
-        int partitionIdA = -1;
-        int partitionIdB = -1;
+        double currentUtility = balance.getUtility();
+        List<PartitionSwap> candidateSwaps = new ArrayList<PartitionSwap>();
 
         for(int nodeIdAPrime: nodeIds) {
             System.out.println("GreedyRandom : processing nodeId:" + nodeIdAPrime);
             List<Integer> partitionIdsAPrime = new ArrayList<Integer>();
             partitionIdsAPrime.addAll(returnCluster.getNodeById(nodeIdAPrime).getPartitionIds());
-            Collections.shuffle(partitionIdsAPrime);
+            Collections.shuffle(partitionIdsAPrime, random);
 
             int maxPartitionsInAPrime = Math.min(greedySwapMaxPartitionsPerNode,
                                                  partitionIdsAPrime.size());
@@ -809,34 +906,85 @@ public class Repartitioner {
                     }
                 }
 
-                Collections.shuffle(partitionIdsZone);
+                Collections.shuffle(partitionIdsZone, random);
                 int maxPartitionsInZone = Math.min(greedySwapMaxPartitionsPerZone,
                                                    partitionIdsZone.size());
                 for(int offsetZone = 0; offsetZone < maxPartitionsInZone; offsetZone++) {
                     Integer nodeIdBPrime = partitionIdsZone.get(offsetZone).getFirst();
                     Integer partitionIdBPrime = partitionIdsZone.get(offsetZone).getSecond();
-                    Cluster swapResult = swapPartitions(returnCluster,
-                                                        nodeIdAPrime,
-                                                        partitionIdAPrime,
-                                                        nodeIdBPrime,
-                                                        partitionIdBPrime);
-                    double swapUtility = new PartitionBalance(swapResult, storeDefs).getUtility();
-                    if(swapUtility < currentUtility) {
-                        currentUtility = swapUtility;
-                        System.out.println(" -> " + currentUtility);
-                        nodeIdA = nodeIdAPrime;
-                        partitionIdA = partitionIdAPrime;
-                        nodeIdB = nodeIdBPrime;
-                        partitionIdB = partitionIdBPrime;
-                    }
+                    candidateSwaps.add(new PartitionSwap(nodeIdAPrime,
+                                                         partitionIdAPrime,
+                                                         nodeIdBPrime,
+                                                         partitionIdBPrime));
                 }
             }
         }
 
-        if(nodeIdA == -1) {
+        double[] swapUtilities = new double[candidateSwaps.size()];
+        pool.invoke(new SwapEvaluation(balance,
+                                       candidateSwaps,
+                                       swapUtilities,
+                                       0,
+                                       candidateSwaps.size()));
+
+        PartitionSwap bestSwap = null;
+        for(int i = 0; i < swapUtilities.length; i++) {
+            if(swapUtilities[i] < currentUtility) {
+                currentUtility = swapUtilities[i];
+                System.out.println(" -> " + currentUtility);
+                bestSwap = candidateSwaps.get(i);
+            }
+        }
+
+        if(bestSwap == null) {
             return returnCluster;
         }
-        return swapPartitions(returnCluster, nodeIdA, partitionIdA, nodeIdB, partitionIdB);
+        balance.swapPartitions(bestSwap.partitionIdA, bestSwap.partitionIdB);
+        return bestSwap.apply(returnCluster);
+    }
+
+    /**
+     * Evaluates the utility of a range of candidate swaps, splitting the range
+     * in halves until it is small enough to evaluate in one task.
+     */
+    private static class SwapEvaluation extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int SWAPS_PER_TASK = 8;
+
+        private final IncrementalPartitionBalance balance;
+        private final List<PartitionSwap> swaps;
+        private final double[] utilities;
+        private final int from;
+        private final int to;
+
+        SwapEvaluation(IncrementalPartitionBalance balance,
+                       List<PartitionSwap> swaps,
+                       double[] utilities,
+                       int from,
+                       int to) {
+            this.balance = balance;
+            this.swaps = swaps;
+            this.utilities = utilities;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= SWAPS_PER_TASK) {
+                for(int i = from; i < to; i++) {
+                    PartitionSwap swap = swaps.get(i);
+                    utilities[i] = balance.getUtilityAfterSwap(swap.partitionIdA,
+                                                               swap.partitionIdB);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SwapEvaluation(balance, swaps, utilities, from, middle),
+                          new SwapEvaluation(balance, swaps, utilities, middle, to));
+            }
+        }
     }
 
     /**
@@ -850,6 +998,9 @@ public class Repartitioner {
      * 
      * #zones X #nodes/zone X max partitions/node X max partitions/zone
      * 
+     * The candidate swaps of each iteration are evaluated in parallel, using
+     * as many threads as there are processors.
+     * 
      * @param nextCandidateCluster cluster object.
      * @param greedyAttempts See RebalanceCLI.
      * @param greedySwapMaxPartitionsPerNode See RebalanceCLI.
@@ -857,6 +1008,7 @@ public class Repartitioner {
      * @param greedySwapZoneIds The set of zoneIds to consider. Each zone is done
      *        independently.
      * @param storeDefs
+     * @param random source of the random choices
      * @return updated cluster
      */
     public static Cluster greedyShufflePartitions(final Cluster nextCandidateCluster,
@@ -864,7 +1016,8 @@ public class Repartitioner {
                                                   final int greedySwapMaxPartitionsPerNode,
                                                   final int greedySwapMaxPartitionsPerZone,
                                                   List<Integer> greedySwapZoneIds,
-                                                  List<StoreDefinition> storeDefs) {
+                                                  List<StoreDefinition> storeDefs,
+                                                  Random random) {
         List<Integer> zoneIds = null;
         if(greedySwapZoneIds.isEmpty()) {
             zoneIds = new ArrayList<Integer>(nextCandidateCluster.getZoneIds());
@@ -874,34 +1027,43 @@ public class Repartitioner {
 
         List<Integer> nodeIds = new ArrayList<Integer>();
         Cluster returnCluster = Cluster.cloneCluster(nextCandidateCluster);
-        double currentUtility = new PartitionBalance(returnCluster, storeDefs).getUtility();
-
-        for(int i = 0; i < greedyAttempts; i++) {
-
-            // Iterate over zone ids to decide which node ids to include for
-            // intra-zone swapping.
-            // In future, if there is a need to support inter-zone swapping,
-            // then just remove the
-            // zone specific logic that populates nodeIdSet and add all nodes
-            // from across all zones.
-
-            int zoneIdOffset = i % zoneIds.size();
-            Set<Integer> nodeIdSet = nextCandidateCluster.getNodeIdsInZone(zoneIds.get(zoneIdOffset));
-            nodeIds = new ArrayList<Integer>(nodeIdSet);
-
-            Collections.shuffle(zoneIds, new Random(System.currentTimeMillis()));
-            Cluster shuffleResults = swapGreedyRandomPartitions(returnCluster,
-                                                                nodeIds,
-                                                                greedySwapMaxPartitionsPerNode,
-                                                                greedySwapMaxPartitionsPerZone,
-                                                                storeDefs);
-
-            double nextUtility = new PartitionBalance(shuffleResults, storeDefs).getUtility();
-            System.out.println("Swap improved max-min ratio: " + currentUtility + " -> "
-                               + nextUtility + " (swap attempt " + i + " in zone "
-                               + zoneIds.get(zoneIdOffset) + ")");
-            returnCluster = shuffleResults;
-            currentUtility = nextUtility;
+        IncrementalPartitionBalance balance = new IncrementalPartitionBalance(returnCluster,
+                                                                              storeDefs);
+        double currentUtility = balance.getUtility();
+
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            for(int i = 0; i < greedyAttempts; i++) {
+
+                // Iterate over zone ids to decide which node ids to include for
+                // intra-zone swapping.
+                // In future, if there is a need to support inter-zone swapping,
+                // then just remove the
+                // zone specific logic that populates nodeIdSet and add all
+                // nodes from across all zones.
+
+                int zoneIdOffset = i % zoneIds.size();
+                Set<Integer> nodeIdSet = nextCandidateCluster.getNodeIdsInZone(zoneIds.get(zoneIdOffset));
+                nodeIds = new ArrayList<Integer>(nodeIdSet);
+
+                Collections.shuffle(zoneIds, random);
+                Cluster shuffleResults = swapGreedyRandomPartitions(returnCluster,
+                                                                    balance,
+                                                                    nodeIds,
+                                                                    greedySwapMaxPartitionsPerNode,
+                                                                    greedySwapMaxPartitionsPerZone,
+                                                                    random,
+                                                                    pool);
+
+                double nextUtility = balance.getUtility();
+                System.out.println("Swap improved max-min ratio: " + currentUtility + " -> "
+                                   + nextUtility + " (swap attempt " + i + " in zone "
+                                   + zoneIds.get(zoneIdOffset) + ")");
+                returnCluster = shuffleResults;
+                currentUtility = nextUtility;
+            }
+        } finally {
+            pool.shutdown();
         }
         return returnCluster;
     }
@@ -137,6 +137,11 @@ public class RepartitionerCLI {
               .withRequiredArg()
               .ofType(Integer.class)
               .describedAs("num-contiguous");
+        parser.accepts("seed",
+                       "Seed of the random choices, to reproduce a repartitioning. [Default: current time]")
+              .withRequiredArg()
+              .ofType(Long.class)
+              .describedAs("seed");
     }
 
     private static void printUsage() {
@@ -165,6 +170,7 @@ public class RepartitionerCLI {
         help.append("    --greedy-max-partitions-per-zone num-partitions [ num-partitions per zone to consider in each greedy pass. Partitions selected randomly from all partitions in zone not on node being considered. ] \n");
         help.append("    --greedy-swap-zoneids zoneId(s) [Only swaps partitions within the specified zone(s)] \n");
         help.append("    --max-contiguous-partitions num-contiguous [ Max allowed contiguous partition IDs within a zone ] \n");
+        help.append("    --seed seed [ Seed of the random choices. The same seed and arguments always give the same final cluster ] \n");
 
         try {
             parser.printHelpOn(System.out);
@@ -267,6 +273,7 @@ public class RepartitionerCLI {
         int maxContiguousPartitionsPerZone = CmdUtils.valueOf(options,
                                                               "max-contiguous-partitions",
                                                               Repartitioner.DEFAULT_MAX_CONTIGUOUS_PARTITIONS);
+        long seed = CmdUtils.valueOf(options, "seed", System.currentTimeMillis());
 
         // Sanity check optional repartitioning args
         if(disableNodeBalancing && !enableRandomSwaps && !enableGreedySwaps
@@ -299,7 +306,8 @@ public class RepartitionerCLI {
                                   greedyMaxPartitionsPerNode,
                                   greedyMaxPartitionsPerZone,
                                   greedySwapZoneIds,
-                                  maxContiguousPartitionsPerZone);
+                                  maxContiguousPartitionsPerZone,
+                                  seed);
 
     }
 }
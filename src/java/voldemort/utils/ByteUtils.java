@@ -346,6 +346,74 @@ public class ByteUtils {
         }
     }
 
+    /**
+     * The number of bytes {@link #writeVarLong(byte[], long, int)} takes to
+     * write the given number
+     * 
+     * @param value The number, treated as unsigned
+     * @return Between 1 and 10
+     */
+    public static int sizeOfVarLong(long value) {
+        int size = 1;
+        while((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes a number 7 bits at a time, least significant bits first. The high
+     * bit of every byte but the last is set.
+     * 
+     * @param bytes The array to write to
+     * @param value The number, treated as unsigned
+     * @param offset The offset to write at
+     * @return The number of bytes written
+     */
+    public static int writeVarLong(byte[] bytes, long value, int offset) {
+        int start = offset;
+        while((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset - start;
+    }
+
+    /**
+     * Reads a number written by {@link #writeVarLong(byte[], long, int)}. It
+     * took {@link #sizeOfVarLong(long)} bytes.
+     * 
+     * @param bytes The array to read from
+     * @param offset The offset to read at
+     * @return The number
+     */
+    public static long readVarLong(byte[] bytes, int offset) {
+        long value = 0;
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            if(offset >= bytes.length)
+                throw new IllegalArgumentException("Truncated variable length number.");
+            byte b = bytes[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Variable length number is longer than 10 bytes.");
+    }
+
+    /**
+     * Maps signed numbers to unsigned ones so that numbers of a small
+     * magnitude, positive or negative, have a short variable length encoding
+     */
+    public static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     /**
      * Get the nth byte from the right in the given number
      * 
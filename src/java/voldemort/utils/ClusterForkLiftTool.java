@@ -1,5 +1,8 @@
 package voldemort.utils;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -7,12 +10,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -39,7 +46,9 @@ import voldemort.versioning.VectorClockInconsistencyResolver;
 import voldemort.versioning.VectorClockUtils;
 import voldemort.versioning.Versioned;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 /**
  * Tool to fork lift data over from a source cluster to a destination cluster.
@@ -77,9 +86,10 @@ import com.google.common.collect.Lists;
  * NOTES:
  * 
  * 1) If the tool fails for some reason in the middle, the admin can restart the
- * tool for the failed partitions alone. The keys that were already written in
- * the failed partitions, will all experience {@link ObsoleteVersionException}
- * and the un-inserted keys will be inserted.
+ * tool for the failed partitions alone, or rerun it with the same
+ * --checkpoint-file to skip the partitions that were completed. The keys that
+ * were already written in the failed partitions, will all experience
+ * {@link ObsoleteVersionException} and the un-inserted keys will be inserted.
  * 
  * 2) Since the forklift writes are issued with empty vector clocks, they will
  * always yield to online writes happening on the same key, before or during the
@@ -129,6 +139,8 @@ public class ClusterForkLiftTool implements Runnable {
     private static final int DEFAULT_PROGRESS_PERIOD_OPS = 100000;
     private static final int DEFAULT_PARTITION_PARALLELISM = 8;
     private static final int DEFAULT_WORKER_POOL_SHUTDOWN_WAIT_MINS = 5;
+    // entries read ahead of the writes, per partition
+    private static final int DEFAULT_FETCH_QUEUE_SIZE = 10000;
 
     private static final String OVERWRITE_OPTION = "overwrite";
     private static final String IGNORE_SCHEMA_MISMATCH = "ignore-schema-mismatch";
@@ -148,6 +160,9 @@ public class ClusterForkLiftTool implements Runnable {
     private final List<Integer> partitionList;
     private final ForkLiftTaskMode mode;
     private final Boolean overwrite;
+    private final ExecutorService fetchPool;
+    private final ForkLiftCheckpoint checkpoint;
+    private final ForkLiftRateController rateController;
 
     private static List<StoreDefinition> getStoreDefinitions(AdminClient adminClient) {
         return adminClient.metadataMgmtOps.getRemoteStoreDefList().getValue();
@@ -163,6 +178,41 @@ public class ClusterForkLiftTool implements Runnable {
                                List<String> storesList,
                                List<Integer> partitions,
                                ForkLiftTaskMode mode) {
+        this(srcBootstrapUrl,
+             dstBootstrapUrl,
+             overwrite,
+             ignoreSchemaMismatch,
+             maxPutsPerSecond,
+             partitionParallelism,
+             progressOps,
+             storesList,
+             partitions,
+             mode,
+             null,
+             0);
+    }
+
+    /**
+     * @param checkpointFile file recording the partitions forklifted so far,
+     *        which are skipped if the tool is run again with the same file;
+     *        null to not record any progress
+     * @param targetCommitLatencyMs time the destination cluster should take at
+     *        most to acknowledge a batch of puts; the rate of puts is lowered
+     *        below maxPutsPerSecond whenever it takes longer. 0 to always put at
+     *        maxPutsPerSecond
+     */
+    public ClusterForkLiftTool(String srcBootstrapUrl,
+                               String dstBootstrapUrl,
+                               Boolean overwrite,
+                               boolean ignoreSchemaMismatch,
+                               int maxPutsPerSecond,
+                               int partitionParallelism,
+                               int progressOps,
+                               List<String> storesList,
+                               List<Integer> partitions,
+                               ForkLiftTaskMode mode,
+                               String checkpointFile,
+                               long targetCommitLatencyMs) {
 
         if(storesList == null || storesList.size() == 0) {
             throw new IllegalArgumentException("One or more stores expected");
@@ -174,6 +224,8 @@ public class ClusterForkLiftTool implements Runnable {
         Props props = new Props();
         props.put("streaming.platform.bootstrapURL", dstBootstrapUrl);
         props.put("streaming.platform.throttle.qps", maxPutsPerSecond);
+        // write to every destination node from its own thread
+        props.put("streaming.platform.parallel.writers", true);
         StreamingClientConfig config = new StreamingClientConfig(props);
         this.dstStreamingClient = new BaseStreamingClient(config);
         this.mode = mode;
@@ -202,8 +254,27 @@ public class ClusterForkLiftTool implements Runnable {
 
         // set up thread pool to parallely forklift partitions
         this.workerPool = Executors.newFixedThreadPool(partitionParallelism);
+        // each partition being forklifted is read by its own fetcher
+        this.fetchPool = Executors.newFixedThreadPool(partitionParallelism,
+                                                      new DaemonThreadFactory("forklift-fetcher"));
         this.progressOps = progressOps;
 
+        if(checkpointFile != null) {
+            try {
+                this.checkpoint = new ForkLiftCheckpoint(new File(checkpointFile));
+            } catch(IOException e) {
+                throw new VoldemortException("Failed to read checkpoint file " + checkpointFile, e);
+            }
+        } else {
+            this.checkpoint = null;
+        }
+        if(targetCommitLatencyMs > 0) {
+            this.rateController = new ForkLiftRateController(maxPutsPerSecond,
+                                                             targetCommitLatencyMs);
+        } else {
+            this.rateController = null;
+        }
+
     }
 
     private HashMap<String, StoreDefinition> checkStoresOnBothSides(boolean ignoreSchemaMismatch) {
@@ -259,12 +330,12 @@ public class ClusterForkLiftTool implements Runnable {
     }
 
     /**
-     * TODO this base class can potentially provide some framework of execution
-     * for the subclasses, to yield a better objected oriented design (progress
-     * tracking etc)
+     * Forklifts the entries of one partition of a store. The entries are read
+     * from the source cluster by a fetcher running ahead of the task, so that
+     * reading the source and writing to the destination overlap.
      * 
      */
-    abstract class SinglePartitionForkLiftTask {
+    abstract class SinglePartitionForkLiftTask implements Runnable {
 
         protected int partitionId;
         protected CountDownLatch latch;
@@ -272,6 +343,7 @@ public class ClusterForkLiftTool implements Runnable {
         protected String workName;
         private Set<Integer> dstServerIds;
         private long entriesForkLifted = 0;
+        private PrefetchingIterator<?> fetchItr;
 
         SinglePartitionForkLiftTask(StoreRoutingPlan storeInstance,
                                     int partitionId,
@@ -284,6 +356,49 @@ public class ClusterForkLiftTool implements Runnable {
             dstServerIds = dstStreamingClient.getAdminClient().getAdminClientCluster().getNodeIds();
         }
 
+        public void run() {
+            String storeName = this.storeInstance.getStoreDefinition().getName();
+            boolean completed = false;
+            if(checkpoint != null) {
+                checkpoint.started(storeName, partitionId);
+            }
+            try {
+                logger.info(workName + "Starting processing");
+                forkLift(storeName);
+                printSummary();
+                completed = true;
+            } catch(Exception e) {
+                // if for some reason this partition fails, we will have retry
+                // again for those partitions alone.
+                logger.error(workName + "Error forklifting data ", e);
+            } finally {
+                if(fetchItr != null) {
+                    fetchItr.close();
+                }
+                if(checkpoint != null) {
+                    checkpoint.finished(storeName, partitionId, completed);
+                }
+                latch.countDown();
+            }
+        }
+
+        /**
+         * Reads the partition from the source cluster and writes it to the
+         * destination cluster
+         */
+        abstract void forkLift(String storeName) throws Exception;
+
+        /**
+         * Starts reading the given stream out of the source cluster ahead of
+         * its consumption by the task
+         */
+        <T> Iterator<T> prefetch(Iterator<T> itr) {
+            PrefetchingIterator<T> prefetchingItr = new PrefetchingIterator<T>(itr,
+                                                                               DEFAULT_FETCH_QUEUE_SIZE);
+            fetchItr = prefetchingItr;
+            return prefetchingItr;
+        }
+
         void streamingPut(ByteArray key, Versioned<byte[]> value) {
             if(overwrite) {
                 VectorClock denseClock = VectorClockUtils.makeClockWithCurrentTime(dstServerIds);
@@ -292,6 +407,9 @@ public class ClusterForkLiftTool implements Runnable {
             } else {
                 dstStreamingClient.streamingPut(key, value);
             }
+            if(rateController != null) {
+                rateController.maybeUpdateThrottleLimit(dstStreamingClient);
+            }
 
             entriesForkLifted++;
             if(entriesForkLifted % progressOps == 0) {
@@ -314,8 +432,7 @@ public class ClusterForkLiftTool implements Runnable {
      * Without this, the resolving can be very slow due to cross data center
      * get(..)
      */
-    class SinglePartitionGloballyResolvingForkLiftTask extends SinglePartitionForkLiftTask
-            implements Runnable {
+    class SinglePartitionGloballyResolvingForkLiftTask extends SinglePartitionForkLiftTask {
 
         SinglePartitionGloballyResolvingForkLiftTask(StoreRoutingPlan storeInstance,
                                                      int partitionId,
@@ -323,55 +440,45 @@ public class ClusterForkLiftTool implements Runnable {
             super(storeInstance, partitionId, latch);
         }
 
-        public void run() {
-            String storeName = this.storeInstance.getStoreDefinition().getName();
-            try {
-                logger.info(workName + "Starting processing");
-                ChainedResolver<Versioned<byte[]>> resolver = new ChainedResolver<Versioned<byte[]>>(new VectorClockInconsistencyResolver<byte[]>(),
-                                                                                                     new TimeBasedInconsistencyResolver<byte[]>());
-                Iterator<ByteArray> keyItr = srcAdminClient.bulkFetchOps.fetchKeys(storeInstance.getNodeIdForPartitionId(this.partitionId),
-                                                                                   storeName,
-                                                                                   Lists.newArrayList(this.partitionId),
-                                                                                   null,
-                                                                                   true);
-                List<Integer> nodeList = storeInstance.getReplicationNodeList(this.partitionId);
-                while(keyItr.hasNext()) {
-                    ByteArray keyToResolve = keyItr.next();
-                    Map<Integer, QueryKeyResult> valuesMap = doReads(nodeList, keyToResolve.get());
-                    List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>(valuesMap.size());
-                    for(Map.Entry<Integer, QueryKeyResult> entry: valuesMap.entrySet()) {
-                        int nodeId = entry.getKey();
-                        QueryKeyResult result = entry.getValue();
-
-                        if(result.hasException()) {
-                            logger.error(workName + "key fetch failed for key "
-                                                 + ByteUtils.toHexString(keyToResolve.get())
-                                                 + " on node " + nodeId,
-                                         result.getException());
-                            break;
-                        }
-                        values.addAll(result.getValues());
+        @Override
+        void forkLift(String storeName) {
+            ChainedResolver<Versioned<byte[]>> resolver = new ChainedResolver<Versioned<byte[]>>(new VectorClockInconsistencyResolver<byte[]>(),
+                                                                                                 new TimeBasedInconsistencyResolver<byte[]>());
+            Iterator<ByteArray> keyItr = prefetch(srcAdminClient.bulkFetchOps.fetchKeys(storeInstance.getNodeIdForPartitionId(this.partitionId),
+                                                                                        storeName,
+                                                                                        Lists.newArrayList(this.partitionId),
+                                                                                        null,
+                                                                                        true));
+            List<Integer> nodeList = storeInstance.getReplicationNodeList(this.partitionId);
+            while(keyItr.hasNext()) {
+                ByteArray keyToResolve = keyItr.next();
+                Map<Integer, QueryKeyResult> valuesMap = doReads(nodeList, keyToResolve.get());
+                List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>(valuesMap.size());
+                for(Map.Entry<Integer, QueryKeyResult> entry: valuesMap.entrySet()) {
+                    int nodeId = entry.getKey();
+                    QueryKeyResult result = entry.getValue();
+
+                    if(result.hasException()) {
+                        logger.error(workName + "key fetch failed for key "
+                                             + ByteUtils.toHexString(keyToResolve.get())
+                                             + " on node " + nodeId,
+                                     result.getException());
+                        break;
                     }
+                    values.addAll(result.getValues());
+                }
 
-                    List<Versioned<byte[]>> resolvedVersions = resolver.resolveConflicts(values);
-                    // after timestamp based resolving there should be only one
-                    // version. Insert that to the destination cluster with
-                    // empty vector clock
-                    if(resolvedVersions.size() > 1) {
-                        throw new VoldemortException("More than one resolved versions, key: "
-                                                     + ByteUtils.toHexString(keyToResolve.get())
-                                                     + " vals:" + resolvedVersions);
-                    }
-                    Versioned<byte[]> value = new Versioned<byte[]>(resolvedVersions.get(0)
-                                                                                    .getValue());
-                    streamingPut(keyToResolve, value);
+                List<Versioned<byte[]>> resolvedVersions = resolver.resolveConflicts(values);
+                // after timestamp based resolving there should be only one
+                // version. Insert that to the destination cluster with
+                // empty vector clock
+                if(resolvedVersions.size() > 1) {
+                    throw new VoldemortException("More than one resolved versions, key: "
+                                                 + ByteUtils.toHexString(keyToResolve.get())
+                                                 + " vals:" + resolvedVersions);
                 }
-                printSummary();
-            } catch(Exception e) {
-                // all work should stop if we get here
-                logger.error(workName + "Error forklifting data ", e);
-            } finally {
-                latch.countDown();
+                Versioned<byte[]> value = new Versioned<byte[]>(resolvedVersions.get(0).getValue());
+                streamingPut(keyToResolve, value);
             }
         }
 
@@ -408,8 +515,7 @@ public class ClusterForkLiftTool implements Runnable {
      * fairly consistent.
      * 
      */
-    class SinglePartitionPrimaryResolvingForkLiftTask extends SinglePartitionForkLiftTask implements
-            Runnable {
+    class SinglePartitionPrimaryResolvingForkLiftTask extends SinglePartitionForkLiftTask {
 
         SinglePartitionPrimaryResolvingForkLiftTask(StoreRoutingPlan storeInstance,
                                                     int partitionId,
@@ -418,63 +524,51 @@ public class ClusterForkLiftTool implements Runnable {
         }
 
         @Override
-        public void run() {
-            String storeName = this.storeInstance.getStoreDefinition().getName();
+        void forkLift(String storeName) {
             ChainedResolver<Versioned<byte[]>> resolver = new ChainedResolver<Versioned<byte[]>>(new VectorClockInconsistencyResolver<byte[]>(),
                                                                                                  new TimeBasedInconsistencyResolver<byte[]>());
-            try {
-                logger.info(workName + "Starting processing");
-                Iterator<Pair<ByteArray, Versioned<byte[]>>> entryItr = srcAdminClient.bulkFetchOps.fetchEntries(storeInstance.getNodeIdForPartitionId(this.partitionId),
-                                                                                                                 storeName,
-                                                                                                                 Lists.newArrayList(this.partitionId),
-                                                                                                                 null,
-                                                                                                                 true);
-                ByteArray prevKey = null;
-                List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>();
-
-                while(entryItr.hasNext()) {
-                    Pair<ByteArray, Versioned<byte[]>> record = entryItr.next();
-                    ByteArray key = record.getFirst();
-                    Versioned<byte[]> versioned = record.getSecond();
-
-                    if(prevKey != null && !prevKey.equals(key)) {
-                        // resolve and write, if you see a new key
-                        List<Versioned<byte[]>> resolvedVersions = resolver.resolveConflicts(vals);
-                        if(resolvedVersions.size() > 1) {
-                            throw new VoldemortException("More than one resolved versions, key: "
-                                                         + ByteUtils.toHexString(prevKey.get())
-                                                         + " vals:" + resolvedVersions);
-                        }
-                        Versioned<byte[]> resolvedVersioned = resolvedVersions.get(0);
-                        // an empty vector clock will ensure, online traffic
-                        // will always win over the forklift writes
-                        Versioned<byte[]> newEntry = new Versioned<byte[]>(resolvedVersioned.getValue(),
-                                                                           new VectorClock(((VectorClock) resolvedVersioned.getVersion()).getTimestamp()));
-
-                        streamingPut(prevKey, newEntry);
-                        vals = new ArrayList<Versioned<byte[]>>();
+            Iterator<Pair<ByteArray, Versioned<byte[]>>> entryItr = prefetch(srcAdminClient.bulkFetchOps.fetchEntries(storeInstance.getNodeIdForPartitionId(this.partitionId),
+                                                                                                                      storeName,
+                                                                                                                      Lists.newArrayList(this.partitionId),
+                                                                                                                      null,
+                                                                                                                      true));
+            ByteArray prevKey = null;
+            List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>();
+
+            while(entryItr.hasNext()) {
+                Pair<ByteArray, Versioned<byte[]>> record = entryItr.next();
+                ByteArray key = record.getFirst();
+                Versioned<byte[]> versioned = record.getSecond();
+
+                if(prevKey != null && !prevKey.equals(key)) {
+                    // resolve and write, if you see a new key
+                    List<Versioned<byte[]>> resolvedVersions = resolver.resolveConflicts(vals);
+                    if(resolvedVersions.size() > 1) {
+                        throw new VoldemortException("More than one resolved versions, key: "
+                                                     + ByteUtils.toHexString(prevKey.get())
+                                                     + " vals:" + resolvedVersions);
                     }
-                    vals.add(versioned);
-                    prevKey = key;
-                }
-
-                // process the last record
-                if(vals.size() > 0) {
-                    List<Versioned<byte[]>> resolvedVals = resolver.resolveConflicts(vals);
-                    assert resolvedVals.size() == 1;
-                    Versioned<byte[]> resolvedVersioned = resolvedVals.get(0);
+                    Versioned<byte[]> resolvedVersioned = resolvedVersions.get(0);
+                    // an empty vector clock will ensure, online traffic
+                    // will always win over the forklift writes
                     Versioned<byte[]> newEntry = new Versioned<byte[]>(resolvedVersioned.getValue(),
                                                                        new VectorClock(((VectorClock) resolvedVersioned.getVersion()).getTimestamp()));
+
                     streamingPut(prevKey, newEntry);
+                    vals = new ArrayList<Versioned<byte[]>>();
                 }
+                vals.add(versioned);
+                prevKey = key;
+            }
 
-                printSummary();
-            } catch(Exception e) {
-                // if for some reason this partition fails, we will have retry
-                // again for those partitions alone.
-                logger.error(workName + "Error forklifting data ", e);
-            } finally {
-                latch.countDown();
+            // process the last record
+            if(vals.size() > 0) {
+                List<Versioned<byte[]>> resolvedVals = resolver.resolveConflicts(vals);
+                assert resolvedVals.size() == 1;
+                Versioned<byte[]> resolvedVersioned = resolvedVals.get(0);
+                Versioned<byte[]> newEntry = new Versioned<byte[]>(resolvedVersioned.getValue(),
+                                                                   new VectorClock(((VectorClock) resolvedVersioned.getVersion()).getTimestamp()));
+                streamingPut(prevKey, newEntry);
             }
         }
     }
@@ -485,8 +579,7 @@ public class ClusterForkLiftTool implements Runnable {
      * conflicting values
      * 
      */
-    class SinglePartitionNoResolutionForkLiftTask extends SinglePartitionForkLiftTask implements
-            Runnable {
+    class SinglePartitionNoResolutionForkLiftTask extends SinglePartitionForkLiftTask {
 
         SinglePartitionNoResolutionForkLiftTask(StoreRoutingPlan storeInstance,
                                                 int partitionId,
@@ -495,32 +588,267 @@ public class ClusterForkLiftTool implements Runnable {
         }
 
         @Override
+        void forkLift(String storeName) {
+            Iterator<Pair<ByteArray, Versioned<byte[]>>> entryItr = prefetch(srcAdminClient.bulkFetchOps.fetchEntries(storeInstance.getNodeIdForPartitionId(this.partitionId),
+                                                                                                                      storeName,
+                                                                                                                      Lists.newArrayList(this.partitionId),
+                                                                                                                      null,
+                                                                                                                      true));
+
+            while(entryItr.hasNext()) {
+                Pair<ByteArray, Versioned<byte[]>> record = entryItr.next();
+                ByteArray key = record.getFirst();
+                Versioned<byte[]> versioned = record.getSecond();
+                streamingPut(key, versioned);
+            }
+        }
+    }
+
+    private static final Object END_OF_FETCH = new Object();
+
+    /**
+     * Reads a stream out of the source cluster on a thread of the fetch pool,
+     * buffering up to a bounded number of entries ahead of the consumer.
+     * 
+     * The admin client only checks the socket of a fetch back in once the
+     * stream is read to its end, and interrupting the fetcher does not wake it
+     * from a socket read. So once closed, the fetcher reads the rest of the
+     * stream and drops it.
+     */
+    class PrefetchingIterator<T> implements ClosableIterator<T>, Runnable {
+
+        private final Iterator<T> source;
+        private final BlockingQueue<Object> queue;
+        private volatile boolean closed = false;
+        private Object next = null;
+
+        PrefetchingIterator(Iterator<T> source, int queueSize) {
+            this.source = source;
+            this.queue = new ArrayBlockingQueue<Object>(queueSize);
+            fetchPool.submit(this);
+        }
+
         public void run() {
-            String storeName = this.storeInstance.getStoreDefinition().getName();
             try {
-                logger.info(workName + "Starting processing");
-                Iterator<Pair<ByteArray, Versioned<byte[]>>> entryItr = srcAdminClient.bulkFetchOps.fetchEntries(storeInstance.getNodeIdForPartitionId(this.partitionId),
-                                                                                                                 storeName,
-                                                                                                                 Lists.newArrayList(this.partitionId),
-                                                                                                                 null,
-                                                                                                                 true);
-
-                while(entryItr.hasNext()) {
-                    Pair<ByteArray, Versioned<byte[]>> record = entryItr.next();
-                    ByteArray key = record.getFirst();
-                    Versioned<byte[]> versioned = record.getSecond();
-                    streamingPut(key, versioned);
+                while(source.hasNext()) {
+                    T item = source.next();
+                    if(!closed && !enqueue(item))
+                        logger.info("Prefetch closed before the end of the stream, draining it");
                 }
-                printSummary();
-
+                if(!closed)
+                    enqueue(END_OF_FETCH);
+            } catch(InterruptedException e) {
+                // nothing interrupts the fetchers but the shutdown of the pool
+                Thread.currentThread().interrupt();
             } catch(Exception e) {
-                // if for some reason this partition fails, we will have retry
-                // again for those partitions alone.
-                logger.error(workName + "Error forklifting data ", e);
+                if(closed) {
+                    logger.debug("Fetch failed after the prefetch was closed", e);
+                    return;
+                }
+                try {
+                    enqueue(new FetchFailure(e));
+                } catch(InterruptedException ie) {
+                    // closed, nobody is waiting for the failure
+                }
+            }
+        }
+
+        /**
+         * @return false if the iterator was closed before the item could be
+         *         queued
+         */
+        private boolean enqueue(Object item) throws InterruptedException {
+            while(!queue.offer(item, 1, TimeUnit.SECONDS)) {
+                if(closed)
+                    return false;
+            }
+            return true;
+        }
+
+        public boolean hasNext() {
+            if(next == null) {
+                try {
+                    next = queue.take();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new VoldemortException("Interrupted while fetching from the source cluster",
+                                                 e);
+                }
+                if(next instanceof FetchFailure) {
+                    Exception cause = ((FetchFailure) next).cause;
+                    next = END_OF_FETCH;
+                    throw new VoldemortException("Fetch from the source cluster failed", cause);
+                }
+            }
+            return next != END_OF_FETCH;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            T item = (T) next;
+            next = null;
+            return item;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("No removal");
+        }
+
+        public void close() {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private static class FetchFailure {
+
+        private final Exception cause;
+
+        FetchFailure(Exception cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Partitions of each store that were completely forklifted, recorded in a
+     * file so that a rerun of the tool after a crash skips them. A partition
+     * is only recorded once the destination cluster acknowledged the commit
+     * that followed its last entry. The partitions being forklifted when a
+     * commit fails are not recorded at all during this run, since some of
+     * their entries were lost.
+     */
+    static class ForkLiftCheckpoint {
+
+        private final File file;
+        private final Set<Pair<String, Integer>> completed = new HashSet<Pair<String, Integer>>();
+        private final Set<Pair<String, Integer>> inProgress = new HashSet<Pair<String, Integer>>();
+        private final Set<Pair<String, Integer>> pending = new HashSet<Pair<String, Integer>>();
+        private final Set<Pair<String, Integer>> failed = new HashSet<Pair<String, Integer>>();
+
+        ForkLiftCheckpoint(File file) throws IOException {
+            this.file = file;
+            if(file.exists()) {
+                for(String line: Files.readLines(file, Charsets.UTF_8)) {
+                    line = line.trim();
+                    if(line.length() == 0)
+                        continue;
+                    int separator = line.lastIndexOf(' ');
+                    if(separator < 0)
+                        throw new VoldemortException("Invalid line in checkpoint file " + file
+                                                     + " : " + line);
+                    completed.add(Pair.create(line.substring(0, separator),
+                                              Integer.parseInt(line.substring(separator + 1))));
+                }
+                logger.info("Resuming from checkpoint " + file + ", " + completed.size()
+                            + " partitions were forklifted before");
+            }
+        }
+
+        synchronized boolean isCompleted(String storeName, int partitionId) {
+            return completed.contains(Pair.create(storeName, partitionId));
+        }
+
+        synchronized void started(String storeName, int partitionId) {
+            inProgress.add(Pair.create(storeName, partitionId));
+        }
+
+        synchronized void finished(String storeName, int partitionId, boolean success) {
+            Pair<String, Integer> partition = Pair.create(storeName, partitionId);
+            inProgress.remove(partition);
+            if(success && !failed.contains(partition))
+                pending.add(partition);
+        }
+
+        /**
+         * Records the partitions finished before the last commit
+         */
+        synchronized void commit() throws IOException {
+            if(pending.isEmpty())
+                return;
+            StringBuilder lines = new StringBuilder();
+            for(Pair<String, Integer> partition: pending) {
+                lines.append(partition.getFirst())
+                     .append(' ')
+                     .append(partition.getSecond())
+                     .append('\n');
+            }
+            FileOutputStream output = new FileOutputStream(file, true);
+            try {
+                output.write(lines.toString().getBytes(Charsets.UTF_8));
+                output.getFD().sync();
             } finally {
-                latch.countDown();
+                output.close();
+            }
+            completed.addAll(pending);
+            pending.clear();
+        }
+
+        /**
+         * Gives up on the partitions with entries in the failed commit
+         */
+        synchronized void abort() {
+            failed.addAll(inProgress);
+            failed.addAll(pending);
+            pending.clear();
+        }
+    }
+
+    /**
+     * Adapts the rate of puts to the destination cluster to the time the
+     * destination takes to acknowledge each commit: the rate is halved when a
+     * commit is slower than the target latency, and raised back by a twentieth
+     * of the maximum rate after every faster commit.
+     */
+    static class ForkLiftRateController {
+
+        private final int maxRate;
+        private final int minRate;
+        private final long targetCommitLatencyMs;
+        private final AtomicInteger newRate = new AtomicInteger(-1);
+        private int rate;
+
+        ForkLiftRateController(int maxRate, long targetCommitLatencyMs) {
+            this.maxRate = maxRate;
+            this.minRate = Math.max(1, maxRate / 100);
+            this.targetCommitLatencyMs = targetCommitLatencyMs;
+            this.rate = maxRate;
+        }
+
+        synchronized int onCommit(long commitLatencyMs) {
+            int prevRate = rate;
+            if(commitLatencyMs > targetCommitLatencyMs) {
+                rate = Math.max(minRate, rate / 2);
+            } else {
+                rate = Math.min(maxRate, rate + Math.max(1, maxRate / 20));
+            }
+            if(rate != prevRate) {
+                logger.info("Commit took " + commitLatencyMs + " ms, changing the rate from "
+                            + prevRate + " to " + rate + " puts per second");
+                newRate.set(rate);
             }
+            return rate;
+        }
+
+        /**
+         * Applies the last rate change to the streaming client. Called from the
+         * forklift tasks, since the commit callbacks run while the streaming
+         * client is locked.
+         */
+        void maybeUpdateThrottleLimit(BaseStreamingClient streamingClient) {
+            int rateToApply = newRate.getAndSet(-1);
+            if(rateToApply > 0)
+                streamingClient.updateThrottleLimit(rateToApply);
+        }
+    }
 
+    private void onCommit() throws IOException {
+        if(rateController != null) {
+            rateController.onCommit(dstStreamingClient.getLastCommitLatencyMs());
+        }
+        if(checkpoint != null) {
+            checkpoint.commit();
         }
     }
 
@@ -530,29 +858,42 @@ public class ClusterForkLiftTool implements Runnable {
         try {
             // process stores one-by-one
             for(String store: storesList) {
+                List<Integer> partitionsToForkLift = new ArrayList<Integer>(partitionList.size());
+                for(Integer partitionId: partitionList) {
+                    if(checkpoint == null || !checkpoint.isCompleted(store, partitionId))
+                        partitionsToForkLift.add(partitionId);
+                }
+                if(partitionsToForkLift.isEmpty()) {
+                    logger.info("Skipping store " + store
+                                + " since all its partitions were forklifted before");
+                    continue;
+                }
+
                 logger.info("Processing store " + store);
                 dstStreamingClient.initStreamingSession(store, new Callable<Object>() {
 
                     @Override
                     public Object call() throws Exception {
-
+                        onCommit();
                         return null;
                     }
                 }, new Callable<Object>() {
 
                     @Override
                     public Object call() throws Exception {
-
+                        if(checkpoint != null) {
+                            checkpoint.abort();
+                        }
                         return null;
                     }
                 }, true);
 
-                final CountDownLatch latch = new CountDownLatch(srcCluster.getNumberOfPartitions());
+                final CountDownLatch latch = new CountDownLatch(partitionsToForkLift.size());
                 StoreRoutingPlan storeInstance = new StoreRoutingPlan(srcCluster,
                                                                       srcStoreDefMap.get(store));
 
                 // submit work on every partition that is to be forklifted
-                for(Integer partitionId: partitionList) {
+                for(Integer partitionId: partitionsToForkLift) {
                     if(this.mode == ForkLiftTaskMode.global_resolution) {
                         // do thorough global resolution across replicas
                         SinglePartitionGloballyResolvingForkLiftTask work = new SinglePartitionGloballyResolvingForkLiftTask(storeInstance,
@@ -589,6 +930,7 @@ public class ClusterForkLiftTool implements Runnable {
             } catch(InterruptedException ie) {
                 logger.error("InterruptedException while waiting for worker pool to shutdown", ie);
             }
+            fetchPool.shutdownNow();
             srcAdminClient.close();
             dstStreamingClient.getAdminClient().close();
         }
@@ -647,6 +989,18 @@ public class ClusterForkLiftTool implements Runnable {
               .withOptionalArg()
               .describedAs("mode")
               .ofType(String.class);
+        parser.accepts("checkpoint-file",
+                       "File recording the partitions forklifted so far. If the tool is run again with the same file, "
+                               + "those partitions are skipped. [Default: no checkpoint ]")
+              .withRequiredArg()
+              .describedAs("checkpointFile")
+              .ofType(String.class);
+        parser.accepts("target-commit-latency-ms",
+                       "Lower the rate of puts below max-puts-per-second whenever the destination cluster takes longer "
+                               + "than this to acknowledge a batch of puts. [Default: fixed rate ]")
+              .withRequiredArg()
+              .describedAs("targetCommitLatencyMs")
+              .ofType(Long.class);
         parser.accepts(OVERWRITE_OPTION, OVERWRITE_WARNING_MESSAGE)
               .withOptionalArg()
               .describedAs("overwriteExistingValue")
@@ -720,6 +1074,15 @@ public class ClusterForkLiftTool implements Runnable {
                 mode = ForkLiftTaskMode.primary_resolution;
         }
 
+        String checkpointFile = null;
+        if(options.has("checkpoint-file")) {
+            checkpointFile = (String) options.valueOf("checkpoint-file");
+        }
+        long targetCommitLatencyMs = 0;
+        if(options.has("target-commit-latency-ms")) {
+            targetCommitLatencyMs = (Long) options.valueOf("target-commit-latency-ms");
+        }
+
         Boolean overwrite = extractBoolOption(options, OVERWRITE_OPTION);
         boolean ignoreSchemaMismatch = extractBoolOption(options, IGNORE_SCHEMA_MISMATCH);
 
@@ -732,7 +1095,9 @@ public class ClusterForkLiftTool implements Runnable {
                                                                    progressOps,
                                                                    storesList,
                                                                    partitions,
-                                                                   mode);
+                                                                   mode,
+                                                                   checkpointFile,
+                                                                   targetCommitLatencyMs);
         forkLiftTool.run();
         // TODO cleanly shut down the hanging threadpool
         System.exit(0);
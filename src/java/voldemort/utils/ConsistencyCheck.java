@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import joptsimple.OptionParser;
@@ -36,11 +37,15 @@ import joptsimple.OptionSet;
 import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
+import voldemort.client.protocol.RequestFormatType;
 import voldemort.client.protocol.admin.AdminClient;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
 import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.RequestRoutingType;
 import voldemort.store.StoreDefinition;
+import voldemort.store.socket.SocketStore;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.versioning.Occurred;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
@@ -49,12 +54,16 @@ import voldemort.versioning.Versioned;
 public class ConsistencyCheck {
 
     private static final String ComparisonTypeArgument = "comparison-type";
+    private static final String MerkleDepthArgument = "merkle-depth";
+    /* building a Merkle tree scans the partition on the server */
+    private static final int MERKLE_SOCKET_TIMEOUT_MS = (int) TimeUnit.HOURS.toMillis(24);
     private static Logger logger = Logger.getLogger(ConsistencyCheck.class);
     private final List<String> urls;
     private final String storeName;
     private final Integer partitionId;
     private final ValueFactory valueFactory;
     private final Reporter reporter;
+    private final Integer merkleDepth;
 
     private Integer retentionDays = null;
     private Integer replicationFactor = 0;
@@ -69,11 +78,28 @@ public class ConsistencyCheck {
     public ConsistencyCheck(List<String> urls,
             String storeName,
             int partitionId, Writer badKeyWriter, ComparisonType comparisonType) {
+        this(urls, storeName, partitionId, badKeyWriter, comparisonType, null);
+    }
+
+    /**
+     * @param merkleDepth If not null, the replicas are compared by the Merkle
+     *        trees of this depth of their versions of the partition, and only
+     *        the keys of the leaves that differ are fetched. The trees hash
+     *        versions, so this requires ComparisonType.VERSION.
+     */
+    public ConsistencyCheck(List<String> urls,
+            String storeName,
+            int partitionId, Writer badKeyWriter, ComparisonType comparisonType,
+            Integer merkleDepth) {
+        if(merkleDepth != null && comparisonType != ComparisonType.VERSION) {
+            throw new IllegalArgumentException("Merkle trees can only compare versions");
+        }
         this.urls = urls;
         this.storeName = storeName;
         this.partitionId = partitionId;
         this.reporter = new Reporter(badKeyWriter);
         this.valueFactory = new ValueFactory(comparisonType);
+        this.merkleDepth = merkleDepth;
     }
 
     /**
@@ -193,6 +219,9 @@ public class ConsistencyCheck {
      * @return Results in form of ConsistencyCheckStats
      */
     public Reporter execute() throws IOException {
+        if(merkleDepth != null) {
+            return executeWithMerkleTrees();
+        }
         Map<ClusterNode, Iterator<Pair<ByteArray, Versioned<byte[]>>>> nodeFetchIteratorMap;
         nodeFetchIteratorMap = new HashMap<ClusterNode, Iterator<Pair<ByteArray, Versioned<byte[]>>>>();
         /* start fetch from each node */
@@ -275,6 +304,98 @@ public class ConsistencyCheck {
         return reporter;
     }
 
+    /**
+     * Run consistency check by comparing the Merkle trees of the partition on
+     * each node, then fetching the versions of the keys of the leaves that
+     * differ only
+     *
+     * @return Results in form of ConsistencyCheckStats
+     */
+    private Reporter executeWithMerkleTrees() throws IOException {
+        ClientRequestExecutorPool pool = new ClientRequestExecutorPool(1,
+                (int) TimeUnit.SECONDS.toMillis(10),
+                MERKLE_SOCKET_TIMEOUT_MS,
+                64 * 1024);
+        try {
+            /* the Merkle trees are only served on the admin port */
+            Map<ClusterNode, SocketStore> nodeStoreMap = new HashMap<ClusterNode, SocketStore>();
+            for(ClusterNode clusterNode: clusterNodeList) {
+                Node node = clusterNode.getNode();
+                nodeStoreMap.put(clusterNode, pool.create(storeName,
+                        node.getHost(),
+                        node.getAdminPort(),
+                        RequestFormatType.VOLDEMORT_V4,
+                        RequestRoutingType.IGNORE_CHECKS));
+            }
+
+            /* any leaf of any tree that differs from the first one */
+            MerkleTree firstTree = null;
+            Set<Integer> divergentLeaves = new TreeSet<Integer>();
+            for(ClusterNode clusterNode: clusterNodeList) {
+                MerkleTree tree = nodeStoreMap.get(clusterNode).getMerkleTree(partitionId,
+                        merkleDepth);
+                if(firstTree == null) {
+                    firstTree = tree;
+                } else {
+                    divergentLeaves.addAll(firstTree.getDivergentLeaves(tree));
+                }
+            }
+            if(logger.isInfoEnabled()) {
+                logger.info(divergentLeaves.size() + " of " + firstTree.getNumLeaves()
+                        + " Merkle tree leaves differ for partition[" + partitionId
+                        + "] of store[" + storeName + "]");
+            }
+
+            /* keys of the leaves that are the same everywhere are consistent */
+            for(int leaf = 0; leaf < firstTree.getNumLeaves(); leaf++) {
+                if(!divergentLeaves.contains(leaf)) {
+                    reporter.recordGoodKey(firstTree.getLeafKeyCount(leaf));
+                }
+            }
+
+            if(!divergentLeaves.isEmpty()) {
+                for(ClusterNode clusterNode: clusterNodeList) {
+                    Map<ByteArray, List<Version>> keyVersionsMap = nodeStoreMap.get(clusterNode)
+                            .getMerkleLeafVersions(partitionId, merkleDepth, divergentLeaves);
+                    for(Map.Entry<ByteArray, List<Version>> keyVersions: keyVersionsMap.entrySet()) {
+                        for(Version version: keyVersions.getValue()) {
+                            reporter.recordScans(1);
+                            recordFetch(clusterNode,
+                                    keyVersions.getKey(),
+                                    new Versioned<byte[]>(new byte[0], version));
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.close();
+            for(AdminClient adminClient: adminClients) {
+                if(adminClient != null) {
+                    adminClient.close();
+                }
+            }
+        }
+
+        // clean keys not sufficient for write
+        cleanIneligibleKeys(keyValueNodeSetMap, requiredWrites);
+
+        // every node has been fetched
+        Iterator<Map.Entry<ByteArray, Map<Value, Set<ClusterNode>>>> keyIterator =
+                keyValueNodeSetMap.entrySet().iterator();
+        while(keyIterator.hasNext()) {
+            ConsistencyLevel level = determineConsistency(keyIterator.next().getValue(),
+                    replicationFactor);
+            if(level == ConsistencyLevel.FULL || level == ConsistencyLevel.LATEST_CONSISTENT) {
+                keyIterator.remove();
+                reporter.recordGoodKey(1);
+            }
+        }
+
+        reporter.processInconsistentKeys(storeName, partitionId, keyValueNodeSetMap);
+
+        return reporter;
+    }
+
     public void trySweepAll() {
         for(ByteArray finishedKey = keyFetchTracker.nextFinished(); finishedKey != null; finishedKey = keyFetchTracker.nextFinished()) {
             if (keyValueNodeSetMap.containsKey(finishedKey)) {
@@ -613,6 +734,11 @@ public class ConsistencyCheck {
                 .withRequiredArg()
                 .describedAs("comparisonType")
                 .ofType(String.class);
+        parser.accepts(MerkleDepthArgument, "compare Merkle trees of this depth before fetching keys")
+                .withOptionalArg()
+                .describedAs("depth")
+                .ofType(Integer.class)
+                .defaultsTo(MerkleTree.DEFAULT_DEPTH);
         return parser;
     }
 
@@ -632,6 +758,7 @@ public class ConsistencyCheck {
         help.append("    --bad-key-file <badKeyFileOut>\n");
         help.append("  Optional:\n");
         help.append("    --comparison-type [version | hash ]\n");
+        help.append("    --merkle-depth [<depth>]\n");
         help.append("    --help\n");
         help.append("  Note:\n");
         help.append("    If you have two or more clusters to scan for consistency across them,\n");
@@ -641,6 +768,11 @@ public class ConsistencyCheck {
         help.append("    instead of VectorClocks\n");
         help.append("    If specified clusters do not have the same number of partitions, \n");
         help.append("    checking will fail.\n");
+        help.append("    With --merkle-depth, each node sends a Merkle tree of the versions of the\n");
+        help.append("    partition and only the keys of the leaves that differ are fetched. The\n");
+        help.append("    trees are requested with the voldemort-native-v4 protocol on the admin\n");
+        help.append("    port of each node, within its scan permits and streaming rate. The\n");
+        help.append("    comparison type must be version.\n");
         System.out.print(help.toString());
     }
 
@@ -744,6 +876,11 @@ public class ConsistencyCheck {
             comparisonType = ComparisonType.valueOf(comparisonArgument) ;
         }
 
+        Integer merkleDepth = null;
+        if (options.has(MerkleDepthArgument)) {
+            merkleDepth = (Integer) options.valueOf(MerkleDepthArgument);
+        }
+
         BufferedWriter badKeyWriter = null;
         try {
             badKeyWriter = new BufferedWriter(new FileWriter(badKeyFile));
@@ -759,7 +896,8 @@ public class ConsistencyCheck {
                         storeName,
                         partitionId,
                         badKeyWriter,
-                        comparisonType);
+                        comparisonType,
+                        merkleDepth);
                 checker.connect();
                 Reporter reporter = checker.execute();
                 partitionStatsMap.put(partitionId, reporter);
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.annotations.concurrency.NotThreadsafe;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+
+/**
+ * A Merkle tree of the versions of the keys of a partition, used to find the
+ * keys whose versions differ between replicas without comparing every key.
+ *
+ * Keys are spread over 2^depth leaves by the hash of the key. The hash of a
+ * leaf is the sum of the hashes of the key and version of each of its entries,
+ * so it does not depend on the order the entries were added in. The hash of an
+ * inner node mixes the hashes of its two children, so trees with the same root
+ * almost certainly hold the same versions, and descending only into the
+ * children that differ leads to the leaves that do.
+ *
+ * Only the leaves are sent over the wire, the inner nodes are computed when
+ * first needed.
+ */
+@NotThreadsafe
+public class MerkleTree {
+
+    public static final int DEFAULT_DEPTH = 12;
+    public static final int MAX_DEPTH = 20;
+
+    private final int depth;
+    private final long[] leafHashes;
+    private final int[] leafKeyCounts;
+
+    /*
+     * Node i has children 2i and 2i + 1, the root is node 1 and leaf l is node
+     * 2^depth + l. Null until first needed and after each change.
+     */
+    private long[] nodeHashes;
+
+    /**
+     * Creates an empty tree
+     *
+     * @param depth The number of levels below the root, at most MAX_DEPTH
+     */
+    public MerkleTree(int depth) {
+        this(new long[1 << checkDepth(depth)], new int[1 << depth]);
+    }
+
+    /**
+     * Creates a tree from the leaves of another, as read from the wire
+     *
+     * @param leafHashes The hash of each leaf, a power of two of them
+     * @param leafKeyCounts The number of keys in each leaf
+     */
+    public MerkleTree(long[] leafHashes, int[] leafKeyCounts) {
+        if(Integer.bitCount(leafHashes.length) != 1)
+            throw new IllegalArgumentException("The number of leaves must be a power of two, not "
+                                               + leafHashes.length);
+        if(leafKeyCounts.length != leafHashes.length)
+            throw new IllegalArgumentException("There are " + leafKeyCounts.length
+                                               + " key counts for " + leafHashes.length
+                                               + " leaves");
+        this.depth = checkDepth(Integer.numberOfTrailingZeros(leafHashes.length));
+        this.leafHashes = leafHashes;
+        this.leafKeyCounts = leafKeyCounts;
+    }
+
+    private static int checkDepth(int depth) {
+        if(depth < 0 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("Depth must be between 0 and " + MAX_DEPTH
+                                               + ", not " + depth);
+        return depth;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getNumLeaves() {
+        return leafHashes.length;
+    }
+
+    /**
+     * @return The leaf of a tree of the given depth the key goes to
+     */
+    public static int getLeaf(byte[] key, int depth) {
+        if(depth == 0)
+            return 0;
+        return (int) (hashKey(key) >>> (64 - depth));
+    }
+
+    public int getLeaf(byte[] key) {
+        return getLeaf(key, depth);
+    }
+
+    /**
+     * Adds a key with all its versions to the tree
+     */
+    public void add(byte[] key, List<Version> versions) {
+        long keyHash = hashKey(key);
+        int leaf = depth == 0 ? 0 : (int) (keyHash >>> (64 - depth));
+        for(Version version: versions)
+            leafHashes[leaf] += mix(keyHash ^ hashVersion(version));
+        leafKeyCounts[leaf]++;
+        nodeHashes = null;
+    }
+
+    public long getLeafHash(int leaf) {
+        return leafHashes[leaf];
+    }
+
+    public int getLeafKeyCount(int leaf) {
+        return leafKeyCounts[leaf];
+    }
+
+    /**
+     * @return The number of keys in the tree
+     */
+    public long getKeyCount() {
+        long count = 0;
+        for(int keyCount: leafKeyCounts)
+            count += keyCount;
+        return count;
+    }
+
+    public long getRootHash() {
+        return getNodeHashes()[1];
+    }
+
+    /**
+     * Descends both trees from the root into the subtrees whose hashes differ
+     *
+     * @param other A tree of the same depth
+     * @return The leaves whose hashes differ, in increasing order
+     */
+    public List<Integer> getDivergentLeaves(MerkleTree other) {
+        if(other.depth != depth)
+            throw new IllegalArgumentException("Cannot compare a tree of depth " + depth
+                                               + " with one of depth " + other.depth);
+        List<Integer> leaves = new ArrayList<Integer>();
+        addDivergentLeaves(getNodeHashes(), other.getNodeHashes(), 1, leaves);
+        return leaves;
+    }
+
+    private void addDivergentLeaves(long[] hashes,
+                                    long[] otherHashes,
+                                    int node,
+                                    List<Integer> leaves) {
+        if(hashes[node] == otherHashes[node])
+            return;
+        if(node >= leafHashes.length) {
+            leaves.add(node - leafHashes.length);
+        } else {
+            addDivergentLeaves(hashes, otherHashes, 2 * node, leaves);
+            addDivergentLeaves(hashes, otherHashes, 2 * node + 1, leaves);
+        }
+    }
+
+    private long[] getNodeHashes() {
+        if(nodeHashes == null) {
+            int numLeaves = leafHashes.length;
+            long[] hashes = new long[2 * numLeaves];
+            System.arraycopy(leafHashes, 0, hashes, numLeaves, numLeaves);
+            for(int node = numLeaves - 1; node > 0; node--)
+                hashes[node] = mix(hashes[2 * node] + 0x9E3779B97F4A7C15L * hashes[2 * node + 1]);
+            nodeHashes = hashes;
+        }
+        return nodeHashes;
+    }
+
+    private static long hashKey(byte[] key) {
+        long hash = FnvHashFunction.FNV_BASIS_64;
+        for(byte b: key) {
+            hash ^= b & 0xff;
+            hash *= FnvHashFunction.FNV_PRIME_64;
+        }
+        return mix(hash);
+    }
+
+    /*
+     * Only the clock entries are hashed, like VectorClock.equals() the
+     * timestamp is left out
+     */
+    private static long hashVersion(Version version) {
+        long hash = 0;
+        for(Map.Entry<Short, Long> entry: ((VectorClock) version).getVersionMap().entrySet())
+            hash = mix(hash ^ ((long) entry.getKey() << 48) ^ entry.getValue());
+        return hash;
+    }
+
+    /*
+     * The finalizer of MurmurHash3, so that every bit of the input affects
+     * every bit of the output
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -19,10 +19,11 @@ package voldemort.utils.pool;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -73,7 +74,6 @@ public class KeyedResourcePool<K, V> {
     private final ResourceFactory<K, V> objectFactory;
     private final ResourcePoolConfig resourcePoolConfig;
     private final ConcurrentMap<K, Pool<V>> resourcePoolMap;
-    private final AtomicInteger connectionsInProgress = new AtomicInteger(0);
 
     public KeyedResourcePool(ResourceFactory<K, V> objectFactory,
                              ResourcePoolConfig resourcePoolConfig) {
@@ -126,8 +126,9 @@ public class KeyedResourcePool<K, V> {
         checkNotClosed();
 
         long startNs = System.nanoTime();
+        // compare elapsed times rather than deadlines, since the default
+        // timeout of Long.MAX_VALUE overflows any deadline
         long timeoutNs = resourcePoolConfig.getTimeout(TimeUnit.NANOSECONDS);
-        long endNs = startNs + timeoutNs;
         Pool<V> resourcePool = getResourcePoolForKey(key);
         V resource = null;
         try {
@@ -137,7 +138,7 @@ public class KeyedResourcePool<K, V> {
             long totalBlockingElapsedNs = 0;
             final long MAX_WAIT_TIME = 300 * Time.NS_PER_MS;
 
-            while(resource == null && (iterStartTime = System.nanoTime()) < endNs) {
+            while(resource == null && (iterStartTime = System.nanoTime()) - startNs < timeoutNs) {
                 // Must attempt a non blocking checkout before blockingGet to
                 // ensure resources are created for the pool.
                 resource = attemptNonBlockingCheckout(key, resourcePool);
@@ -149,7 +150,7 @@ public class KeyedResourcePool<K, V> {
                 // it took in this iteration and add it to overall.
                 long nonBlockingFinishTime = System.nanoTime();
                 totalNonBlockingElapsedNs += (nonBlockingFinishTime - iterStartTime);
-                long timeRemainingNs = endNs - nonBlockingFinishTime;
+                long timeRemainingNs = timeoutNs - (nonBlockingFinishTime - startNs);
 
                 long waitNs = timeRemainingNs;
                 // If the pool is not at the maximum size, wait and then try to
@@ -200,17 +201,18 @@ public class KeyedResourcePool<K, V> {
         // could wait, other thread could steal that connection. The
         // connectionsInProgress tries to avoid these edge cases by not
         // requesting a connection from the pool when other thread is
-        // requesting one.
-        if(connectionsInProgress.get() == 0) {
+        // requesting one. It is kept per pool, so that the connections being
+        // created to one destination do not hold up the checkouts to another.
+        if(pool.connectionsInProgress.get() == 0) {
             resource = nonBlockingGet(key, pool);
         }
         if(resource == null) {
-            connectionsInProgress.incrementAndGet();
+            pool.connectionsInProgress.incrementAndGet();
             try {
                 attemptGrow(key, this.objectFactory, pool);
                 resource = nonBlockingGet(key, pool);
             } finally {
-                connectionsInProgress.decrementAndGet();
+                pool.connectionsInProgress.decrementAndGet();
             }
         }
         return resource;
@@ -336,6 +338,13 @@ public class KeyedResourcePool<K, V> {
     public void checkin(K key, V resource) {
         if(isOpenAndValid(key, resource)) {
             Pool<V> resourcePool = getResourcePoolForExistingKey(key);
+            if(resourcePool.size.get() > resourcePool.maxPoolSize) {
+                // the pool was shrunk while the resource was checked out.
+                // Concurrent checkins may destroy a few resources too many,
+                // which the pool recreates on demand.
+                destroyResource(key, resourcePool, resource);
+                return;
+            }
             boolean success = resourcePool.nonBlockingPut(resource);
             if(!success) {
                 destroyResource(key, resourcePool, resource);
@@ -395,6 +404,42 @@ public class KeyedResourcePool<K, V> {
         }
     }
 
+    /**
+     * Get the current maximum size of a specific pool.
+     *
+     * @param key The key
+     * @return The maximum number of resources the pool for the key may hold
+     */
+    public int getMaxPoolSize(K key) {
+        Pool<V> resourcePool = resourcePoolMap.get(key);
+        if(resourcePool == null)
+            return resourcePoolConfig.getMaxPoolSize();
+        return resourcePool.maxPoolSize;
+    }
+
+    /**
+     * Resize a specific pool. When shrinking, idle resources above the new
+     * size are destroyed immediately, and checked out resources as they are
+     * checked in.
+     *
+     * @param key The key for the pool to resize
+     * @param maxPoolSize The new maximum size, at most the configured maximum
+     *        pool size
+     */
+    public void setMaxPoolSize(K key, int maxPoolSize) {
+        if(maxPoolSize <= 0 || maxPoolSize > resourcePoolConfig.getMaxPoolSize())
+            throw new IllegalArgumentException("Pool size must be between 1 and "
+                                               + resourcePoolConfig.getMaxPoolSize() + ".");
+        Pool<V> resourcePool = getResourcePoolForKey(key);
+        resourcePool.maxPoolSize = maxPoolSize;
+        while(resourcePool.size.get() > maxPoolSize) {
+            V resource = resourcePool.pollIdle();
+            if(resource == null)
+                break;
+            destroyResource(key, resourcePool, resource);
+        }
+    }
+
     /**
      * Count the number of existing resources for a specific pool.
      *
@@ -441,7 +486,7 @@ public class KeyedResourcePool<K, V> {
         if(resourcePoolMap.containsKey(key)) {
             try {
                 Pool<V> resourcePool = getResourcePoolForExistingKey(key);
-                return resourcePool.queue.size();
+                return resourcePool.idle.get();
             } catch(IllegalArgumentException iae) {
                 if(logger.isDebugEnabled()) {
                     logger.debug("getCheckedInResourceCount called on invalid key: ", iae);
@@ -461,7 +506,7 @@ public class KeyedResourcePool<K, V> {
     public int getCheckedInResourceCount() {
         int count = 0;
         for(Entry<K, Pool<V>> entry: this.resourcePoolMap.entrySet())
-            count += entry.getValue().queue.size();
+            count += entry.getValue().idle.get();
         return count;
     }
 
@@ -510,41 +555,67 @@ public class KeyedResourcePool<K, V> {
     }
 
     /**
-     * A fixed size pool that uses an ArrayBlockingQueue. The pool grows to no
-     * more than some specified maxPoolSize. The pool creates new resources in
-     * the face of existing resources being destroyed.
+     * A fixed size pool of idle resources that uses a lock free queue. Each
+     * idle resource in the queue is backed by a permit of a semaphore, which
+     * lets checkouts block until a resource is checked in, while checkouts and
+     * checkins that need not wait get by with a few atomic operations. The
+     * pool grows to no more than some specified maxPoolSize, which can be
+     * lowered below the configured size to shrink the pool. The pool creates
+     * new resources in the face of existing resources being destroyed.
      *
      */
     protected static class Pool<V> {
 
         final private AtomicInteger size = new AtomicInteger(0);
+        final private AtomicInteger idle = new AtomicInteger(0);
         final private AtomicInteger blockingGets = new AtomicInteger(0);
-        final private int maxPoolSize;
-        final private BlockingQueue<V> queue;
-        private final BlockingQueue<Pair<Long, Exception>> asyncExceptions;
+        final private AtomicInteger connectionsInProgress = new AtomicInteger(0);
+        final private int capacity;
+        volatile private int maxPoolSize;
+        final private Queue<V> queue;
+        final private Semaphore available;
+        private final Queue<Pair<Long, Exception>> asyncExceptions;
+        private final AtomicInteger asyncExceptionCount = new AtomicInteger(0);
 
         private final long excpetionReportTimeMS;
         final int EXCEPTION_COUNT_MAX = 300;
 
         public Pool(ResourcePoolConfig resourcePoolConfig) {
-            this.maxPoolSize = resourcePoolConfig.getMaxPoolSize();
-            queue = new ArrayBlockingQueue<V>(this.maxPoolSize, resourcePoolConfig.isFair());
-            this.asyncExceptions = new ArrayBlockingQueue<Pair<Long, Exception>>(EXCEPTION_COUNT_MAX);
+            this.capacity = resourcePoolConfig.getMaxPoolSize();
+            this.maxPoolSize = this.capacity;
+            this.queue = new ConcurrentLinkedQueue<V>();
+            this.available = new Semaphore(0, resourcePoolConfig.isFair());
+            this.asyncExceptions = new ConcurrentLinkedQueue<Pair<Long, Exception>>();
             // The async exceptions are remembered twice the connection time.
-            long configExceptionReportTime = resourcePoolConfig.getTimeout(TimeUnit.MILLISECONDS) * 2;
+            // Halve the cap rather than doubling the timeout, which overflows
+            // for the default timeout of Long.MAX_VALUE.
+            long configTimeoutMS = resourcePoolConfig.getTimeout(TimeUnit.MILLISECONDS);
             long MAX_EXCEPTION_REPORT_TIME = TimeUnit.MILLISECONDS.convert(30, TimeUnit.SECONDS);
-            excpetionReportTimeMS = Math.min(configExceptionReportTime, MAX_EXCEPTION_REPORT_TIME);
+            excpetionReportTimeMS = Math.min(configTimeoutMS, MAX_EXCEPTION_REPORT_TIME / 2) * 2;
         }
 
         public void reportException(Exception e) {
+            if(asyncExceptionCount.incrementAndGet() > EXCEPTION_COUNT_MAX) {
+                asyncExceptionCount.decrementAndGet();
+                return;
+            }
             asyncExceptions.offer(new Pair<Long, Exception>(System.currentTimeMillis(), e));
         }
 
+        private Pair<Long, Exception> pollReportedException() {
+            Pair<Long, Exception> entry = asyncExceptions.poll();
+            if(entry != null)
+                asyncExceptionCount.decrementAndGet();
+            return entry;
+        }
+
         private void throwReportedExceptions() throws Exception {
+            if(asyncExceptions.isEmpty())
+                return;
             Pair<Long, Exception> entry;
             int skippedExceptionCount = 0;
             while(true) {
-                entry = asyncExceptions.poll();
+                entry = pollReportedException();
                 if(entry == null) {
                     if(skippedExceptionCount > 0) {
                         logger.info(" All Exceptions were expired exceptions. Count "
@@ -566,6 +637,17 @@ public class KeyedResourcePool<K, V> {
             }
         }
 
+        /**
+         * Takes an idle resource out of the queue, once its permit was
+         * acquired. Every permit is released after its resource was queued, so
+         * the queue can not be empty here.
+         */
+        private V take() {
+            V v = this.queue.poll();
+            idle.decrementAndGet();
+            return v;
+        }
+
         /**
          * get a resource if it is available in the pool. If not return null.
          * The resource could be invalid and caller should validate them before
@@ -576,7 +658,18 @@ public class KeyedResourcePool<K, V> {
          */
         public V nonBlockingGet() throws Exception {
             throwReportedExceptions();
-            return this.queue.poll();
+            return pollIdle();
+        }
+
+        /**
+         * get an idle resource without reporting the remembered exceptions
+         * 
+         * @return resource if available else null
+         */
+        public V pollIdle() {
+            if(!this.available.tryAcquire())
+                return null;
+            return take();
         }
 
         /**
@@ -590,10 +683,11 @@ public class KeyedResourcePool<K, V> {
          */
         public V blockingGet(long timeoutNs) throws Exception {
             throwReportedExceptions();
-            V v;
+            V v = null;
             try {
                 blockingGets.incrementAndGet();
-                v = this.queue.poll(timeoutNs, TimeUnit.NANOSECONDS);
+                if(this.available.tryAcquire(timeoutNs, TimeUnit.NANOSECONDS))
+                    v = take();
             } finally {
                 blockingGets.decrementAndGet();
             }
@@ -605,13 +699,20 @@ public class KeyedResourcePool<K, V> {
         }
 
         public boolean nonBlockingPut(V v) {
-            return this.queue.offer(v);
+            if(idle.incrementAndGet() > capacity) {
+                idle.decrementAndGet();
+                return false;
+            }
+            this.queue.offer(v);
+            this.available.release();
+            return true;
         }
 
         public List<V> close() {
-            asyncExceptions.clear();
+            while(pollReportedException() != null) {}
             List<V> list = new ArrayList<V>();
-            queue.drainTo(list);
+            while(this.available.tryAcquire())
+                list.add(take());
             return list;
         }
 
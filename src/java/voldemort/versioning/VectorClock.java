@@ -18,19 +18,19 @@ package voldemort.versioning;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
 import java.util.TreeMap;
 
 import voldemort.annotations.concurrency.NotThreadsafe;
 import voldemort.utils.ByteUtils;
-import voldemort.utils.Utils;
-
-import com.google.common.collect.Maps;
 
 /**
  * A vector of the number of writes mastered by each node. The vector is stored
@@ -38,6 +38,9 @@ import com.google.common.collect.Maps;
  * means implicitly all the versions are at zero, but we only actually store
  * those greater than zero.
  * 
+ * The entries are kept in two parallel arrays sorted by node id. The arrays
+ * are never modified once built, so clones share them and comparing clocks
+ * does not allocate.
  * 
  */
 @NotThreadsafe
@@ -45,10 +48,25 @@ public class VectorClock implements Version, Serializable {
 
     private static final long serialVersionUID = 1;
 
+    /*
+     * Keep the serialized form of the clock based on a TreeMap, so that clocks
+     * serialized by older versions can still be read and vice versa
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("versionMap", TreeMap.class),
+            new ObjectStreamField("timestamp", Long.TYPE) };
+
     private static final int MAX_NUMBER_OF_VERSIONS = Short.MAX_VALUE;
 
-    /* A map of versions keyed by nodeId */
-    private final TreeMap<Short, Long> versionMap;
+    private static final short[] NO_NODE_IDS = new short[0];
+    private static final long[] NO_VERSIONS = new long[0];
+
+    /*
+     * The node ids in increasing order and the version of each. Package
+     * private so that VectorClockUtils can walk them
+     */
+    short[] nodeIds;
+    long[] versions;
 
     /*
      * The time of the last update on the server on which the update was
@@ -63,13 +81,19 @@ public class VectorClock implements Version, Serializable {
         this(System.currentTimeMillis());
     }
 
+    /**
+     * @return A copy of the versions keyed by node id. Changing it does not
+     *         change the clock.
+     */
     public TreeMap<Short, Long> getVersionMap() {
+        TreeMap<Short, Long> versionMap = new TreeMap<Short, Long>();
+        for(int i = 0; i < nodeIds.length; i++)
+            versionMap.put(nodeIds[i], versions[i]);
         return versionMap;
     }
 
     public VectorClock(long timestamp) {
-        this.versionMap = new TreeMap<Short, Long>();
-        this.timestamp = timestamp;
+        this(NO_NODE_IDS, NO_VERSIONS, timestamp);
     }
 
     /**
@@ -79,24 +103,38 @@ public class VectorClock implements Version, Serializable {
      */
     @Deprecated
     public VectorClock(List<ClockEntry> versions, long timestamp) {
-        this.versionMap = new TreeMap<Short, Long>();
-        this.timestamp = timestamp;
+        TreeMap<Short, Long> versionMap = new TreeMap<Short, Long>();
         for(ClockEntry clockEntry: versions) {
-            this.versionMap.put(clockEntry.getNodeId(), clockEntry.getVersion());
+            versionMap.put(clockEntry.getNodeId(), clockEntry.getVersion());
         }
+        this.timestamp = timestamp;
+        setVersionMap(versionMap);
     }
 
     /**
      * Only used for cloning
      * 
-     * @param versionMap
+     * @param nodeIds
+     * @param versions
      * @param timestamp
      */
-    private VectorClock(TreeMap<Short, Long> versionMap, long timestamp) {
-        this.versionMap = Utils.notNull(versionMap);
+    private VectorClock(short[] nodeIds, long[] versions, long timestamp) {
+        this.nodeIds = nodeIds;
+        this.versions = versions;
         this.timestamp = timestamp;
     }
 
+    private void setVersionMap(TreeMap<Short, Long> versionMap) {
+        this.nodeIds = new short[versionMap.size()];
+        this.versions = new long[versionMap.size()];
+        int i = 0;
+        for(Map.Entry<Short, Long> entry: versionMap.entrySet()) {
+            nodeIds[i] = entry.getKey();
+            versions[i] = entry.getValue();
+            i++;
+        }
+    }
+
     /**
      * Takes the bytes of a VectorClock and creates a java object from them. For
      * efficiency reasons the extra bytes can be attached to the end of the byte
@@ -127,15 +165,26 @@ public class VectorClock implements Version, Serializable {
             throw new IllegalArgumentException("Too few bytes: expected at least " + minimumBytes
                                                + " but found only " + bytes.length + ".");
 
-        this.versionMap = new TreeMap<Short, Long>();
+        this.nodeIds = new short[numEntries];
+        this.versions = new long[numEntries];
+        boolean sorted = true;
         int index = 3 + offset;
         for(int i = 0; i < numEntries; i++) {
-            short nodeId = ByteUtils.readShort(bytes, index);
-            long version = ByteUtils.readBytes(bytes, index + ByteUtils.SIZE_OF_SHORT, versionSize);
-            this.versionMap.put(nodeId, version);
+            nodeIds[i] = ByteUtils.readShort(bytes, index);
+            versions[i] = ByteUtils.readBytes(bytes, index + ByteUtils.SIZE_OF_SHORT, versionSize);
+            if(i > 0 && nodeIds[i] <= nodeIds[i - 1])
+                sorted = false;
             index += entrySize;
         }
         this.timestamp = ByteUtils.readLong(bytes, index);
+
+        // clocks written by old releases may not be sorted
+        if(!sorted) {
+            TreeMap<Short, Long> versionMap = new TreeMap<Short, Long>();
+            for(int i = 0; i < numEntries; i++)
+                versionMap.put(nodeIds[i], versions[i]);
+            setVersionMap(versionMap);
+        }
     }
 
     public static VectorClock createVectorClock(DataInputStream inputStream) {
@@ -164,6 +213,41 @@ public class VectorClock implements Version, Serializable {
 
     }
 
+    /**
+     * Reads a clock written by {@link #toCompactBytes(byte[], int)}. It took
+     * {@link #sizeInCompactBytes()} bytes.
+     * 
+     * @param bytes The bytes to read from
+     * @param offset The offset to start reading from
+     */
+    public static VectorClock fromCompactBytes(byte[] bytes, int offset) {
+        if(bytes == null || bytes.length <= offset)
+            throw new IllegalArgumentException("Invalid byte array for serialization--no bytes to read.");
+        long numEntries = ByteUtils.readVarLong(bytes, offset);
+        offset += ByteUtils.sizeOfVarLong(numEntries);
+        // every entry takes at least two bytes
+        if(numEntries < 0 || numEntries > MAX_NUMBER_OF_VERSIONS
+           || offset + 2 * numEntries > bytes.length)
+            throw new IllegalArgumentException("Invalid number of clock entries: " + numEntries);
+
+        short[] nodeIds = new short[(int) numEntries];
+        long[] versions = new long[(int) numEntries];
+        long nodeId = 0;
+        for(int i = 0; i < numEntries; i++) {
+            long delta = ByteUtils.readVarLong(bytes, offset);
+            offset += ByteUtils.sizeOfVarLong(delta);
+            nodeId += ByteUtils.zigZagDecode(delta);
+            if(nodeId < Short.MIN_VALUE || nodeId > Short.MAX_VALUE
+               || (i > 0 && nodeId <= nodeIds[i - 1]))
+                throw new IllegalArgumentException("Invalid node id in clock: " + nodeId);
+            nodeIds[i] = (short) nodeId;
+            versions[i] = ByteUtils.readVarLong(bytes, offset);
+            offset += ByteUtils.sizeOfVarLong(versions[i]);
+        }
+        long timestamp = ByteUtils.zigZagDecode(ByteUtils.readVarLong(bytes, offset));
+        return new VectorClock(nodeIds, versions, timestamp);
+    }
+
     public byte[] toBytes() {
         byte[] serialized = new byte[sizeInBytes()];
         toBytes(serialized, 0);
@@ -172,7 +256,7 @@ public class VectorClock implements Version, Serializable {
 
     public int toBytes(byte[] buf, int offset) {
         // write the number of versions
-        ByteUtils.writeShort(buf, (short) versionMap.size(), offset);
+        ByteUtils.writeShort(buf, (short) nodeIds.length, offset);
         offset += ByteUtils.SIZE_OF_SHORT;
         // write the size of each version in bytes
         byte versionSize = ByteUtils.numberOfBytesRequired(getMaxVersion());
@@ -180,11 +264,9 @@ public class VectorClock implements Version, Serializable {
         offset++;
 
         int clockEntrySize = ByteUtils.SIZE_OF_SHORT + versionSize;
-        SortedSet<Short> nodeIds = versionMap.navigableKeySet();
-        for(Short nodeId: nodeIds) {
-            Long version = versionMap.get(nodeId);
-            ByteUtils.writeShort(buf, nodeId, offset);
-            ByteUtils.writeBytes(buf, version, offset + ByteUtils.SIZE_OF_SHORT, versionSize);
+        for(int i = 0; i < nodeIds.length; i++) {
+            ByteUtils.writeShort(buf, nodeIds[i], offset);
+            ByteUtils.writeBytes(buf, versions[i], offset + ByteUtils.SIZE_OF_SHORT, versionSize);
             offset += clockEntrySize;
         }
         ByteUtils.writeLong(buf, this.timestamp, offset);
@@ -193,10 +275,46 @@ public class VectorClock implements Version, Serializable {
 
     public int sizeInBytes() {
         byte versionSize = ByteUtils.numberOfBytesRequired(getMaxVersion());
-        return ByteUtils.SIZE_OF_SHORT + 1 + this.versionMap.size()
+        return ByteUtils.SIZE_OF_SHORT + 1 + nodeIds.length
                * (ByteUtils.SIZE_OF_SHORT + versionSize) + ByteUtils.SIZE_OF_LONG;
     }
 
+    /**
+     * Writes the clock with variable length numbers: the number of entries,
+     * then for each entry the difference with the previous node id (zigzag
+     * encoded) and the version, then the zigzag encoded timestamp.
+     * 
+     * @param buf The array to write to, with at least
+     *        {@link #sizeInCompactBytes()} bytes left
+     * @param offset The offset to write at
+     * @return The number of bytes written
+     */
+    public int toCompactBytes(byte[] buf, int offset) {
+        int start = offset;
+        offset += ByteUtils.writeVarLong(buf, nodeIds.length, offset);
+        int previous = 0;
+        for(int i = 0; i < nodeIds.length; i++) {
+            offset += ByteUtils.writeVarLong(buf,
+                                             ByteUtils.zigZagEncode(nodeIds[i] - previous),
+                                             offset);
+            offset += ByteUtils.writeVarLong(buf, versions[i], offset);
+            previous = nodeIds[i];
+        }
+        offset += ByteUtils.writeVarLong(buf, ByteUtils.zigZagEncode(timestamp), offset);
+        return offset - start;
+    }
+
+    public int sizeInCompactBytes() {
+        int size = ByteUtils.sizeOfVarLong(nodeIds.length);
+        int previous = 0;
+        for(int i = 0; i < nodeIds.length; i++) {
+            size += ByteUtils.sizeOfVarLong(ByteUtils.zigZagEncode(nodeIds[i] - previous));
+            size += ByteUtils.sizeOfVarLong(versions[i]);
+            previous = nodeIds[i];
+        }
+        return size + ByteUtils.sizeOfVarLong(ByteUtils.zigZagEncode(timestamp));
+    }
+
     /**
      * Increment the version info associated with the given node
      * 
@@ -209,18 +327,28 @@ public class VectorClock implements Version, Serializable {
 
         this.timestamp = time;
 
-        Long version = versionMap.get((short) node);
-        if(version == null) {
-            version = 1L;
-        } else {
-            version = version + 1L;
+        int index = Arrays.binarySearch(nodeIds, (short) node);
+        if(index >= 0) {
+            long[] newVersions = versions.clone();
+            newVersions[index]++;
+            this.versions = newVersions;
+            return;
         }
 
-        versionMap.put((short) node, version);
-        if(versionMap.size() >= MAX_NUMBER_OF_VERSIONS) {
+        if(nodeIds.length + 1 >= MAX_NUMBER_OF_VERSIONS) {
             throw new IllegalStateException("Vector clock is full!");
         }
-
+        int insertAt = -(index + 1);
+        short[] newNodeIds = new short[nodeIds.length + 1];
+        long[] newVersions = new long[nodeIds.length + 1];
+        System.arraycopy(nodeIds, 0, newNodeIds, 0, insertAt);
+        System.arraycopy(versions, 0, newVersions, 0, insertAt);
+        newNodeIds[insertAt] = (short) node;
+        newVersions[insertAt] = 1L;
+        System.arraycopy(nodeIds, insertAt, newNodeIds, insertAt + 1, nodeIds.length - insertAt);
+        System.arraycopy(versions, insertAt, newVersions, insertAt + 1, nodeIds.length - insertAt);
+        this.nodeIds = newNodeIds;
+        this.versions = newVersions;
     }
 
     /**
@@ -238,7 +366,7 @@ public class VectorClock implements Version, Serializable {
 
     @Override
     public VectorClock clone() {
-        return new VectorClock(Maps.newTreeMap(versionMap), this.timestamp);
+        return new VectorClock(nodeIds, versions, this.timestamp);
     }
 
     @Override
@@ -250,27 +378,27 @@ public class VectorClock implements Version, Serializable {
         if(!object.getClass().equals(VectorClock.class))
             return false;
         VectorClock clock = (VectorClock) object;
-        return versionMap.equals(clock.versionMap);
+        return Arrays.equals(nodeIds, clock.nodeIds) && Arrays.equals(versions, clock.versions);
     }
 
     @Override
     public int hashCode() {
-        return versionMap.hashCode();
+        // same as the hash code of the version map
+        int hashCode = 0;
+        for(int i = 0; i < nodeIds.length; i++)
+            hashCode += nodeIds[i] ^ (int) (versions[i] ^ (versions[i] >>> 32));
+        return hashCode;
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("version(");
-        int versionsLeft = versionMap.size();
-        for(Map.Entry<Short, Long> entry: versionMap.entrySet()) {
-            versionsLeft--;
-            Short node = entry.getKey();
-            Long version = entry.getValue();
-            builder.append(node + ":" + version);
-            if(versionsLeft > 0) {
+        for(int i = 0; i < nodeIds.length; i++) {
+            if(i > 0) {
                 builder.append(", ");
             }
+            builder.append(nodeIds[i] + ":" + versions[i]);
         }
         builder.append(")");
         builder.append(" ts:" + timestamp);
@@ -279,26 +407,44 @@ public class VectorClock implements Version, Serializable {
 
     public long getMaxVersion() {
         long max = -1;
-        for(Long version: versionMap.values())
+        for(long version: versions)
             max = Math.max(version, max);
         return max;
     }
 
     public VectorClock merge(VectorClock clock) {
-        VectorClock newClock = new VectorClock();
-        for(Map.Entry<Short, Long> entry: this.versionMap.entrySet()) {
-            newClock.versionMap.put(entry.getKey(), entry.getValue());
+        short[] otherNodeIds = clock.nodeIds;
+        long[] otherVersions = clock.versions;
+
+        // count the nodes of both clocks first, to allocate the result once
+        int size = 0;
+        for(int i = 0, j = 0; i < nodeIds.length || j < otherNodeIds.length; size++) {
+            if(j == otherNodeIds.length || (i < nodeIds.length && nodeIds[i] < otherNodeIds[j]))
+                i++;
+            else if(i == nodeIds.length || otherNodeIds[j] < nodeIds[i])
+                j++;
+            else {
+                i++;
+                j++;
+            }
         }
-        for(Map.Entry<Short, Long> entry: clock.versionMap.entrySet()) {
-            Long version = newClock.versionMap.get(entry.getKey());
-            if(version == null) {
-                newClock.versionMap.put(entry.getKey(), entry.getValue());
+
+        short[] newNodeIds = new short[size];
+        long[] newVersions = new long[size];
+        for(int i = 0, j = 0, k = 0; k < size; k++) {
+            if(j == otherNodeIds.length || (i < nodeIds.length && nodeIds[i] < otherNodeIds[j])) {
+                newNodeIds[k] = nodeIds[i];
+                newVersions[k] = versions[i++];
+            } else if(i == nodeIds.length || otherNodeIds[j] < nodeIds[i]) {
+                newNodeIds[k] = otherNodeIds[j];
+                newVersions[k] = otherVersions[j++];
             } else {
-                newClock.versionMap.put(entry.getKey(), Math.max(version, entry.getValue()));
+                newNodeIds[k] = nodeIds[i];
+                newVersions[k] = Math.max(versions[i++], otherVersions[j++]);
             }
         }
 
-        return newClock;
+        return new VectorClock(newNodeIds, newVersions, System.currentTimeMillis());
     }
 
     @Override
@@ -315,9 +461,9 @@ public class VectorClock implements Version, Serializable {
 
     @Deprecated
     public List<ClockEntry> getEntries() {
-        List<ClockEntry> clocks = new ArrayList<ClockEntry>(versionMap.size());
-        for(Map.Entry<Short, Long> entry: versionMap.entrySet()) {
-            clocks.add(new ClockEntry(entry.getKey(), entry.getValue()));
+        List<ClockEntry> clocks = new ArrayList<ClockEntry>(nodeIds.length);
+        for(int i = 0; i < nodeIds.length; i++) {
+            clocks.add(new ClockEntry(nodeIds[i], versions[i]));
         }
         return Collections.unmodifiableList(clocks);
     }
@@ -330,10 +476,22 @@ public class VectorClock implements Version, Serializable {
      *        copied.
      */
     public void copyFromVectorClock(VectorClock vc) {
-        this.versionMap.clear();
+        this.nodeIds = vc.nodeIds;
+        this.versions = vc.versions;
         this.timestamp = vc.getTimestamp();
-        for(ClockEntry clockEntry: vc.getEntries()) {
-            this.versionMap.put(clockEntry.getNodeId(), clockEntry.getVersion());
-        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("versionMap", getVersionMap());
+        fields.put("timestamp", timestamp);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.timestamp = fields.get("timestamp", 0L);
+        setVersionMap((TreeMap<Short, Long>) fields.get("versionMap", null));
     }
 }
@@ -19,9 +19,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedSet;
-
-import com.google.common.collect.Sets;
 
 public class VectorClockUtils {
 
@@ -44,35 +41,32 @@ public class VectorClockUtils {
         boolean v1Bigger = false;
         boolean v2Bigger = false;
 
-        SortedSet<Short> v1Nodes = v1.getVersionMap().navigableKeySet();
-        SortedSet<Short> v2Nodes = v2.getVersionMap().navigableKeySet();
-        // get clocks(nodeIds) that both v1 and v2 has
-        SortedSet<Short> commonNodes = Sets.newTreeSet(v1Nodes);
-        commonNodes.retainAll(v2Nodes);
-        // if v1 has more nodes than common nodes
-        // v1 has clocks that v2 does not
-        if(v1Nodes.size() > commonNodes.size()) {
-            v1Bigger = true;
-        }
-        // if v2 has more nodes than common nodes
-        // v2 has clocks that v1 does not
-        if(v2Nodes.size() > commonNodes.size()) {
-            v2Bigger = true;
-        }
-        // compare the common parts
-        for(Short nodeId: commonNodes) {
-            // no need to compare more
-            if(v1Bigger && v2Bigger) {
-                break;
-            }
-            long v1Version = v1.getVersionMap().get(nodeId);
-            long v2Version = v2.getVersionMap().get(nodeId);
-            if(v1Version > v2Version) {
+        // walk both sorted clocks at once, a node only one of them has makes
+        // that one bigger
+        short[] v1Nodes = v1.nodeIds, v2Nodes = v2.nodeIds;
+        long[] v1Versions = v1.versions, v2Versions = v2.versions;
+        int i = 0, j = 0;
+        while(i < v1Nodes.length && j < v2Nodes.length && !(v1Bigger && v2Bigger)) {
+            if(v1Nodes[i] < v2Nodes[j]) {
                 v1Bigger = true;
-            } else if(v1Version < v2Version) {
+                i++;
+            } else if(v1Nodes[i] > v2Nodes[j]) {
                 v2Bigger = true;
+                j++;
+            } else {
+                if(v1Versions[i] > v2Versions[j]) {
+                    v1Bigger = true;
+                } else if(v1Versions[i] < v2Versions[j]) {
+                    v2Bigger = true;
+                }
+                i++;
+                j++;
             }
         }
+        if(i < v1Nodes.length)
+            v1Bigger = true;
+        if(j < v2Nodes.length)
+            v2Bigger = true;
 
         /*
          * This is the case where they are equal. Consciously return BEFORE, so
@@ -108,6 +108,13 @@ public class MutableStoreConnectionVerifier extends
             public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
                     throws VoldemortException {}
 
+            @Override
+            public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                             Map<ByteArray, byte[]> transforms)
+                    throws VoldemortException {
+                return null;
+            }
+
             @Override
             public List<Versioned<byte[]>> get(CompositeVoldemortRequest<ByteArray, byte[]> request)
                     throws VoldemortException {
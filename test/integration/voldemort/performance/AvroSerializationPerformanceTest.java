@@ -0,0 +1,67 @@
+package voldemort.performance;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.util.Utf8;
+
+import voldemort.serialization.Serializer;
+import voldemort.serialization.avro.AvroGenericSerializer;
+import voldemort.serialization.avro.versioned.AvroVersionedGenericSerializer;
+
+/**
+ * Measures the throughput of the Avro generic and versioned generic
+ * serializers on a small record
+ * 
+ */
+public class AvroSerializationPerformanceTest {
+
+    private static final String SCHEMA_V0 = "{\"name\": \"Member\", \"type\": \"record\", \"fields\": ["
+                                            + "{\"name\": \"id\", \"type\": \"long\"},"
+                                            + "{\"name\": \"name\", \"type\": \"string\"}]}";
+
+    private static final String SCHEMA_V1 = "{\"name\": \"Member\", \"type\": \"record\", \"fields\": ["
+                                            + "{\"name\": \"id\", \"type\": \"long\"},"
+                                            + "{\"name\": \"name\", \"type\": \"string\"},"
+                                            + "{\"name\": \"title\", \"type\": \"string\", \"default\": \"\"}]}";
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        Record record = new Record(Schema.parse(SCHEMA_V1));
+        record.put("id", 42L);
+        record.put("name", new Utf8("Voldemort"));
+        record.put("title", new Utf8("Engineer"));
+
+        Map<Integer, String> versions = new HashMap<Integer, String>();
+        versions.put(0, SCHEMA_V0);
+        versions.put(1, SCHEMA_V1);
+
+        // run each twice, the first run warms up the JIT
+        for(int run = 0; run < 2; run++) {
+            test("generic", new AvroGenericSerializer(SCHEMA_V1), record, iterations);
+            test("versioned", new AvroVersionedGenericSerializer(versions), record, iterations);
+        }
+    }
+
+    private static void test(String name,
+                             Serializer<Object> serializer,
+                             Object value,
+                             int iterations) {
+        long start = System.nanoTime();
+        byte[] bytes = null;
+        for(int i = 0; i < iterations; i++)
+            bytes = serializer.toBytes(value);
+        long serializeNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < iterations; i++)
+            serializer.toObject(bytes);
+        long deserializeNs = System.nanoTime() - start;
+
+        System.out.println(name + ": toBytes " + (serializeNs / iterations) + " ns/op, toObject "
+                           + (deserializeNs / iterations) + " ns/op");
+    }
+}
@@ -14,14 +14,24 @@ public class TestSerialization {
         List<Integer> value = new ArrayList<Integer>(size);
         for(int i = 0; i < size; i++)
             value.add(i);
-        JsonTypeSerializer ser = new JsonTypeSerializer(def);
+        test("interpreted", new JsonTypeSerializer(def), value);
+        test("compiled", new JsonTypeSerializer(def, false, true), value);
+    }
+
+    private static void test(String name, JsonTypeSerializer ser, List<Integer> value) {
         long start = System.currentTimeMillis();
         int iters = 100;
         List<byte[]> bytes = new ArrayList<byte[]>(iters);
         for(int i = 0; i < iters; i++)
             bytes.add(ser.toBytes(value));
         long elapsed = System.currentTimeMillis() - start;
-        System.out.println("Took " + (elapsed / iters) + " ms");
+        System.out.println(name + " toBytes took " + (elapsed / iters) + " ms");
+
+        start = System.currentTimeMillis();
+        for(byte[] b: bytes)
+            ser.toObject(b);
+        elapsed = System.currentTimeMillis() - start;
+        System.out.println(name + " toObject took " + (elapsed / iters) + " ms");
     }
 
 }
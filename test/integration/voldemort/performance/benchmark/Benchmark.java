@@ -22,7 +22,12 @@ import java.io.StringReader;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.io.FileUtils;
 
@@ -101,6 +106,7 @@ public class Benchmark {
     public static final String UNIFORM_RECORD_SELECTION = "uniform";
 
     public static final String TARGET_THROUGHPUT = "target-throughput";
+    public static final String OPEN_LOOP = "open-loop";
     public static final String HELP = "help";
     public static final String STORE_NAME = "store-name";
     public static final String RECORD_COUNT = "record-count";
@@ -141,17 +147,23 @@ public class Benchmark {
     private boolean verbose = false;
     private boolean verifyRead = false;
     private boolean ignoreNulls = false;
+    private boolean openLoop = false;
     private String keyType;
 
     private boolean localMode = false;
 
+    abstract class LoadThread extends Thread {
+
+        public abstract int getOpsDone();
+    }
+
     class StatusThread extends Thread {
 
-        private Vector<Thread> threads;
+        private Vector<LoadThread> threads;
         private int intervalSec;
         private long startTime;
 
-        public StatusThread(Vector<Thread> threads, int intervalSec, long startTime) {
+        public StatusThread(Vector<LoadThread> threads, int intervalSec, long startTime) {
             this.threads = threads;
             this.intervalSec = intervalSec;
             this.startTime = startTime;
@@ -164,11 +176,11 @@ public class Benchmark {
             do {
                 testComplete = true;
                 totalOps = 0;
-                for(Thread thread: this.threads) {
+                for(LoadThread thread: this.threads) {
                     if(thread.getState() != Thread.State.TERMINATED) {
                         testComplete = false;
                     }
-                    totalOps += ((ClientThread) thread).getOpsDone();
+                    totalOps += thread.getOpsDone();
                 }
 
                 if(totalOps != 0 && totalOps != prevTotalOps) {
@@ -186,7 +198,7 @@ public class Benchmark {
         }
     }
 
-    class ClientThread extends Thread {
+    class ClientThread extends LoadThread {
 
         private VoldemortWrapper db;
         private boolean runBenchmark;
@@ -214,6 +226,7 @@ public class Benchmark {
             this.plugin = plugin;
         }
 
+        @Override
         public int getOpsDone() {
             return this.opsDone;
         }
@@ -250,6 +263,137 @@ public class Benchmark {
         }
     }
 
+    /**
+     * Open-loop load generator. Operations are issued at the target throughput
+     * from a schedule that does not wait for the operations in flight, and each
+     * one is handed to a pool of worker threads along with the time it was
+     * meant to start. Latencies are measured from that time, so when the
+     * server stalls the operations queue up and the stall shows in the
+     * latencies, rather than slowing down the load as with {@link ClientThread}.
+     */
+    class OpenLoopThread extends LoadThread {
+
+        private final BenchmarkWorkload clientWorkLoad;
+        private final int operationsCount;
+        private final double intervalNs;
+        private final boolean isVerbose;
+        private final ExecutorService workers;
+        private final AtomicInteger opsDone;
+        private volatile boolean exhausted;
+
+        public OpenLoopThread(BenchmarkWorkload workLoad,
+                              int operationsCount,
+                              int targetThroughput,
+                              int numWorkers,
+                              boolean isVerbose) {
+            this.clientWorkLoad = workLoad;
+            this.operationsCount = operationsCount;
+            this.intervalNs = ((double) Time.NS_PER_SECOND) / targetThroughput;
+            this.isVerbose = isVerbose;
+            this.workers = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new OpenLoopWorker(r);
+                }
+            });
+            this.opsDone = new AtomicInteger(0);
+            this.exhausted = false;
+        }
+
+        @Override
+        public int getOpsDone() {
+            return opsDone.get();
+        }
+
+        @Override
+        public void run() {
+            long startNs = System.nanoTime();
+            for(int index = 0; index < operationsCount && !exhausted; index++) {
+                // operations that are due while the scheduler catches up go
+                // out back to back
+                final long intendedStartNs = startNs + (long) (index * intervalNs);
+                long waitNs;
+                while((waitNs = intendedStartNs - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNs);
+                }
+                workers.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        doOperation(intendedStartNs);
+                    }
+                });
+            }
+
+            workers.shutdown();
+            try {
+                while(!workers.awaitTermination(1, TimeUnit.SECONDS)) {}
+            } catch(InterruptedException e) {
+                workers.shutdownNow();
+            }
+        }
+
+        private void doOperation(long intendedStartNs) {
+            OpenLoopWorker worker = (OpenLoopWorker) Thread.currentThread();
+            worker.db.setIntendedStartNs(intendedStartNs);
+            try {
+                if(!clientWorkLoad.doTransaction(worker.db, worker.plugin)) {
+                    exhausted = true;
+                }
+            } catch(Exception e) {
+                if(this.isVerbose)
+                    e.printStackTrace();
+            }
+            opsDone.incrementAndGet();
+        }
+    }
+
+    /**
+     * Worker of the {@link OpenLoopThread}, with its own wrapper and plugin as
+     * each {@link ClientThread} has
+     */
+    class OpenLoopWorker extends Thread {
+
+        private final VoldemortWrapper db;
+        private final WorkloadPlugin plugin;
+
+        public OpenLoopWorker(Runnable runnable) {
+            super(runnable);
+            this.db = newWrapper();
+            this.plugin = newPlugin(db);
+            setDaemon(true);
+        }
+    }
+
+    private VoldemortWrapper newWrapper() {
+        return new VoldemortWrapper(storeClient,
+                                    this.verifyRead && this.warmUpCompleted,
+                                    this.ignoreNulls,
+                                    this.localMode);
+    }
+
+    private WorkloadPlugin newPlugin(VoldemortWrapper db) {
+        WorkloadPlugin plugin = null;
+        if(this.pluginName != null && this.pluginName.length() > 0) {
+            try {
+                Class<?> cls = Class.forName(this.pluginName);
+                plugin = (WorkloadPlugin) cls.newInstance();
+            } catch(ClassNotFoundException e) {
+                System.err.println("Class not found.");
+                System.exit(1);
+            } catch(IllegalAccessException e) {
+                System.err.println("Class not accessible ");
+                System.exit(1);
+            } catch(InstantiationException e) {
+                System.err.println("Class not instantiable.");
+                System.exit(1);
+            }
+            plugin.setDb(db);
+        }
+        return plugin;
+    }
+
     private StoreDefinition getStoreDefinition(AbstractStoreClientFactory factory, String storeName) {
         String storesXml = factory.bootstrapMetadataWithRetries(MetadataStore.STORES_KEY);
         StoreDefinitionsMapper storeMapper = new StoreDefinitionsMapper();
@@ -319,6 +463,10 @@ public class Benchmark {
             double targetPerThread = ((double) targetThroughput) / ((double) numThreads);
             this.perThreadThroughputPerMs = targetPerThread / 1000.0;
         }
+        this.openLoop = workloadProps.getBoolean(OPEN_LOOP, false);
+        if(this.openLoop && this.targetThroughput <= 0) {
+            throw new VoldemortException("Open-loop mode needs a " + TARGET_THROUGHPUT);
+        }
 
         if(workloadProps.containsKey(OPS_COUNT)) {
             this.opsCount = workloadProps.getInt(OPS_COUNT);
@@ -470,41 +618,34 @@ public class Benchmark {
             localOpsCounts = this.recordCount;
             label = new String("warmup");
         }
-        Vector<Thread> threads = new Vector<Thread>();
-
-        for(int index = 0; index < this.numThreads; index++) {
-            VoldemortWrapper db = new VoldemortWrapper(storeClient,
-                                                       this.verifyRead && this.warmUpCompleted,
-                                                       this.ignoreNulls,
-                                                       this.localMode);
-            WorkloadPlugin plugin = null;
-            if(this.pluginName != null && this.pluginName.length() > 0) {
-                Class<?> cls = Class.forName(this.pluginName);
-                try {
-                    plugin = (WorkloadPlugin) cls.newInstance();
-                } catch(IllegalAccessException e) {
-                    System.err.println("Class not accessible ");
-                    System.exit(1);
-                } catch(InstantiationException e) {
-                    System.err.println("Class not instantiable.");
-                    System.exit(1);
+        Vector<LoadThread> threads = new Vector<LoadThread>();
+
+        // the warmup only loads the records, as fast as it can
+        if(runBenchmark && this.openLoop) {
+            threads.add(new OpenLoopThread(this.workLoad,
+                                           localOpsCounts,
+                                           this.targetThroughput,
+                                           this.numThreads,
+                                           this.verbose));
+        } else {
+            for(int index = 0; index < this.numThreads; index++) {
+                VoldemortWrapper db = newWrapper();
+                WorkloadPlugin plugin = newPlugin(db);
+
+                int opsPerThread = localOpsCounts / this.numThreads;
+                // Make the last thread handle the remainder.
+                if(index == this.numThreads - 1) {
+                    opsPerThread += localOpsCounts % this.numThreads;
                 }
-                plugin.setDb(db);
-            }
 
-            int opsPerThread = localOpsCounts / this.numThreads;
-            // Make the last thread handle the remainder.
-            if (index == this.numThreads - 1) {
-                opsPerThread += localOpsCounts % this.numThreads;
+                threads.add(new ClientThread(db,
+                                             runBenchmark,
+                                             this.workLoad,
+                                             opsPerThread,
+                                             this.perThreadThroughputPerMs,
+                                             this.verbose,
+                                             plugin));
             }
-
-            threads.add(new ClientThread(db,
-                                         runBenchmark,
-                                         this.workLoad,
-                                         opsPerThread,
-                                         this.perThreadThroughputPerMs,
-                                         this.verbose,
-                                         plugin));
         }
 
         long startRunBenchmark = System.currentTimeMillis();
@@ -633,6 +774,10 @@ public class Benchmark {
               .withRequiredArg()
               .describedAs("ops/sec")
               .ofType(Integer.class);
+        parser.accepts(OPEN_LOOP,
+                       "issue the benchmark operations at --" + TARGET_THROUGHPUT
+                               + " whatever their latency, spread over --" + THREADS
+                               + " worker threads, and measure latencies from the time each operation was scheduled");
         parser.accepts(RECORD_COUNT, "number of records inserted during warmup phase")
               .withRequiredArg()
               .describedAs("count")
@@ -761,6 +906,7 @@ public class Benchmark {
             mainProps.put(PERCENT_CACHED, CmdUtils.valueOf(options, PERCENT_CACHED, 0));
             mainProps.put(INTERVAL, CmdUtils.valueOf(options, INTERVAL, 0));
             mainProps.put(TARGET_THROUGHPUT, CmdUtils.valueOf(options, TARGET_THROUGHPUT, -1));
+            mainProps.put(OPEN_LOOP, getCmdBoolean(options, OPEN_LOOP));
             mainProps.put(METRIC_TYPE, CmdUtils.valueOf(options, METRIC_TYPE, SUMMARY_METRIC_TYPE));
             mainProps.put(READS, CmdUtils.valueOf(options, READS, 0));
             mainProps.put(WRITES, CmdUtils.valueOf(options, WRITES, 0));
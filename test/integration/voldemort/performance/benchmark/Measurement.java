@@ -17,19 +17,34 @@ package voldemort.performance.benchmark;
 
 import java.io.PrintStream;
 import java.text.NumberFormat;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import voldemort.store.stats.ConcurrentHistogram;
+import voldemort.utils.Time;
 
 class Results {
 
     public int operations;
-    public long totalLatency, minLatency, maxLatency, q99Latency, q95Latency, medianLatency;
-
-    public Results(int ops, long minL, long maxL, long totalLat, long medL, long q95, long q99) {
+    public long totalLatency, minLatency, maxLatency, q999Latency, q99Latency, q95Latency,
+            medianLatency;
+
+    public Results(int ops,
+                   long minL,
+                   long maxL,
+                   long totalLat,
+                   long medL,
+                   long q95,
+                   long q99,
+                   long q999) {
         this.operations = ops;
         this.minLatency = minL;
         this.maxLatency = maxL;
         this.totalLatency = totalLat;
         this.medianLatency = medL;
+        this.q999Latency = q999;
         this.q99Latency = q99;
         this.q95Latency = q95;
     }
@@ -43,141 +58,128 @@ class Results {
         buffer.append("Median Latency = " + medianLatency + "\n");
         buffer.append("95th percentile Latency = " + q95Latency + "\n");
         buffer.append("99th percentile Latency = " + q99Latency + "\n");
+        buffer.append("99.9th percentile Latency = " + q999Latency + "\n");
         return buffer.toString();
     }
 }
 
+/**
+ * Latencies of one operation type, recorded in microseconds into a
+ * {@link ConcurrentHistogram} so the tail is kept to a bounded relative error
+ * however long the slowest requests take, and so that recording never blocks.
+ * Latencies are reported in milliseconds.
+ */
 public class Measurement {
 
+    // an hour, in microseconds
+    private static final long HIGHEST_LATENCY_US = 3600L * Time.US_PER_SECOND;
+
+    private static final double[] DISTRIBUTION_QUANTILES = { 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7,
+            0.8, 0.9, 0.95, 0.99, 0.999, 0.9999, 1.0 };
+
     private String name;
 
     public String getName() {
         return name;
     }
 
-    private int buckets;
-    private int[] histogram;
-    private int histogramOverflow;
-    private int windowOperations;
-    private long windowTotalLatency;
-    private int operations = 0;
-    private int minLatency = -1;
-    private int maxLatency = -1;
-    private long totalLatency = 0;
-    private HashMap<Integer, int[]> returnCodes;
-    private HashMap<Integer, int[]> warningCodes;
+    private final ConcurrentHistogram histogram;
+    private final ConcurrentMap<Integer, AtomicInteger> returnCodes;
+    private final ConcurrentMap<Integer, AtomicInteger> warningCodes;
     private boolean summaryOnly = false;
 
     public Measurement(String name, boolean summaryOnly) {
         this.name = name;
-        this.buckets = 3000; // Default bucket size of 3000 milliseconds
-        this.histogram = new int[buckets];
-        this.histogramOverflow = 0;
-        this.operations = 0;
-        this.totalLatency = 0;
-        this.windowOperations = 0;
-        this.windowTotalLatency = 0;
-        this.minLatency = -1;
-        this.maxLatency = -1;
-        this.returnCodes = new HashMap<Integer, int[]>();
-        this.warningCodes = new HashMap<Integer, int[]>();
+        this.histogram = new ConcurrentHistogram(HIGHEST_LATENCY_US, 0);
+        this.returnCodes = new ConcurrentHashMap<Integer, AtomicInteger>();
+        this.warningCodes = new ConcurrentHashMap<Integer, AtomicInteger>();
         this.summaryOnly = summaryOnly;
     }
 
-    public synchronized void recordReturnCode(int code) {
-        Integer key = code;
-        if(!returnCodes.containsKey(key)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            returnCodes.put(key, val);
+    private static void increment(ConcurrentMap<Integer, AtomicInteger> codes, int code) {
+        AtomicInteger count = codes.get(code);
+        if(count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = codes.putIfAbsent(code, newCount);
+            if(count == null)
+                count = newCount;
         }
-        returnCodes.get(key)[0]++;
+        count.incrementAndGet();
     }
 
-    public synchronized void recordWarningCode(int code) {
-        Integer key = code;
-        if(!warningCodes.containsKey(key)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            warningCodes.put(key, val);
-        }
-        warningCodes.get(key)[0]++;
+    public void recordReturnCode(int code) {
+        increment(returnCodes, code);
     }
 
-    public synchronized void recordLatency(int latency) {
-        if(latency >= buckets) {
-            histogramOverflow++;
-        } else {
-            histogram[latency]++;
-        }
-        operations++;
-        totalLatency += latency;
-        windowOperations++;
-        windowTotalLatency += latency;
-
-        if((minLatency < 0) || (latency < minLatency)) {
-            minLatency = latency;
-        }
+    public void recordWarningCode(int code) {
+        increment(warningCodes, code);
+    }
 
-        if((maxLatency < 0) || (latency > maxLatency)) {
-            maxLatency = latency;
-        }
+    /**
+     * @param latencyUs Latency of one operation in microseconds
+     */
+    public void recordLatency(long latencyUs) {
+        histogram.record(latencyUs);
     }
 
+    /**
+     * @return The results, with the latencies in milliseconds
+     */
     public Results generateResults() {
-        int median = 0, q95 = 0, q99 = 0;
-        int opcounter = 0;
-        boolean done95th = false, done50th = false;
-        for(int i = 0; i < buckets; i++) {
-            opcounter += histogram[i];
-            double currentQuartile = ((double) opcounter) / ((double) operations);
-            if(!done50th && currentQuartile >= 0.50) {
-                median = i;
-                done50th = true;
-            }
-            if(!done95th && currentQuartile >= 0.95) {
-                q95 = i;
-                done95th = true;
-            }
-            if(currentQuartile >= 0.99) {
-                q99 = i;
-                break;
-            }
-        }
-        return new Results(operations, minLatency, maxLatency, totalLatency, median, q95, q99);
+        ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot();
+        return new Results((int) snapshot.getTotalCount(),
+                           snapshot.getValueAtQuantile(0.0) / Time.US_PER_MS,
+                           snapshot.getMaxValue() / Time.US_PER_MS,
+                           Math.round(snapshot.getAverage() * snapshot.getTotalCount())
+                                   / Time.US_PER_MS,
+                           snapshot.getValueAtQuantile(0.50) / Time.US_PER_MS,
+                           snapshot.getValueAtQuantile(0.95) / Time.US_PER_MS,
+                           snapshot.getValueAtQuantile(0.99) / Time.US_PER_MS,
+                           snapshot.getValueAtQuantile(0.999) / Time.US_PER_MS);
+    }
+
+    private static double toMs(double latencyUs) {
+        return latencyUs / Time.US_PER_MS;
     }
 
     public void printReport(PrintStream out) {
 
-        Results result = generateResults();
+        ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot();
         NumberFormat nf = NumberFormat.getInstance();
         nf.setMaximumFractionDigits(4);
         nf.setGroupingUsed(false);
 
-        out.println("[" + getName() + "]\tOperations: " + operations);
-        out.println("[" + getName() + "]\tAverage(ms): "
-                    + nf.format((((double) totalLatency) / ((double) operations))));
-        out.println("[" + getName() + "]\tMin(ms): " + nf.format(minLatency));
-        out.println("[" + getName() + "]\tMax(ms): " + nf.format(maxLatency));
-        out.println("[" + getName() + "]\tMedian(ms): " + nf.format(result.medianLatency));
-        out.println("[" + getName() + "]\t95th(ms): " + nf.format(result.q95Latency));
-        out.println("[" + getName() + "]\t99th(ms): " + nf.format(result.q99Latency));
-
-        for(Integer i: returnCodes.keySet()) {
-            int[] val = returnCodes.get(i);
-            out.println("[" + getName() + "]\tReturn: " + VoldemortWrapper.ReturnCode.values()[i] + "\t" + val[0]);
+        out.println("[" + getName() + "]\tOperations: " + snapshot.getTotalCount());
+        out.println("[" + getName() + "]\tAverage(ms): " + nf.format(toMs(snapshot.getAverage())));
+        out.println("[" + getName() + "]\tMin(ms): "
+                    + nf.format(toMs(snapshot.getValueAtQuantile(0.0))));
+        out.println("[" + getName() + "]\tMax(ms): " + nf.format(toMs(snapshot.getMaxValue())));
+        out.println("[" + getName() + "]\tMedian(ms): "
+                    + nf.format(toMs(snapshot.getValueAtQuantile(0.50))));
+        out.println("[" + getName() + "]\t95th(ms): "
+                    + nf.format(toMs(snapshot.getValueAtQuantile(0.95))));
+        out.println("[" + getName() + "]\t99th(ms): "
+                    + nf.format(toMs(snapshot.getValueAtQuantile(0.99))));
+        out.println("[" + getName() + "]\t99.9th(ms): "
+                    + nf.format(toMs(snapshot.getValueAtQuantile(0.999))));
+
+        for(Map.Entry<Integer, AtomicInteger> entry: returnCodes.entrySet()) {
+            out.println("[" + getName() + "]\tReturn: "
+                        + VoldemortWrapper.ReturnCode.values()[entry.getKey()] + "\t"
+                        + entry.getValue().get());
         }
 
-        for(Integer i: warningCodes.keySet()) {
-            int[] val = returnCodes.get(i);
-            out.println("[" + getName() + "]\tWarning: " + VoldemortWrapper.WarningCode.values()[i] + "\t" + val[0]);
+        for(Map.Entry<Integer, AtomicInteger> entry: warningCodes.entrySet()) {
+            out.println("[" + getName() + "]\tWarning: "
+                        + VoldemortWrapper.WarningCode.values()[entry.getKey()] + "\t"
+                        + entry.getValue().get());
         }
 
         if(!this.summaryOnly) {
-            for(int i = 0; i < buckets; i++) {
-                out.println("[" + getName() + "]: " + i + "\t" + histogram[i]);
+            for(double quantile: DISTRIBUTION_QUANTILES) {
+                out.println("[" + getName() + "]: " + quantile + "\t"
+                            + nf.format(toMs(snapshot.getValueAtQuantile(quantile))));
             }
-            out.println("[" + getName() + "]: >" + buckets + "\t" + histogramOverflow);
         }
     }
 }
@@ -58,7 +58,11 @@ public class Metrics {
         return new Measurement(name, this.summaryOnly);
     }
 
-    public synchronized void recordLatency(String operation, int latency) {
+    /**
+     * @param operation Name of the operation
+     * @param latencyUs Latency of the operation in microseconds
+     */
+    public void recordLatency(String operation, long latencyUs) {
         if(!data.containsKey(operation)) {
             synchronized(this) {
                 if(!data.containsKey(operation)) {
@@ -66,7 +70,7 @@ public class Metrics {
                 }
             }
         }
-        data.get(operation).recordLatency(latency);
+        data.get(operation).recordLatency(latencyUs);
     }
 
     public void recordReturnCode(String operation, int code) {
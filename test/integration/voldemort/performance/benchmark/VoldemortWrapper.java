@@ -39,6 +39,8 @@ public class VoldemortWrapper {
     private boolean verifyReads;
     private boolean ignoreNulls;
     private final boolean localMode;
+    private boolean hasIntendedStart = false;
+    private long intendedStartNs;
 
     public enum Operations {
         Read("reads"),
@@ -68,12 +70,29 @@ public class VoldemortWrapper {
         this.localMode = localMode;
     }
 
+    /**
+     * Makes the latencies of the following operations count from the time the
+     * open-loop scheduler meant them to start, rather than from the time they
+     * actually started, so that the time spent waiting behind slow requests is
+     * not omitted.
+     * 
+     * @param intendedStartNs Intended start time, from {@link System#nanoTime()}
+     */
+    public void setIntendedStartNs(long intendedStartNs) {
+        this.hasIntendedStart = true;
+        this.intendedStartNs = intendedStartNs;
+    }
+
+    private long startNs() {
+        return hasIntendedStart ? intendedStartNs : System.nanoTime();
+    }
+
     public void read(Object key, Object expectedValue, Object transforms) {
-        long startNs = System.nanoTime();
+        long startNs = startNs();
         Versioned<Object> returnedValue = voldemortStore.get(key, transforms);
         long endNs = System.nanoTime();
         measurement.recordLatency(Operations.Read.getOpString(),
-                                  (int) ((endNs - startNs) / Time.NS_PER_MS));
+                                  (endNs - startNs) / Time.NS_PER_US);
 
         ReturnCode res = ReturnCode.Ok;
         if(returnedValue == null && !this.ignoreNulls) {
@@ -93,7 +112,7 @@ public class VoldemortWrapper {
 
             @Override
             public void update(StoreClient<Object, Object> storeClient) {
-                long startNs = System.nanoTime();
+                long startNs = startNs();
                 Versioned<Object> vs = storeClient.get(key);
                 boolean noCurrentValue = (vs == null);
                 if (localMode) {
@@ -107,7 +126,7 @@ public class VoldemortWrapper {
 
                 long endNs = System.nanoTime();
                 measurement.recordLatency(Operations.Mixed.getOpString(),
-                                          (int) ((endNs - startNs) / Time.NS_PER_MS));
+                                          (endNs - startNs) / Time.NS_PER_US);
                 if (noCurrentValue) {
                     measurement.recordWarningCode(Operations.Mixed.getOpString(), WarningCode.NO_CURRENT_VALUE.ordinal());
                 }
@@ -128,11 +147,11 @@ public class VoldemortWrapper {
 
             @Override
             public void update(StoreClient<Object, Object> storeClient) {
-                long startNs = System.nanoTime();
+                long startNs = startNs();
                 storeClient.put(key, value, transforms);
                 long endNs = System.nanoTime();
                 measurement.recordLatency(Operations.Write.getOpString(),
-                                          (int) ((endNs - startNs) / Time.NS_PER_MS));
+                                          (endNs - startNs) / Time.NS_PER_US);
             }
         });
 
@@ -145,7 +164,7 @@ public class VoldemortWrapper {
     }
 
     public void delete(Object key) {
-        long startNs = System.nanoTime();
+        long startNs = startNs();
         boolean deleted = voldemortStore.delete(key);
         long endNs = System.nanoTime();
 
@@ -155,7 +174,7 @@ public class VoldemortWrapper {
         }
 
         measurement.recordLatency(Operations.Delete.getOpString(),
-                                  (int) ((endNs - startNs) / Time.NS_PER_MS));
+                                  (endNs - startNs) / Time.NS_PER_US);
         measurement.recordReturnCode(Operations.Delete.getOpString(), res.ordinal());
     }
 }
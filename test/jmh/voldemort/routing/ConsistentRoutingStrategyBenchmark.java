@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.routing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.cluster.Node;
+
+/**
+ * Routing of a key to its replicas, done for every request by the client and
+ * by server side routing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConsistentRoutingStrategyBenchmark {
+
+    private static final int NUM_KEYS = 1024;
+
+    @Param({ "6", "48" })
+    public int numNodes;
+
+    @Param({ "1", "3" })
+    public int replicationFactor;
+
+    private ConsistentRoutingStrategy routingStrategy;
+    private byte[][] keys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        routingStrategy = new ConsistentRoutingStrategy(ServerTestUtils.getLocalCluster(numNodes,
+                                                                                        16,
+                                                                                        1),
+                                                        replicationFactor);
+        keys = new byte[NUM_KEYS][];
+        for(int i = 0; i < NUM_KEYS; i++)
+            keys[i] = TestUtils.randomBytes(16);
+    }
+
+    private byte[] nextKey() {
+        next = (next + 1) & (NUM_KEYS - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public List<Node> routeRequest() {
+        return routingStrategy.routeRequest(nextKey());
+    }
+
+    @Benchmark
+    public Integer getMasterPartition() {
+        return routingStrategy.getMasterPartition(nextKey());
+    }
+}
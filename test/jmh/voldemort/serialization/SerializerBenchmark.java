@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.serialization;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trips of the same small record through the serializers that
+ * {@link DefaultSerializerFactory} builds for each serializer type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializerBenchmark {
+
+    private static final String JSON_SCHEMA = "{\"id\":\"int64\", \"name\":\"string\", \"title\":\"string\"}";
+
+    private static final String AVRO_SCHEMA = "{\"name\": \"Member\", \"type\": \"record\", \"fields\": ["
+                                              + "{\"name\": \"id\", \"type\": \"long\"},"
+                                              + "{\"name\": \"name\", \"type\": \"string\"},"
+                                              + "{\"name\": \"title\", \"type\": \"string\"}]}";
+
+    @Param({ DefaultSerializerFactory.STRING_SERIALIZER_TYPE_NAME,
+            DefaultSerializerFactory.JSON_SERIALIZER_TYPE_NAME,
+            DefaultSerializerFactory.JAVA_SERIALIZER_TYPE_NAME,
+            DefaultSerializerFactory.AVRO_GENERIC_TYPE_NAME,
+            DefaultSerializerFactory.AVRO_GENERIC_VERSIONED_TYPE_NAME })
+    public String type;
+
+    @Param({ "false" })
+    public boolean compileJsonSerializers;
+
+    private Serializer<Object> serializer;
+    private Object object;
+    private byte[] bytes;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setUp() {
+        SerializerDefinition serializerDef;
+        if(type.equals(DefaultSerializerFactory.STRING_SERIALIZER_TYPE_NAME)) {
+            serializerDef = new SerializerDefinition(type);
+            object = "42 Voldemort Engineer";
+        } else if(type.equals(DefaultSerializerFactory.JSON_SERIALIZER_TYPE_NAME)) {
+            serializerDef = new SerializerDefinition(type, JSON_SCHEMA);
+            object = member();
+        } else if(type.equals(DefaultSerializerFactory.JAVA_SERIALIZER_TYPE_NAME)) {
+            serializerDef = new SerializerDefinition(type);
+            object = member();
+        } else {
+            serializerDef = new SerializerDefinition(type, AVRO_SCHEMA);
+            Record record = new Record(Schema.parse(AVRO_SCHEMA));
+            record.put("id", 42L);
+            record.put("name", new Utf8("Voldemort"));
+            record.put("title", new Utf8("Engineer"));
+            object = record;
+        }
+        serializer = (Serializer<Object>) new DefaultSerializerFactory(compileJsonSerializers).getSerializer(serializerDef);
+        bytes = serializer.toBytes(object);
+    }
+
+    private static Map<String, Object> member() {
+        Map<String, Object> member = new HashMap<String, Object>();
+        member.put("id", 42L);
+        member.put("name", "Voldemort");
+        member.put("title", "Engineer");
+        return member;
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return serializer.toBytes(object);
+    }
+
+    @Benchmark
+    public Object toObject() {
+        return serializer.toObject(bytes);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.vold;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.client.protocol.RequestFormat;
+import voldemort.client.protocol.RequestFormatFactory;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.server.RequestRoutingType;
+import voldemort.server.StoreRepository;
+import voldemort.server.protocol.RequestHandler;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+/**
+ * Server side decoding of native protocol requests: the completeness check the
+ * selector runs on every read from the socket, and a whole get request against
+ * an in memory store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VoldemortNativeRequestHandlerBenchmark {
+
+    private static final String STORE_NAME = "test";
+
+    @Param({ "100", "10000" })
+    public int valueSize;
+
+    private RequestHandler requestHandler;
+    private byte[] getRequest;
+    private byte[] putRequest;
+    private ByteArrayOutputStream response;
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryStorageEngine<ByteArray, byte[], byte[]> store = new InMemoryStorageEngine<ByteArray, byte[], byte[]>(STORE_NAME);
+        StoreRepository repository = new StoreRepository();
+        repository.addLocalStore(store);
+        repository.addRoutedStore(store);
+        requestHandler = ServerTestUtils.getSocketRequestHandlerFactory(repository)
+                                        .getRequestHandler(RequestFormatType.VOLDEMORT_V3);
+
+        ByteArray key = new ByteArray(TestUtils.randomBytes(16));
+        Versioned<byte[]> value = new Versioned<byte[]>(TestUtils.randomBytes(valueSize),
+                                                        TestUtils.getClock(1, 2, 3));
+        store.put(key, value, null);
+
+        RequestFormat requestFormat = new RequestFormatFactory().getRequestFormat(RequestFormatType.VOLDEMORT_V3);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        requestFormat.writeGetRequest(new DataOutputStream(request),
+                                      STORE_NAME,
+                                      key,
+                                      null,
+                                      RequestRoutingType.NORMAL);
+        getRequest = request.toByteArray();
+
+        request.reset();
+        requestFormat.writePutRequest(new DataOutputStream(request),
+                                      STORE_NAME,
+                                      key,
+                                      value.getValue(),
+                                      null,
+                                      TestUtils.getClock(1, 2, 3, 4),
+                                      RequestRoutingType.NORMAL);
+        putRequest = request.toByteArray();
+
+        response = new ByteArrayOutputStream(valueSize + 1024);
+    }
+
+    @Benchmark
+    public boolean isCompleteGetRequest() {
+        return requestHandler.isCompleteRequest(ByteBuffer.wrap(getRequest));
+    }
+
+    @Benchmark
+    public boolean isCompletePutRequest() {
+        return requestHandler.isCompleteRequest(ByteBuffer.wrap(putRequest));
+    }
+
+    @Benchmark
+    public int handleGetRequest() throws IOException {
+        response.reset();
+        requestHandler.handleRequest(new DataInputStream(new ByteArrayInputStream(getRequest)),
+                                     new DataOutputStream(response));
+        return response.size();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import voldemort.TestUtils;
+import voldemort.versioning.Versioned;
+
+/**
+ * Encoding and decoding of the versioned values of a key as the BDB and
+ * RocksDB engines store them, in both the compact and the fixed width format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StoreBinaryFormatBenchmark {
+
+    @Param({ "1", "3" })
+    public int numValues;
+
+    @Param({ "100", "10000" })
+    public int valueSize;
+
+    private List<Versioned<byte[]>> values;
+    private byte[] compactBytes;
+    private byte[] fixedWidthBytes;
+
+    @Setup
+    public void setUp() {
+        values = new ArrayList<Versioned<byte[]>>();
+        for(int i = 0; i < numValues; i++) {
+            values.add(new Versioned<byte[]>(TestUtils.randomBytes(valueSize),
+                                             TestUtils.getClock(0, 1, 2, i + 3)));
+        }
+        compactBytes = StoreBinaryFormat.toByteArray(values);
+        fixedWidthBytes = StoreBinaryFormat.toFixedWidthByteArray(values);
+    }
+
+    @Benchmark
+    public byte[] toByteArray() {
+        return StoreBinaryFormat.toByteArray(values);
+    }
+
+    @Benchmark
+    public byte[] toFixedWidthByteArray() {
+        return StoreBinaryFormat.toFixedWidthByteArray(values);
+    }
+
+    @Benchmark
+    public List<Versioned<byte[]>> fromCompactByteArray() {
+        return StoreBinaryFormat.fromByteArray(compactBytes);
+    }
+
+    @Benchmark
+    public List<Versioned<byte[]>> fromFixedWidthByteArray() {
+        return StoreBinaryFormat.fromByteArray(fixedWidthBytes);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import voldemort.utils.ByteUtils;
+import voldemort.utils.ReflectUtils;
+
+/**
+ * Lookups in a read-only index of md5 keys held in a direct buffer, as the
+ * memory mapped index files are, for keys that are in the index and keys that
+ * are not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SearchStrategyBenchmark {
+
+    private static final int KEY_SIZE = 16;
+    private static final int NUM_LOOKUP_KEYS = 4096;
+
+    @Param({ "BinarySearchStrategy", "InterpolationSearchStrategy" })
+    public String strategy;
+
+    @Param({ "10000", "1000000" })
+    public int numKeys;
+
+    private SearchStrategy searchStrategy;
+    private ByteBuffer index;
+    private int indexSize;
+    private byte[][] presentKeys;
+    private byte[][] absentKeys;
+    private int next;
+
+    private static byte[] md5(int i) {
+        return ByteUtils.md5(ByteUtils.getBytes(Integer.toString(i), "UTF-8"));
+    }
+
+    @Setup
+    public void setUp() {
+        String className = SearchStrategy.class.getPackage().getName() + "." + strategy;
+        searchStrategy = (SearchStrategy) ReflectUtils.callConstructor(ReflectUtils.loadClass(className));
+
+        byte[][] keys = new byte[numKeys][];
+        for(int i = 0; i < numKeys; i++)
+            keys[i] = md5(i);
+        Arrays.sort(keys, new Comparator<byte[]>() {
+
+            public int compare(byte[] key1, byte[] key2) {
+                return ByteUtils.compare(key1, key2);
+            }
+        });
+
+        indexSize = numKeys * (KEY_SIZE + ReadOnlyUtils.POSITION_SIZE);
+        index = ByteBuffer.allocateDirect(indexSize);
+        for(int i = 0; i < numKeys; i++) {
+            index.put(keys[i]);
+            index.putInt(i);
+        }
+
+        Random random = new Random(0);
+        presentKeys = new byte[NUM_LOOKUP_KEYS][];
+        absentKeys = new byte[NUM_LOOKUP_KEYS][];
+        for(int i = 0; i < NUM_LOOKUP_KEYS; i++) {
+            presentKeys[i] = md5(random.nextInt(numKeys));
+            absentKeys[i] = md5(numKeys + i);
+        }
+    }
+
+    private int nextLookup() {
+        next = (next + 1) & (NUM_LOOKUP_KEYS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int presentKey() {
+        return searchStrategy.indexOf(index, presentKeys[nextLookup()], indexSize);
+    }
+
+    @Benchmark
+    public int absentKey() {
+        return searchStrategy.indexOf(index, absentKeys[nextLookup()], indexSize);
+    }
+}
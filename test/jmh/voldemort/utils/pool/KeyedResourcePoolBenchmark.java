@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.utils.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checkout and checkin of pooled resources by several threads, either all on
+ * the same key, as when every request goes to one node, or each on its own
+ * key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class KeyedResourcePoolBenchmark {
+
+    @Param({ "1", "8" })
+    public int maxPoolSize;
+
+    @Param({ "false", "true" })
+    public boolean isFair;
+
+    private KeyedResourcePool<Integer, String> pool;
+    private final AtomicInteger nextKey = new AtomicInteger(0);
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+
+        public Integer key;
+
+        @Setup
+        public void setUp(KeyedResourcePoolBenchmark benchmark) {
+            key = benchmark.nextKey.incrementAndGet();
+        }
+    }
+
+    private static class StringResourceFactory implements ResourceFactory<Integer, String> {
+
+        public void createAsync(Integer key, KeyedResourcePool<Integer, String> pool) {
+            pool.checkin(key, key + "-val");
+        }
+
+        public void destroy(Integer key, String obj) {}
+
+        public boolean validate(Integer key, String value) {
+            return true;
+        }
+
+        public void close() {}
+    }
+
+    @Setup
+    public void setUp() {
+        pool = KeyedResourcePool.create(new StringResourceFactory(),
+                                        new ResourcePoolConfig().setMaxPoolSize(maxPoolSize)
+                                                                .setIsFair(isFair)
+                                                                .setTimeout(1, TimeUnit.SECONDS));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    private String checkoutCheckin(Integer key) throws Exception {
+        String resource = pool.checkout(key);
+        pool.checkin(key, resource);
+        return resource;
+    }
+
+    @Benchmark
+    public String sameKey() throws Exception {
+        return checkoutCheckin(0);
+    }
+
+    @Benchmark
+    public String ownKey(ThreadKey threadKey) throws Exception {
+        return checkoutCheckin(threadKey.key);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Comparison, merge and both serialized forms of clocks that share most of
+ * their nodes, as the clocks of the replicas of a key do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorClockBenchmark {
+
+    @Param({ "3", "12" })
+    public int numEntries;
+
+    private VectorClock clock;
+    private VectorClock concurrentClock;
+    private byte[] bytes;
+    private byte[] compactBytes;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis();
+        clock = new VectorClock(now);
+        for(int node = 0; node < numEntries; node++) {
+            for(int i = 0; i <= node; i++)
+                clock.incrementVersion(node, now);
+        }
+        // one node ahead and one node behind
+        concurrentClock = clock.incremented(0, now);
+        clock.incrementVersion(numEntries - 1, now);
+
+        bytes = clock.toBytes();
+        compactBytes = new byte[clock.sizeInCompactBytes()];
+        clock.toCompactBytes(compactBytes, 0);
+        buffer = new byte[Math.max(bytes.length, compactBytes.length)];
+    }
+
+    @Benchmark
+    public Occurred compare() {
+        return clock.compare(concurrentClock);
+    }
+
+    @Benchmark
+    public VectorClock merge() {
+        return clock.merge(concurrentClock);
+    }
+
+    @Benchmark
+    public VectorClock incremented() {
+        return clock.incremented(1, clock.getTimestamp());
+    }
+
+    @Benchmark
+    public int toBytes() {
+        return clock.toBytes(buffer, 0);
+    }
+
+    @Benchmark
+    public VectorClock fromBytes() {
+        return new VectorClock(bytes);
+    }
+
+    @Benchmark
+    public int toCompactBytes() {
+        return clock.toCompactBytes(buffer, 0);
+    }
+
+    @Benchmark
+    public VectorClock fromCompactBytes() {
+        return VectorClock.fromCompactBytes(compactBytes, 0);
+    }
+}
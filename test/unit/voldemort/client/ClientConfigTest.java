@@ -48,6 +48,33 @@ public class ClientConfigTest {
         }
     }
 
+    @Test
+    public void testConnectionPoolResizeInterval() {
+        ClientConfig config = new ClientConfig();
+        assertEquals("resizing should be disabled by default",
+                     -1,
+                     config.getConnectionPoolResizeInterval(TimeUnit.MILLISECONDS));
+
+        config.setConnectionPoolResizeInterval(0, TimeUnit.SECONDS);
+        assertEquals("setting to 0, should return -1, regardless of the unit",
+                     -1,
+                     config.getConnectionPoolResizeInterval(TimeUnit.DAYS));
+
+        Properties props = new Properties();
+        props.setProperty("connection_pool_resize_interval_ms", "30000");
+        props.setProperty("min_connections", "5");
+        config = new ClientConfig(props);
+        assertEquals(30, config.getConnectionPoolResizeInterval(TimeUnit.SECONDS));
+        assertEquals(5, config.getMinConnectionsPerNode());
+
+        try {
+            new ClientConfig().setMinConnectionsPerNode(0);
+            fail("min connections should be greater than zero");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testIdleConnectionTimeout() {
         String idleConnectionTimeoutProperty = "idle_connection_timeout_minutes";
@@ -132,6 +132,16 @@ public class SocketStoreClientFactoryTest extends AbstractStoreClientFactoryTest
         factories.add(getFactory(getValidBootstrapUrl()));
     }
 
+    @Test
+    public void testCompressedBootstrap() throws Exception {
+        StoreClientFactory factory = new SocketStoreClientFactory(new ClientConfig().setBootstrapUrls(getValidBootstrapUrl())
+                                                                                    .setEnableLazy(useLazy)
+                                                                                    .setFetchAllStoresXmlInBootstrap(fetchAllStoresXml)
+                                                                                    .setCompressBootstrapMetadata(true));
+        allFactories.add(factory);
+        assertNotNull(factory.getStoreClient(getValidStoreName()));
+    }
+
     @Test
     public void testStoreClientCaching() throws Exception {
         // the objects will be equal only its not a lazy client
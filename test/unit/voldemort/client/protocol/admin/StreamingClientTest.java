@@ -12,6 +12,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -239,6 +240,48 @@ public class StreamingClientTest {
 
     }
 
+    @Test
+    public void testStreamingWithParallelWriters() {
+
+        Props property = new Props();
+        property.put("streaming.platform.bootstrapURL", SERVER_LOCAL_URL + serverPorts[0]);
+        property.put("streaming.platform.parallel.writers", true);
+        property.put("streaming.platform.writer.queue.size", 10);
+        property.put("streaming.platform.commit.batch", 100);
+        StreamingClientConfig config = new StreamingClientConfig(property);
+
+        BaseStreamingClient streamer = new BaseStreamingClient(config);
+        final AtomicInteger checkpoints = new AtomicInteger(0);
+
+        streamer.initStreamingSession(TEST_STORE_NAME, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                checkpoints.incrementAndGet();
+                return null;
+            }
+        }, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                Assert.fail("Recovery callback should not be invoked");
+                return null;
+            }
+        }, true);
+
+        for(int i = 0; i < NUM_KEYS_1; i++) {
+            String key = i + "";
+            String value = key;
+
+            Versioned<byte[]> outputValue = Versioned.value(value.getBytes());
+            streamer.streamingPut(new ByteArray(key.getBytes()), outputValue);
+        }
+        streamer.closeStreamingSession();
+        assertEquals(NUM_KEYS_1 / 100 + 1, checkpoints.get());
+        assertEquals(verifyKeysExist(nodeIdOnWhichToVerifyKey), true);
+
+    }
+
 
     /**
      * Checks if the streamingClient stays calm and not throw NPE when calling
@@ -113,4 +113,53 @@ public class RebalanceSchedulerTest {
         org.junit.Assert.assertEquals(sbTask, nextscheduledTask);
 
     }
+
+    private StealerBasedRebalanceTask createTask(int stealerId,
+                                                 int donorId,
+                                                 List<Integer> partitionIds,
+                                                 Cluster cluster,
+                                                 RebalanceScheduler taskScheduler) {
+        HashMap<String, List<Integer>> storeToPartitionIds = new HashMap<String, List<Integer>>();
+        storeToPartitionIds.put("storeA", partitionIds);
+        return new StealerBasedRebalanceTask(0,
+                                             0,
+                                             new RebalanceTaskInfo(stealerId,
+                                                                   donorId,
+                                                                   storeToPartitionIds,
+                                                                   cluster),
+                                             donorPermit,
+                                             adminClient,
+                                             progressBar,
+                                             taskScheduler);
+    }
+
+    @Test
+    public void testBusiestNodeIsScheduledFirst() {
+        RebalanceScheduler taskScheduler = new RebalanceScheduler(service, 10);
+        Cluster zzCurrent = ClusterTestUtils.getZZCluster();
+        adminClient = ServerTestUtils.getAdminClient(zzCurrent);
+
+        // node 2 has the most work, and its larger task goes first
+        StealerBasedRebalanceTask smallTask = createTask(0, 1, Arrays.asList(0), zzCurrent,
+                                                         taskScheduler);
+        StealerBasedRebalanceTask largeTask = createTask(2, 3, Arrays.asList(3, 9, 13),
+                                                         zzCurrent, taskScheduler);
+        StealerBasedRebalanceTask busyNodeTask = createTask(2, 1, Arrays.asList(1), zzCurrent,
+                                                            taskScheduler);
+        List<StealerBasedRebalanceTask> taskList = Arrays.asList(smallTask,
+                                                                 busyNodeTask,
+                                                                 largeTask);
+        taskScheduler.initializeLatch(taskList.size());
+        taskScheduler.populateTasksByStealer(taskList);
+
+        org.junit.Assert.assertEquals(largeTask, taskScheduler.scheduleNextTask(false));
+        // nodes 2 and 3 are busy, so only the task of nodes 0 and 1 can go
+        org.junit.Assert.assertEquals(smallTask, taskScheduler.scheduleNextTask(false));
+        org.junit.Assert.assertEquals(null, taskScheduler.scheduleNextTask(false));
+
+        taskScheduler.removeNodesFromWorkerList(Arrays.asList(2, 3));
+        org.junit.Assert.assertEquals(null, taskScheduler.scheduleNextTask(false));
+        taskScheduler.removeNodesFromWorkerList(Arrays.asList(0, 1));
+        org.junit.Assert.assertEquals(busyNodeTask, taskScheduler.scheduleNextTask(false));
+    }
 }
\ No newline at end of file
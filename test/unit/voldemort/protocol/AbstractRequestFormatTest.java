@@ -23,6 +23,7 @@ import voldemort.server.RequestRoutingType;
 import voldemort.server.StoreRepository;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.stats.RequestPhaseStats;
 import voldemort.utils.ByteArray;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
@@ -331,6 +332,45 @@ public abstract class AbstractRequestFormatTest extends TestCase {
         }
     }
 
+    @Test
+    public void testTraceIds() throws Exception {
+        boolean sendsTraceIds = type == RequestFormatType.VOLDEMORT_V5
+                                || type == RequestFormatType.PROTOCOL_BUFFERS;
+        try {
+            for(long traceId: new long[] { 42L, RequestPhaseStats.NOT_TRACED }) {
+                ByteArrayOutputStream putRequest = new ByteArrayOutputStream();
+                RequestPhaseStats.setCurrentTraceId(traceId);
+                this.clientWireFormat.writePutRequest(new DataOutputStream(putRequest),
+                                                      storeName,
+                                                      TestUtils.toByteArray("hello"),
+                                                      "world".getBytes(),
+                                                      null,
+                                                      new VectorClock(),
+                                                      RequestRoutingType.NORMAL);
+                ByteArrayOutputStream getRequest = new ByteArrayOutputStream();
+                this.clientWireFormat.writeGetRequest(new DataOutputStream(getRequest),
+                                                      storeName,
+                                                      TestUtils.toByteArray("hello"),
+                                                      null,
+                                                      RequestRoutingType.NORMAL);
+
+                // the server takes the trace id from the request
+                long expected = sendsTraceIds ? traceId : RequestPhaseStats.NOT_TRACED;
+                RequestPhaseStats.setCurrentTraceId(null);
+                this.clientWireFormat.readPutResponse(inputStream(handleRequest(putRequest)));
+                assertEquals(Long.valueOf(expected), RequestPhaseStats.getCurrentTraceId());
+                RequestPhaseStats.setCurrentTraceId(null);
+                List<Versioned<byte[]>> values = this.clientWireFormat.readGetResponse(inputStream(handleRequest(getRequest)));
+                assertEquals(Long.valueOf(expected), RequestPhaseStats.getCurrentTraceId());
+                assertEquals(1, values.size());
+                this.store.deleteAll();
+            }
+        } finally {
+            RequestPhaseStats.setCurrentTraceId(null);
+            this.store.deleteAll();
+        }
+    }
+
     private ByteArrayOutputStream handleRequest(ByteArrayOutputStream input) throws Exception {
         testIsCompleteRequest(input);
         ByteArrayOutputStream response = new ByteArrayOutputStream();
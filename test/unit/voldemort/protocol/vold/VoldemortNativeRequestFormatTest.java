@@ -20,7 +20,8 @@ public class VoldemortNativeRequestFormatTest extends AbstractRequestFormatTest
     @Parameters
     public static Collection<Object[]> configs() {
         return Arrays.asList(new Object[][] { { RequestFormatType.VOLDEMORT_V1 },
-                { RequestFormatType.VOLDEMORT_V2 }, { RequestFormatType.VOLDEMORT_V3 } });
+                { RequestFormatType.VOLDEMORT_V2 }, { RequestFormatType.VOLDEMORT_V3 },
+                { RequestFormatType.VOLDEMORT_V4 }, { RequestFormatType.VOLDEMORT_V5 } });
     }
 
 
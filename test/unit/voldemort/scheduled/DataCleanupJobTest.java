@@ -61,6 +61,8 @@ import voldemort.store.bdb.BdbStorageConfiguration;
 import voldemort.store.memory.InMemoryStorageEngine;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.retention.RetentionEnforcingStore;
+import voldemort.store.retention.RetentionIndexingStore;
+import voldemort.store.retention.RetentionKeyIndex;
 import voldemort.store.slop.SlopStorageEngine;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
@@ -328,6 +330,75 @@ public class DataCleanupJobTest {
         assertContains("a", "d", "e", "f");
     }
 
+    @Test
+    public void testIndexedCleanup() {
+        RetentionKeyIndex<ByteArray> index = new RetentionKeyIndex<ByteArray>(STORE_NAME,
+                                                                              Time.MS_PER_HOUR,
+                                                                              1000);
+        RetentionIndexingStore indexingStore = new RetentionIndexingStore(engine, index);
+        DataCleanupJob<ByteArray, byte[], byte[]> cleanupJob = new DataCleanupJob<ByteArray, byte[], byte[]>(engine,
+                                                                                                             new ScanPermitWrapper(1),
+                                                                                                             STORE_NAME,
+                                                                                                             time,
+                                                                                                             metadataStore,
+                                                                                                             index,
+                                                                                                             3);
+        time.setTime(123);
+        put("a", "b", "c");
+        // the first run scans the whole store and fills the index
+        cleanupJob.run();
+        assertTrue("Index should be complete after a full scan", index.isComplete());
+        assertEquals(3, index.getNumKeys());
+
+        // written around the index, only a full scan will expire it
+        put("x");
+        time.setTime(123 + START_RETENTION * Time.MS_PER_DAY + Time.MS_PER_HOUR + 1);
+        indexingStore.put(new ByteArray("d".getBytes()),
+                          new Versioned<byte[]>("d".getBytes(),
+                                                new VectorClock(time.getMilliseconds())),
+                          null);
+
+        long scanned = cleanupJob.getEntriesScanned();
+        cleanupJob.run();
+        assertEquals("Only the expired keys should be visited",
+                     3,
+                     cleanupJob.getEntriesScanned() - scanned);
+        assertAbsence("a", "b", "c");
+        assertContains("x", "d");
+        assertEquals(1, index.getNumKeys());
+
+        // the third run is still indexed, the fourth one scans everything
+        cleanupJob.run();
+        assertContains("x");
+        cleanupJob.run();
+        assertAbsence("x");
+        assertContains("d");
+        assertEquals(4, cleanupJob.getEntriesDeleted());
+    }
+
+    @Test
+    public void testRetentionKeyIndexOverflow() {
+        RetentionKeyIndex<ByteArray> index = new RetentionKeyIndex<ByteArray>(STORE_NAME,
+                                                                              Time.MS_PER_HOUR,
+                                                                              2);
+        index.markComplete();
+        index.add(new ByteArray("a".getBytes()), 0);
+        index.add(new ByteArray("b".getBytes()), Time.MS_PER_HOUR);
+        assertTrue(index.isComplete());
+        assertEquals(1, index.pollExpired(Time.MS_PER_HOUR).size());
+
+        index.add(new ByteArray("c".getBytes()), 0);
+        index.add(new ByteArray("d".getBytes()), 0);
+        assertEquals("Overflowing index should fall back to full scans", false, index.isComplete());
+        assertEquals(0, index.getNumKeys());
+        index.markComplete();
+        assertEquals(false, index.isComplete());
+
+        index.reset();
+        index.markComplete();
+        assertTrue(index.isComplete());
+    }
+
     public void testCleanupStartTime() {
         // Make sure the default is always the next day.
         GregorianCalendar cal = new GregorianCalendar();
@@ -467,6 +538,13 @@ public class DataCleanupJobTest {
         }
     }
 
+    private void assertAbsence(String... keys) {
+        for(String key: keys) {
+            List<Versioned<byte[]>> found = engine.get(new ByteArray(key.getBytes()), null);
+            assertEquals("Expected key '" + key + "' to be deleted!", 0, found.size());
+        }
+    }
+
     private void assertContains(String... keys) {
         for(String key: keys) {
             List<Versioned<byte[]>> found = engine.get(new ByteArray(key.getBytes()), null);
@@ -350,6 +350,41 @@ public class StreamingSlopPusherTest {
         stopServers(0, 1);
     }
 
+    @Test
+    public void testSlowConsumerGetsThePoisonPill() throws InterruptedException, IOException {
+        startServers(0, 1);
+
+        StorageEngine<ByteArray, Slop, byte[]> slopStoreNode0 = getVoldemortServer(0).getStoreRepository()
+                                                                                     .getSlopStore()
+                                                                                     .asSlopStore();
+        final List<Versioned<Slop>> entrySet = ServerTestUtils.createRandomSlops(1,
+                                                                                 50,
+                                                                                 "test-replication-memory",
+                                                                                 "users");
+        populateSlops(0, slopStoreNode0, entrySet);
+
+        // the consumer drains its full queue slower than the routing timeout
+        configs[0].setSlopPusherQueueSize(5);
+        configs[0].setSlopMaxWriteBytesPerSec(100);
+        configs[0].setClientRoutingTimeoutMs(20);
+        ScanPermitWrapper permits = new ScanPermitWrapper(1);
+        final StreamingSlopPusherJob pusher = new StreamingSlopPusherJob(getVoldemortServer(0).getStoreRepository(),
+                                                                         getVoldemortServer(0).getMetadataStore(),
+                                                                         new BannagePeriodFailureDetector(new FailureDetectorConfig().setCluster(cluster)
+                                                                                                                                     .setConnectionVerifier(new ServerStoreConnectionVerifier(socketStoreFactory,
+                                                                                                                                                                               metadataStore,
+                                                                                                                                                                               configs[0]))),
+                                                                         configs[0],
+                                                                         permits);
+        Thread pusherThread = new Thread(pusher);
+        pusherThread.start();
+        pusherThread.join(60000);
+        assertFalse("slop pusher job did not finish", pusherThread.isAlive());
+        assertEquals(1, permits.availablePermits());
+
+        stopServers(0, 1);
+    }
+
     @Test
     public void testNormalPush() throws InterruptedException, IOException {
         startServers(0, 1);
@@ -414,6 +449,9 @@ public class StreamingSlopPusherTest {
         assertEquals(slopEngine.getOutstandingTotal(), 0);
         assertEquals(slopEngine.getOutstandingByNode().get(1), new Long(0));
         assertEquals(slopEngine.getOutstandingByNode().get(2), new Long(0));
+        assertEquals(new Long(0), slopEngine.getPendingByNode().get(1));
+        // every slop is generated twice, only one of the copies is stored
+        assertEquals(new Long(entrySet.size() / 2), slopEngine.getPushedByNode().get(1));
 
         stopServers(0, 1);
     }
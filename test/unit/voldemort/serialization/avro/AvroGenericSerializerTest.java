@@ -16,6 +16,14 @@
 package voldemort.serialization.avro;
 
 import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import junit.framework.TestCase;
 
 import org.apache.avro.Schema;
@@ -71,4 +79,35 @@ public class AvroGenericSerializerTest extends TestCase {
         assertArrayEquals(" should serialize to same value", byte1, byte2);
     }
 
+    public void testConcurrentRoundtrip() throws Exception {
+        final String jsonSchema = "{\"name\": \"Compact Disk\", \"type\": \"record\", "
+                                  + "\"fields\": ["
+                                  + "{\"name\": \"name\", \"type\": \"string\", \"order\": \"ascending\"}"
+                                  + "]}";
+        final AvroGenericSerializer serializer = new AvroGenericSerializer(jsonSchema);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for(int t = 0; t < 4; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+
+                    public Boolean call() {
+                        for(int i = 0; i < 1000; i++) {
+                            Record record = new Record(Schema.parse(jsonSchema));
+                            record.put("name", new Utf8(thread + "-" + i));
+                            if(!serializer.toObject(serializer.toBytes(record)).equals(record))
+                                return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for(Future<Boolean> result: results)
+                assertTrue(result.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2009 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.serialization.json;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Date;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Runs the {@link JsonTypeSerializerTest} cases against the compiled mode, and
+ * checks that both modes produce the same bytes.
+ * 
+ */
+public class CompiledJsonTypeSerializerTest extends JsonTypeSerializerTest {
+
+    @Override
+    protected JsonTypeSerializer getSerializer(String typeDef) {
+        return new JsonTypeSerializer(JsonTypeDefinition.fromJson(typeDef), false, true);
+    }
+
+    @Override
+    protected JsonTypeSerializer getSerializer(Map<Integer, JsonTypeDefinition> defs) {
+        return new JsonTypeSerializer(defs, true);
+    }
+
+    public void testSameBytesAsInterpreted() {
+        String typeDef = "{\"name\":\"string\", \"age\":\"int32\", \"tags\":[\"string\"], "
+                         + "\"born\":\"date\", \"score\":\"float64\", \"ratio\":\"float32\", "
+                         + "\"id\":\"int64\", \"small\":\"int16\", \"tiny\":\"int8\", "
+                         + "\"active\":\"boolean\", \"raw\":\"bytes\", \"nested\":{\"x\":\"int32\"}}";
+        Map<String, Object> m = Maps.newHashMap();
+        m.put("name", "jay");
+        m.put("age", 28);
+        m.put("tags", asList("a", null, "c"));
+        m.put("born", new Date(1234L));
+        m.put("score", 1.5d);
+        m.put("ratio", null);
+        m.put("id", 293847238433L);
+        m.put("small", (short) 12);
+        m.put("tiny", (byte) 3);
+        m.put("active", false);
+        m.put("raw", new byte[] { 1, 2, 3 });
+        m.put("nested", ImmutableMap.of("x", 7));
+
+        JsonTypeSerializer interpreted = new JsonTypeSerializer(JsonTypeDefinition.fromJson(typeDef),
+                                                                true);
+        JsonTypeSerializer compiled = new JsonTypeSerializer(JsonTypeDefinition.fromJson(typeDef),
+                                                             true,
+                                                             true);
+        assertTrue(compiled.isCompiled());
+        byte[] bytes = interpreted.toBytes(m);
+        assertArrayEquals(bytes, compiled.toBytes(m));
+
+        Map<String, Object> read = (Map<String, Object>) compiled.toObject(bytes);
+        assertArrayEquals((byte[]) m.get("raw"), (byte[]) read.get("raw"));
+        read.put("raw", m.get("raw"));
+        assertEquals(m, read);
+    }
+}
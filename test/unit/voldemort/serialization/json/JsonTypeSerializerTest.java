@@ -47,12 +47,12 @@ import com.google.common.collect.Maps;
 public class JsonTypeSerializerTest extends TestCase {
 
     /* Get a type serializer for the given json type */
-    private JsonTypeSerializer getSerializer(String typeDef) {
+    protected JsonTypeSerializer getSerializer(String typeDef) {
         return new JsonTypeSerializer(JsonTypeDefinition.fromJson(typeDef));
     }
 
     /* Get a type serializer for the given versions and type defs */
-    private JsonTypeSerializer getSerializer(Object... versions) {
+    protected JsonTypeSerializer getSerializer(Object... versions) {
         Map<Integer, JsonTypeDefinition> defs = Maps.newHashMap();
         int count = 0;
         assertTrue("Must have an equal number of versions and type defs.", versions.length % 2 == 0);
@@ -66,6 +66,10 @@ public class JsonTypeSerializerTest extends TestCase {
             }
             count++;
         }
+        return getSerializer(defs);
+    }
+
+    protected JsonTypeSerializer getSerializer(Map<Integer, JsonTypeDefinition> defs) {
         return new JsonTypeSerializer(defs);
     }
 
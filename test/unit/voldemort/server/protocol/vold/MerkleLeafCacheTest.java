@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.server.protocol.vold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.MockTime;
+import voldemort.TestUtils;
+import voldemort.utils.ByteArray;
+import voldemort.utils.MerkleTree;
+import voldemort.versioning.Version;
+
+public class MerkleLeafCacheTest {
+
+    private MerkleLeafCache.Leaves getLeaves(MerkleLeafCache cache, int depth, int numKeys) {
+        MerkleLeafCache.Leaves leaves = cache.newLeaves(depth);
+        for(int i = 0; i < numKeys; i++) {
+            List<Version> versions = new ArrayList<Version>();
+            versions.add(TestUtils.getClock(1));
+            leaves.add(new ByteArray(("key" + i).getBytes()), versions);
+        }
+        return leaves;
+    }
+
+    @Test
+    public void testKeysOfTheLeaves() {
+        MerkleLeafCache cache = new MerkleLeafCache(1024 * 1024);
+        cache.put("test", 0, getLeaves(cache, 4, 100));
+
+        MerkleLeafCache.Leaves leaves = cache.get("test", 0, 4);
+        assertNotNull(leaves);
+        int numKeys = 0;
+        for(int leaf = 0; leaf < 16; leaf++) {
+            for(ByteArray key: leaves.getKeys(leaf).keySet()) {
+                assertEquals(leaf, MerkleTree.getLeaf(key.get(), 4));
+                assertEquals(Arrays.asList(TestUtils.getClock(1)), leaves.getKeys(leaf).get(key));
+                numKeys++;
+            }
+        }
+        assertEquals(100, numKeys);
+
+        assertNull(cache.get("test", 0, 5));
+        assertNull(cache.get("test", 1, 4));
+        assertNull(cache.get("other", 0, 4));
+    }
+
+    @Test
+    public void testTreesExpire() {
+        MockTime time = new MockTime(1000);
+        MerkleLeafCache cache = new MerkleLeafCache(1024 * 1024, time);
+        cache.put("test", 0, getLeaves(cache, 4, 10));
+
+        time.addMilliseconds(MerkleLeafCache.EXPIRY_MS);
+        assertNotNull(cache.get("test", 0, 4));
+        time.addMilliseconds(1);
+        assertNull(cache.get("test", 0, 4));
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testOldestTreesAreDropped() {
+        MerkleLeafCache.Leaves sized = getLeaves(new MerkleLeafCache(1024 * 1024), 4, 10);
+        MerkleLeafCache sizing = new MerkleLeafCache(1024 * 1024);
+        sizing.put("test", 0, sized);
+        long treeBytes = sizing.getSizeInBytes();
+        assertTrue(treeBytes > 0);
+
+        // room for two trees of ten keys
+        MerkleLeafCache cache = new MerkleLeafCache(2 * treeBytes);
+        cache.put("test", 0, getLeaves(cache, 4, 10));
+        cache.put("test", 1, getLeaves(cache, 4, 10));
+        cache.put("test", 0, getLeaves(cache, 4, 10));
+        cache.put("test", 2, getLeaves(cache, 4, 10));
+        assertNotNull(cache.get("test", 0, 4));
+        assertNull(cache.get("test", 1, 4));
+        assertNotNull(cache.get("test", 2, 4));
+        assertEquals(2 * treeBytes, cache.getSizeInBytes());
+
+        // a tree larger than the cache is not kept
+        MerkleLeafCache.Leaves large = getLeaves(cache, 4, 100);
+        assertTrue(large.isOverflown());
+        cache.put("test", 3, large);
+        assertNull(cache.get("test", 3, 4));
+        assertEquals(2 * treeBytes, cache.getSizeInBytes());
+
+        assertNull(new MerkleLeafCache(0).newLeaves(4));
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.server.protocol.vold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.VoldemortException;
+import voldemort.routing.RoutingStrategyType;
+import voldemort.routing.StoreRoutingPlan;
+import voldemort.server.protocol.StreamRequestHandler.StreamRequestHandlerState;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.StorageEngine;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.MerkleTree;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+public class MerkleScanRequestHandlerTest {
+
+    private static final int NUM_KEYS = 5000;
+    private static final int DEPTH = 4;
+
+    private StorageEngine<ByteArray, byte[], byte[]> engine;
+    private StoreRoutingPlan routingPlan;
+    private ScanPermitWrapper scanPermits;
+    private Map<ByteArray, Integer> partition0Leaves;
+
+    @Before
+    public void setUp() {
+        engine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        routingPlan = new StoreRoutingPlan(ServerTestUtils.getLocalCluster(1,
+                                                                           new int[][] { { 0, 1 } }),
+                                           ServerTestUtils.getStoreDef("test",
+                                                                       1,
+                                                                       1,
+                                                                       1,
+                                                                       1,
+                                                                       1,
+                                                                       RoutingStrategyType.CONSISTENT_STRATEGY));
+        scanPermits = new ScanPermitWrapper(1);
+        partition0Leaves = new HashMap<ByteArray, Integer>();
+        for(int i = 0; i < NUM_KEYS; i++) {
+            ByteArray key = new ByteArray(("key" + i).getBytes());
+            engine.put(key, new Versioned<byte[]>(new byte[] { 1 }, TestUtils.getClock(1)), null);
+            if(routingPlan.getMasterPartitionId(key.get()) == 0)
+                partition0Leaves.put(key, MerkleTree.getLeaf(key.get(), DEPTH));
+        }
+    }
+
+    private GetMerkleTreeRequestHandler getTree(MerkleLeafCache leafCache) throws IOException {
+        GetMerkleTreeRequestHandler handler = new GetMerkleTreeRequestHandler(engine,
+                                                                              routingPlan,
+                                                                              scanPermits,
+                                                                              new EventThrottler(0),
+                                                                              leafCache,
+                                                                              new ErrorCodeMapper(),
+                                                                              4);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(request);
+        output.writeInt(0);
+        output.writeByte(DEPTH);
+        handler.parseRequest(new DataInputStream(new ByteArrayInputStream(request.toByteArray())));
+        return handler;
+    }
+
+    private GetMerkleLeafVersionsRequestHandler getLeafVersions(MerkleLeafCache leafCache,
+                                                                Integer... leaves)
+            throws IOException {
+        GetMerkleLeafVersionsRequestHandler handler = new GetMerkleLeafVersionsRequestHandler(engine,
+                                                                                              routingPlan,
+                                                                                              scanPermits,
+                                                                                              new EventThrottler(0),
+                                                                                              leafCache,
+                                                                                              new ErrorCodeMapper(),
+                                                                                              4);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(request);
+        output.writeInt(0);
+        output.writeByte(DEPTH);
+        output.writeInt(leaves.length);
+        for(int leaf: leaves)
+            output.writeInt(leaf);
+        handler.parseRequest(new DataInputStream(new ByteArrayInputStream(request.toByteArray())));
+        return handler;
+    }
+
+    /**
+     * Handles the segments of the request until it is complete
+     *
+     * @return The number of segments that yielded to the selector
+     */
+    private int runSegments(MerkleScanRequestHandler handler) throws IOException {
+        DataOutputStream output = new DataOutputStream(new ByteArrayOutputStream());
+        int numYields = 0;
+        StreamRequestHandlerState state;
+        while((state = handler.handleRequest(null, output)) != StreamRequestHandlerState.COMPLETE) {
+            assertEquals(StreamRequestHandlerState.YIELD, state);
+            numYields++;
+        }
+        handler.close(output);
+        return numYields;
+    }
+
+    private void assertLeafKeys(Map<ByteArray, List<Version>> results, Integer... leaves) {
+        int numKeys = 0;
+        for(Map.Entry<ByteArray, Integer> key: partition0Leaves.entrySet()) {
+            if(Arrays.asList(leaves).contains(key.getValue())) {
+                assertEquals(Arrays.asList(TestUtils.getClock(1)), results.get(key.getKey()));
+                numKeys++;
+            }
+        }
+        assertEquals(numKeys, results.size());
+    }
+
+    @Test
+    public void testTreeIsScannedInSegments() throws Exception {
+        GetMerkleTreeRequestHandler handler = getTree(new MerkleLeafCache(0));
+        handler.processRequest();
+        assertEquals(0, scanPermits.availablePermits());
+
+        // every entry of the store is read to find those of the partition
+        assertEquals(NUM_KEYS / MerkleScanRequestHandler.SEGMENT_ENTRIES - 1, runSegments(handler));
+        assertEquals(1, scanPermits.availablePermits());
+        assertEquals(partition0Leaves.size(), handler.tree.getKeyCount());
+    }
+
+    @Test
+    public void testClosedScanReleasesItsPermit() throws Exception {
+        GetMerkleTreeRequestHandler handler = getTree(new MerkleLeafCache(0));
+        handler.processRequest();
+        DataOutputStream output = new DataOutputStream(new ByteArrayOutputStream());
+        assertEquals(StreamRequestHandlerState.YIELD, handler.handleRequest(null, output));
+        handler.close(output);
+        assertEquals(1, scanPermits.availablePermits());
+    }
+
+    @Test
+    public void testLeafVersionsComeFromTheLastTree() throws Exception {
+        MerkleLeafCache leafCache = new MerkleLeafCache(1024 * 1024);
+        GetMerkleTreeRequestHandler tree = getTree(leafCache);
+        tree.processRequest();
+        runSegments(tree);
+        assertTrue(leafCache.getSizeInBytes() > 0);
+
+        // listed without a scan, so without a permit
+        assertTrue(scanPermits.tryAcquire(new AtomicLong(0), new AtomicLong(0), "test"));
+        GetMerkleLeafVersionsRequestHandler handler = getLeafVersions(leafCache, 0, 3);
+        handler.processRequest();
+        assertEquals(0, runSegments(handler));
+        assertLeafKeys(handler.results, 0, 3);
+
+        // but not at another depth
+        try {
+            GetMerkleLeafVersionsRequestHandler other = getLeafVersions(leafCache, 0);
+            other.depth = DEPTH + 1;
+            other.processRequest();
+            fail("Leaves of another depth listed without a scan permit");
+        } catch(VoldemortException e) {
+            // expected
+        }
+        scanPermits.release("test");
+    }
+
+    @Test
+    public void testLeafVersionsAreScannedWithoutTree() throws Exception {
+        MerkleLeafCache leafCache = new MerkleLeafCache(1024 * 1024);
+        assertTrue(scanPermits.tryAcquire(new AtomicLong(0), new AtomicLong(0), "test"));
+        try {
+            getLeafVersions(leafCache, 0, 3).processRequest();
+            fail("Leaves scanned without a scan permit");
+        } catch(VoldemortException e) {
+            // expected
+        }
+        scanPermits.release("test");
+
+        GetMerkleLeafVersionsRequestHandler handler = getLeafVersions(leafCache, 0, 3);
+        handler.processRequest();
+        assertEquals(NUM_KEYS / MerkleScanRequestHandler.SEGMENT_ENTRIES - 1, runSegments(handler));
+        assertEquals(1, scanPermits.availablePermits());
+        assertLeafKeys(handler.results, 0, 3);
+    }
+
+    @Test
+    public void testTreeTooLargeForTheCacheIsNotKept() throws Exception {
+        MerkleLeafCache leafCache = new MerkleLeafCache(100);
+        GetMerkleTreeRequestHandler tree = getTree(leafCache);
+        tree.processRequest();
+        runSegments(tree);
+        assertEquals(0, leafCache.getSizeInBytes());
+        assertEquals(null, leafCache.get("test", 0, DEPTH));
+    }
+
+}
@@ -33,6 +33,7 @@ import voldemort.store.quota.QuotaUtils;
 import voldemort.store.stats.StatTrackingStore;
 import voldemort.store.stats.Tracked;
 import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 
 /**
@@ -228,6 +229,101 @@ public class QuotaLimitingStoreTest {
 
     }
 
+    @Test
+    public void testTokenBucketRateLimiting() throws Exception {
+        File tempDir = TestUtils.createTempDir();
+
+        FileBackedCachingStorageEngine quotaStore = new FileBackedCachingStorageEngine("token-bucket-test-store",
+                                                                                       tempDir.getAbsolutePath());
+        InMemoryStorageEngine<ByteArray, byte[], byte[]> inMemoryEngine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("inMemoryBackingStore");
+        QuotaLimitStats quotaStats = new QuotaLimitStats(null, 1000);
+        StatTrackingStore statTrackingStore = new StatTrackingStore(inMemoryEngine, null);
+
+        // a burst of 10 seconds, so that a slow machine does not refill it
+        QuotaLimitingStore quotaLimitingStore = new QuotaLimitingStore(statTrackingStore,
+                                                                       statTrackingStore.getStats(),
+                                                                       quotaStats,
+                                                                       quotaStore,
+                                                                       server.getMetadataStore(),
+                                                                       true,
+                                                                       10000);
+        ByteArray quotaKey = new ByteArray(QuotaUtils.makeQuotaKey(statTrackingStore.getName(),
+                                                                   QuotaType.GET_THROUGHPUT)
+                                                     .getBytes());
+        quotaStore.put(quotaKey, new Versioned<byte[]>("5".getBytes()), null);
+
+        ByteArray key = new ByteArray("some key".getBytes());
+        int numAllowed = 0;
+        for(int i = 0; i < 100; i++) {
+            try {
+                quotaLimitingStore.get(key, null);
+                numAllowed++;
+            } catch(QuotaExceededException qee) {
+                // expected once the burst is used up
+            }
+        }
+        // 5 ops/sec for 10 secs, plus what got refilled meanwhile
+        assertTrue("Allowed " + numAllowed + " gets", numAllowed >= 50 && numAllowed < 55);
+        assertEquals(100 - numAllowed, quotaStats.getRateLimitedGets());
+
+        // a new quota value replaces the bucket right away
+        VectorClock clock = (VectorClock) quotaStore.get(quotaKey, null).get(0).getVersion();
+        quotaStore.put(quotaKey,
+                       new Versioned<byte[]>("1000000".getBytes(),
+                                             clock.incremented(0, System.currentTimeMillis() + 1)),
+                       null);
+        for(int i = 0; i < 100; i++)
+            quotaLimitingStore.get(key, null);
+        assertEquals(100 - numAllowed, quotaStats.getRateLimitedGets());
+    }
+
+    private Map<ByteArray, Versioned<byte[]>> getPutAllEntries(int firstEntry, int numEntries) {
+        Map<ByteArray, Versioned<byte[]>> entries = new HashMap<ByteArray, Versioned<byte[]>>();
+        for(int i = firstEntry; i < firstEntry + numEntries; i++)
+            entries.put(new ByteArray(("key" + i).getBytes()),
+                        new Versioned<byte[]>(("value" + i).getBytes()));
+        return entries;
+    }
+
+    @Test
+    public void testTokenBucketCountsEveryPutOfPutAll() throws Exception {
+        File tempDir = TestUtils.createTempDir();
+
+        FileBackedCachingStorageEngine quotaStore = new FileBackedCachingStorageEngine("token-bucket-putall-test-store",
+                                                                                       tempDir.getAbsolutePath());
+        InMemoryStorageEngine<ByteArray, byte[], byte[]> inMemoryEngine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("inMemoryBackingStore");
+        QuotaLimitStats quotaStats = new QuotaLimitStats(null, 1000);
+        StatTrackingStore statTrackingStore = new StatTrackingStore(inMemoryEngine, null);
+
+        // 5 puts/sec with a burst of 10 seconds holds 50 puts
+        QuotaLimitingStore quotaLimitingStore = new QuotaLimitingStore(statTrackingStore,
+                                                                       statTrackingStore.getStats(),
+                                                                       quotaStats,
+                                                                       quotaStore,
+                                                                       server.getMetadataStore(),
+                                                                       true,
+                                                                       10000);
+        ByteArray quotaKey = new ByteArray(QuotaUtils.makeQuotaKey(statTrackingStore.getName(),
+                                                                   QuotaType.PUT_THROUGHPUT)
+                                                     .getBytes());
+        quotaStore.put(quotaKey, new Versioned<byte[]>("5".getBytes()), null);
+
+        try {
+            quotaLimitingStore.putAll(getPutAllEntries(0, 60), null);
+            fail("A batch larger than the burst should be rejected");
+        } catch(QuotaExceededException qee) {
+            // expected
+        }
+        assertTrue(quotaLimitingStore.putAll(getPutAllEntries(0, 40), null).isEmpty());
+        try {
+            quotaLimitingStore.putAll(getPutAllEntries(40, 20), null);
+            fail("A batch larger than the rest of the burst should be rejected");
+        } catch(QuotaExceededException qee) {
+            // expected
+        }
+        assertTrue(quotaLimitingStore.putAll(getPutAllEntries(40, 5), null).isEmpty());
+    }
+
     @After
     public void teardown() throws IOException {
         adminClient.close();
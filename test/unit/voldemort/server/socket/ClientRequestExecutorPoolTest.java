@@ -191,6 +191,60 @@ public class ClientRequestExecutorPoolTest {
         validateResourceCount(pool, "Back to normal 2 connections expected ", 2);
     }
 
+    @Test
+    public void testResizePools() throws Exception {
+        // resized by hand below, so the interval never elapses
+        ClientRequestExecutorPool resizingPool = new ClientRequestExecutorPool(2,
+                                                                               1,
+                                                                               maxConnectionsPerNode,
+                                                                               3600 * 1000,
+                                                                               CONNECTION_TIMEOUT_MS,
+                                                                               SOCKET_TIMEOUT_MS,
+                                                                               IDLE_CONNECTION_TIMEOUT_MS,
+                                                                               32 * 1024,
+                                                                               false,
+                                                                               false,
+                                                                               new String());
+        try {
+            List<ClientRequestExecutor> list = new ArrayList<ClientRequestExecutor>();
+            for(int i = 0; i < maxConnectionsPerNode; i++)
+                list.add(resizingPool.checkout(dest1));
+            for(ClientRequestExecutor sas: list)
+                resizingPool.checkin(dest1, sas);
+            assertEquals(maxConnectionsPerNode,
+                         resizingPool.internalGetQueuedPool().getMaxPoolSize(dest1));
+
+            // half of the idle connections are closed
+            resizingPool.resizePools();
+            validateResourceCount(resizingPool, "Idle connections should be closed", 1);
+            assertEquals(1, resizingPool.internalGetQueuedPool().getMaxPoolSize(dest1));
+
+            // the pool grows once checkouts queue at its limit
+            ClientRequestExecutor sas = resizingPool.checkout(dest1);
+            resizingPool.getStats().recordCheckoutQueueLength(dest1, 2);
+            resizingPool.resizePools();
+            assertEquals(2, resizingPool.internalGetQueuedPool().getMaxPoolSize(dest1));
+            assertNotSame(sas, resizingPool.checkout(dest1));
+            // without resetting the histograms exposed by JMX
+            assertEquals(2, resizingPool.getStats()
+                                        .getStatsMap()
+                                        .get(dest1)
+                                        .getCheckoutQueueLengthHistogram()
+                                        .getSnapshot()
+                                        .getMaxValue());
+
+            // but never beyond maxConnectionsPerNode
+            for(int i = 0; i < 2; i++) {
+                resizingPool.getStats().recordCheckoutQueueLength(dest1, 2);
+                resizingPool.resizePools();
+            }
+            assertEquals(maxConnectionsPerNode,
+                         resizingPool.internalGetQueuedPool().getMaxPoolSize(dest1));
+        } finally {
+            resizingPool.close();
+        }
+    }
+
     @Test
     public void testTwoCheckoutsGetTheSameSocket() throws Exception {
         ClientRequestExecutor sas1 = pool.checkout(dest1);
@@ -78,7 +78,7 @@ public class RepairJobTest {
     private Map<Integer, Store<ByteArray, byte[], byte[]>> storeMap;
     Map<Integer, VoldemortServer> serverMap;
 
-    public void setUp() {
+    public void setUp(Map<String, String> configProps) {
 
         File temp = TestUtils.createTempDir();
         VoldemortConfig config = new VoldemortConfig(0, temp.getAbsolutePath());
@@ -102,7 +102,7 @@ public class RepairJobTest {
             String storeDefFile = file.getAbsolutePath();
             List<Integer> nodesToStart = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8);
             // Start the servers
-            startServers(cluster, storeDefFile, nodesToStart, null);
+            startServers(cluster, storeDefFile, nodesToStart, configProps);
         } catch(Exception e) {
             e.printStackTrace();
         }
@@ -183,8 +183,20 @@ public class RepairJobTest {
 
     @Test
     public void testRepairJob() {
+        runRepairJob(null);
+    }
+
+    @Test
+    public void testParallelRepairJob() {
+        Map<String, String> configProps = new HashMap<String, String>();
+        configProps.put(VoldemortConfig.MAINTENANCE_SCAN_PARALLELISM, "4");
+        configProps.put(VoldemortConfig.REPAIRJOB_PRUNE_VERSIONED_PUTS, "true");
+        runRepairJob(configProps);
+    }
+
+    private void runRepairJob(Map<String, String> configProps) {
         // start the servers
-        setUp();
+        setUp(configProps);
         // Create socket store
         storeMap = createSocketStore(storeDefs.get(0));
         // Generate random data, populate cluster with it.
@@ -22,6 +22,7 @@ import static voldemort.TestUtils.randomLetters;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +31,7 @@ import junit.framework.TestCase;
 import org.junit.Test;
 
 import voldemort.TestUtils;
+import voldemort.VoldemortException;
 import voldemort.utils.ByteArray;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
@@ -308,6 +310,32 @@ public abstract class AbstractStoreTest<K, V, T> extends TestCase {
         assertEquals(0, result.size());
     }
 
+    @Test
+    public void testPutAll() throws Exception {
+        Store<K, V, T> store = getStore();
+        List<K> keys = getKeys(3);
+        List<V> values = getValues(3);
+        store.put(keys.get(0), new Versioned<V>(values.get(0), getClock(1, 1)), null);
+        store.put(keys.get(1), new Versioned<V>(values.get(1), getClock(1, 1)), null);
+
+        // one obsolete put, one newer put and one put of a new key
+        Map<K, Versioned<V>> entries = new HashMap<K, Versioned<V>>();
+        entries.put(keys.get(0), new Versioned<V>(getValue(), getClock(1)));
+        Versioned<V> newer = new Versioned<V>(getValue(), getClock(1, 1, 2));
+        entries.put(keys.get(1), newer);
+        Versioned<V> created = new Versioned<V>(values.get(2), getClock(1));
+        entries.put(keys.get(2), created);
+
+        Map<K, VoldemortException> failures = store.putAll(entries, null);
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(keys.get(0)) instanceof ObsoleteVersionException);
+
+        assertValueEquals(values.get(0), store.get(keys.get(0), null));
+        assertValueEquals(newer.getValue(), store.get(keys.get(1), null));
+        assertValueEquals(created.getValue(), store.get(keys.get(2), null));
+        assertEquals(0, store.putAll(new HashMap<K, Versioned<V>>(), null).size());
+    }
+
     @Test
     public void testCloseIsIdempotent() throws Exception {
         Store<K, V, T> store = getStore();
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static voldemort.TestUtils.getClockWithTs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.VoldemortException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+public class StoreBinaryFormatTest {
+
+    private List<Versioned<byte[]>> getValues() {
+        List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>();
+        values.add(Versioned.value(new byte[] { 1, 2, 3 }, getClockWithTs(1400000000000L, 1, 1, 2)));
+        values.add(Versioned.value(new byte[0], getClockWithTs(1400000000001L, 3)));
+        values.add(Versioned.value(new byte[200], new VectorClock(-7)));
+        return values;
+    }
+
+    private void assertValuesEqual(List<Versioned<byte[]>> expected, List<Versioned<byte[]>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getVersion(), actual.get(i).getVersion());
+            assertEquals(((VectorClock) expected.get(i).getVersion()).getTimestamp(),
+                         ((VectorClock) actual.get(i).getVersion()).getTimestamp());
+            assertArrayEquals(expected.get(i).getValue(), actual.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testCompactFormat() {
+        List<Versioned<byte[]>> values = getValues();
+        byte[] bytes = StoreBinaryFormat.toByteArray(values, true);
+        assertEquals(1, bytes[0]);
+        assertValuesEqual(values, StoreBinaryFormat.fromByteArray(bytes));
+        assertTrue("Compact format should be smaller",
+                   bytes.length < StoreBinaryFormat.toFixedWidthByteArray(values).length);
+    }
+
+    @Test
+    public void testFixedWidthFormatIsStillRead() {
+        List<Versioned<byte[]>> values = getValues();
+        byte[] bytes = StoreBinaryFormat.toFixedWidthByteArray(values);
+        assertEquals(0, bytes[0]);
+        assertValuesEqual(values, StoreBinaryFormat.fromByteArray(bytes));
+    }
+
+    @Test
+    public void testFixedWidthFormatIsTheDefault() {
+        List<Versioned<byte[]>> values = getValues();
+        assertEquals(0, StoreBinaryFormat.toByteArray(values)[0]);
+        assertEquals(0, StoreBinaryFormat.toByteArray(values, false)[0]);
+    }
+
+    @Test(expected = VoldemortException.class)
+    public void testUnknownVersion() {
+        byte[] bytes = StoreBinaryFormat.toByteArray(getValues());
+        bytes[0] = 2;
+        StoreBinaryFormat.fromByteArray(bytes);
+    }
+}
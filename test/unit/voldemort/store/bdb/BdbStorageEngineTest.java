@@ -20,7 +20,9 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -38,6 +40,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
 import voldemort.TestUtils;
+import voldemort.VoldemortException;
 import voldemort.server.protocol.admin.AsyncOperationStatus;
 import voldemort.server.storage.KeyLockHandle;
 import voldemort.store.AbstractStorageEngineTest;
@@ -51,13 +54,17 @@ import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 
 import com.google.common.collect.Lists;
+import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.Durability;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.LockMode;
 import com.sleepycat.je.LockTimeoutException;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.StatsConfig;
 
 /**
  * Tests the BDB storage engine. Note that this class uses junit4 style test
@@ -164,6 +171,82 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
         TestUtils.bytesEqual("cdef".getBytes(), vals.get(0).getValue());
     }
 
+    @Test
+    public void testCompactValueFormatIsOptIn() throws Exception {
+        this.store.put(new ByteArray("abc".getBytes()),
+                       new Versioned<byte[]>("cdef".getBytes()),
+                       null);
+        this.store.close();
+        this.environment.close();
+        this.environment = new Environment(this.tempDir, envConfig);
+        this.database = environment.openDatabase(null, "test", databaseConfig);
+        runtimeConfig.setCompactValueFormat(true);
+        this.store = makeBdbStorageEngine("test",
+                                          this.environment,
+                                          this.database,
+                                          runtimeConfig,
+                                          this.prefixPartitionId);
+        this.store.put(new ByteArray("def".getBytes()),
+                       new Versioned<byte[]>("fghi".getBytes()),
+                       null);
+
+        // the value written before opting in stays in the old format
+        Cursor cursor = database.openCursor(null, null);
+        try {
+            DatabaseEntry keyEntry = new DatabaseEntry();
+            DatabaseEntry valueEntry = new DatabaseEntry();
+            int records = 0;
+            while(cursor.getNext(keyEntry, valueEntry, LockMode.READ_UNCOMMITTED) == OperationStatus.SUCCESS) {
+                String key = new String(keyEntry.getData());
+                assertEquals(key.endsWith("abc") ? 0 : 1, valueEntry.getData()[0]);
+                records++;
+            }
+            assertEquals(2, records);
+        } finally {
+            cursor.close();
+        }
+        TestUtils.bytesEqual("cdef".getBytes(), store.get(new ByteArray("abc".getBytes()), null)
+                                                     .get(0)
+                                                     .getValue());
+        TestUtils.bytesEqual("fghi".getBytes(), store.get(new ByteArray("def".getBytes()), null)
+                                                     .get(0)
+                                                     .getValue());
+    }
+
+    @Test
+    public void testPutAllReportsObsoleteVersions() throws Exception {
+        ByteArray existing = new ByteArray("abc".getBytes());
+        ByteArray added = new ByteArray("def".getBytes());
+        store.put(existing, new Versioned<byte[]>("newer".getBytes(), TestUtils.getClock(1, 1)), null);
+
+        Map<ByteArray, Versioned<byte[]>> entries = new HashMap<ByteArray, Versioned<byte[]>>();
+        entries.put(existing, new Versioned<byte[]>("older".getBytes(), TestUtils.getClock(1)));
+        entries.put(added, new Versioned<byte[]>("added".getBytes(), TestUtils.getClock(1)));
+        Map<ByteArray, VoldemortException> failures = store.putAll(entries, null);
+
+        // the obsolete put fails on its own, the rest of the batch goes on
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(existing) instanceof ObsoleteVersionException);
+        assertEquals("newer", new String(store.get(existing, null).get(0).getValue()));
+        assertEquals("added", new String(store.get(added, null).get(0).getValue()));
+    }
+
+    @Test
+    public void testPutAllCommitsOneTransaction() throws Exception {
+        Map<ByteArray, Versioned<byte[]>> entries = new HashMap<ByteArray, Versioned<byte[]>>();
+        for(int i = 0; i < 10; i++)
+            entries.put(new ByteArray(("key" + i).getBytes()),
+                        new Versioned<byte[]>(("value" + i).getBytes()));
+        StatsConfig statsConfig = new StatsConfig();
+        long commits = environment.getTransactionStats(statsConfig).getNCommits();
+
+        assertTrue(store.putAll(entries, null).isEmpty());
+        assertEquals(commits + 1, environment.getTransactionStats(statsConfig).getNCommits());
+        for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet())
+            assertEquals(new String(entry.getValue().getValue()),
+                         new String(store.get(entry.getKey(), null).get(0).getValue()));
+    }
+
     @Test
     public void testEquals() {
         String name = "someName";
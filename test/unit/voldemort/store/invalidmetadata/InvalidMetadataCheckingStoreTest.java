@@ -118,6 +118,46 @@ public class InvalidMetadataCheckingStoreTest extends TestCase {
         }
     }
 
+    /**
+     * Ownership is precomputed per cluster, make sure it accepts exactly the
+     * keys routed to the node, and follows metadata updates
+     */
+    public void testOwnershipFollowsMetadata() {
+        StoreDefinition storeDef = ServerTestUtils.getStoreDefs(1).get(0);
+
+        Cluster cluster = ServerTestUtils.getLocalCluster(3, new int[][] { { 0, 1, 2, 3 },
+                { 4, 5, 6, 7 }, { 8, 9, 10 } });
+        MetadataStore metadata = ServerTestUtils.createMetadataStore(cluster,
+                                                                     Arrays.asList(storeDef));
+        InvalidMetadataCheckingStore store = new InvalidMetadataCheckingStore(0,
+                                                                              new DoNothingStore<ByteArray, byte[], byte[]>(storeDef.getName()),
+                                                                              metadata);
+        assertOwnership(0, store, metadata, storeDef);
+
+        Cluster updatedCluster = ServerTestUtils.getLocalCluster(3, new int[][] { { 0, 1 },
+                { 2, 4, 5, 6, 7 }, { 3, 8, 9, 10 } });
+        metadata.put(MetadataStore.CLUSTER_KEY, updatedCluster);
+        assertOwnership(0, store, metadata, storeDef);
+    }
+
+    private void assertOwnership(int nodeId,
+                                 Store<ByteArray, byte[], byte[]> store,
+                                 MetadataStore metadata,
+                                 StoreDefinition storeDef) {
+        RoutingStrategy routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                             metadata.getCluster());
+        for(int i = 0; i < LOOP_COUNT; i++) {
+            ByteArray key = new ByteArray(ByteUtils.md5(Integer.toString(i).getBytes()));
+            boolean owned = containsNodeId(routingStrategy.routeRequest(key.get()), nodeId);
+            try {
+                store.get(key, null);
+                assertTrue("Key should have been rejected", owned);
+            } catch(InvalidMetadataException e) {
+                assertFalse("Key should have been accepted", owned);
+            }
+        }
+    }
+
     private boolean containsNodeId(List<Node> nodes, int nodeId) {
         for(Node node: nodes) {
             if(nodeId == node.getId()) {
@@ -25,6 +25,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
@@ -124,6 +127,35 @@ public class MetadataStoreTest {
         }
     }
 
+    @Test
+    public void testSerializedValueIsCached() {
+        for(int i = 0; i <= TEST_RUNS; i++) {
+            ByteArray key = getValidKey();
+            byte[] gzip = ByteUtils.getBytes(MetadataStore.GZIP_TRANSFORM, "UTF-8");
+            Versioned<byte[]> plain = metadataStore.get(key, null).get(0);
+            Versioned<byte[]> compressed = metadataStore.get(key, gzip).get(0);
+            assertTrue("Unchanged metadata should not be serialized again",
+                       plain.getValue() == metadataStore.get(key, null).get(0).getValue());
+            assertTrue("Compressed value should be the same as the plain one",
+                       Arrays.equals(plain.getValue(),
+                                     MetadataStore.decodeMetadataValue(compressed.getValue())));
+            assertEquals(plain.getVersion(), compressed.getVersion());
+            assertTrue("Plain value should be returned as is",
+                       Arrays.equals(plain.getValue(),
+                                     MetadataStore.decodeMetadataValue(plain.getValue())));
+
+            VectorClock clock = (VectorClock) plain.getVersion();
+            Versioned<byte[]> value = new Versioned<byte[]>(getValidValue(key),
+                                                            clock.incremented(0, 1));
+            metadataStore.put(key, value, null);
+            checkValues(value, metadataStore.get(key, null), key);
+            compressed = metadataStore.get(key, gzip).get(0);
+            assertEquals("Compressed value should follow updates",
+                         new String(metadataStore.get(key, null).get(0).getValue()),
+                         new String(MetadataStore.decodeMetadataValue(compressed.getValue())));
+        }
+    }
+
     @Test
     public void testRepeatedPuts() {
         for(int i = 0; i <= TEST_RUNS; i++) {
@@ -221,6 +253,51 @@ public class MetadataStoreTest {
 
     }
 
+    @Test
+    public void testSnapshotPublishedOnOuterUnlock() throws Exception {
+        final Cluster original = metadataStore.getCluster();
+        Cluster updated = ServerTestUtils.getLocalCluster(2);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        Callable<Object[]> readState = new Callable<Object[]>() {
+
+            public Object[] call() {
+                return new Object[] { metadataStore.getCluster(),
+                        metadataStore.getServerStateUnlocked() };
+            }
+        };
+
+        try {
+            metadataStore.writeLock.lock();
+            try {
+                metadataStore.put(MetadataStore.CLUSTER_KEY, updated);
+                metadataStore.put(MetadataStore.SERVER_STATE_KEY,
+                                  VoldemortState.REBALANCING_MASTER_SERVER);
+
+                // the writer sees its own changes
+                assertEquals(updated, metadataStore.getCluster());
+                assertEquals(VoldemortState.REBALANCING_MASTER_SERVER,
+                             metadataStore.getServerStateUnlocked());
+
+                // other threads keep reading the last published snapshot
+                Object[] state = reader.submit(readState).get();
+                assertTrue("Cluster should not be published yet", state[0] == original);
+                assertEquals(VoldemortState.NORMAL_SERVER, state[1]);
+            } finally {
+                metadataStore.writeLock.unlock();
+            }
+
+            Object[] state = reader.submit(readState).get();
+            assertEquals(updated, state[0]);
+            assertEquals(VoldemortState.REBALANCING_MASTER_SERVER, state[1]);
+            assertEquals(metadataStore.getStoreDefList().get(0),
+                         metadataStore.getStoreDef(metadataStore.getStoreDefList()
+                                                                .get(0)
+                                                                .getName()));
+        } finally {
+            reader.shutdown();
+        }
+    }
+
     /**
      * Test update stores.xml with incompatible avro versions. Should reject and throw exceptions
      */
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2008-2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.quota;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRefill() {
+        // 100 ops/sec with 100 ms of burst: 10 back to back ops
+        TokenBucket bucket = new TokenBucket(100, 100, 0);
+        for(int i = 0; i < 10; i++)
+            assertTrue("Op " + i + " should fit in the burst", bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertEquals(100, bucket.getPctUsed(0));
+
+        // one token every 10 ms
+        assertFalse(bucket.tryAcquire(9 * MS));
+        assertTrue(bucket.tryAcquire(10 * MS));
+        assertFalse(bucket.tryAcquire(10 * MS));
+
+        // fully refilled after the burst duration
+        assertEquals(0, bucket.getPctUsed(200 * MS));
+        for(int i = 0; i < 10; i++)
+            assertTrue(bucket.tryAcquire(200 * MS));
+        assertFalse(bucket.tryAcquire(200 * MS));
+    }
+
+    @Test
+    public void testSustainedRate() {
+        TokenBucket bucket = new TokenBucket(1000, 1, 0);
+        int acquired = 0;
+        // attempt 10 ops per ms for a second
+        for(long t = 0; t < 1000 * MS; t += MS / 10) {
+            if(bucket.tryAcquire(t))
+                acquired++;
+        }
+        assertEquals(1000, acquired);
+    }
+
+    @Test
+    public void testBurstSmallerThanOneOp() {
+        // a burst shorter than the interval still lets one op through
+        TokenBucket bucket = new TokenBucket(1, 10, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(500 * MS));
+        assertTrue(bucket.tryAcquire(1000 * MS));
+    }
+
+    @Test
+    public void testMultipleTokens() {
+        // 100 ops/sec with 100 ms of burst: 10 tokens
+        TokenBucket bucket = new TokenBucket(100, 100, 0);
+        assertFalse("A batch larger than the burst never fits", bucket.tryAcquire(11, 0));
+        assertTrue(bucket.tryAcquire(6, 0));
+        assertFalse("No tokens are taken unless all are", bucket.tryAcquire(5, 0));
+        assertTrue(bucket.tryAcquire(4, 0));
+        assertFalse(bucket.tryAcquire(0));
+
+        // the batch waits until enough tokens are back
+        assertFalse(bucket.tryAcquire(3, 20 * MS));
+        assertTrue(bucket.tryAcquire(3, 30 * MS));
+    }
+
+    @Test
+    public void testZeroRate() {
+        TokenBucket bucket = new TokenBucket(0, 1000, 0);
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(1000 * MS));
+    }
+
+    @Test
+    public void testTinyRateStaysLimited() {
+        // the interval of such a rate does not fit in a long
+        TokenBucket bucket = new TokenBucket(1e-12, 100, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(TimeUnit.DAYS.toNanos(365)));
+        assertEquals(100, bucket.getPctUsed(0));
+
+        bucket = new TokenBucket(1e-12, Long.MAX_VALUE, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+    }
+}
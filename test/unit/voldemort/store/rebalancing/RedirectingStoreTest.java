@@ -271,6 +271,13 @@ public class RedirectingStoreTest {
     private RedirectingStore getRedirectingStore(int nodeId,
                                                  MetadataStore metadata,
                                                  String storeName) {
+        return getRedirectingStore(nodeId, metadata, storeName, 0);
+    }
+
+    private RedirectingStore getRedirectingStore(int nodeId,
+                                                 MetadataStore metadata,
+                                                 String storeName,
+                                                 long proxyGetMissCacheTtlMs) {
         return new RedirectingStore(ServerTestUtils.getSocketStore(storeFactory,
                                                                    storeName,
                                                                    servers[nodeId].getIdentityNode()
@@ -282,7 +289,8 @@ public class RedirectingStoreTest {
                                     storeFactory,
                                     Executors.newFixedThreadPool(1,
                                                                  new DaemonThreadFactory("voldemort-proxy-put-thread")),
-                                    new ProxyPutStats(null));
+                                    new ProxyPutStats(null),
+                                    proxyGetMissCacheTtlMs);
     }
 
     @Test
@@ -317,6 +325,40 @@ public class RedirectingStoreTest {
         }
     }
 
+    @Test
+    public void testProxyGetMissCache() {
+        ByteArray key = proxyPutTestPrimaryEntries.keySet().iterator().next();
+        final RedirectingStore cachingStoreNode2 = getRedirectingStore(2,
+                                                                       servers[2].getMetadataStore(),
+                                                                       "test",
+                                                                       60 * 1000);
+        final Store<ByteArray, byte[], byte[]> socketStoreNode0 = cachingStoreNode2.getRedirectingSocketStore("test",
+                                                                                                               0);
+        long time = System.currentTimeMillis();
+        socketStoreNode0.delete(key, makeSuperClock(time++));
+
+        assertEquals("Key should be missing on the proxy node",
+                     0,
+                     cachingStoreNode2.get(key, null).size());
+        assertEquals(0, cachingStoreNode2.getProxyGetMissCacheHits());
+
+        // the miss is remembered, so a value appearing on the proxy node is
+        // not seen until it expires
+        socketStoreNode0.put(key,
+                             new Versioned<byte[]>("late".getBytes(), makeSuperClock(time++)),
+                             null);
+        assertEquals(0, cachingStoreNode2.get(key, null).size());
+        assertEquals(0, cachingStoreNode2.getVersions(key).size());
+        assertEquals(0, cachingStoreNode2.getAll(Lists.newArrayList(key), null).size());
+        assertEquals(3, cachingStoreNode2.getProxyGetMissCacheHits());
+
+        final RedirectingStore storeNode2 = getRedirectingStore(2,
+                                                                servers[2].getMetadataStore(),
+                                                                "test");
+        assertEquals("late", new String(storeNode2.get(key, null).get(0).getValue()));
+        assertEquals(0, storeNode2.getProxyGetMissCacheHits());
+    }
+
     @Test
     public void testProxyGetAll() {
         final RedirectingStore storeNode2 = getRedirectingStore(2,
@@ -614,6 +656,7 @@ public class RedirectingStoreTest {
                                   new Versioned<byte[]>("value-final".getBytes(),
                                                         makeSuperClock(time++)),
                                   null);
+        waitForProxyPutsToDrain(redirectingStoreNode2);
         assertEquals("Final value not found on node 2",
                      "value-final",
                      new String(socketStoreNode2.get(secondaryKey1, null).get(0).getValue()));
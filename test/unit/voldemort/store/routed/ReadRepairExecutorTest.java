@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.TestUtils;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Lists;
+
+public class ReadRepairExecutorTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private ExecutorService threadPool;
+    private InMemoryStorageEngine<ByteArray, byte[], byte[]> engine;
+    private GatedNonblockingStore store;
+    private ReadRepairExecutor executor;
+
+    /**
+     * Holds up the putAll requests until the gate opens, and counts them
+     */
+    private class GatedNonblockingStore extends ThreadPoolBasedNonblockingStoreImpl {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final List<Integer> batchSizes = Lists.newCopyOnWriteArrayList();
+        private final AtomicInteger submitted = new AtomicInteger(0);
+
+        public GatedNonblockingStore() {
+            super(threadPool, engine);
+        }
+
+        @Override
+        public void submitPutAllRequest(Map<ByteArray, Versioned<byte[]>> entries,
+                                        Map<ByteArray, byte[]> transforms,
+                                        NonblockingStoreCallback callback,
+                                        long timeoutMs) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(entries.size());
+            super.submitPutAllRequest(entries, transforms, callback, timeoutMs);
+            submitted.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        threadPool = Executors.newFixedThreadPool(2);
+        engine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        store = new GatedNonblockingStore();
+        executor = new ReadRepairExecutor(2, 0);
+    }
+
+    @After
+    public void tearDown() {
+        executor.close();
+        threadPool.shutdownNow();
+    }
+
+    private NodeValue<ByteArray, byte[]> repair(String key) {
+        return repair(0, key);
+    }
+
+    private NodeValue<ByteArray, byte[]> repair(int nodeId, String key) {
+        return new NodeValue<ByteArray, byte[]>(nodeId,
+                                                new ByteArray(key.getBytes()),
+                                                new Versioned<byte[]>(key.getBytes(),
+                                                                      TestUtils.getClock(1)));
+    }
+
+    private void waitForRepairs(String... keys) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        for(String key: keys) {
+            while(engine.get(new ByteArray(key.getBytes()), null).isEmpty()) {
+                assertTrue("Repairs were not sent in time", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testRepairsAreCoalescedAndBatched() throws Exception {
+        // the worker holds the first repair while the others queue up
+        executor.submit(store, repair("k0"), TIMEOUT_MS);
+        assertTrue(store.entered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(0, executor.getQueueLength());
+
+        executor.submit(store, repair("k1"), TIMEOUT_MS);
+        executor.submit(store, repair("k1"), TIMEOUT_MS);
+        executor.submit(store, repair("k2"), TIMEOUT_MS);
+        executor.submit(store, repair("k3"), TIMEOUT_MS);
+        assertEquals(2, executor.getQueueLength());
+        assertEquals(1, executor.getRepairsCoalesced());
+        assertEquals(1, executor.getRepairsDropped());
+
+        store.gate.countDown();
+        waitForRepairs("k0", "k1", "k2");
+        assertEquals(3, executor.getRepairsIssued());
+        assertEquals(0, executor.getRepairsFailed());
+        assertEquals(Lists.newArrayList(1, 2), store.batchSizes);
+        for(String key: new String[] { "k0", "k1", "k2" })
+            assertEquals(1, engine.get(new ByteArray(key.getBytes()), null).size());
+        assertTrue(engine.get(new ByteArray("k3".getBytes()), null).isEmpty());
+    }
+
+    @Test
+    public void testObsoleteRepairIsNotAFailure() throws Exception {
+        engine.put(new ByteArray("k2".getBytes()),
+                   new Versioned<byte[]>("newer".getBytes(), TestUtils.getClock(1, 1)),
+                   null);
+        store.gate.countDown();
+        executor.submit(store, repair("k2"), TIMEOUT_MS);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while(store.submitted.get() == 0) {
+            assertTrue("Repair was not sent in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        // the repair must have completed before its failure would be counted
+        threadPool.shutdown();
+        assertTrue(threadPool.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.getRepairsIssued());
+        assertEquals(0, executor.getRepairsFailed());
+        assertEquals("newer",
+                     new String(engine.get(new ByteArray("k2".getBytes()), null)
+                                      .get(0)
+                                      .getValue()));
+    }
+
+    @Test
+    public void testThrottledNodeDoesNotHoldUpOthers() throws Exception {
+        executor.close();
+        executor = new ReadRepairExecutor(100, 1);
+        store.gate.countDown();
+        InMemoryStorageEngine<ByteArray, byte[], byte[]> otherEngine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        ThreadPoolBasedNonblockingStoreImpl otherStore = new ThreadPoolBasedNonblockingStoreImpl(threadPool,
+                                                                                                 otherEngine);
+
+        // node 0 may get one repair per second, so its second one waits
+        executor.submit(store, repair("k0"), TIMEOUT_MS);
+        waitForRepairs("k0");
+        executor.submit(store, repair("k1"), TIMEOUT_MS);
+        executor.submit(otherStore, repair(1, "k2"), TIMEOUT_MS);
+
+        long deadline = System.currentTimeMillis() + 500;
+        while(otherEngine.get(new ByteArray("k2".getBytes()), null).isEmpty()) {
+            assertTrue("Repair of node 1 waited for node 0", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertTrue(engine.get(new ByteArray("k1".getBytes()), null).isEmpty());
+
+        // and node 0 gets it later on
+        waitForRepairs("k1");
+        assertEquals(3, executor.getRepairsIssued());
+        assertEquals(0, executor.getRepairsDropped());
+    }
+}
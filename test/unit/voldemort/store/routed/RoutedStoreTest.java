@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -81,6 +82,8 @@ import voldemort.versioning.VectorClockInconsistencyResolver;
 import voldemort.versioning.Version;
 import voldemort.versioning.Versioned;
 
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -735,6 +738,192 @@ public class RoutedStoreTest extends AbstractByteArrayStoreTest {
                      copy.compare(found.get(0).getVersion()));
     }
 
+    /**
+     * Counts the batches and the single puts it gets, without its own putAll
+     * going through put
+     */
+    private static class PutAllCountingStore extends InMemoryStorageEngine<ByteArray, byte[], byte[]> {
+
+        private final AtomicInteger putCalls = new AtomicInteger(0);
+        private final AtomicInteger putAllCalls = new AtomicInteger(0);
+
+        public PutAllCountingStore(String name) {
+            super(name);
+        }
+
+        @Override
+        public synchronized void put(ByteArray key, Versioned<byte[]> value, byte[] transforms) {
+            putCalls.incrementAndGet();
+            super.put(key, value, transforms);
+        }
+
+        @Override
+        public Map<ByteArray, VoldemortException> putAll(Map<ByteArray, Versioned<byte[]>> entries,
+                                                         Map<ByteArray, byte[]> transforms) {
+            putAllCalls.incrementAndGet();
+            Map<ByteArray, VoldemortException> failures = Maps.newHashMap();
+            for(Map.Entry<ByteArray, Versioned<byte[]>> entry: entries.entrySet()) {
+                try {
+                    super.put(entry.getKey(), entry.getValue(), null);
+                } catch(VoldemortException e) {
+                    failures.put(entry.getKey(), e);
+                }
+            }
+            return failures;
+        }
+    }
+
+    private Map<ByteArray, Versioned<byte[]>> getPutAllEntries(List<ByteArray> keys) {
+        Map<ByteArray, Versioned<byte[]>> entries = Maps.newHashMap();
+        for(ByteArray key: keys)
+            entries.put(key, new Versioned<byte[]>(key.get(), new VectorClock()));
+        return entries;
+    }
+
+    private int countNodesWithValue(RoutedStore routedStore, ByteArray key) {
+        int count = 0;
+        for(Store<ByteArray, byte[], byte[]> store: routedStore.getInnerStores().values()) {
+            try {
+                List<Versioned<byte[]>> found = store.get(key, null);
+                if(found.size() == 1 && Arrays.equals(key.get(), found.get(0).getValue()))
+                    count++;
+            } catch(VoldemortException e) {
+                // This is normal for the failing store...
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks keys by their preference list, from the first 10000 candidates
+     */
+    private List<ByteArray> findKeys(int numKeys, Predicate<List<Node>> preferenceList) {
+        RoutingStrategy routingStrategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
+                                                                                             cluster);
+        List<ByteArray> keys = Lists.newArrayList();
+        for(int i = 0; i < 10000 && keys.size() < numKeys; i++) {
+            ByteArray key = TestUtils.toByteArray("key" + i);
+            if(preferenceList.apply(routingStrategy.routeRequest(key.get())))
+                keys.add(key);
+        }
+        assertEquals("Not enough keys found", numKeys, keys.size());
+        return keys;
+    }
+
+    private static Predicate<List<Node>> containsNodes(final int... nodeIds) {
+        return new Predicate<List<Node>>() {
+
+            public boolean apply(List<Node> nodes) {
+                int found = 0;
+                for(Node node: nodes) {
+                    for(int nodeId: nodeIds) {
+                        if(node.getId() == nodeId)
+                            found++;
+                    }
+                }
+                return found == nodeIds.length;
+            }
+        };
+    }
+
+    @Test
+    public void testStatTrackingStorePassesPutAllThrough() throws Exception {
+        PutAllCountingStore inner = new PutAllCountingStore("test");
+        StatTrackingStore statTrackingStore = new StatTrackingStore(inner, null);
+        Map<ByteArray, Versioned<byte[]>> entries = getPutAllEntries(Arrays.asList(TestUtils.toByteArray("a"),
+                                                                                   TestUtils.toByteArray("b"),
+                                                                                   TestUtils.toByteArray("c"),
+                                                                                   TestUtils.toByteArray("d"),
+                                                                                   TestUtils.toByteArray("e")));
+
+        assertTrue(statTrackingStore.putAll(entries, null).isEmpty());
+        assertEquals(1, inner.putAllCalls.get());
+        assertEquals(0, inner.putCalls.get());
+        assertEquals(entries.size(), statTrackingStore.getStats().getCount(Tracked.PUT));
+    }
+
+    @Test
+    public void testPutAllSendsBatchesThroughStatTrackingStores() throws Exception {
+        storeDef = ServerTestUtils.getStoreDef("test",
+                                               3,
+                                               2,
+                                               1,
+                                               3,
+                                               2,
+                                               RoutingStrategyType.CONSISTENT_STRATEGY);
+        Map<Integer, Store<ByteArray, byte[], byte[]>> subStores = Maps.newHashMap();
+        Map<Integer, PutAllCountingStore> innerStores = Maps.newHashMap();
+        for(Node node: cluster.getNodes()) {
+            PutAllCountingStore inner = new PutAllCountingStore("test");
+            innerStores.put(node.getId(), inner);
+            subStores.put(node.getId(), new StatTrackingStore(inner, null));
+        }
+        setFailureDetector(subStores);
+        routedStoreThreadPool = Executors.newFixedThreadPool(4);
+        RoutedStore routedStore = createFactory().create(cluster,
+                                                         storeDef,
+                                                         subStores,
+                                                         failureDetector,
+                                                         createConfig(BANNAGE_PERIOD));
+
+        List<ByteArray> keys = Lists.newArrayList();
+        for(int i = 0; i < 20; i++)
+            keys.add(TestUtils.toByteArray("key" + i));
+        assertTrue(routedStore.putAll(getPutAllEntries(keys), null).isEmpty());
+
+        // at most one batch for the keys each node is master of, and one for
+        // the keys it is a replica of
+        for(PutAllCountingStore inner: innerStores.values()) {
+            assertEquals(0, inner.putCalls.get());
+            assertTrue(inner.putAllCalls.get() <= 2);
+        }
+        for(ByteArray key: keys)
+            assertEquals(3, countNodesWithValue(routedStore, key));
+    }
+
+    @Test
+    public void testPutAllFailsOverFromFailingMaster() throws Exception {
+        RoutedStore routedStore = getStore(cluster, 1, 2, 4, 1);
+        final int failingNodeId = Iterables.get(cluster.getNodes(), 0).getId();
+        List<ByteArray> keys = findKeys(5, new Predicate<List<Node>>() {
+
+            public boolean apply(List<Node> nodes) {
+                return nodes.get(0).getId() == failingNodeId;
+            }
+        });
+        keys.addAll(findKeys(5, Predicates.not(containsNodes(failingNodeId))));
+
+        Map<ByteArray, VoldemortException> failures = routedStore.putAll(getPutAllEntries(keys),
+                                                                         null);
+        assertTrue("Unexpected failures " + failures, failures.isEmpty());
+        for(ByteArray key: keys)
+            assertTrue(countNodesWithValue(routedStore, key) >= 2);
+    }
+
+    @Test
+    public void testPutAllFailsKeysWithoutRequiredWrites() throws Exception {
+        RoutedStore routedStore = getStore(cluster, 1, 3, 4, 2);
+        int firstFailingNodeId = Iterables.get(cluster.getNodes(), 0).getId();
+        int secondFailingNodeId = Iterables.get(cluster.getNodes(), 1).getId();
+        List<ByteArray> failingKeys = findKeys(5, containsNodes(firstFailingNodeId,
+                                                                secondFailingNodeId));
+        List<ByteArray> keys = findKeys(5,
+                                        Predicates.and(Predicates.not(containsNodes(firstFailingNodeId)),
+                                                       Predicates.not(containsNodes(secondFailingNodeId))));
+        keys.addAll(failingKeys);
+
+        Map<ByteArray, VoldemortException> failures = routedStore.putAll(getPutAllEntries(keys),
+                                                                         null);
+        assertEquals(Sets.newHashSet(failingKeys), failures.keySet());
+        for(VoldemortException failure: failures.values())
+            assertTrue("Unexpected failure " + failure,
+                       failure instanceof InsufficientOperationalNodesException);
+        for(ByteArray key: keys) {
+            if(!failingKeys.contains(key))
+                assertEquals(4, countNodesWithValue(routedStore, key));
+        }
+    }
+
     @Test
     public void testObsoleteMasterFails() {
         // write me
@@ -0,0 +1,76 @@
+package voldemort.store.slop;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import voldemort.TestUtils;
+import voldemort.VoldemortTestConstants;
+import voldemort.store.StorageEngine;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+public class SlopStorageEngineTest {
+
+    private SlopStorageEngine createEngine(boolean coalescingEnabled) {
+        return new SlopStorageEngine(new InMemoryStorageEngine<ByteArray, byte[], byte[]>("slop"),
+                                     VoldemortTestConstants.getTwoNodeCluster(),
+                                     coalescingEnabled);
+    }
+
+    private Slop createSlop(Slop.Operation operation, byte[] key) {
+        return new Slop("test", operation, key, TestUtils.randomBytes(10), 1, new Date());
+    }
+
+    @Test
+    public void testNewerSlopReplacesOppositeOperation() {
+        SlopStorageEngine slopEngine = createEngine(true);
+        StorageEngine<ByteArray, Slop, byte[]> slopStore = slopEngine.asSlopStore();
+        byte[] key = TestUtils.randomBytes(10);
+
+        Slop put = createSlop(Slop.Operation.PUT, key);
+        Slop delete = createSlop(Slop.Operation.DELETE, key);
+        VectorClock putClock = TestUtils.getClock(0);
+        slopStore.put(put.makeKey(), new Versioned<Slop>(put, putClock), null);
+        slopStore.put(delete.makeKey(), new Versioned<Slop>(delete, putClock.incremented(0, 1)), null);
+
+        assertEquals(0, slopStore.get(put.makeKey(), null).size());
+        assertEquals(1, slopStore.get(delete.makeKey(), null).size());
+        assertEquals(new Long(1), slopEngine.getCoalescedByNode().get(1));
+    }
+
+    @Test
+    public void testConcurrentSlopsAreKept() {
+        SlopStorageEngine slopEngine = createEngine(true);
+        StorageEngine<ByteArray, Slop, byte[]> slopStore = slopEngine.asSlopStore();
+        byte[] key = TestUtils.randomBytes(10);
+
+        Slop put = createSlop(Slop.Operation.PUT, key);
+        Slop delete = createSlop(Slop.Operation.DELETE, key);
+        slopStore.put(put.makeKey(), new Versioned<Slop>(put, TestUtils.getClock(0)), null);
+        slopStore.put(delete.makeKey(), new Versioned<Slop>(delete, TestUtils.getClock(1)), null);
+
+        assertEquals(1, slopStore.get(put.makeKey(), null).size());
+        assertEquals(1, slopStore.get(delete.makeKey(), null).size());
+        assertEquals(new Long(0), slopEngine.getCoalescedByNode().get(1));
+    }
+
+    @Test
+    public void testCoalescingDisabled() {
+        SlopStorageEngine slopEngine = createEngine(false);
+        StorageEngine<ByteArray, Slop, byte[]> slopStore = slopEngine.asSlopStore();
+        byte[] key = TestUtils.randomBytes(10);
+
+        Slop put = createSlop(Slop.Operation.PUT, key);
+        Slop delete = createSlop(Slop.Operation.DELETE, key);
+        slopStore.put(delete.makeKey(), new Versioned<Slop>(delete, TestUtils.getClock(0)), null);
+        slopStore.put(put.makeKey(), new Versioned<Slop>(put, TestUtils.getClock(0, 0)), null);
+
+        assertEquals(1, slopStore.get(put.makeKey(), null).size());
+        assertEquals(1, slopStore.get(delete.makeKey(), null).size());
+    }
+}
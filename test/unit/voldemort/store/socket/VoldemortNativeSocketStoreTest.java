@@ -28,7 +28,9 @@ public class VoldemortNativeSocketStoreTest extends AbstractSocketStoreTest {
         RequestFormatType[] types = new RequestFormatType[] {
                 RequestFormatType.VOLDEMORT_V1,
                 RequestFormatType.VOLDEMORT_V2,
-                RequestFormatType.VOLDEMORT_V3
+                RequestFormatType.VOLDEMORT_V3,
+                RequestFormatType.VOLDEMORT_V4,
+                RequestFormatType.VOLDEMORT_V5
  };
         List<Object[]> options = new ArrayList<Object[]>();
         boolean[] nioOptions = { true, false };
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class ConcurrentHistogramTest {
+
+    @Test
+    public void testBucketsCoverAllValues() {
+        int previous = -1;
+        for(long value = 0; value < 1000000; value++) {
+            int index = ConcurrentHistogram.bucketIndex(value);
+            assertTrue("Buckets should be contiguous at " + value, index == previous
+                                                                   || index == previous + 1);
+            long highest = ConcurrentHistogram.highestEquivalentValue(index);
+            assertTrue(highest >= value);
+            assertTrue("Error too large for " + value, highest - value <= value / 64);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testQuantiles() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(100000, 0);
+        assertEquals(0, histogram.getSnapshot().getValueAtQuantile(0.99));
+        for(int i = 1; i <= 1000; i++)
+            histogram.record(i);
+        histogram.record(-5);
+
+        ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1000, snapshot.getTotalCount());
+        assertEquals(500.5, snapshot.getAverage(), 0);
+        assertEquals(1, snapshot.getValueAtQuantile(0.0));
+        assertEquals(500, snapshot.getValueAtQuantile(0.5), 500 / 64);
+        assertEquals(990, snapshot.getValueAtQuantile(0.99), 990 / 64);
+        assertEquals(1000, snapshot.getMaxValue(), 1000 / 64);
+
+        histogram.record(10000000);
+        assertEquals(100000, histogram.getSnapshot().getMaxValue());
+    }
+
+    @Test
+    public void testWindows() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(100000, 1000, 2, 0);
+        histogram.record(10);
+        assertEquals(1, histogram.getSnapshot(500).getTotalCount());
+
+        // first window is over, its values are still part of the snapshot
+        assertEquals(1, histogram.getSnapshot(1000).getTotalCount());
+        histogram.record(20);
+        assertEquals(2, histogram.getSnapshot(1500).getTotalCount());
+
+        // second window is over, only the values recorded after the first
+        histogram.record(30);
+        ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot(2000);
+        assertEquals(2, snapshot.getTotalCount());
+        assertEquals(20, snapshot.getValueAtQuantile(0.5));
+
+        histogram.reset(2500);
+        assertEquals(0, histogram.getSnapshot(2600).getTotalCount());
+    }
+
+    @Test
+    public void testMarks() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(100000, 0);
+        histogram.record(10);
+        ConcurrentHistogram.Mark first = histogram.mark();
+        histogram.record(20);
+        histogram.record(30);
+        ConcurrentHistogram.Mark second = histogram.mark();
+
+        assertEquals(1, histogram.getSnapshot(null, first).getTotalCount());
+        ConcurrentHistogram.Snapshot snapshot = histogram.getSnapshot(first, second);
+        assertEquals(2, snapshot.getTotalCount());
+        assertEquals(25.0, snapshot.getAverage(), 0);
+
+        // marks survive a reset, and do not start a new window
+        histogram.reset();
+        histogram.record(40);
+        assertEquals(3, histogram.getSnapshot(first, histogram.mark()).getTotalCount());
+        assertEquals(1, histogram.getSnapshot().getTotalCount());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final ConcurrentHistogram histogram = new ConcurrentHistogram(100000, 0);
+        final int numThreads = 8, numValues = 10000;
+        final CountDownLatch done = new CountDownLatch(numThreads);
+        for(int t = 0; t < numThreads; t++) {
+            new Thread(new Runnable() {
+
+                public void run() {
+                    for(int i = 0; i < numValues; i++)
+                        histogram.record(i);
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(numThreads * numValues, histogram.getSnapshot().getTotalCount());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import voldemort.utils.Time;
+
+public class RequestPhaseStatsTest {
+
+    @Test
+    public void testSampling() {
+        RequestPhaseStats stats = new RequestPhaseStats(0, 0);
+        for(int i = 0; i < 1000; i++)
+            assertEquals(RequestPhaseStats.NOT_TRACED, stats.startTrace());
+
+        stats.setSampleRate(1);
+        for(int i = 0; i < 1000; i++)
+            assertTrue(stats.startTrace() != RequestPhaseStats.NOT_TRACED);
+
+        stats.setSampleRate(10);
+        int sampled = 0;
+        for(int i = 0; i < 100000; i++) {
+            if(stats.startTrace() != RequestPhaseStats.NOT_TRACED)
+                sampled++;
+        }
+        assertTrue("Sampled " + sampled + " requests", sampled > 8000 && sampled < 12000);
+    }
+
+    @Test
+    public void testCurrentTraceIsKept() {
+        RequestPhaseStats stats = new RequestPhaseStats(1, 0);
+        assertNull(RequestPhaseStats.getCurrentTraceId());
+        assertFalse(RequestPhaseStats.isCurrentTraced());
+        assertTrue(stats.getOrStartTrace() != RequestPhaseStats.NOT_TRACED);
+
+        RequestPhaseStats.setCurrentTraceId(42L);
+        try {
+            assertTrue(RequestPhaseStats.isCurrentTraced());
+            assertEquals(42L, stats.getOrStartTrace());
+
+            // a request that is not sampled stays so for all its phases
+            RequestPhaseStats.setCurrentTraceId(RequestPhaseStats.NOT_TRACED);
+            assertFalse(RequestPhaseStats.isCurrentTraced());
+            assertEquals(RequestPhaseStats.NOT_TRACED, stats.getOrStartTrace());
+        } finally {
+            RequestPhaseStats.setCurrentTraceId(null);
+        }
+        assertNull(RequestPhaseStats.getCurrentTraceId());
+    }
+
+    @Test
+    public void testPhasesAreRecordedSeparately() {
+        RequestPhaseStats stats = new RequestPhaseStats(1, 0);
+        for(int i = 1; i <= 100; i++)
+            stats.record(RequestPhase.NETWORK, i * Time.NS_PER_MS);
+        stats.record(RequestPhase.STORAGE, 5 * Time.NS_PER_MS);
+
+        assertEquals(100, stats.getSnapshot(RequestPhase.NETWORK).getTotalCount());
+        assertEquals(1, stats.getSnapshot(RequestPhase.STORAGE).getTotalCount());
+        assertEquals(0, stats.getSnapshot(RequestPhase.CHECKOUT).getTotalCount());
+        assertEquals(50.0, stats.getPhaseLatencyMs(RequestPhase.NETWORK.toString(), 0.5), 1.0);
+        assertEquals(5.0, stats.getPhaseLatencyMs(RequestPhase.STORAGE.toString(), 0.99), 0.1);
+        assertTrue(stats.getPhaseLatenciesAsString().contains(RequestPhase.STORAGE.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSampleRate() {
+        new RequestPhaseStats(-1, 0);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import voldemort.ClusterTestUtils;
+import voldemort.ServerTestUtils;
+import voldemort.cluster.Cluster;
+import voldemort.routing.RoutingStrategyType;
+import voldemort.store.StoreDefinition;
+
+/**
+ * Checks that the utility maintained under swaps is exactly the one
+ * PartitionBalance computes from scratch.
+ */
+public class IncrementalPartitionBalanceTest {
+
+    private static final int NUM_SWAPS = 50;
+
+    private void verifySwapsMatchPartitionBalance(Cluster cluster, List<StoreDefinition> storeDefs) {
+        Random random = new Random(7);
+        IncrementalPartitionBalance balance = new IncrementalPartitionBalance(cluster, storeDefs);
+        assertEquals(new PartitionBalance(cluster, storeDefs).getUtility(),
+                     balance.getUtility(),
+                     0.0);
+
+        for(int i = 0; i < NUM_SWAPS; i++) {
+            int partitionIdA = random.nextInt(cluster.getNumberOfPartitions());
+            int partitionIdB = random.nextInt(cluster.getNumberOfPartitions());
+            int nodeIdA = cluster.getNodeForPartitionId(partitionIdA).getId();
+            int nodeIdB = cluster.getNodeForPartitionId(partitionIdB).getId();
+            Cluster swapped = Repartitioner.swapPartitions(cluster,
+                                                           nodeIdA,
+                                                           partitionIdA,
+                                                           nodeIdB,
+                                                           partitionIdB);
+            double expected = new PartitionBalance(swapped, storeDefs).getUtility();
+            assertEquals(expected, balance.getUtilityAfterSwap(partitionIdA, partitionIdB), 0.0);
+
+            // keep every other swap
+            if(i % 2 == 0) {
+                balance.swapPartitions(partitionIdA, partitionIdB);
+                cluster = swapped;
+                assertEquals(expected, balance.getUtility(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testZonedClusters() {
+        verifySwapsMatchPartitionBalance(ClusterTestUtils.getZZCluster(),
+                                         ClusterTestUtils.getZZStoreDefsInMemory());
+        verifySwapsMatchPartitionBalance(ClusterTestUtils.getZZZCluster(),
+                                         ClusterTestUtils.getZZZStoreDefsInMemory());
+    }
+
+    @Test
+    public void testNewNodes() {
+        verifySwapsMatchPartitionBalance(ClusterTestUtils.getZZClusterWithNN(),
+                                         ClusterTestUtils.getZZStoreDefsInMemory());
+        verifySwapsMatchPartitionBalance(ClusterTestUtils.getZZZClusterWithNNN(),
+                                         ClusterTestUtils.getZZZStoreDefsInMemory());
+    }
+
+    @Test
+    public void testConsistentRouting() {
+        Cluster cluster = ServerTestUtils.getLocalCluster(4, new int[][] { { 0, 1, 2, 3, 4 },
+                { 5, 6, 7 }, { 8, 9, 10, 11, 12, 13 }, { 14, 15 } });
+        List<StoreDefinition> storeDefs = ServerTestUtils.getStoreDefs(2);
+        storeDefs.add(ServerTestUtils.getStoreDef("rf3",
+                                                  3,
+                                                  1,
+                                                  1,
+                                                  1,
+                                                  1,
+                                                  RoutingStrategyType.CONSISTENT_STRATEGY));
+        verifySwapsMatchPartitionBalance(cluster, storeDefs);
+    }
+
+    @Test
+    public void testOtherRoutingFallsBackToFullBalance() {
+        Cluster cluster = ServerTestUtils.getLocalCluster(4, new int[][] { { 0, 1, 2, 3, 4 },
+                { 5, 6, 7 }, { 8, 9, 10, 11, 12, 13 }, { 14, 15 } });
+        List<StoreDefinition> storeDefs = ServerTestUtils.getStoreDefs(2);
+        storeDefs.add(ServerTestUtils.getStoreDef("all",
+                                                  1,
+                                                  1,
+                                                  1,
+                                                  1,
+                                                  1,
+                                                  RoutingStrategyType.TO_ALL_STRATEGY));
+        verifySwapsMatchPartitionBalance(cluster, storeDefs);
+    }
+}
@@ -16,6 +16,7 @@
 
 package voldemort.tools;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -450,6 +451,40 @@ public class RepartitionerTest {
         verifyGreedySwapsImproveBalance(currentCluster, storeDefs);
     }
  
+    private Cluster repartitionWithSeed(Cluster currentCluster,
+                                        List<StoreDefinition> storeDefs,
+                                        long seed) {
+        return Repartitioner.repartition(currentCluster,
+                                         storeDefs,
+                                         currentCluster,
+                                         storeDefs,
+                                         null,
+                                         2,
+                                         false,
+                                         false,
+                                         true,
+                                         50,
+                                         10,
+                                         Collections.<Integer> emptyList(),
+                                         true,
+                                         2,
+                                         3,
+                                         10,
+                                         Collections.<Integer> emptyList(),
+                                         2,
+                                         seed);
+    }
+
+    @Test
+    public void testSameSeedGivesSameCluster() {
+        Cluster currentCluster = ClusterTestUtils.getZZZCluster();
+        List<StoreDefinition> storeDefs = ClusterTestUtils.getZZZStoreDefsInMemory();
+        Cluster repartitionedCluster = repartitionWithSeed(currentCluster, storeDefs, 42);
+        Cluster sameSeedCluster = repartitionWithSeed(currentCluster, storeDefs, 42);
+        assertEquals(repartitionedCluster.getPartitionIdToNodeIdMap(),
+                     sameSeedCluster.getPartitionIdToNodeIdMap());
+    }
+
     @Test
     public void testShuffleWithinZone() {
         // Two zone cluster
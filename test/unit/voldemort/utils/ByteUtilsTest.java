@@ -46,6 +46,34 @@ public class ByteUtilsTest extends TestCase {
                    Arrays.equals("hell".getBytes(), ByteUtils.copy("hello".getBytes(), 0, 4)));
     }
 
+    public void testReadWriteVarLong() {
+        long[] values = { 0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE,
+                System.currentTimeMillis(), Long.MAX_VALUE, -1, Long.MIN_VALUE };
+        byte[] bytes = new byte[11];
+        for(long value: values) {
+            int size = ByteUtils.writeVarLong(bytes, value, 1);
+            assertEquals(ByteUtils.sizeOfVarLong(value), size);
+            assertEquals(value, ByteUtils.readVarLong(bytes, 1));
+        }
+        assertEquals(1, ByteUtils.sizeOfVarLong(127));
+        assertEquals(2, ByteUtils.sizeOfVarLong(128));
+        assertEquals(10, ByteUtils.sizeOfVarLong(-1));
+
+        try {
+            ByteUtils.readVarLong(new byte[] { (byte) 0x80 }, 0);
+            fail("Read a truncated number");
+        } catch(IllegalArgumentException e) {}
+    }
+
+    public void testZigZag() {
+        assertEquals(0, ByteUtils.zigZagEncode(0));
+        assertEquals(1, ByteUtils.zigZagEncode(-1));
+        assertEquals(2, ByteUtils.zigZagEncode(1));
+        assertEquals(-1, ByteUtils.zigZagEncode(Long.MIN_VALUE));
+        for(long value: new long[] { 0, 5, -5, Long.MAX_VALUE, Long.MIN_VALUE })
+            assertEquals(value, ByteUtils.zigZagDecode(ByteUtils.zigZagEncode(value)));
+    }
+
     public void testReadWriteShort() {
         byte[] bytes = new byte[4];
         ByteUtils.writeShort(bytes, (short) 5, 0);
@@ -1,16 +1,21 @@
 package voldemort.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -37,7 +42,10 @@ import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 import voldemort.xml.StoreDefinitionsMapper;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 public class ClusterForkLiftToolTest {
 
@@ -431,6 +439,97 @@ public class ClusterForkLiftToolTest {
 
     }
     
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+
+        StoreRoutingPlan srcStoreInstance = new StoreRoutingPlan(srcCluster,
+                                                                 primaryResolvingStoreDef);
+
+        // populate data on the source cluster..
+        for(Map.Entry<String, String> entry: kvPairs.entrySet()) {
+            srcPrimaryResolvingStoreClient.put(entry.getKey(), entry.getValue());
+        }
+
+        // a previous run completed partitions 0 and 1
+        File checkpointFile = File.createTempFile("forklift", ".checkpoint");
+        checkpointFile.deleteOnExit();
+        Files.write(PRIMARY_RESOLVING_STORE_NAME + " 0\n" + PRIMARY_RESOLVING_STORE_NAME + " 1\n",
+                    checkpointFile,
+                    Charsets.UTF_8);
+
+        // perform the forklifting..
+        ClusterForkLiftTool forkLiftTool = new ClusterForkLiftTool(srcBootStrapUrl,
+                                                                   dstBootStrapUrl,
+                                                                   false,
+                                                                   false, // ignoreSchemaMismatch
+                                                                   10000,
+                                                                   2,
+                                                                   1000,
+                                                                   Lists.newArrayList(PRIMARY_RESOLVING_STORE_NAME),
+                                                                   null,
+                                                                   ClusterForkLiftTool.ForkLiftTaskMode.primary_resolution,
+                                                                   checkpointFile.getAbsolutePath(),
+                                                                   1);
+        forkLiftTool.run();
+
+        // only the partitions missing from the checkpoint are forklifted
+        for(Map.Entry<String, String> entry: kvPairs.entrySet()) {
+            int partitionId = srcStoreInstance.getMasterPartitionId(entry.getKey()
+                                                                         .getBytes("UTF-8"));
+            Versioned<String> dstValue = dstPrimaryResolvingStoreClient.get(entry.getKey());
+            if(partitionId == 0 || partitionId == 1) {
+                assertNull("checkpointed partition forklifted again", dstValue);
+            } else {
+                assertEquals("fork lift data missing", entry.getValue(), dstValue.getValue());
+            }
+        }
+
+        // and recorded in the checkpoint once committed
+        Set<String> checkpointedPartitions = new HashSet<String>(Files.readLines(checkpointFile,
+                                                                                 Charsets.UTF_8));
+        for(int partitionId = 0; partitionId < srcCluster.getNumberOfPartitions(); partitionId++) {
+            assertTrue("partition " + partitionId + " not checkpointed",
+                       checkpointedPartitions.contains(PRIMARY_RESOLVING_STORE_NAME + " "
+                                                       + partitionId));
+        }
+    }
+
+    @Test
+    public void testClosedPrefetchDrainsTheSourceStream() throws Exception {
+        ClusterForkLiftTool forkLiftTool = new ClusterForkLiftTool(srcBootStrapUrl,
+                                                                   dstBootStrapUrl,
+                                                                   false,
+                                                                   false, // ignoreSchemaMismatch
+                                                                   10000,
+                                                                   1,
+                                                                   1000,
+                                                                   Lists.newArrayList(PRIMARY_RESOLVING_STORE_NAME),
+                                                                   null,
+                                                                   ClusterForkLiftTool.ForkLiftTaskMode.primary_resolution);
+        // the admin client only releases the socket of a fetch at its end
+        final int numItems = 1000;
+        final AtomicInteger numRead = new AtomicInteger(0);
+        Iterator<Integer> source = new AbstractIterator<Integer>() {
+
+            @Override
+            protected Integer computeNext() {
+                if(numRead.get() == numItems)
+                    return endOfData();
+                return numRead.incrementAndGet();
+            }
+        };
+
+        ClusterForkLiftTool.PrefetchingIterator<Integer> prefetch = forkLiftTool.new PrefetchingIterator<Integer>(source,
+                                                                                                                  2);
+        assertEquals(1, (int) prefetch.next());
+        prefetch.close();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while(numRead.get() < numItems && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals("source stream not drained", numItems, numRead.get());
+    }
+
     @Test
     public void testTypeMismatch() throws Exception {
         for(String store: SCHEMA_MISMATCH_STORES) {
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.StringWriter;
 import java.util.ArrayList;
@@ -31,18 +32,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import voldemort.ServerTestUtils;
+import voldemort.VoldemortException;
+import voldemort.client.protocol.RequestFormatType;
 import voldemort.client.protocol.admin.AdminClient;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
+import voldemort.common.service.ServiceType;
 import voldemort.routing.RoutingStrategy;
 import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.RequestRoutingType;
 import voldemort.server.VoldemortServer;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.server.storage.StorageService;
 import voldemort.store.StoreDefinition;
+import voldemort.store.socket.SocketStore;
 import voldemort.store.socket.SocketStoreFactory;
 import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.utils.ConsistencyCheck.ClusterNode;
@@ -570,6 +579,66 @@ public class ConsistencyCheckTest {
             assertEquals(3, reporter.numGoodKeys);
         }
 
+        // same result when only the keys of the Merkle tree leaves that differ
+        // are fetched
+        StringWriter sw = new StringWriter();
+        ConsistencyCheck checker = new ConsistencyCheck(urls,
+                                                        STORE_NAME,
+                                                        0,
+                                                        sw,
+                                                        ConsistencyCheck.ComparisonType.VERSION,
+                                                        4);
+        checker.connect();
+        Reporter reporter = checker.execute();
+        assertEquals(7 - 2, reporter.numTotalKeys);
+        assertEquals(3, reporter.numGoodKeys);
+        assertEquals(2, sw.toString().split("\n").length);
+
+        // the scans are not served on the socket port
+        SocketStore socketPortStore = socketStoreFactory.create(STORE_NAME,
+                                                                node.getHost(),
+                                                                node.getSocketPort(),
+                                                                RequestFormatType.VOLDEMORT_V4,
+                                                                RequestRoutingType.IGNORE_CHECKS);
+        try {
+            socketPortStore.getMerkleTree(0, 4);
+            fail("Merkle tree served on the socket port");
+        } catch(VoldemortException e) {
+            // expected
+        }
+
+        // nor on the admin port while every scan permit is taken
+        ScanPermitWrapper scanPermits = ((StorageService) servers[0].getService(ServiceType.STORAGE)).getScanPermitWrapper();
+        int numTaken = 0;
+        while(scanPermits.tryAcquire(new AtomicLong(0), new AtomicLong(0), "test " + numTaken))
+            numTaken++;
+        SocketStore adminPortStore = socketStoreFactory.create(STORE_NAME,
+                                                               node.getHost(),
+                                                               node.getAdminPort(),
+                                                               RequestFormatType.VOLDEMORT_V4,
+                                                               RequestRoutingType.IGNORE_CHECKS);
+        try {
+            adminPortStore.getMerkleTree(0, 4);
+            fail("Merkle tree built without a scan permit");
+        } catch(VoldemortException e) {
+            // expected
+        }
+        for(int i = 0; i < numTaken; i++)
+            scanPermits.release("test " + i);
+        MerkleTree tree = adminPortStore.getMerkleTree(0, 4);
+        assertEquals(7, tree.getKeyCount());
+
+        // the keys of its leaves are then listed without scanning again
+        List<Integer> leaves = new ArrayList<Integer>();
+        for(int leaf = 0; leaf < tree.getNumLeaves(); leaf++)
+            leaves.add(leaf);
+        numTaken = 0;
+        while(scanPermits.tryAcquire(new AtomicLong(0), new AtomicLong(0), "test " + numTaken))
+            numTaken++;
+        assertEquals(7, adminPortStore.getMerkleLeafVersions(0, 4, leaves).size());
+        for(int i = 0; i < numTaken; i++)
+            scanPermits.release("test " + i);
+
         for(VoldemortServer vs: servers) {
             vs.stop();
         }
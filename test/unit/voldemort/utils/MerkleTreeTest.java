@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.utils;
+
+import static voldemort.TestUtils.getClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+
+public class MerkleTreeTest extends TestCase {
+
+    private static final int NUM_KEYS = 1000;
+
+    private static byte[] key(int i) {
+        return ("key" + i).getBytes();
+    }
+
+    private static List<Version> versions(Version... versions) {
+        return Arrays.asList(versions);
+    }
+
+    public void testSameEntriesInAnyOrderHaveSameRoot() {
+        MerkleTree tree = new MerkleTree(8);
+        MerkleTree reversed = new MerkleTree(8);
+        for(int i = 0; i < NUM_KEYS; i++)
+            tree.add(key(i), versions(getClock(1, 2), getClock(3)));
+        for(int i = NUM_KEYS - 1; i >= 0; i--)
+            reversed.add(key(i), versions(getClock(3), getClock(2, 1)));
+
+        assertEquals(tree.getRootHash(), reversed.getRootHash());
+        assertEquals(Collections.emptyList(), tree.getDivergentLeaves(reversed));
+        assertEquals(NUM_KEYS, tree.getKeyCount());
+    }
+
+    public void testTimestampIsIgnored() {
+        MerkleTree tree = new MerkleTree(4);
+        MerkleTree other = new MerkleTree(4);
+        VectorClock clock = getClock(1, 1, 2);
+        VectorClock later = new VectorClock(clock.getEntries(), clock.getTimestamp() + 1000);
+        tree.add(key(0), versions(clock));
+        other.add(key(0), versions(later));
+        assertEquals(tree.getRootHash(), other.getRootHash());
+    }
+
+    public void testDivergentLeaves() {
+        MerkleTree tree = new MerkleTree(10);
+        MerkleTree other = new MerkleTree(10);
+        for(int i = 0; i < NUM_KEYS; i++) {
+            tree.add(key(i), versions(getClock(1)));
+            // one newer version, one missing key and one extra key
+            if(i == 10)
+                other.add(key(i), versions(getClock(1, 1)));
+            else if(i != 20)
+                other.add(key(i), versions(getClock(1)));
+        }
+        other.add(key(NUM_KEYS), versions(getClock(1)));
+        assertFalse(tree.getRootHash() == other.getRootHash());
+
+        List<Integer> expected = new ArrayList<Integer>();
+        for(int i: new int[] { 10, 20, NUM_KEYS }) {
+            if(!expected.contains(tree.getLeaf(key(i))))
+                expected.add(tree.getLeaf(key(i)));
+        }
+        Collections.sort(expected);
+        assertEquals(expected, tree.getDivergentLeaves(other));
+        assertEquals(expected, other.getDivergentLeaves(tree));
+    }
+
+    public void testRebuiltFromLeaves() {
+        MerkleTree tree = new MerkleTree(6);
+        for(int i = 0; i < NUM_KEYS; i++)
+            tree.add(key(i), versions(getClock(i % 3 + 1)));
+        long[] leafHashes = new long[tree.getNumLeaves()];
+        int[] leafKeyCounts = new int[tree.getNumLeaves()];
+        for(int leaf = 0; leaf < tree.getNumLeaves(); leaf++) {
+            leafHashes[leaf] = tree.getLeafHash(leaf);
+            leafKeyCounts[leaf] = tree.getLeafKeyCount(leaf);
+        }
+
+        MerkleTree copy = new MerkleTree(leafHashes, leafKeyCounts);
+        assertEquals(6, copy.getDepth());
+        assertEquals(tree.getRootHash(), copy.getRootHash());
+        assertEquals(NUM_KEYS, copy.getKeyCount());
+        assertEquals(tree.getLeaf(key(5)), MerkleTree.getLeaf(key(5), 6));
+    }
+
+    public void testDepthZeroHasOneLeaf() {
+        MerkleTree tree = new MerkleTree(0);
+        MerkleTree other = new MerkleTree(0);
+        tree.add(key(1), versions(getClock(1)));
+        assertEquals(1, tree.getNumLeaves());
+        assertEquals(0, tree.getLeaf(key(1)));
+        assertEquals(Arrays.asList(0), tree.getDivergentLeaves(other));
+    }
+
+    public void testInvalidDepth() {
+        try {
+            new MerkleTree(MerkleTree.MAX_DEPTH + 1);
+            fail("Tree deeper than the maximum depth was created");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new MerkleTree(4).getDivergentLeaves(new MerkleTree(5));
+            fail("Trees of different depths were compared");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new MerkleTree(new long[3], new int[3]);
+            fail("Tree with a number of leaves other than a power of two was created");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
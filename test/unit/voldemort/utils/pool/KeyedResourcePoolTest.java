@@ -60,6 +60,20 @@ public class KeyedResourcePoolTest extends KeyedResourcePoolTestBase {
                    r1 == r2);
     }
 
+    @Test
+    public void testCheckoutWithDefaultTimeout() throws Exception {
+        // the default timeout of Long.MAX_VALUE must not overflow into an
+        // immediate timeout
+        KeyedResourcePool<String, TestResource> defaultPool = KeyedResourcePool.create(factory);
+        try {
+            TestResource r1 = defaultPool.checkout("a");
+            defaultPool.checkin("a", r1);
+            assertTrue("Checked out value should be pooled", r1 == defaultPool.checkout("a"));
+        } finally {
+            defaultPool.close();
+        }
+    }
+
     @Test
     public void testFullPoolBlocks() throws Exception {
         for(int i = 0; i < POOL_SIZE; i++)
@@ -73,6 +87,52 @@ public class KeyedResourcePoolTest extends KeyedResourcePoolTestBase {
         }
     }
 
+    @Test
+    public void testSetMaxPoolSize() throws Exception {
+        Queue<TestResource> resources = new LinkedList<TestResource>();
+        for(int i = 0; i < POOL_SIZE; i++)
+            resources.add(this.pool.checkout("a"));
+        this.pool.checkin("a", resources.poll());
+        this.pool.checkin("a", resources.poll());
+        assertEquals(POOL_SIZE, this.pool.getMaxPoolSize("a"));
+
+        // shrinking destroys the idle resources above the new limit
+        this.pool.setMaxPoolSize("a", POOL_SIZE - 3);
+        assertEquals(POOL_SIZE - 3, this.pool.getMaxPoolSize("a"));
+        assertEquals(POOL_SIZE - 2, this.pool.getTotalResourceCount("a"));
+        assertEquals(0, this.pool.getCheckedInResourcesCount("a"));
+        assertEquals(2, this.factory.getDestroyed());
+
+        // resources checked in above the new limit are destroyed
+        this.pool.checkin("a", resources.poll());
+        assertEquals(POOL_SIZE - 3, this.pool.getTotalResourceCount("a"));
+        assertEquals(0, this.pool.getCheckedInResourcesCount("a"));
+        assertEquals(3, this.factory.getDestroyed());
+        this.pool.checkin("a", resources.poll());
+        assertEquals(POOL_SIZE - 3, this.pool.getTotalResourceCount("a"));
+        assertEquals(1, this.pool.getCheckedInResourcesCount("a"));
+
+        // the pool blocks at the new limit and grows again up to the
+        // configured maximum
+        this.pool.checkout("a");
+        try {
+            this.pool.checkout("a");
+            fail("Checking out more items than the new limit should timeout.");
+        } catch(TimeoutException e) {
+            // this is good
+        }
+        this.pool.setMaxPoolSize("a", POOL_SIZE);
+        this.pool.checkout("a");
+        assertEquals(POOL_SIZE - 2, this.pool.getTotalResourceCount("a"));
+
+        try {
+            this.pool.setMaxPoolSize("a", POOL_SIZE + 1);
+            fail("Growing beyond the configured maximum should fail.");
+        } catch(IllegalArgumentException e) {
+            // this is good
+        }
+    }
+
     @Test
     public void testExceptionOnDestroy() throws Exception {
         assertTrue("POOL_SIZE is not big enough", POOL_SIZE >= 2);
@@ -22,7 +22,10 @@ import static org.junit.Assert.fail;
 import static voldemort.TestUtils.getClock;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 
 import org.junit.Test;
 
@@ -151,6 +154,49 @@ public class VectorClockTest {
                      clock2);
     }
 
+    @Test
+    public void testCompactSerialization() {
+        VectorClock[] clocks = { getClock(), getClock(1, 1, 2, 3, 4, 4, 6),
+                new VectorClock(Lists.newArrayList(new ClockEntry((short) 0, 1),
+                                                   new ClockEntry(Short.MAX_VALUE,
+                                                                  Long.MAX_VALUE)), -42) };
+        for(VectorClock clock: clocks) {
+            byte[] bytes = new byte[clock.sizeInCompactBytes() + 2];
+            assertEquals(clock.sizeInCompactBytes(), clock.toCompactBytes(bytes, 1));
+            VectorClock read = VectorClock.fromCompactBytes(bytes, 1);
+            assertEquals("Clock does not serialize to itself.", clock, read);
+            assertEquals(clock.getTimestamp(), read.getTimestamp());
+        }
+        VectorClock clock = getClock(1, 2, 3);
+        assertTrue("Compact clock should be smaller",
+                   clock.sizeInCompactBytes() < clock.sizeInBytes());
+    }
+
+    @Test
+    public void testJavaSerialization() throws Exception {
+        VectorClock clock = getClock(1, 1, 2, 5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(clock);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        VectorClock read = (VectorClock) in.readObject();
+        assertEquals(clock, read);
+        assertEquals(clock.getTimestamp(), read.getTimestamp());
+        assertEquals(clock.getVersionMap(), read.getVersionMap());
+    }
+
+    @Test
+    public void testIncrementedLeavesOriginalUnchanged() {
+        VectorClock clock = getClock(1, 3);
+        VectorClock copy = clock.clone();
+        VectorClock incremented = clock.incremented(1, 1).incremented(2, 1);
+        clock.incrementVersion(3, 1);
+        assertEquals(getClock(1, 3), copy);
+        assertEquals(getClock(1, 1, 2, 3), incremented);
+        assertEquals(getClock(1, 3, 3), clock);
+    }
+
     @Test
     public void testSerializationWraps() {
         VectorClock clock = getClock(1, 1, 2, 3, 3, 6);